@@ -0,0 +1,194 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr.particlesystem;
+
+import com.samsungxr.SXRContext;
+import com.samsungxr.SXRMaterial;
+import com.samsungxr.SXRMesh;
+import com.samsungxr.SXRNode;
+import com.samsungxr.SXRVertexBuffer;
+
+/**
+ *  Fixed number of particle slots kept in a single mesh.
+ *  <p>
+ *  New particles are written over the oldest slots, like a ring buffer,
+ *  so the mesh, material and scene object are made once and reused for
+ *  every emission. Only the vertices of the slots written by an emission
+ *  are copied to the GPU. The last eight vertices hold the bounding
+ *  volume of the particle system.
+ */
+
+class ParticlePool {
+
+    static final int NUM_BOUNDS_VERTICES = 8;
+
+    private static final String POSITION = "a_position";
+    private static final String VELOCITY = "a_normal";
+    private static final String TIME = "a_texcoord";
+
+    private final SXRNode mNode;
+    private final SXRMaterial mMaterial;
+    private final SXRVertexBuffer mVertices;
+    private final int mCapacity;
+
+    //attributes of every slot, followed by the bounding volume.
+    private final float[] mPositions;
+    private final float[] mVelocities;
+    private final float[] mTimes;
+
+    private int mHead = 0;
+    private long mEmitted = 0;
+    private long mOverwritten = 0;
+
+    /**
+     * @param gvrContext context to make the mesh with
+     * @param particles makes the material and scene object
+     * @param capacity number of particle slots
+     */
+    ParticlePool(SXRContext gvrContext, Particles particles, int capacity)
+    {
+        int numVerts = capacity + NUM_BOUNDS_VERTICES;
+        SXRMesh mesh = new SXRMesh(gvrContext, "float3 a_position float2 a_texcoord float3 a_normal");
+
+        mCapacity = capacity;
+        mPositions = new float[numVerts * 3];
+        mVelocities = new float[numVerts * 3];
+        mTimes = new float[numVerts * 2];
+
+        // slots which were never written spawn in the future, so they are clipped
+        for (int i = 0; i < mTimes.length; i += 2)
+        {
+            mTimes[i] = Float.MAX_VALUE;
+        }
+        mVertices = mesh.getVertexBuffer();
+        mVertices.setFloatArray(POSITION, mPositions);
+        mVertices.setFloatArray(TIME, mTimes);
+        mVertices.setFloatArray(VELOCITY, mVelocities);
+        mMaterial = particles.makeMaterial();
+        mNode = particles.makeParticleNode(mesh, mMaterial);
+    }
+
+    SXRNode getNode()
+    {
+        return mNode;
+    }
+
+    SXRMaterial getMaterial()
+    {
+        return mMaterial;
+    }
+
+    int getCapacity()
+    {
+        return mCapacity;
+    }
+
+    long getEmittedCount()
+    {
+        return mEmitted;
+    }
+
+    /**
+     * @return number of particles written over before they expired
+     */
+    long getOverwrittenCount()
+    {
+        return mOverwritten;
+    }
+
+    void resetStatistics()
+    {
+        mEmitted = mOverwritten = 0;
+    }
+
+    /**
+     * Count the particles which are visible at the given time.
+     */
+    int getLiveCount(float time, float maxAge)
+    {
+        int live = 0;
+
+        for (int i = 0; i < mCapacity * 2; i += 2)
+        {
+            float age = time - mTimes[i];
+
+            if ((age >= 0) && (age <= maxAge))
+            {
+                ++live;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Write new particles over the oldest slots.
+     * If there are more particles than slots, only the last ones are kept.
+     *
+     * @param positions particle positions (x1, y1, z1, x2, y2, z2, ...)
+     * @param velocities particle velocities (vx1, vy1, vz1, vx2, vy2, vz2...)
+     * @param timeStamps spawning times (t1, 0,  t2, 0,  t3, 0 ..)
+     * @param time current time, to detect particles overwritten while alive
+     * @param maxAge particle age
+     */
+    void emit(float[] positions, float[] velocities, float[] timeStamps,
+              float time, float maxAge)
+    {
+        int count = timeStamps.length / 2;
+        int src = Math.max(0, count - mCapacity);
+
+        count -= src;
+        mEmitted += count;
+        while (count > 0)
+        {
+            int n = Math.min(count, mCapacity - mHead);
+
+            for (int i = mHead; i < mHead + n; ++i)
+            {
+                float spawnTime = mTimes[i * 2];
+
+                if ((spawnTime != Float.MAX_VALUE) && (time - spawnTime <= maxAge))
+                {
+                    ++mOverwritten;
+                }
+            }
+            System.arraycopy(positions, src * 3, mPositions, mHead * 3, n * 3);
+            System.arraycopy(velocities, src * 3, mVelocities, mHead * 3, n * 3);
+            System.arraycopy(timeStamps, src * 2, mTimes, mHead * 2, n * 2);
+            updateVertices(mHead, n);
+            src += n;
+            count -= n;
+            mHead = (mHead + n) % mCapacity;
+        }
+    }
+
+    /**
+     * Set the vertices which define the bounding volume of the system.
+     */
+    void setBoundingVolume(float[] positions, float[] velocities, float[] timeStamps)
+    {
+        System.arraycopy(positions, 0, mPositions, mCapacity * 3, NUM_BOUNDS_VERTICES * 3);
+        System.arraycopy(velocities, 0, mVelocities, mCapacity * 3, NUM_BOUNDS_VERTICES * 3);
+        System.arraycopy(timeStamps, 0, mTimes, mCapacity * 2, NUM_BOUNDS_VERTICES * 2);
+        updateVertices(mCapacity, NUM_BOUNDS_VERTICES);
+    }
+
+    private void updateVertices(int first, int count)
+    {
+        mVertices.setFloatRange(POSITION, mPositions, first, count);
+        mVertices.setFloatRange(VELOCITY, mVelocities, first, count);
+        mVertices.setFloatRange(TIME, mTimes, first, count);
+    }
+}
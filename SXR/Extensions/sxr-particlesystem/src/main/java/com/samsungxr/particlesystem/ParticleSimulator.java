@@ -0,0 +1,558 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr.particlesystem;
+
+import com.samsungxr.SXRContext;
+import com.samsungxr.SXRMaterial;
+import com.samsungxr.SXRMesh;
+import com.samsungxr.SXRNode;
+import com.samsungxr.SXRVertexBuffer;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *  Moves particles on the CPU instead of in the vertex shader.
+ *  <p>
+ *  Each particle attribute is kept in its own float array so the
+ *  integration loop walks memory in order. Large systems are split into
+ *  blocks which are integrated on worker threads. Every frame the particles
+ *  are accelerated by the environment and the attractors, bounced off the
+ *  colliders and the expired ones are removed. The positions are then copied
+ *  to the mesh, which is drawn with zero velocity and acceleration so the
+ *  shader only does the fading, sizing and clipping by age.
+ *  <p>
+ *  Unused vertices are placed at a corner of the bounding box of the live
+ *  particles so the bounds of the mesh, and the culling, follow the particles.
+ *  All positions are in the coordinate system of the emitter.
+ */
+
+class ParticleSimulator {
+
+    //particles integrated by one worker task
+    private static final int BLOCK_SIZE = 4096;
+    //keeps the attractor force finite near its center
+    private static final float SOFTENING = 0.01f;
+
+    private static final String POSITION = "a_position";
+    private static final String VELOCITY = "a_normal";
+    private static final String TIME = "a_texcoord";
+
+    private static ForkJoinPool sPool = null;
+
+    //particle state, one array per component
+    private float[] mPosX = new float[0];
+    private float[] mPosY = new float[0];
+    private float[] mPosZ = new float[0];
+    private float[] mVelX = new float[0];
+    private float[] mVelY = new float[0];
+    private float[] mVelZ = new float[0];
+    private float[] mSpawnTime = new float[0];
+    private int mCount = 0;
+    private int mCapacity = 0;
+
+    //plane colliders (nx, ny, nz, d, bounce), the particles stay on the side
+    //the normal points to.
+    private float[] mPlanes = new float[0];
+    //sphere colliders (cx, cy, cz, radius, bounce), the particles stay outside.
+    private float[] mSpheres = new float[0];
+    //point attractors (x, y, z, strength), negative strength repels.
+    private float[] mAttractors = new float[0];
+
+    private final Vector3f mAcceleration = new Vector3f();
+    private float mMaxAge = 1;
+    private float mTime = 0;
+    private boolean mStarted = false;
+
+    //mesh vertices, updated every frame
+    private SXRNode mNode = null;
+    private SXRMaterial mMaterial = null;
+    private SXRVertexBuffer mVertices = null;
+    private float[] mPositions;
+    private float[] mTimes;
+
+    //xmin, ymin, zmin, xmax, ymax, zmax of the live particles
+    private final float[] mBounds = new float[6];
+    private float[] mBlockBounds = new float[0];
+
+    private long mDropped = 0;
+    private long mSimulateNanos = 0;
+
+    SXRNode getNode()
+    {
+        return mNode;
+    }
+
+    SXRMaterial getMaterial()
+    {
+        return mMaterial;
+    }
+
+    int getCapacity()
+    {
+        return mCapacity;
+    }
+
+    /**
+     * @return number of particles being simulated, including the ones
+     * spawning in the future
+     */
+    int getCount()
+    {
+        return mCount;
+    }
+
+    /**
+     * Count the particles which are visible at the given time.
+     */
+    int getLiveCount(float time)
+    {
+        int live = 0;
+
+        for (int i = 0; i < mCount; ++i)
+        {
+            if (mSpawnTime[i] <= time)
+            {
+                ++live;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @return number of particles not emitted because all of the slots were in use
+     */
+    long getDroppedCount()
+    {
+        return mDropped;
+    }
+
+    /**
+     * @return time the last simulation step took in nanoseconds
+     */
+    long getSimulateNanos()
+    {
+        return mSimulateNanos;
+    }
+
+    void resetStatistics()
+    {
+        mDropped = 0;
+    }
+
+    /**
+     * Copy the bounding box of the live particles.
+     * @param bounds xmin, ymin, zmin, xmax, ymax, zmax
+     */
+    void getBounds(float[] bounds)
+    {
+        System.arraycopy(mBounds, 0, bounds, 0, 6);
+    }
+
+    void setAcceleration(Vector3f acceleration)
+    {
+        mAcceleration.set(acceleration);
+    }
+
+    void setMaxAge(float age)
+    {
+        mMaxAge = age;
+    }
+
+    void addPlane(Vector3f point, Vector3f normal, float bounce)
+    {
+        Vector3f n = new Vector3f(normal).normalize();
+
+        mPlanes = append(mPlanes, n.x, n.y, n.z, -n.dot(point), bounce);
+    }
+
+    void addSphere(Vector3f center, float radius, float bounce)
+    {
+        mSpheres = append(mSpheres, center.x, center.y, center.z, radius, bounce);
+    }
+
+    void addAttractor(Vector3f position, float strength)
+    {
+        mAttractors = append(mAttractors, position.x, position.y, position.z, strength);
+    }
+
+    void clearColliders()
+    {
+        mPlanes = new float[0];
+        mSpheres = new float[0];
+    }
+
+    void clearAttractors()
+    {
+        mAttractors = new float[0];
+    }
+
+    /**
+     * Make the mesh and scene object which display the particles.
+     * Particles already being simulated are kept, as many as fit.
+     *
+     * @param gvrContext context to make the mesh with
+     * @param particles makes the material and scene object,
+     *                  should have no acceleration.
+     * @param capacity maximum number of particles
+     */
+    void makeMesh(SXRContext gvrContext, Particles particles, int capacity)
+    {
+        SXRMesh mesh = new SXRMesh(gvrContext, "float3 a_position float2 a_texcoord float3 a_normal");
+
+        mCount = Math.min(mCount, capacity);
+        mCapacity = capacity;
+        mPosX = Arrays.copyOf(mPosX, capacity);
+        mPosY = Arrays.copyOf(mPosY, capacity);
+        mPosZ = Arrays.copyOf(mPosZ, capacity);
+        mVelX = Arrays.copyOf(mVelX, capacity);
+        mVelY = Arrays.copyOf(mVelY, capacity);
+        mVelZ = Arrays.copyOf(mVelZ, capacity);
+        mSpawnTime = Arrays.copyOf(mSpawnTime, capacity);
+        mPositions = new float[capacity * 3];
+        mTimes = new float[capacity * 2];
+        for (int i = 0; i < mTimes.length; i += 2)
+        {
+            mTimes[i] = Float.MAX_VALUE;
+        }
+        mVertices = mesh.getVertexBuffer();
+        mVertices.setFloatArray(POSITION, mPositions);
+        mVertices.setFloatArray(TIME, mTimes);
+        mVertices.setFloatArray(VELOCITY, new float[capacity * 3]);
+        mMaterial = particles.makeMaterial();
+        mNode = particles.makeParticleNode(mesh, mMaterial);
+    }
+
+    /**
+     * Remove all of the particles and the mesh.
+     * The colliders and attractors are kept.
+     */
+    void clear()
+    {
+        mCount = 0;
+        mCapacity = 0;
+        mNode = null;
+        mMaterial = null;
+        mVertices = null;
+        mStarted = false;
+    }
+
+    /**
+     * Add new particles. If there are not enough free slots
+     * the particles which do not fit are dropped.
+     *
+     * @param positions particle positions (x1, y1, z1, x2, y2, z2, ...)
+     * @param velocities particle velocities (vx1, vy1, vz1, vx2, vy2, vz2...)
+     * @param timeStamps spawning times (t1, 0,  t2, 0,  t3, 0 ..)
+     */
+    void emit(float[] positions, float[] velocities, float[] timeStamps)
+    {
+        int count = timeStamps.length / 2;
+        int n = Math.min(count, mCapacity - mCount);
+
+        mDropped += count - n;
+        for (int i = 0; i < n; ++i)
+        {
+            int p = mCount + i;
+
+            mPosX[p] = positions[i * 3];
+            mPosY[p] = positions[i * 3 + 1];
+            mPosZ[p] = positions[i * 3 + 2];
+            mVelX[p] = velocities[i * 3];
+            mVelY[p] = velocities[i * 3 + 1];
+            mVelZ[p] = velocities[i * 3 + 2];
+            mSpawnTime[p] = timeStamps[i * 2];
+        }
+        mCount += n;
+    }
+
+    /**
+     * Remove the particles older than the maximum age, move the others
+     * to the given time and copy them to the mesh.
+     * Must be called on the GL thread.
+     */
+    void simulate(float time)
+    {
+        long start = System.nanoTime();
+        float dt = mStarted ? Math.max(time - mTime, 0) : 0;
+
+        mStarted = true;
+        mTime = time;
+        removeExpired(time);
+
+        int numBlocks = (mCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        if (mBlockBounds.length < numBlocks * 6)
+        {
+            mBlockBounds = new float[numBlocks * 6];
+        }
+        if (numBlocks > 1)
+        {
+            getPool().invoke(new Step(this, 0, numBlocks, time, dt));
+        }
+        else if (numBlocks == 1)
+        {
+            integrate(0, time, dt);
+        }
+        mergeBounds(numBlocks);
+        if (mNode != null)
+        {
+            updateMesh();
+        }
+        mSimulateNanos = System.nanoTime() - start;
+    }
+
+    /*
+     * Expired particles are replaced by the last particle.
+     */
+    private void removeExpired(float time)
+    {
+        int i = 0;
+
+        while (i < mCount)
+        {
+            if (time - mSpawnTime[i] > mMaxAge)
+            {
+                int last = --mCount;
+
+                mPosX[i] = mPosX[last];
+                mPosY[i] = mPosY[last];
+                mPosZ[i] = mPosZ[last];
+                mVelX[i] = mVelX[last];
+                mVelY[i] = mVelY[last];
+                mVelZ[i] = mVelZ[last];
+                mSpawnTime[i] = mSpawnTime[last];
+            }
+            else
+            {
+                ++i;
+            }
+        }
+    }
+
+    /*
+     * Integrate one block of particles, copy them to the vertex
+     * arrays and compute the bounding box of the block.
+     * Blocks do not share any data so they can run in parallel.
+     */
+    private void integrate(int block, float time, float dt)
+    {
+        final float[] px = mPosX, py = mPosY, pz = mPosZ;
+        final float[] vx = mVelX, vy = mVelY, vz = mVelZ;
+        final float[] spawn = mSpawnTime;
+        final float[] planes = mPlanes, spheres = mSpheres, attractors = mAttractors;
+        final float gx = mAcceleration.x, gy = mAcceleration.y, gz = mAcceleration.z;
+        final int first = block * BLOCK_SIZE;
+        final int end = Math.min(first + BLOCK_SIZE, mCount);
+        float xmin = Float.MAX_VALUE, ymin = Float.MAX_VALUE, zmin = Float.MAX_VALUE;
+        float xmax = -Float.MAX_VALUE, ymax = -Float.MAX_VALUE, zmax = -Float.MAX_VALUE;
+
+        for (int i = first; i < end; ++i)
+        {
+            float x = px[i], y = py[i], z = pz[i];
+            float age = time - spawn[i];
+
+            if (age > 0)
+            {
+                //particles spawned during this frame only move for their age
+                float h = Math.min(dt, age);
+                float ax = gx, ay = gy, az = gz;
+                float u = vx[i], v = vy[i], w = vz[i];
+
+                for (int a = 0; a < attractors.length; a += 4)
+                {
+                    float dx = attractors[a] - x;
+                    float dy = attractors[a + 1] - y;
+                    float dz = attractors[a + 2] - z;
+                    float d2 = dx * dx + dy * dy + dz * dz + SOFTENING;
+                    float s = attractors[a + 3] / (d2 * (float) Math.sqrt(d2));
+
+                    ax += dx * s;
+                    ay += dy * s;
+                    az += dz * s;
+                }
+                u += ax * h;
+                v += ay * h;
+                w += az * h;
+                x += u * h;
+                y += v * h;
+                z += w * h;
+                for (int c = 0; c < planes.length; c += 5)
+                {
+                    float nx = planes[c], ny = planes[c + 1], nz = planes[c + 2];
+                    float dist = nx * x + ny * y + nz * z + planes[c + 3];
+
+                    if (dist < 0)
+                    {
+                        float vn = u * nx + v * ny + w * nz;
+
+                        x -= nx * dist;
+                        y -= ny * dist;
+                        z -= nz * dist;
+                        if (vn < 0)
+                        {
+                            vn *= 1 + planes[c + 4];
+                            u -= nx * vn;
+                            v -= ny * vn;
+                            w -= nz * vn;
+                        }
+                    }
+                }
+                for (int c = 0; c < spheres.length; c += 5)
+                {
+                    float dx = x - spheres[c];
+                    float dy = y - spheres[c + 1];
+                    float dz = z - spheres[c + 2];
+                    float r = spheres[c + 3];
+                    float d2 = dx * dx + dy * dy + dz * dz;
+
+                    if ((d2 < r * r) && (d2 > 0))
+                    {
+                        float d = (float) Math.sqrt(d2);
+                        float nx = dx / d, ny = dy / d, nz = dz / d;
+                        float vn = u * nx + v * ny + w * nz;
+
+                        x = spheres[c] + nx * r;
+                        y = spheres[c + 1] + ny * r;
+                        z = spheres[c + 2] + nz * r;
+                        if (vn < 0)
+                        {
+                            vn *= 1 + spheres[c + 4];
+                            u -= nx * vn;
+                            v -= ny * vn;
+                            w -= nz * vn;
+                        }
+                    }
+                }
+                px[i] = x;
+                py[i] = y;
+                pz[i] = z;
+                vx[i] = u;
+                vy[i] = v;
+                vz[i] = w;
+            }
+            xmin = Math.min(xmin, x);
+            ymin = Math.min(ymin, y);
+            zmin = Math.min(zmin, z);
+            xmax = Math.max(xmax, x);
+            ymax = Math.max(ymax, y);
+            zmax = Math.max(zmax, z);
+            mPositions[i * 3] = x;
+            mPositions[i * 3 + 1] = y;
+            mPositions[i * 3 + 2] = z;
+            mTimes[i * 2] = spawn[i];
+        }
+        int b = block * 6;
+
+        mBlockBounds[b] = xmin;
+        mBlockBounds[b + 1] = ymin;
+        mBlockBounds[b + 2] = zmin;
+        mBlockBounds[b + 3] = xmax;
+        mBlockBounds[b + 4] = ymax;
+        mBlockBounds[b + 5] = zmax;
+    }
+
+    private void mergeBounds(int numBlocks)
+    {
+        if (numBlocks == 0)
+        {
+            Arrays.fill(mBounds, 0);
+            return;
+        }
+        System.arraycopy(mBlockBounds, 0, mBounds, 0, 6);
+        for (int b = 6; b < numBlocks * 6; b += 6)
+        {
+            for (int i = 0; i < 3; ++i)
+            {
+                mBounds[i] = Math.min(mBounds[i], mBlockBounds[b + i]);
+                mBounds[i + 3] = Math.max(mBounds[i + 3], mBlockBounds[b + i + 3]);
+            }
+        }
+    }
+
+    /*
+     * Unused slots are clipped by their spawn time and put on the
+     * bounding box so they do not make the bounds of the mesh larger.
+     */
+    private void updateMesh()
+    {
+        for (int i = mCount; i < mCapacity; ++i)
+        {
+            mPositions[i * 3] = mBounds[0];
+            mPositions[i * 3 + 1] = mBounds[1];
+            mPositions[i * 3 + 2] = mBounds[2];
+            mTimes[i * 2] = Float.MAX_VALUE;
+        }
+        mVertices.setFloatArray(POSITION, mPositions);
+        mVertices.setFloatArray(TIME, mTimes);
+        mNode.getRenderData().invalidateBoundingVolume();
+    }
+
+    private static float[] append(float[] array, float... values)
+    {
+        float[] result = Arrays.copyOf(array, array.length + values.length);
+
+        System.arraycopy(values, 0, result, array.length, values.length);
+        return result;
+    }
+
+    private static synchronized ForkJoinPool getPool()
+    {
+        if (sPool == null)
+        {
+            sPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        }
+        return sPool;
+    }
+
+    /**
+     * Integrates a range of blocks, splitting it in half
+     * until there is only one block left.
+     */
+    private static final class Step extends RecursiveAction
+    {
+        private final ParticleSimulator mSimulator;
+        private final int mFirstBlock;
+        private final int mEndBlock;
+        private final float mTime;
+        private final float mDeltaTime;
+
+        Step(ParticleSimulator simulator, int firstBlock, int endBlock, float time, float dt)
+        {
+            mSimulator = simulator;
+            mFirstBlock = firstBlock;
+            mEndBlock = endBlock;
+            mTime = time;
+            mDeltaTime = dt;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (mEndBlock - mFirstBlock == 1)
+            {
+                mSimulator.integrate(mFirstBlock, mTime, mDeltaTime);
+                return;
+            }
+            int mid = (mFirstBlock + mEndBlock) / 2;
+
+            invokeAll(new Step(mSimulator, mFirstBlock, mid, mTime, mDeltaTime),
+                      new Step(mSimulator, mid, mEndBlock, mTime, mDeltaTime));
+        }
+    }
+}
@@ -87,6 +87,14 @@ class Particles {
         mParticleMesh.setNormals(velocities);
         mParticleMesh.setTexCoords(particleTimeStamps);
 
+        return makeParticleNode(mParticleMesh, makeMaterial());
+    }
+
+    /**
+     * Creates the particle material with the properties of this emitter.
+     */
+    SXRMaterial makeMaterial()
+    {
         particleID = new SXRShaderId(ParticleShader.class);
         material = new SXRMaterial(mSXRContext, particleID);
 
@@ -98,11 +106,24 @@ class Particles {
         material.setFloat("u_size_change_rate", mParticleSizeRate);
         material.setFloat("u_fade", mFadeWithAge);
         material.setFloat("u_noise_factor", mNoiseFactor);
+        material.setMainTexture(mTexture);
+        return material;
+    }
 
+    /**
+     * Creates a SXRNode which renders the vertices of a mesh as particles.
+     *
+     * @param mesh particle mesh with positions, velocities as normals
+     *             and spawning times as texture coordinates.
+     * @param material particle material from {@link #makeMaterial()}
+     *
+     * @return The SXRNode with this mesh.
+     */
+    SXRNode makeParticleNode(SXRMesh mesh, SXRMaterial material)
+    {
         SXRRenderData renderData = new SXRRenderData(mSXRContext);
         renderData.setMaterial(material);
-        renderData.setMesh(mParticleMesh);
-        material.setMainTexture(mTexture);
+        renderData.setMesh(mesh);
 
         SXRNode meshObject = new SXRNode(mSXRContext);
         meshObject.attachRenderData(renderData);
@@ -38,7 +38,16 @@ import java.util.ArrayList;
  * having an emitRate number of vertices is added to the emitter as a child.
  * These vertices act as the particles of the system. Consequently, all those
  * children objects which have exceeded their age limits are deleted every second.
- *
+ * <p>
+ * In pooled mode (see {@link #setPooledMode(boolean)}) the emitter instead has a
+ * single child whose mesh has room for (emit rate * (age + 1)) particles.
+ * New particles are written over the oldest ones and only the changed
+ * vertices are copied to the GPU.
+ * <p>
+ * With CPU simulation (see {@link #setCpuSimulation(boolean)}) the particles
+ * are moved every frame on worker threads instead of in the vertex shader.
+ * This makes colliders and attractors possible and the bounding box of the
+ * mesh follows the particles, so the particle volume is not used.
  */
 
 class SXREmitter extends SXRNode {
@@ -82,6 +91,19 @@ class SXREmitter extends SXRNode {
 
     private float currTime = 0;
     ArrayList<Integer> idxsToDelete;
+
+    //particle slots used in pooled mode
+    private boolean mPooled = false;
+    private boolean mMaterialStale = false;
+    private ParticlePool mPool = null;
+
+    //particles moved on the CPU
+    private boolean mCpuSimulation = false;
+    private ParticleSimulator mSimulator = null;
+
+    //emission statistics
+    private long mEmitNanos = 0;
+    private long mEmitCount = 0;
     
     public SXREmitter(SXRContext gvrContext)
     {
@@ -161,6 +183,27 @@ class SXREmitter extends SXRNode {
 
     private void emit(float[] particlePositions, float[] particleVelocities,
                       float[] particleTimeStamps)
+    {
+        long startTime = System.nanoTime();
+
+        if (mCpuSimulation)
+        {
+            emitSimulated(particlePositions, particleVelocities, particleTimeStamps);
+        }
+        else if (mPooled)
+        {
+            emitPooled(particlePositions, particleVelocities, particleTimeStamps);
+        }
+        else
+        {
+            emitMesh(particlePositions, particleVelocities, particleTimeStamps);
+        }
+        mEmitNanos += System.nanoTime() - startTime;
+        mEmitCount += particleTimeStamps.length / 2;
+    }
+
+    private void emitMesh(float[] particlePositions, float[] particleVelocities,
+                          float[] particleTimeStamps)
     {
         float[] allParticlePositions = new float[particlePositions.length + particleBoundingVolume.length];
         System.arraycopy(particlePositions, 0, allParticlePositions, 0, particlePositions.length);
@@ -188,6 +231,76 @@ class SXREmitter extends SXRNode {
         meshInfo.add(Pair.create(particleObject, currTime));
     }
 
+    /**
+     * Write the particles into the pool, making it first if it does not
+     * exist, is too small for the emit rate and age or the particle
+     * properties have changed.
+     */
+    private void emitPooled(float[] particlePositions, float[] particleVelocities,
+                            float[] particleTimeStamps)
+    {
+        int capacity = mEmitRate * ((int) Math.ceil(mMaxAge) + 1);
+
+        if ((mPool == null) || mMaterialStale || (mPool.getCapacity() < capacity))
+        {
+            if (mPool != null)
+            {
+                removeChildObject(mPool.getNode());
+            }
+            Particles particles = new Particles(mSXRContext, mMaxAge,
+                    mParticleSize, mEnvironmentAcceleration, mParticleSizeRate, mFadeWithAge,
+                    mParticleTexture, mColor, mNoiseFactor);
+
+            mPool = new ParticlePool(mSXRContext, particles, capacity);
+            mMaterialStale = false;
+            if (particleBoundingVolume != null)
+            {
+                mPool.setBoundingVolume(particleBoundingVolume, BVVelocities, BVSpawnTimes);
+            }
+            mPool.getMaterial().setFloat("u_time", currTime);
+            addChildObject(mPool.getNode());
+        }
+        mPool.emit(particlePositions, particleVelocities, particleTimeStamps, currTime, mMaxAge);
+    }
+
+    /**
+     * Add the particles to the simulation. The mesh is made again
+     * if it is too small or the particle properties have changed.
+     * The acceleration is applied by the simulation, not the shader.
+     */
+    private void emitSimulated(float[] particlePositions, float[] particleVelocities,
+                               float[] particleTimeStamps)
+    {
+        ParticleSimulator simulator = getSimulator();
+        int capacity = mEmitRate * ((int) Math.ceil(mMaxAge) + 1);
+
+        if ((simulator.getNode() == null) || mMaterialStale || (simulator.getCapacity() < capacity))
+        {
+            if (simulator.getNode() != null)
+            {
+                removeChildObject(simulator.getNode());
+            }
+            Particles particles = new Particles(mSXRContext, mMaxAge,
+                    mParticleSize, new Vector3f(0, 0, 0), mParticleSizeRate, mFadeWithAge,
+                    mParticleTexture, mColor, mNoiseFactor);
+
+            simulator.makeMesh(mSXRContext, particles, Math.max(capacity, simulator.getCapacity()));
+            mMaterialStale = false;
+            simulator.getMaterial().setFloat("u_time", currTime);
+            addChildObject(simulator.getNode());
+        }
+        simulator.emit(particlePositions, particleVelocities, particleTimeStamps);
+    }
+
+    private ParticleSimulator getSimulator()
+    {
+        if (mSimulator == null)
+        {
+            mSimulator = new ParticleSimulator();
+        }
+        return mSimulator;
+    }
+
 
     /**
      * Create a bouding volume for the particle system centered at its position with
@@ -229,6 +342,10 @@ class SXREmitter extends SXRNode {
                     for ( int i = 0; i < 24; i ++ )
                         BVVelocities[i] = 0;
 
+                    if (mPool != null)
+                    {
+                        mPool.setBoundingVolume(particleBoundingVolume, BVVelocities, BVSpawnTimes);
+                    }
                 }
             });
         }
@@ -245,6 +362,229 @@ class SXREmitter extends SXRNode {
             SXRNode obj = meshInfo.get(i).first;
             obj.getRenderData().getMaterial().setFloat("u_time", time);
         }
+        if (mPool != null)
+        {
+            mPool.getMaterial().setFloat("u_time", time);
+        }
+        if (mCpuSimulation && (mSimulator != null))
+        {
+            mSimulator.setAcceleration(mEnvironmentAcceleration);
+            mSimulator.setMaxAge(mMaxAge);
+            mSimulator.simulate(time);
+            if (mSimulator.getMaterial() != null)
+            {
+                mSimulator.getMaterial().setFloat("u_time", time);
+            }
+        }
+    }
+
+    /**
+     * Move the particles on the CPU instead of in the vertex shader.
+     * This must be enabled for the colliders and attractors to have
+     * any effect. Should be set before the emitter starts emitting.
+     * @param enable true to simulate the particles on the CPU
+     */
+    public void setCpuSimulation(boolean enable)
+    {
+        mCpuSimulation = enable;
+    }
+
+    /**
+     * @return true if the particles are simulated on the CPU
+     */
+    public boolean isCpuSimulation()
+    {
+        return mCpuSimulation;
+    }
+
+    /**
+     * Add a plane the particles bounce off when simulated on the CPU.
+     * @param point  a point on the plane, relative to the emitter
+     * @param normal normal of the plane, pointing to the side the particles stay on
+     * @param bounce fraction of the velocity kept after bouncing, 0 to stop the particles
+     */
+    public void addPlaneCollider(Vector3f point, Vector3f normal, float bounce)
+    {
+        getSimulator().addPlane(point, normal, bounce);
+    }
+
+    /**
+     * Add a sphere the particles bounce off when simulated on the CPU.
+     * @param center center of the sphere, relative to the emitter
+     * @param radius radius of the sphere
+     * @param bounce fraction of the velocity kept after bouncing, 0 to stop the particles
+     */
+    public void addSphereCollider(Vector3f center, float radius, float bounce)
+    {
+        getSimulator().addSphere(center, radius, bounce);
+    }
+
+    /**
+     * Add a point which pulls the particles towards it when simulated on the CPU.
+     * The force decreases with the square of the distance.
+     * @param position position of the attractor, relative to the emitter
+     * @param strength strength of the attractor, negative to push particles away
+     */
+    public void addAttractor(Vector3f position, float strength)
+    {
+        getSimulator().addAttractor(position, strength);
+    }
+
+    /**
+     * Remove all of the plane and sphere colliders.
+     */
+    public void clearColliders()
+    {
+        getSimulator().clearColliders();
+    }
+
+    /**
+     * Remove all of the attractors.
+     */
+    public void clearAttractors()
+    {
+        getSimulator().clearAttractors();
+    }
+
+    /**
+     * Get the bounding box of the particles simulated on the CPU
+     * as of the last frame, relative to the emitter.
+     * @param bounds array of 6 floats to get xmin, ymin, zmin, xmax, ymax, zmax
+     */
+    public void getParticleBounds(float[] bounds)
+    {
+        getSimulator().getBounds(bounds);
+    }
+
+    /**
+     * @return time the last CPU simulation step took in nanoseconds
+     */
+    public long getSimulationNanos()
+    {
+        return (mSimulator != null) ? mSimulator.getSimulateNanos() : 0;
+    }
+
+    /**
+     * With CPU simulation new particles are dropped when all of the
+     * particles emitted earlier are still alive.
+     * @return number of particles dropped
+     */
+    public long getDroppedParticleCount()
+    {
+        return (mSimulator != null) ? mSimulator.getDroppedCount() : 0;
+    }
+
+    /**
+     * Keep all the particles of this emitter in one mesh with a fixed
+     * number of particles instead of making a new mesh every second.
+     * Should be set before the emitter starts emitting.
+     * @param pooled true to use a single reusable mesh
+     */
+    public void setPooledMode(boolean pooled)
+    {
+        mPooled = pooled;
+    }
+
+    /**
+     * @return true if the particles are kept in a single reusable mesh
+     */
+    public boolean isPooledMode()
+    {
+        return mPooled;
+    }
+
+    /**
+     * @return number of particles the pooled or simulated mesh can hold,
+     *         0 if there is no such mesh yet
+     */
+    public int getParticleCapacity()
+    {
+        if (mCpuSimulation && (mSimulator != null))
+        {
+            return mSimulator.getCapacity();
+        }
+        return (mPool != null) ? mPool.getCapacity() : 0;
+    }
+
+    /**
+     * Count the particles which are currently visible.
+     * Without pooling particles are counted per mesh,
+     * so particles spawned in the near future are included.
+     * @return number of live particles
+     */
+    public int getLiveParticleCount()
+    {
+        if (mCpuSimulation && (mSimulator != null))
+        {
+            return mSimulator.getLiveCount(currTime);
+        }
+        if (mPool != null)
+        {
+            return mPool.getLiveCount(currTime, mMaxAge);
+        }
+        int live = 0;
+
+        for (int i = 0; i < meshInfo.size(); i++)
+        {
+            SXRNode obj = meshInfo.get(i).first;
+
+            live += obj.getRenderData().getMesh().getVertexBuffer().getVertexCount()
+                    - ParticlePool.NUM_BOUNDS_VERTICES;
+        }
+        return live;
+    }
+
+    /**
+     * @return number of particles emitted since the last {@link #resetStatistics()}
+     */
+    public long getEmittedParticleCount()
+    {
+        return mEmitCount;
+    }
+
+    /**
+     * In pooled mode particles still alive are overwritten when
+     * the pool is full. If this is not zero the pool is too small.
+     * @return number of particles overwritten before they expired
+     */
+    public long getOverwrittenParticleCount()
+    {
+        return (mPool != null) ? mPool.getOverwrittenCount() : 0;
+    }
+
+    /**
+     * @return time spent emitting particles in nanoseconds
+     */
+    public long getEmitNanos()
+    {
+        return mEmitNanos;
+    }
+
+    /**
+     * Emission throughput, measured over the time spent in emission only.
+     * Use this to compare pooled and non pooled emitters.
+     * @return particles emitted per second of emission time
+     */
+    public double getEmitThroughput()
+    {
+        return (mEmitNanos > 0) ? (mEmitCount * 1e9 / mEmitNanos) : 0;
+    }
+
+    /**
+     * Clear the emission statistics.
+     */
+    public void resetStatistics()
+    {
+        mEmitNanos = 0;
+        mEmitCount = 0;
+        if (mPool != null)
+        {
+            mPool.resetStatistics();
+        }
+        if (mSimulator != null)
+        {
+            mSimulator.resetStatistics();
+        }
     }
 
     /**
@@ -276,6 +616,7 @@ class SXREmitter extends SXRNode {
     public void setParticleAge ( float age )
     {
         mMaxAge = age;
+        mMaterialStale = true;
     }
 
     /**
@@ -284,6 +625,7 @@ class SXREmitter extends SXRNode {
     public void setParticleSize ( float size )
     {
         mParticleSize = size;
+        mMaterialStale = true;
     }
 
     /**
@@ -312,6 +654,7 @@ class SXREmitter extends SXRNode {
     public void setEnvironmentAcceleration( Vector3f acceleration )
     {
         mEnvironmentAcceleration = acceleration;
+        mMaterialStale = true;
     }
 
     /**
@@ -324,6 +667,7 @@ class SXREmitter extends SXRNode {
     public void setParticleSizeChangeRate( float rate )
     {
         mParticleSizeRate = rate;
+        mMaterialStale = true;
     }
 
     /**
@@ -333,6 +677,7 @@ class SXREmitter extends SXRNode {
     public void setFadeWithAge ( boolean fade )
     {
         mFadeWithAge = fade;
+        mMaterialStale = true;
     }
 
     /**
@@ -350,6 +695,7 @@ class SXREmitter extends SXRNode {
     public void setParticleTexture(SXRTexture tex)
     {
         mParticleTexture = tex;
+        mMaterialStale = true;
     }
 
     /**
@@ -359,6 +705,7 @@ class SXREmitter extends SXRNode {
     public void  setColorMultiplier( Vector4f color )
     {
         mColor = color;
+        mMaterialStale = true;
     }
 
     /**
@@ -373,6 +720,7 @@ class SXREmitter extends SXRNode {
             noise = 1;
 
         mNoiseFactor = noise;
+        mMaterialStale = true;
     }
 
     /**
@@ -385,6 +733,12 @@ class SXREmitter extends SXRNode {
         {
             this.removeChildObject(this.getChildByIndex(0));
         }
+        meshInfo.clear();
+        mPool = null;
+        if (mSimulator != null)
+        {
+            mSimulator.clear();
+        }
     }
 
 }
@@ -28,6 +28,7 @@ import com.samsungxr.SXRTransform;
 import com.samsungxr.IEventReceiver;
 import com.samsungxr.IEvents;
 import com.samsungxr.INodeEvents;
+import com.samsungxr.debug.SXRFrameProfiler;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
@@ -427,10 +428,21 @@ public class SXRWorld extends SXRComponent implements IEventReceiver
             timeStep  = simulationTime - lastSimulTime;
             maxSubSteps = (int) (timeStep * 60) / 1000 + 1;
 
-            NativePhysics3DWorld.step(getNative(), timeStep, maxSubSteps);
+            final SXRFrameProfiler profiler = getSXRContext().getFrameProfiler();
+            long start = profiler.begin(SXRFrameProfiler.Phase.PHYSICS);
+            try {
+                NativePhysics3DWorld.step(getNative(), timeStep, maxSubSteps);
+            } finally {
+                profiler.end(SXRFrameProfiler.Phase.PHYSICS, start);
+            }
 
-            generateCollisionEvents();
-            getSXRContext().getEventManager().sendEvent(SXRWorld.this, IPhysicsEvents.class, "onStepPhysics", SXRWorld.this);
+            start = profiler.begin(SXRFrameProfiler.Phase.PHYSICS_CALLBACKS);
+            try {
+                generateCollisionEvents();
+                getSXRContext().getEventManager().sendEvent(SXRWorld.this, IPhysicsEvents.class, "onStepPhysics", SXRWorld.this);
+            } finally {
+                profiler.end(SXRFrameProfiler.Phase.PHYSICS_CALLBACKS, start);
+            }
 
             lastSimulTime = simulationTime;
 
@@ -2,15 +2,15 @@ package com.samsungxr.widgetlib.main;
 
 import android.support.annotation.NonNull;
 
-import com.samsungxr.widgetlib.thread.ConcurrentListPool;
 import com.samsungxr.widgetlib.thread.ConcurrentObjectPool;
 import com.samsungxr.widgetlib.thread.MainThread;
 import com.samsungxr.widgetlib.widget.Widget;
 
 import com.samsungxr.SXRContext;
+import com.samsungxr.SXRDrawFrameListener;
 import com.samsungxr.utility.Log;
 
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A utility class for buffering {@link Runnable} "commands" for batch execution on the {@linkplain
@@ -46,6 +46,27 @@ import java.util.List;
  * <pre>
  *     MyCommand.buffer(aFoo, aBar);
  * </pre>
+ * <p>
+ * Commands which are buffered every frame, such as render state changes driven by animations,
+ * should use an {@link Op} instead. Its parameters are written to a command log of primitive
+ * arrays, so buffering it does not box its parameters or allocate a parameter array:
+ * <pre>
+ *     static final Op SET_OPACITY = new Op() {
+ *         protected void exec(Params params) {
+ *             final SXRMaterial material = (SXRMaterial) params.nextObject();
+ *             material.setOpacity(params.nextFloat());
+ *         }
+ *     };
+ *
+ *     WidgetLib.getCommandBuffer().add(SET_OPACITY, material, opacity);
+ * </pre>
+ * <p>
+ * All commands, {@code Runnables} included, are written to the same log and run in the order they
+ * were added, in a single replay task posted to the GL thread once per frame. The log is double
+ * buffered: while the GL thread replays the commands of one log, new commands are written to the
+ * other. {@link Widget#runOnGlThread(Runnable)} goes through the log too, so the commands keep
+ * their order with the tasks posted by the widgets. Commands added while a buffer is {@linkplain
+ * #start() started} are held in a separate log which is appended by the outermost {@link #flush()}.
  */
 public class CommandBuffer {
 
@@ -117,6 +138,55 @@ public class CommandBuffer {
         };
     }
 
+    /**
+     * A command whose parameters are stored in the command log as primitives.
+     * <p>
+     * An {@code Op} is typically a {@code static final} instance. Like {@link Command.Executor},
+     * its {@link #exec(Params)} is called on the GL thread and must not rely on mutable state.
+     */
+    public static abstract class Op {
+        /**
+         * Execute the command. The parameters must be read in the order and with the types they
+         * were added with.
+         *
+         * @param params The parameters of this command
+         */
+        protected abstract void exec(Params params);
+    }
+
+    /**
+     * Reads the parameters of an {@link Op} back from the command log.
+     */
+    public static final class Params {
+        public Object nextObject() {
+            return mLog.mObjects[mObject++];
+        }
+
+        public int nextInt() {
+            return mLog.mInts[mInt++];
+        }
+
+        public float nextFloat() {
+            return mLog.mFloats[mFloat++];
+        }
+
+        public boolean nextBoolean() {
+            return mLog.mInts[mInt++] != 0;
+        }
+
+        private void set(CommandLog log, int command) {
+            mLog = log;
+            mObject = log.mOffsets[command * 3];
+            mInt = log.mOffsets[command * 3 + 1];
+            mFloat = log.mOffsets[command * 3 + 2];
+        }
+
+        private CommandLog mLog;
+        private int mObject;
+        private int mInt;
+        private int mFloat;
+    }
+
     /**
      * Start a new buffer.  Calls to {@code start()} can be nested, so if there is already an
      * active buffer, that buffer will continue to be used.  Calls to {@code start()} must have a
@@ -125,9 +195,6 @@ public class CommandBuffer {
      */
     public void start() {
         synchronized (mBufferLock) {
-            if (mCurrentBuffer == null) {
-                mCurrentBuffer = mBuffers.acquire();
-            }
             ++mBufferDepth;
         }
     }
@@ -141,70 +208,323 @@ public class CommandBuffer {
      */
     public void add(@NonNull Runnable command) {
         synchronized (mBufferLock) {
-            if (mCurrentBuffer == null) {
-                mContext.runOnGlThread(command);
-            } else {
-                mCurrentBuffer.add(command);
-            }
+            final CommandLog log = openLog();
+            log.begin(RUN);
+            log.putObject(command);
+            postLog();
+        }
+    }
+
+    public void add(@NonNull Op op, Object o) {
+        synchronized (mBufferLock) {
+            final CommandLog log = openLog();
+            log.begin(op);
+            log.putObject(o);
+            postLog();
+        }
+    }
+
+    public void add(@NonNull Op op, Object o1, Object o2) {
+        synchronized (mBufferLock) {
+            final CommandLog log = openLog();
+            log.begin(op);
+            log.putObject(o1);
+            log.putObject(o2);
+            postLog();
+        }
+    }
+
+    public void add(@NonNull Op op, Object o1, Object o2, Object o3) {
+        synchronized (mBufferLock) {
+            final CommandLog log = openLog();
+            log.begin(op);
+            log.putObject(o1);
+            log.putObject(o2);
+            log.putObject(o3);
+            postLog();
+        }
+    }
+
+    public void add(@NonNull Op op, Object o, boolean b) {
+        synchronized (mBufferLock) {
+            final CommandLog log = openLog();
+            log.begin(op);
+            log.putObject(o);
+            log.putInt(b ? 1 : 0);
+            postLog();
+        }
+    }
+
+    public void add(@NonNull Op op, Object o, int i) {
+        synchronized (mBufferLock) {
+            final CommandLog log = openLog();
+            log.begin(op);
+            log.putObject(o);
+            log.putInt(i);
+            postLog();
+        }
+    }
+
+    public void add(@NonNull Op op, Object o, int i1, int i2, int i3) {
+        synchronized (mBufferLock) {
+            final CommandLog log = openLog();
+            log.begin(op);
+            log.putObject(o);
+            log.putInt(i1);
+            log.putInt(i2);
+            log.putInt(i3);
+            postLog();
+        }
+    }
+
+    public void add(@NonNull Op op, Object o, float f) {
+        synchronized (mBufferLock) {
+            final CommandLog log = openLog();
+            log.begin(op);
+            log.putObject(o);
+            log.putFloat(f);
+            postLog();
+        }
+    }
+
+    public void add(@NonNull Op op, Object o, float f1, float f2, float f3) {
+        synchronized (mBufferLock) {
+            final CommandLog log = openLog();
+            log.begin(op);
+            log.putObject(o);
+            log.putFloat(f1);
+            log.putFloat(f2);
+            log.putFloat(f3);
+            postLog();
         }
     }
 
     /**
-     * {@linkplain SXRContext#runOnGlThread(Runnable) Post} the current buffer to the GL thread for
-     * execution.  The number of calls to {@code flush()} must match the number of calls to {@link
-     * #start()}.
+     * Let the buffered commands be executed on the GL thread.  The number of calls to
+     * {@code flush()} must match the number of calls to {@link #start()}.
      *
      * @throws IllegalStateException if called when there is no active buffer.
      */
     public void flush() {
         synchronized (mBufferLock) {
-            if (mCurrentBuffer == null) {
+            if (mBufferDepth == 0) {
                 throw new IllegalStateException("No buffer to flush!");
             }
             --mBufferDepth;
-            if (mBufferDepth == 0) {
-                final GLRunnable r = mRunnablePool.acquire();
-                r.set(mCurrentBuffer);
-                mCurrentBuffer = null;
-                mContext.runOnGlThread(r);
-            }
+            postLog();
         }
     }
 
+    /**
+     * @return The number of commands executed on the GL thread during the last frame
+     */
+    public int getLastCommandCount() {
+        return mLastCommandCount;
+    }
+
+    /**
+     * @return The number of commands waiting to be executed on the GL thread
+     */
+    public int getPendingCommandCount() {
+        synchronized (mBufferLock) {
+            return mPendingCount;
+        }
+    }
+
+    /**
+     * @return The total number of commands executed on the GL thread
+     */
+    public long getTotalCommandCount() {
+        return mTotalCommandCount;
+    }
+
     /* package */
     CommandBuffer(SXRContext context) {
         mContext = context;
+        context.registerDrawFrameListener(mFrameCounter);
+    }
+
+    /*
+     * Get the log new commands are written to. Must be called with mBufferLock held.
+     */
+    private CommandLog openLog() {
+        ++mPendingCount;
+        return mBufferDepth > 0 ? mBufferedLog : mLog;
+    }
+
+    /*
+     * Move the buffered commands to the log and post the replay to the GL thread if no buffer is
+     * started and it hasn't been posted already. Must be called with mBufferLock held.
+     */
+    private void postLog() {
+        if (mBufferDepth > 0) {
+            return;
+        }
+        if (mBufferedLog.mCount > 0) {
+            mLog.append(mBufferedLog);
+            mBufferedLog.clear();
+        }
+        if (!mReplayPosted && mLog.mCount > 0) {
+            mReplayPosted = true;
+            mContext.runOnGlThread(mReplay);
+        }
     }
 
-    private final class GLRunnable implements Runnable {
+    /**
+     * Swaps the command logs and runs the commands in the one filled on the {@link MainThread}.
+     */
+    private final class Replay implements Runnable {
         @Override
         public void run() {
-            for (Runnable c : mBuffer) {
-                c.run();
+            final CommandLog log;
+            synchronized (mBufferLock) {
+                mReplayPosted = false;
+                log = mLog;
+                mLog = mReplayLog;
+                mReplayLog = log;
+            }
+
+            final int count = log.mCount;
+            try {
+                for (int i = 0; i < count; ++i) {
+                    mParams.set(log, i);
+                    try {
+                        log.mOps[i].exec(mParams);
+                    } catch (final Exception e) {
+                        Log.e(TAG, "Command %s threw %s", log.mOps[i], e.toString());
+                        e.printStackTrace();
+                    }
+                }
+            } finally {
+                log.clear();
+                synchronized (mBufferLock) {
+                    mPendingCount -= count;
+                }
+                mFrameCommandCount += count;
+                mTotalCommandCount += count;
+            }
+        }
+
+        private final Params mParams = new Params();
+    }
+
+    /**
+     * Publishes the number of commands replayed during the frame and starts counting the next.
+     * Frame listeners run after the GL thread tasks of the frame.
+     */
+    private final SXRDrawFrameListener mFrameCounter = new SXRDrawFrameListener() {
+        @Override
+        public void onDrawFrame(float frameTime) {
+            mLastCommandCount = mFrameCommandCount;
+            mFrameCommandCount = 0;
+        }
+    };
+
+    /**
+     * Commands and their parameters, stored in growable arrays which are reused from frame to
+     * frame. For each command the offsets of its first object, int and float parameters are kept
+     * in {@code mOffsets}.
+     */
+    private static final class CommandLog {
+        void begin(Op op) {
+            if (mCount == mOps.length) {
+                mOps = Arrays.copyOf(mOps, mCount * 2);
+                mOffsets = Arrays.copyOf(mOffsets, mCount * 2 * 3);
+            }
+            mOps[mCount] = op;
+            mOffsets[mCount * 3] = mObjectCount;
+            mOffsets[mCount * 3 + 1] = mIntCount;
+            mOffsets[mCount * 3 + 2] = mFloatCount;
+            ++mCount;
+        }
+
+        void putObject(Object o) {
+            if (mObjectCount == mObjects.length) {
+                mObjects = Arrays.copyOf(mObjects, mObjectCount * 2);
+            }
+            mObjects[mObjectCount++] = o;
+        }
+
+        void putInt(int i) {
+            if (mIntCount == mInts.length) {
+                mInts = Arrays.copyOf(mInts, mIntCount * 2);
+            }
+            mInts[mIntCount++] = i;
+        }
+
+        void putFloat(float f) {
+            if (mFloatCount == mFloats.length) {
+                mFloats = Arrays.copyOf(mFloats, mFloatCount * 2);
+            }
+            mFloats[mFloatCount++] = f;
+        }
+
+        /*
+         * Append the commands of another log, keeping their order.
+         */
+        void append(CommandLog other) {
+            final int objectBase = mObjectCount;
+            final int intBase = mIntCount;
+            final int floatBase = mFloatCount;
+
+            for (int i = 0; i < other.mCount; ++i) {
+                begin(other.mOps[i]);
+                mOffsets[(mCount - 1) * 3] = objectBase + other.mOffsets[i * 3];
+                mOffsets[(mCount - 1) * 3 + 1] = intBase + other.mOffsets[i * 3 + 1];
+                mOffsets[(mCount - 1) * 3 + 2] = floatBase + other.mOffsets[i * 3 + 2];
+            }
+            for (int i = 0; i < other.mObjectCount; ++i) {
+                putObject(other.mObjects[i]);
+            }
+            for (int i = 0; i < other.mIntCount; ++i) {
+                putInt(other.mInts[i]);
+            }
+            for (int i = 0; i < other.mFloatCount; ++i) {
+                putFloat(other.mFloats[i]);
             }
-            mBuffers.release(mBuffer);
-            mBuffer = null;
-            mRunnablePool.release(this);
         }
 
-        public void set(List<Runnable> buffer) {
-            mBuffer = buffer;
+        void clear() {
+            // Don't keep widgets and GL objects alive from the log
+            Arrays.fill(mOps, 0, mCount, null);
+            Arrays.fill(mObjects, 0, mObjectCount, null);
+            mCount = 0;
+            mObjectCount = 0;
+            mIntCount = 0;
+            mFloatCount = 0;
         }
 
-        private List<Runnable> mBuffer;
+        private Op[] mOps = new Op[INITIAL_CAPACITY];
+        private int[] mOffsets = new int[INITIAL_CAPACITY * 3];
+        private Object[] mObjects = new Object[INITIAL_CAPACITY * 2];
+        private int[] mInts = new int[INITIAL_CAPACITY];
+        private float[] mFloats = new float[INITIAL_CAPACITY];
+        private int mCount;
+        private int mObjectCount;
+        private int mIntCount;
+        private int mFloatCount;
     }
 
-    private final SXRContext mContext;
-    private final ConcurrentListPool<Runnable> mBuffers = new ConcurrentListPool<>(TAG) ;
-    private int mBufferDepth;
-    private final Object[] mBufferLock = new Object[0];
-    private List<Runnable> mCurrentBuffer;
-    private final ConcurrentObjectPool<GLRunnable> mRunnablePool = new ConcurrentObjectPool<GLRunnable>("GLRunnable Pool") {
+    private static final Op RUN = new Op() {
         @Override
-        protected GLRunnable create() {
-            return new GLRunnable();
+        protected void exec(Params params) {
+            ((Runnable) params.nextObject()).run();
         }
     };
 
+    private final SXRContext mContext;
+    private int mBufferDepth;
+    private final Object[] mBufferLock = new Object[0];
+    private CommandLog mLog = new CommandLog();
+    private CommandLog mReplayLog = new CommandLog();
+    private final CommandLog mBufferedLog = new CommandLog();
+    private boolean mReplayPosted;
+    private int mPendingCount;
+    private final Replay mReplay = new Replay();
+    private int mFrameCommandCount;
+    private volatile int mLastCommandCount;
+    private volatile long mTotalCommandCount;
+
+    private static final int INITIAL_CAPACITY = 16;
     private static final String TAG = Log.tag(CommandBuffer.class);
 }
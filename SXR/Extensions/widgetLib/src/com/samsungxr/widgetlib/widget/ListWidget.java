@@ -7,6 +7,7 @@ import com.samsungxr.widgetlib.widget.animation.SimpleAnimationTracker;
 
 
 import com.samsungxr.widgetlib.adapter.Adapter;
+import com.samsungxr.widgetlib.adapter.ListChangeManager;
 import com.samsungxr.widgetlib.log.Log;
 import static com.samsungxr.widgetlib.main.Utility.equal;
 
@@ -267,6 +268,25 @@ public class ListWidget extends GroupWidget implements ScrollableList {
         onChanged(adapter);
     }
 
+    /**
+     * Update the list for the changes in the {@link Adapter} data set without rebuilding it.
+     * The views of the items which are still in the data set are kept, only the views for
+     * the new items are requested from the adapter. The layouts keep the sizes measured for
+     * the items and the list stays centered on the same item.
+     * Call it instead of notifying the adapter observers, once the adapter has been updated.
+     *
+     * @param actions the changes returned by {@link ListChangeManager#getUpdateActions},
+     *                they are applied in order.
+     */
+    public void onItemsChanged(final List<ListChangeManager.Action> actions) {
+        runOnGlThread(new Runnable() {
+            @Override
+            public void run() {
+                onItemsChangedImpl(actions);
+            }
+        });
+    }
+
     /**
      * The callback is called *after* the list relayout (affected by adapter change) has been done.
      * Add DataSetObserver listener directly to the adapter if you are interested in the callback
@@ -633,10 +653,38 @@ public class ListWidget extends GroupWidget implements ScrollableList {
         }
         Log.d(Log.SUBSYSTEM.LAYOUT, TAG, "scrollBy(%s): offset %s", getName(), offset);
 
-        onScrollImpl(offset, listener);
+        int position = isTransitionAnimationEnabled() ? -1 : getPositionAtOffset(offset);
+        if (position >= 0) {
+            onScrollImpl(position, listener);
+        } else {
+            onScrollImpl(offset, listener);
+        }
         return true;
     }
 
+    /**
+     * Find the position the list has to be centered on to be scrolled by the offset. It is
+     * supported by the virtualized layouts only; the other layouts have to measure the items
+     * one by one while scrolling.
+     * @return the position or -1 if it cannot be found without measuring the items
+     */
+    private int getPositionAtOffset(final Vector3Axis offset) {
+        int position = -1;
+        int center = getCurrentPosition();
+        for (Layout layout : mContent.mLayouts) {
+            for (Axis axis : Axis.values()) {
+                float distance = offset.get(axis);
+                if (!Float.isNaN(distance) && !equal(distance, 0)) {
+                    position = layout.getChildAtDistance(center, distance, axis);
+                    if (position < 0) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return position;
+    }
+
     @Override
     public int getScrollingItemsCount() {
         return getDataCount();
@@ -1170,6 +1218,10 @@ public class ListWidget extends GroupWidget implements ScrollableList {
             return mDataIndex;
         }
 
+        private void setDataIndex(final int dataIndex) {
+            mDataIndex = dataIndex;
+        }
+
         private float hostWidth, hostHeight, hostDepth;
         private Widget mGuestWidget;
         private int mDataIndex = -1;
@@ -1284,6 +1336,104 @@ public class ListWidget extends GroupWidget implements ScrollableList {
         recycleChildren();
     }
 
+    /**
+     * Apply the data set changes to the layouts, the views and the selection.
+     * Only the views of the removed items are recycled; the other views are moved to the
+     * new data indexes so they are reused by the next layout without calling the adapter.
+     */
+    private void onItemsChangedImpl(final List<ListChangeManager.Action> actions) {
+        stopScrolling();
+        for (ListOnChangedListener listener: mOnChangedListeners) {
+            listener.onChangedStart(this);
+        }
+
+        int centerPosition = remapDataIndex(getCurrentPosition(), actions, true);
+        Log.d(Log.SUBSYSTEM.LAYOUT, TAG, "onItemsChangedImpl(%s): actions [%d] items [%d] views [%d] " +
+                        "centerPosition = %d",
+                getName(), actions.size(), getDataCount(), getViewCount(), centerPosition);
+
+        for (Layout layout : mContent.mLayouts) {
+            for (ListChangeManager.Action action : actions) {
+                switch (action.action) {
+                    case ADD:
+                        layout.onItemsInserted(action.pos2, 1);
+                        break;
+                    case DELETE:
+                        layout.onItemsRemoved(action.pos1, 1);
+                        break;
+                    case MOVE:
+                        layout.onItemMoved(action.pos1, action.pos2);
+                        break;
+                }
+            }
+            layout.invalidate();
+        }
+
+        for (ListItemHostWidget host: getAllHosts()) {
+            int dataIndex = remapDataIndex(host.getDataIndex(), actions, false);
+            if (dataIndex < 0) {
+                recycle(host);
+            } else {
+                host.setDataIndex(dataIndex);
+            }
+        }
+
+        Set<Integer> selected = new HashSet<>();
+        for (int dataIndex : mSelectedItemsList) {
+            dataIndex = remapDataIndex(dataIndex, actions, false);
+            if (dataIndex >= 0) {
+                selected.add(dataIndex);
+            }
+        }
+        mSelectedItemsList = selected;
+
+        mPreferableCenterPosition = Math.min(centerPosition, getDataCount() - 1);
+        mOnChanged = true;
+        mContent.onTransformChanged();
+        mContent.requestLayout();
+    }
+
+    /**
+     * Get the data index of the item after the changes
+     * @param keepRemoved if true the index of the removed item is the index of the item taking
+     *                    its place, otherwise it is -1.
+     */
+    private static int remapDataIndex(int dataIndex, final List<ListChangeManager.Action> actions,
+                                      final boolean keepRemoved) {
+        for (ListChangeManager.Action action : actions) {
+            if (dataIndex < 0) {
+                break;
+            }
+            switch (action.action) {
+                case ADD:
+                    if (dataIndex >= action.pos2) {
+                        dataIndex++;
+                    }
+                    break;
+                case DELETE:
+                    if (dataIndex > action.pos1) {
+                        dataIndex--;
+                    } else if (dataIndex == action.pos1 && !keepRemoved) {
+                        dataIndex = -1;
+                    }
+                    break;
+                case MOVE:
+                    if (dataIndex == action.pos1) {
+                        dataIndex = action.pos2;
+                    } else {
+                        if (dataIndex > action.pos1) {
+                            dataIndex--;
+                        }
+                        if (dataIndex >= action.pos2) {
+                            dataIndex++;
+                        }
+                    }
+                    break;
+            }
+        }
+        return dataIndex;
+    }
+
 
     private class ContentWidget extends GroupWidget {
 
@@ -1298,6 +1448,7 @@ public class ListWidget extends GroupWidget implements ScrollableList {
             Collection<Widget> measuredChildren = new LinkedHashSet<>();
             layout.measureUntilFull(centerPosition, measuredChildren);
             centerPosition = layout.getCenterChild();
+            layout.measureAhead(centerPosition);
 
             for (Widget next: measuredChildren) {
                 Log.d(Log.SUBSYSTEM.LAYOUT, TAG, "measureLayout<next>: [%s] %s", next.getName(), next);
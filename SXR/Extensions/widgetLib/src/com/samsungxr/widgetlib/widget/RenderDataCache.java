@@ -1,7 +1,8 @@
 package com.samsungxr.widgetlib.widget;
 
-import com.samsungxr.widgetlib.main.CommandBuffer;
-import com.samsungxr.widgetlib.main.CommandBuffer.Command;
+import com.samsungxr.widgetlib.main.CommandBuffer.Op;
+import com.samsungxr.widgetlib.main.CommandBuffer.Params;
+import com.samsungxr.widgetlib.main.WidgetLib;
 
 import com.samsungxr.SXRMaterial;
 import com.samsungxr.SXRMesh;
@@ -165,14 +166,14 @@ class RenderDataCache {
 
     private static final class SET_MESH {
         static void buffer(SXRRenderData renderData, SXRMesh mesh) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, mesh);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, mesh);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final SXRMesh mesh = (SXRMesh) params[1];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final SXRMesh mesh = (SXRMesh) params.nextObject();
                 renderData.setMesh(mesh);
             }
         };
@@ -180,14 +181,14 @@ class RenderDataCache {
 
     private static final class SET_OFFSET {
         static void buffer(SXRRenderData renderData, boolean offset) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, offset);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, offset);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final boolean offset = (boolean) params[1];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final boolean offset = params.nextBoolean();
                 renderData.setOffset(offset);
             }
         };
@@ -195,14 +196,14 @@ class RenderDataCache {
 
     private static final class SET_OFFSET_FACTOR {
         static void buffer(SXRRenderData renderData, float offsetFactor) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, offsetFactor);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, offsetFactor);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final float offsetFactor = (float) params[1];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final float offsetFactor = params.nextFloat();
                 renderData.setOffsetFactor(offsetFactor);
             }
         };
@@ -210,14 +211,14 @@ class RenderDataCache {
 
     private static final class SET_RENDERING_ORDER {
         static void buffer(SXRRenderData renderData, int renderingOrder) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, renderingOrder);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, renderingOrder);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final int renderingOrder = (int) params[1];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final int renderingOrder = params.nextInt();
                 renderData.setRenderingOrder(renderingOrder);
             }
         };
@@ -225,14 +226,14 @@ class RenderDataCache {
 
     private static final class SET_CULL_FACE {
         static void buffer(SXRRenderData renderData, SXRRenderPass.SXRCullFaceEnum cullFace) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, cullFace);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, cullFace);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final SXRRenderPass.SXRCullFaceEnum cullFace = (SXRRenderPass.SXRCullFaceEnum)params[1];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final SXRRenderPass.SXRCullFaceEnum cullFace = (SXRRenderPass.SXRCullFaceEnum) params.nextObject();
                 renderData.setCullFace(cullFace);
             }
         };
@@ -240,14 +241,14 @@ class RenderDataCache {
 
     private static final class SET_OFFSET_UNITS {
         static void buffer(SXRRenderData renderData, float offsetUnits) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, offsetUnits);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, offsetUnits);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final float offsetUnits = (float) params[1];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final float offsetUnits = params.nextFloat();
                 renderData.setOffsetUnits(offsetUnits);
             }
         };
@@ -255,14 +256,14 @@ class RenderDataCache {
 
     private static final class SET_DEPTH_TEST {
         static void buffer(SXRRenderData renderData, boolean depthTest) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, depthTest);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, depthTest);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final boolean depthTest = (boolean) params[1];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final boolean depthTest = params.nextBoolean();
                 renderData.setDepthTest(depthTest);
             }
         };
@@ -270,14 +271,14 @@ class RenderDataCache {
 
     private static final class SET_STENCIL_TEST {
         static void buffer(SXRRenderData renderData) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, true);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, true);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final boolean flag = (boolean) params[1];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final boolean flag = params.nextBoolean();
                 renderData.setStencilTest(flag);
             }
         };
@@ -285,16 +286,16 @@ class RenderDataCache {
 
     private static final class SET_STENCIL_FUNC {
         static void buffer(SXRRenderData renderData, int func) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, func, 1, 0xFF);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, func, 1, 0xFF);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final int func = (int) params[1];
-                final int ref = (int) params[2];
-                final int mask = (int) params[3];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final int func = params.nextInt();
+                final int ref = params.nextInt();
+                final int mask = params.nextInt();
                 renderData.setStencilFunc(func, ref, mask);
             }
         };
@@ -302,14 +303,14 @@ class RenderDataCache {
 
     private static final class SET_STENCIL_MASK {
         static void buffer(SXRRenderData renderData) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, 0x00);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, 0x00);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                final SXRRenderData renderData = (SXRRenderData) params[0];
-                final int mask = (int) params[1];
+            protected void exec(Params params) {
+                final SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                final int mask = params.nextInt();
                 renderData.setStencilMask(mask);
             }
         };
@@ -317,14 +318,14 @@ class RenderDataCache {
 
     private static final class SET_MATERIAL {
         public static void buffer(SXRRenderData renderData, SXRMaterial material) {
-            CommandBuffer.Command.buffer(sExecutor, renderData, material);
+            WidgetLib.getCommandBuffer().add(sOp, renderData, material);
         }
 
-        private static final Command.Executor sExecutor = new Command.Executor() {
+        private static final Op sOp = new Op() {
             @Override
-            public void exec(Object... params) {
-                SXRRenderData renderData = (SXRRenderData) params[0];
-                SXRMaterial material = (SXRMaterial) params[1];
+            protected void exec(Params params) {
+                SXRRenderData renderData = (SXRRenderData) params.nextObject();
+                SXRMaterial material = (SXRMaterial) params.nextObject();
                 renderData.setMaterial(material);
             }
         };
@@ -418,14 +419,14 @@ class RenderDataCache {
 
         private static final class SET_COLOR {
             public static void buffer(SXRMaterial material, int color) {
-                CommandBuffer.Command.buffer(sExecutor, material, color);
+                WidgetLib.getCommandBuffer().add(sOp, material, color);
             }
 
-            private static final Command.Executor sExecutor = new Command.Executor() {
+            private static final Op sOp = new Op() {
                 @Override
-                public void exec(Object... params) {
-                    final SXRMaterial material = (SXRMaterial) params[0];
-                    final int color = (int) params[1];
+                protected void exec(Params params) {
+                    final SXRMaterial material = (SXRMaterial) params.nextObject();
+                    final int color = params.nextInt();
                     material.setColor(color);
                 }
             };
@@ -433,16 +434,16 @@ class RenderDataCache {
 
         private static final class SET_COLOR_RGB {
             public static void buffer(SXRMaterial material, float r, float g, float b) {
-                CommandBuffer.Command.buffer(sExecutor, material, r, g, b);
+                WidgetLib.getCommandBuffer().add(sOp, material, r, g, b);
             }
 
-            private static final Command.Executor sExecutor = new Command.Executor() {
+            private static final Op sOp = new Op() {
                 @Override
-                public void exec(Object... params) {
-                    final SXRMaterial material = (SXRMaterial) params[0];
-                    final float r = (float) params[1];
-                    final float g = (float) params[2];
-                    final float b = (float) params[3];
+                protected void exec(Params params) {
+                    final SXRMaterial material = (SXRMaterial) params.nextObject();
+                    final float r = params.nextFloat();
+                    final float g = params.nextFloat();
+                    final float b = params.nextFloat();
                     material.setColor(r, g, b);
                 }
             };
@@ -450,14 +451,14 @@ class RenderDataCache {
 
         private static final class SET_OPACITY {
             public static void buffer(SXRMaterial material, float opacity) {
-                CommandBuffer.Command.buffer(sExecutor, material, opacity);
+                WidgetLib.getCommandBuffer().add(sOp, material, opacity);
             }
 
-            private static final Command.Executor sExecutor = new Command.Executor() {
+            private static final Op sOp = new Op() {
                 @Override
-                public void exec(Object... params) {
-                    final SXRMaterial material = (SXRMaterial) params[0];
-                    final float opacity = (float) params[1];
+                protected void exec(Params params) {
+                    final SXRMaterial material = (SXRMaterial) params.nextObject();
+                    final float opacity = params.nextFloat();
                     material.setOpacity(opacity);
                 }
             };
@@ -465,14 +466,14 @@ class RenderDataCache {
 
         private static final class SET_TEXTURE {
             public static void buffer(SXRMaterial material, SXRTexture texture) {
-                CommandBuffer.Command.buffer(sExecutor, material, texture);
+                WidgetLib.getCommandBuffer().add(sOp, material, texture);
             }
 
-            private static Command.Executor sExecutor = new Command.Executor() {
+            private static Op sOp = new Op() {
                 @Override
-                public void exec(Object... params) {
-                    final SXRMaterial material = (SXRMaterial) params[0];
-                    final SXRTexture texture = (SXRTexture) params[1];
+                protected void exec(Params params) {
+                    final SXRMaterial material = (SXRMaterial) params.nextObject();
+                    final SXRTexture texture = (SXRTexture) params.nextObject();
                     material.setMainTexture(texture);
                     material.setTexture(MATERIAL_DIFFUSE_TEXTURE, texture);
                 }
@@ -481,15 +482,15 @@ class RenderDataCache {
 
         private static final class SET_NAMED_TEXTURE {
             public static void buffer(SXRMaterial material, String key, SXRTexture texture) {
-                CommandBuffer.Command.buffer(sExecutor, material, key, texture);
+                WidgetLib.getCommandBuffer().add(sOp, material, key, texture);
             }
 
-            private static final Command.Executor sExecutor = new Command.Executor() {
+            private static final Op sOp = new Op() {
                 @Override
-                public void exec(Object... params) {
-                    final SXRMaterial material = (SXRMaterial) params[0];
-                    final String name = (String) params[1];
-                    final SXRTexture texture = (SXRTexture) params[2];
+                protected void exec(Params params) {
+                    final SXRMaterial material = (SXRMaterial) params.nextObject();
+                    final String name = (String) params.nextObject();
+                    final SXRTexture texture = (SXRTexture) params.nextObject();
                     material.setTexture(name, texture);
                 }
             };
@@ -3533,7 +3533,8 @@ public class Widget implements Layout.WidgetContainer {
      * @param r {@link Runnable} to execute on the GL thread.
      */
     protected final void runOnGlThread(final Runnable r) {
-        getSXRContext().runOnGlThread(new Runnable() {
+        // Through the command buffer, to keep the order with the buffered render state changes
+        WidgetLib.getCommandBuffer().add(new Runnable() {
             public void run() {
                 FPSCounter.timeCheck("runOnGlThread <START>: " + r);
                 r.run();
@@ -135,6 +135,53 @@ abstract public class Layout {
         }
     }
 
+    /**
+     * Called when new items have been inserted in the data set. The layout can keep
+     * the data it has collected for the other items. Does nothing by default.
+     * @param dataIndex index of the first new item
+     * @param count number of new items
+     */
+    public void onItemsInserted(final int dataIndex, final int count) {
+    }
+
+    /**
+     * Called when items have been removed from the data set. Does nothing by default.
+     * @param dataIndex index of the first removed item
+     * @param count number of removed items
+     */
+    public void onItemsRemoved(final int dataIndex, final int count) {
+    }
+
+    /**
+     * Called when an item has been moved in the data set. Does nothing by default.
+     * @param fromDataIndex old item index
+     * @param toDataIndex new item index
+     */
+    public void onItemMoved(final int fromDataIndex, final int toDataIndex) {
+    }
+
+    /**
+     * Get the child the layout content has to be centered on to be shifted along the axis
+     * by the distance from the child with specified dataIndex being in the center.
+     * @param dataIndex
+     * @param distance
+     * @param axis
+     * @return child data index or -1 if the layout cannot compute it without
+     * measuring the children in between.
+     */
+    public int getChildAtDistance(final int dataIndex, final float distance, final Axis axis) {
+        return -1;
+    }
+
+    /**
+     * Measure the children around the center child in background, so they can be
+     * positioned without being measured when the layout is scrolled to them.
+     * Does nothing by default.
+     * @param centerDataIndex data index of the child in the center
+     */
+    public void measureAhead(final int centerDataIndex) {
+    }
+
     /**
      * Gets layout name
      * @return layout name
@@ -7,6 +7,9 @@ import com.samsungxr.widgetlib.widget.layout.Layout;
 import com.samsungxr.widgetlib.widget.layout.OrientedLayout;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import static com.samsungxr.widgetlib.log.Log.SUBSYSTEM.LAYOUT;
 
@@ -23,6 +26,12 @@ import static com.samsungxr.widgetlib.log.Log.SUBSYSTEM.LAYOUT;
  * list even if they occupy larger space than the container size is. The unlimited size can be
  * specified for the layout. For layout with unlimited size only gravity {@link Gravity#CENTER}
  * can be applied.
+ *
+ * For very large data sets the layout can be virtualized by calling
+ * {@link LinearLayout#enableVirtualization}. The layout keeps then a prefix-sum index of the
+ * sizes of all items, so the offset of any item in the data set can be found in O(log n) even
+ * if the item has never been measured. Items which have not been measured yet are estimated
+ * by the average size of the measured ones.
  */
 public class LinearLayout extends OrientedLayout {
 
@@ -97,6 +106,99 @@ public class LinearLayout extends OrientedLayout {
         }
     }
 
+    /**
+     * Measures the item size without creating the item view. It is called on a background
+     * thread, so it must not access the scene graph.
+     */
+    public interface SizeMeasurer {
+        /**
+         * @param dataIndex data index of the item
+         * @param axis {@link Axis} along the layout orientation
+         * @return item size along the axis
+         */
+        float getSize(int dataIndex, Axis axis);
+    }
+
+    /**
+     * When set to true, the layout keeps the size of every measured item in an index covering
+     * the whole data set. The offsets of the items outside of the view port can be computed
+     * then without measuring the items in between. Disabled by default.
+     * @param enable true to enable the virtualization, false - otherwise.
+     */
+    public void enableVirtualization(final boolean enable) {
+        if (enable != isVirtualizationEnabled()) {
+            mSizeIndex = enable ? new SizeIndex() : null;
+            mSizeIndexAxis = null;
+        }
+    }
+
+    /**
+     * @return true if the virtualization is enabled, false - otherwise.
+     */
+    public boolean isVirtualizationEnabled() {
+        return mSizeIndex != null;
+    }
+
+    /**
+     * Set the measurer used to measure items ahead of the view port in background. Only
+     * applied if the virtualization is enabled.
+     * @param measurer {@link SizeMeasurer} or null to stop measuring ahead
+     * @param count number of items measured ahead in each direction
+     */
+    public void setSizeMeasurer(final SizeMeasurer measurer, final int count) {
+        mSizeMeasurer = measurer;
+        mMeasureAheadCount = count;
+        mMeasureAheadRequest++;
+    }
+
+    /**
+     * Get the offset of the item center from the start of the layout content.
+     * @param dataIndex data index of the item
+     * @return offset along the orientation axis or {@link Float#NaN} if the virtualization is
+     * not enabled or the item is not in the data set.
+     */
+    public float getVirtualOffset(final int dataIndex) {
+        float offset = Float.NaN;
+        if (mSizeIndex != null && mContainer != null &&
+                dataIndex >= 0 && dataIndex < mContainer.size()) {
+            syncSizeIndex();
+            offset = getVirtualPoint(dataIndex, 0.5f);
+        }
+        return offset;
+    }
+
+    /**
+     * @return size of the whole layout content along the orientation axis or {@link Float#NaN}
+     * if the virtualization is not enabled.
+     */
+    public float getVirtualSize() {
+        float size = Float.NaN;
+        if (mSizeIndex != null && mContainer != null) {
+            syncSizeIndex();
+            int count = mSizeIndex.count();
+            float divider = getDivider();
+            size = count == 0 ? 0 : mSizeIndex.getTotal() + (count - 1) * divider +
+                    (mOuterPaddingEnabled ? divider : 0);
+        }
+        return size;
+    }
+
+    /**
+     * Get the item at the offset from the start of the layout content.
+     * @param offset offset along the orientation axis
+     * @return data index of the item or -1 if the virtualization is not enabled.
+     */
+    public int getChildAtVirtualOffset(final float offset) {
+        int dataIndex = -1;
+        if (mSizeIndex != null && mContainer != null) {
+            syncSizeIndex();
+            float divider = getDivider();
+            dataIndex = mSizeIndex.find(offset + divider / 2 -
+                    (mOuterPaddingEnabled ? divider / 2 : 0), divider);
+        }
+        return dataIndex;
+    }
+
     /**
      * @return {@link Gravity} of the layout.
      */
@@ -256,10 +358,77 @@ public class LinearLayout extends OrientedLayout {
         super.invalidate(dataIndex);
     }
 
+    @Override
+    public void onItemsInserted(final int dataIndex, final int count) {
+        if (mSizeIndex != null) {
+            mSizeIndex.insert(dataIndex, count);
+        }
+    }
+
+    @Override
+    public void onItemsRemoved(final int dataIndex, final int count) {
+        if (mSizeIndex != null) {
+            mSizeIndex.remove(dataIndex, count);
+        }
+    }
+
+    @Override
+    public void onItemMoved(final int fromDataIndex, final int toDataIndex) {
+        if (mSizeIndex != null) {
+            mSizeIndex.move(fromDataIndex, toDataIndex);
+        }
+    }
+
+    @Override
+    public int getChildAtDistance(final int dataIndex, final float distance, final Axis axis) {
+        int id = -1;
+        if (axis == getOrientationAxis() && !Float.isNaN(distance)) {
+            float offset = getVirtualOffset(dataIndex);
+            if (!Float.isNaN(offset)) {
+                id = getChildAtVirtualOffset(offset - getOffsetSign() * distance);
+            }
+        }
+        Log.d(LAYOUT, TAG, "getChildAtDistance [%d] distance = %f id = %d", dataIndex, distance, id);
+        return id;
+    }
+
+    @Override
+    public void measureAhead(final int centerDataIndex) {
+        final SizeIndex index = mSizeIndex;
+        final SizeMeasurer measurer = mSizeMeasurer;
+        final int count = mMeasureAheadCount;
+        if (index == null || measurer == null || count <= 0 || mContainer == null ||
+                centerDataIndex < 0) {
+            return;
+        }
+        syncSizeIndex();
+
+        final Axis axis = getOrientationAxis();
+        final int generation = index.getGeneration();
+        final int request = ++mMeasureAheadRequest;
+        getMeasureAheadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                int measured = 0;
+                for (int i = 1; i <= count; ++i) {
+                    if (request != mMeasureAheadRequest || generation != index.getGeneration()) {
+                        break;
+                    }
+                    measured += measureAhead(index, measurer, axis, centerDataIndex + i, generation);
+                    measured += measureAhead(index, measurer, axis, centerDataIndex - i, generation);
+                }
+                Log.d(LAYOUT, TAG, "measureAhead [%d]: measured %d items", centerDataIndex, measured);
+            }
+        });
+    }
+
     protected LinearLayout(final LinearLayout rhs) {
         super(rhs);
         mGravity = rhs.mGravity;
         mUniformSize = rhs.mUniformSize;
+        enableVirtualization(rhs.isVirtualizationEnabled());
+        mSizeMeasurer = rhs.mSizeMeasurer;
+        mMeasureAheadCount = rhs.mMeasureAheadCount;
     }
 
     /**
@@ -465,6 +634,9 @@ public class LinearLayout extends OrientedLayout {
                 default:
                     break;
             }
+        } else if (axis == getOrientationAxis() && mSizeIndex != null && cache.count() > 0 &&
+                dataIndex >= 0 && dataIndex < mContainer.size()) {
+            distance = getVirtualDistanceToChild(dataIndex, axis, cache);
         }
         Log.d(LAYOUT, TAG, "getDistanceToChild dataIndex = %d distance = %f ",
                 dataIndex, distance);
@@ -517,6 +689,90 @@ public class LinearLayout extends OrientedLayout {
     // >>>>>> measureUntilFull helper methods
 
 
+    /**
+     * Compute the distance to the item outside of the cache from the distance to the
+     * center item in the cache and the offsets of both items in the size index.
+     */
+    private float getVirtualDistanceToChild(int dataIndex, Axis axis, CacheDataSet cache) {
+        float distance = Float.NaN;
+        int anchor = getCenterChild(cache);
+        float anchorDistance = cache.contains(anchor) ?
+                getDistanceToChild(anchor, axis, cache) : Float.NaN;
+
+        if (!Float.isNaN(anchorDistance)) {
+            // the gravity defines which point of the item is aligned with the layout
+            float alignment = 0.5f;
+            switch (getGravityInternal()) {
+                case TOP:
+                case LEFT:
+                case FRONT:
+                case FILL:
+                    alignment = 0;
+                    break;
+                case BOTTOM:
+                case RIGHT:
+                case BACK:
+                    alignment = 1;
+                    break;
+                default:
+                    break;
+            }
+            final int sign = getOffsetSign();
+            if (sign < 0) {
+                alignment = 1 - alignment;
+            }
+            syncSizeIndex();
+            distance = anchorDistance - sign *
+                    (getVirtualPoint(dataIndex, alignment) - getVirtualPoint(anchor, alignment));
+        }
+        return distance;
+    }
+
+    /**
+     * @param alignment 0 for the item start, 1 for the item end
+     * @return offset of the point in the item from the start of the layout content
+     */
+    private float getVirtualPoint(final int dataIndex, final float alignment) {
+        float divider = getDivider();
+        return mSizeIndex.getOffset(dataIndex) + dataIndex * divider +
+                (mOuterPaddingEnabled ? divider / 2 : 0) +
+                mSizeIndex.getSize(dataIndex) * alignment;
+    }
+
+    /**
+     * Keep the size index along the orientation axis and as large as the data set
+     */
+    private void syncSizeIndex() {
+        if (mSizeIndexAxis != getOrientationAxis()) {
+            mSizeIndex.clear();
+            mSizeIndexAxis = getOrientationAxis();
+        }
+        mSizeIndex.resize(mContainer.size());
+    }
+
+    private static int measureAhead(final SizeIndex index, final SizeMeasurer measurer,
+                                    final Axis axis, final int dataIndex, final int generation) {
+        if (dataIndex < 0 || dataIndex >= index.count() || index.isMeasured(dataIndex)) {
+            return 0;
+        }
+        return index.setIfUnmeasured(dataIndex, measurer.getSize(dataIndex, axis), generation) ?
+                1 : 0;
+    }
+
+    private static synchronized ExecutorService getMeasureAheadExecutor() {
+        if (sMeasureAheadExecutor == null) {
+            sMeasureAheadExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "MeasureAhead");
+                    t.setDaemon(true);
+                    t.setPriority((Thread.MIN_PRIORITY + Thread.NORM_PRIORITY) / 2);
+                    return t;
+                }
+            });
+        }
+        return sMeasureAheadExecutor;
+    }
+
     protected int getCenterChild(CacheDataSet cache) {
         if (cache.count() == 0)
             return -1;
@@ -577,6 +833,10 @@ public class LinearLayout extends OrientedLayout {
                     dataIndex, pos, cache.count(), size);
 
             cache.addData(dataIndex, pos, size, getDivider() / 2, getDivider() / 2);
+            if (mSizeIndex != null) {
+                syncSizeIndex();
+                mSizeIndex.set(dataIndex, size);
+            }
         }
         if (calculateOffset) {
             computeOffset(dataIndex, cache);
@@ -743,6 +1003,12 @@ public class LinearLayout extends OrientedLayout {
     protected LinearCacheDataSet mCache;
     protected boolean mUniformSize;
     private Gravity mGravity = Gravity.CENTER;
+    private SizeIndex mSizeIndex;
+    private Axis mSizeIndexAxis;
+    private SizeMeasurer mSizeMeasurer;
+    private int mMeasureAheadCount;
+    private volatile int mMeasureAheadRequest;
+    private static ExecutorService sMeasureAheadExecutor;
     protected static final String TAG = LinearLayout.class.getSimpleName();
 
     private static final String pattern = "\nLL attributes====== gravity = %s " +
@@ -0,0 +1,274 @@
+package com.samsungxr.widgetlib.widget.layout.basic;
+
+import java.util.Arrays;
+
+/**
+ * Prefix-sum index of the item sizes along the layout orientation.
+ *
+ * Unlike {@link LinearCacheDataSet}, which keeps only the items around the view port, the index
+ * has a slot for every item in the data set. The items which have not been measured yet take the
+ * average size of the measured ones. Two Fenwick trees (the measured sizes and the number of
+ * unmeasured items) make the offset of any item and the item at any offset O(log n). Inserting,
+ * removing and moving items shifts the slots without losing the measured sizes.
+ */
+class SizeIndex {
+
+    /**
+     * @return number of items in the index
+     */
+    synchronized int count() {
+        return mCount;
+    }
+
+    /**
+     * @return number of items with a known size
+     */
+    synchronized int getMeasuredCount() {
+        return mMeasuredCount;
+    }
+
+    /**
+     * The generation is changed every time the items are shifted. Sizes measured for a
+     * generation are not valid for another one.
+     * @return current generation
+     */
+    synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Resize the index to the data set size. The sizes of the remaining items are kept.
+     * @param count new number of items
+     */
+    synchronized void resize(final int count) {
+        if (count != mCount) {
+            if (count > mCount) {
+                insert(mCount, count - mCount);
+            } else {
+                remove(count, mCount - count);
+            }
+        }
+    }
+
+    /**
+     * Forget all the sizes
+     */
+    synchronized void clear() {
+        Arrays.fill(mSizes, 0, mCount, Float.NaN);
+        mMeasuredCount = 0;
+        mMeasuredTotal = 0;
+        mGeneration++;
+        rebuild();
+    }
+
+    /**
+     * Set the measured size of the item
+     * @param index item index
+     * @param size item size
+     */
+    synchronized void set(final int index, final float size) {
+        if (index < 0 || index >= mCount || Float.isNaN(size)) {
+            return;
+        }
+        float old = mSizes[index];
+        if (Float.isNaN(old)) {
+            mMeasuredCount++;
+            update(index, size, -1);
+        } else {
+            mMeasuredTotal -= old;
+            update(index, size - old, 0);
+        }
+        mMeasuredTotal += size;
+        mSizes[index] = size;
+    }
+
+    /**
+     * Set the size measured ahead for the item. The size is dropped if the item has been
+     * measured in the meantime or the items have been shifted since the generation was taken.
+     * @return true if the size has been set, false - otherwise
+     */
+    synchronized boolean setIfUnmeasured(final int index, final float size, final int generation) {
+        if (generation != mGeneration || isMeasured(index)) {
+            return false;
+        }
+        set(index, size);
+        return true;
+    }
+
+    /**
+     * @return true if the size of the item is known, false - otherwise
+     */
+    synchronized boolean isMeasured(final int index) {
+        return index >= 0 && index < mCount && !Float.isNaN(mSizes[index]);
+    }
+
+    /**
+     * @return the average size of the measured items, 0 if nothing has been measured
+     */
+    synchronized float getEstimate() {
+        return mMeasuredCount == 0 ? 0 : (float) (mMeasuredTotal / mMeasuredCount);
+    }
+
+    /**
+     * @return the measured size of the item or the estimate if the item has not been measured
+     */
+    synchronized float getSize(final int index) {
+        if (index < 0 || index >= mCount) {
+            return Float.NaN;
+        }
+        return Float.isNaN(mSizes[index]) ? getEstimate() : mSizes[index];
+    }
+
+    /**
+     * Gets the total size of the items in front of the item
+     * @param index item index, {@link #count()} gives the total size of all items
+     * @return offset of the item start
+     */
+    synchronized float getOffset(final int index) {
+        int end = Math.max(0, Math.min(index, mCount));
+        double size = 0;
+        int unmeasured = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            size += mSizeTree[i];
+            unmeasured += mUnmeasuredTree[i];
+        }
+        return (float) (size + unmeasured * (double) getEstimate());
+    }
+
+    /**
+     * @return total size of all items
+     */
+    synchronized float getTotal() {
+        return getOffset(mCount);
+    }
+
+    /**
+     * Find the item occupying the offset.
+     * @param offset offset from the start of the first item
+     * @param extra space added after every item, like padding
+     * @return item index, offsets outside of the items give the first or the last item.
+     * -1 is returned if the index is empty.
+     */
+    synchronized int find(final float offset, final float extra) {
+        if (mCount == 0) {
+            return -1;
+        }
+        final double estimate = getEstimate();
+        double remaining = offset;
+        int pos = 0;
+        for (int step = Integer.highestOneBit(mCount); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= mCount) {
+                double span = mSizeTree[next] + mUnmeasuredTree[next] * estimate +
+                        step * (double) extra;
+                if (span <= remaining) {
+                    pos = next;
+                    remaining -= span;
+                }
+            }
+        }
+        return Math.min(pos, mCount - 1);
+    }
+
+    /**
+     * Insert unmeasured items
+     * @param index index of the first new item
+     * @param count number of new items
+     */
+    synchronized void insert(final int index, final int count) {
+        if (count <= 0 || index < 0 || index > mCount) {
+            return;
+        }
+        ensureCapacity(mCount + count);
+        System.arraycopy(mSizes, index, mSizes, index + count, mCount - index);
+        Arrays.fill(mSizes, index, index + count, Float.NaN);
+        mCount += count;
+        mGeneration++;
+        rebuild();
+    }
+
+    /**
+     * Remove items
+     * @param index index of the first removed item
+     * @param count number of removed items
+     */
+    synchronized void remove(final int index, final int count) {
+        if (index < 0 || index >= mCount) {
+            return;
+        }
+        final int end = Math.min(index + count, mCount);
+        for (int i = index; i < end; ++i) {
+            if (!Float.isNaN(mSizes[i])) {
+                mMeasuredCount--;
+                mMeasuredTotal -= mSizes[i];
+            }
+        }
+        System.arraycopy(mSizes, end, mSizes, index, mCount - end);
+        mCount -= end - index;
+        mGeneration++;
+        rebuild();
+    }
+
+    /**
+     * Move the item keeping its size
+     * @param from current item index
+     * @param to new item index
+     */
+    synchronized void move(final int from, final int to) {
+        if (from == to || from < 0 || from >= mCount || to < 0 || to >= mCount) {
+            return;
+        }
+        float size = mSizes[from];
+        if (from < to) {
+            System.arraycopy(mSizes, from + 1, mSizes, from, to - from);
+        } else {
+            System.arraycopy(mSizes, to, mSizes, to + 1, from - to);
+        }
+        mSizes[to] = size;
+        mGeneration++;
+        rebuild();
+    }
+
+    private void update(final int index, final float size, final int unmeasured) {
+        for (int i = index + 1; i <= mCount; i += i & -i) {
+            mSizeTree[i] += size;
+            mUnmeasuredTree[i] += unmeasured;
+        }
+    }
+
+    /**
+     * Build both trees in O(n): every node adds its sum to its parent
+     */
+    private void rebuild() {
+        for (int i = 1; i <= mCount; ++i) {
+            float size = mSizes[i - 1];
+            boolean measured = !Float.isNaN(size);
+            mSizeTree[i] = measured ? size : 0;
+            mUnmeasuredTree[i] = measured ? 0 : 1;
+        }
+        for (int i = 1; i <= mCount; ++i) {
+            int parent = i + (i & -i);
+            if (parent <= mCount) {
+                mSizeTree[parent] += mSizeTree[i];
+                mUnmeasuredTree[parent] += mUnmeasuredTree[i];
+            }
+        }
+    }
+
+    private void ensureCapacity(final int count) {
+        if (count > mSizes.length) {
+            int capacity = Math.max(count, mSizes.length * 2);
+            mSizes = Arrays.copyOf(mSizes, capacity);
+            mSizeTree = new double[capacity + 1];
+            mUnmeasuredTree = new int[capacity + 1];
+        }
+    }
+
+    private float[] mSizes = new float[0];
+    private double[] mSizeTree = new double[1];
+    private int[] mUnmeasuredTree = new int[1];
+    private int mCount;
+    private int mMeasuredCount;
+    private double mMeasuredTotal;
+    private int mGeneration;
+}
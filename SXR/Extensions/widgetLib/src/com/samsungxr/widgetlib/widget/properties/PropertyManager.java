@@ -10,14 +10,25 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
+/**
+ * Resolves the properties of widgets from the class properties in
+ * {@code default_metadata.json} and the instance properties in {@code objects.json}.
+ * <p>
+ * The class properties are compiled once when the manager is created: each class
+ * entry is copied into an unmodifiable object keyed by canonical class name.
+ * The properties of a class, merged with those of its superclasses, are resolved
+ * the first time the class is used and shared by every widget of that class.
+ * Instance properties are merged in once for each class and instance name.
+ * The returned objects are unmodifiable, so sharing them is safe.
+ */
 public class PropertyManager {
 
     @NonNull
     public UnmodifiableJSONObject getInstanceProperties(Class<?> clazz, String name) {
-        JSONObject properties = buildInstanceProperties(name, clazz);
-        return new UnmodifiableJSONObject(properties);
+        return getResolvedInstanceProperties(clazz, name);
     }
 
     @NonNull
@@ -35,75 +46,60 @@ public class PropertyManager {
         loadInstanceProperties(context);
     }
 
-    private JSONObject buildInstanceProperties(String name, Class<?> clazz) {
-        final JSONObject properties = mInstanceJson.optJSONObject(name);
-        final UnmodifiableJSONObject defaultMetadata = getClassProperties(clazz, name);
+    private synchronized UnmodifiableJSONObject getResolvedInstanceProperties(Class<?> clazz, String name) {
+        final JSONObject properties = name != null ? mInstanceJson.optJSONObject(name) : null;
+        final UnmodifiableJSONObject classProperties = getClassProperties(clazz);
 
-        if (defaultMetadata == null) {
-            if (properties == null) {
-                return new JSONObject();
-            }
-            return properties;
-        } else if (properties == null) {
-            return defaultMetadata;
+        if (properties == null) {
+            return classProperties;
         }
 
-        // Overwrite class properties for this widget type with instance-specific properties
-        return JSONHelpers.merge(properties, defaultMetadata);
-    }
-
-    private String getCanonicalName(Class<?> clazz) {
-        String canonicalName = mCanonicalNames.get(clazz);
-        if (canonicalName == null) {
-            canonicalName = clazz.getCanonicalName();
-            mCanonicalNames.put(clazz, canonicalName);
+        Map<String, UnmodifiableJSONObject> instances = mInstanceProperties.get(clazz);
+        if (instances == null) {
+            instances = new HashMap<>();
+            mInstanceProperties.put(clazz, instances);
         }
-        return canonicalName;
+        UnmodifiableJSONObject instanceProperties = instances.get(name);
+        if (instanceProperties == null) {
+            // Overwrite class properties for this widget type with instance-specific properties
+            instanceProperties = new UnmodifiableJSONObject(
+                    JSONHelpers.merge(properties, classProperties, name));
+            instances.put(name, instanceProperties);
+            Log.d(Log.SUBSYSTEM.JSON, TAG, "getInstanceProperties(%s): resolved for %s: %s",
+                    name, clazz.getSimpleName(), instanceProperties);
+        }
+        return instanceProperties;
     }
 
-    /* package */
-    @SuppressWarnings("unchecked")
-    private UnmodifiableJSONObject getClassProperties(Class<?> clazz, String name) {
-        final String canonicalName = getCanonicalName(clazz);
-        // TODO: Why does caching class properties in mClassProperties not work?
-        UnmodifiableJSONObject classProperties = buildClassProperties(clazz, name, canonicalName);
-
+    private UnmodifiableJSONObject getClassProperties(Class<?> clazz) {
+        UnmodifiableJSONObject classProperties = mClassProperties.get(clazz);
+        if (classProperties == null) {
+            classProperties = buildClassProperties(clazz);
+            mClassProperties.put(clazz, classProperties);
+        }
         return classProperties;
     }
 
-    private UnmodifiableJSONObject buildClassProperties(Class<?> clazz, String name, String canonicalName) {
-        // Recursively check for class properties up the class hierarchy
-        if (name == null || name.isEmpty()) {
-            name = clazz.getSimpleName();
-        }
-        final UnmodifiableJSONObject superProperties;
+    private UnmodifiableJSONObject buildClassProperties(Class<?> clazz) {
+        // Recursively resolve class properties up the class hierarchy
+        final String canonicalName = clazz.getCanonicalName();
         final Class<?> superclass = clazz.getSuperclass();
-        if (superclass != null) {
-            superProperties = getClassProperties(superclass, name);
-        } else {
-            superProperties = new UnmodifiableJSONObject();
-        }
-        Log.d(Log.SUBSYSTEM.JSON, TAG,
-                "buildClassProperties(%s): getting super properties for %s: %s",
-                name, canonicalName, superProperties);
+        final UnmodifiableJSONObject superProperties = superclass != null
+                ? getClassProperties(superclass) : EMPTY;
+        final UnmodifiableJSONObject classProperties = canonicalName != null
+                ? mCompiledClassJson.get(canonicalName) : null;
 
-        UnmodifiableJSONObject classProperties = mClassJson.optJSONObject(canonicalName);
-        Log.d(Log.SUBSYSTEM.JSON, TAG,
-                "buildClassProperties(%s): getting class properties for %s: %s",
-                name, canonicalName, classProperties);
         if (classProperties == null) {
-            classProperties = new UnmodifiableJSONObject();
-        } else {
-            Log.d(Log.SUBSYSTEM.JSON, TAG, "buildClassProperties(%s): copy class properties for %s ...", name,
-                    canonicalName);
-            classProperties = new UnmodifiableJSONObject(JSONHelpers.copy(classProperties));
+            // Nothing to add, share the superclass properties
+            return superProperties;
         }
 
-        JSONObject mergedProperties = JSONHelpers.merge(classProperties, superProperties, name);
+        UnmodifiableJSONObject mergedProperties = new UnmodifiableJSONObject(
+                JSONHelpers.merge(classProperties, superProperties, clazz.getSimpleName()));
         Log.d(Log.SUBSYSTEM.JSON, TAG,
-                "buildClassProperties(%s): getting merged properties for %s: %s",
-                name, canonicalName, mergedProperties);
-        return new UnmodifiableJSONObject(mergedProperties);
+                "buildClassProperties(%s): merged properties: %s",
+                canonicalName, mergedProperties);
+        return mergedProperties;
     }
 
     private static boolean isWidgetClass(Class<?> clazz) {
@@ -121,10 +117,31 @@ public class PropertyManager {
         JSONHelpers.merge(publicJson, properties);
 
         Log.d(Log.SUBSYSTEM.JSON, TAG, "loadClassProperties(): %s", properties);
-        mClassJson = new UnmodifiableJSONObject(properties.optJSONObject("objects"));
+        compileClassProperties(properties.optJSONObject("objects"));
         return properties;
     }
 
+    /**
+     * Copy the properties of each class once, so resolving the properties
+     * of a class never has to copy them again.
+     */
+    private void compileClassProperties(JSONObject classJson) {
+        if (classJson == null) {
+            return;
+        }
+        final Iterator<String> names = classJson.keys();
+        while (names.hasNext()) {
+            final String name = names.next();
+            final JSONObject classProperties = classJson.optJSONObject(name);
+            if (classProperties != null) {
+                mCompiledClassJson.put(name,
+                        new UnmodifiableJSONObject(JSONHelpers.copy(classProperties)));
+            }
+        }
+        Log.d(Log.SUBSYSTEM.JSON, TAG, "compileClassProperties(): compiled %d classes",
+                mCompiledClassJson.size());
+    }
+
     private void loadInstanceProperties(Context context)
             throws JSONException {
         final JSONObject json = JSONHelpers.loadJSONAsset(context, "objects.json");
@@ -133,9 +150,11 @@ public class PropertyManager {
                 mInstanceJson);
     }
 
-    private final Map<Class<?>, String> mCanonicalNames = new HashMap<>();
-    private UnmodifiableJSONObject mClassJson;
-    private Map<Class<?>, JSONObject> mClassProperties = new HashMap<>();
+    private static final UnmodifiableJSONObject EMPTY = new UnmodifiableJSONObject();
+
+    private final Map<String, UnmodifiableJSONObject> mCompiledClassJson = new HashMap<>();
+    private final Map<Class<?>, UnmodifiableJSONObject> mClassProperties = new HashMap<>();
+    private final Map<Class<?>, Map<String, UnmodifiableJSONObject>> mInstanceProperties = new HashMap<>();
     private JSONObject mInstanceJson;
 
     private static final String TAG = PropertyManager.class.getSimpleName();
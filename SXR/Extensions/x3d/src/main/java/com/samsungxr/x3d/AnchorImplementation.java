@@ -51,8 +51,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Vector;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
@@ -78,7 +78,7 @@ public class AnchorImplementation {
 
     private SXRContext gvrContext = null;
     private SXRNode root = null;
-    private Vector<Viewpoint> viewpoints = new Vector<Viewpoint>();
+    private ArrayList<Viewpoint> viewpoints = new ArrayList<Viewpoint>();
 
     private PerFrameWebViewControl perFrameWebViewControl = new PerFrameWebViewControl();
 
@@ -139,7 +139,7 @@ public class AnchorImplementation {
     private boolean webPageClosed = false;
 
 
-    public AnchorImplementation(SXRContext gvrContext, SXRNode root, Vector<Viewpoint> viewpoints ) {
+    public AnchorImplementation(SXRContext gvrContext, SXRNode root, ArrayList<Viewpoint> viewpoints ) {
         this.gvrContext = gvrContext;
         this.root = root;
         this.viewpoints = viewpoints;
@@ -83,7 +83,8 @@ import org.joml.Vector3f;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Vector;
+import java.util.HashMap;
+import java.util.Locale;
 
 import javax.script.Bindings;
 
@@ -105,7 +106,7 @@ public class AnimationInteractivityManager {
 
     private static final String TAG = AnimationInteractivityManager.class.getSimpleName();
     private final static float FRAMES_PER_SECOND = 60.0f;
-    private Vector<InteractiveObject> interactiveObjects = new Vector<InteractiveObject>();
+    private ArrayList<InteractiveObject> interactiveObjects = new ArrayList<InteractiveObject>();
 
     private static final String IS_OVER = "isOver";
     private static final String Is_ACTIVE = "isActive";
@@ -125,13 +126,27 @@ public class AnimationInteractivityManager {
     private X3Dobject x3dObject = null;
     private SXRContext gvrContext = null;
     private SXRNode root = null;
-    private Vector<DefinedItem> definedItems = null;
-    private Vector<Interpolator> interpolators = null;
-    private Vector<Sensor> sensors = null;
-    private Vector<TimeSensor> timeSensors = null;
-    private Vector<EventUtility> eventUtilities = null;
+    private ArrayList<DefinedItem> definedItems = null;
+    private ArrayList<Interpolator> interpolators = null;
+    private ArrayList<Sensor> sensors = null;
+    private ArrayList<TimeSensor> timeSensors = null;
+    private ArrayList<EventUtility> eventUtilities = null;
     private ArrayList<ScriptObject> scriptObjects = null;
 
+    // <ROUTE> tags are saved while parsing and resolved together once all
+    // the nodes they refer to are known.
+    private ArrayList<Route> routes = new ArrayList<Route>();
+
+    // DEF names, lower case, of the nodes a <ROUTE> can refer to.
+    // Rebuilt when any of the lists above has grown since the last build.
+    private HashMap<String, DefinedItem> definedItemNames = new HashMap<String, DefinedItem>();
+    private HashMap<String, Interpolator> interpolatorNames = new HashMap<String, Interpolator>();
+    private HashMap<String, Sensor> sensorNames = new HashMap<String, Sensor>();
+    private HashMap<String, TimeSensor> timeSensorNames = new HashMap<String, TimeSensor>();
+    private HashMap<String, EventUtility> eventUtilityNames = new HashMap<String, EventUtility>();
+    private HashMap<String, ScriptObject> scriptObjectNames = new HashMap<String, ScriptObject>();
+    private int indexedNodeCount = -1;
+
     private AnchorImplementation anchorImplementation = null;
     private SXRAnimator gvrAnimator = null;
     private SXRAssetLoader.AssetRequest assetRequest = null;
@@ -147,13 +162,13 @@ public class AnimationInteractivityManager {
 
     public AnimationInteractivityManager(X3Dobject x3dObject, SXRContext gvrContext,
                                          SXRNode root,
-                                         Vector<DefinedItem> definedItems,
-                                         Vector<Interpolator> interpolators,
-                                         Vector<Sensor> sensors,
-                                         Vector<TimeSensor> timeSensors,
-                                         Vector<EventUtility> eventUtilities,
+                                         ArrayList<DefinedItem> definedItems,
+                                         ArrayList<Interpolator> interpolators,
+                                         ArrayList<Sensor> sensors,
+                                         ArrayList<TimeSensor> timeSensors,
+                                         ArrayList<EventUtility> eventUtilities,
                                          ArrayList<ScriptObject> scriptObjects,
-                                         Vector<Viewpoint> viewpoints,
+                                         ArrayList<Viewpoint> viewpoints,
                                          SXRAssetLoader.AssetRequest assetRequest
 
     ) {
@@ -175,6 +190,30 @@ public class AnimationInteractivityManager {
 
     }
 
+    /**
+     * Save an X3D <ROUTE /> tag to be resolved by {@link #resolveRoutes()}
+     * after the whole scene, including Inline files, has been parsed.
+     *
+     * @param fromNode
+     * @param fromField
+     * @param toNode
+     * @param toField
+     */
+    public void addRoute(String fromNode, String fromField, String toNode, String toField) {
+        routes.add(new Route(fromNode, fromField, toNode, toField));
+    }
+
+    /**
+     * Build the InteractiveObjects for all the saved <ROUTE /> tags,
+     * in the order they were parsed.
+     */
+    public void resolveRoutes() {
+        for (Route route : routes) {
+            buildInteractiveObject(route.fromNode, route.fromField, route.toNode, route.toField);
+        }
+        routes.clear();
+    }
+
     /**
      * buildInteractiveObject represents one X3D <ROUTE /> tag.
      * This method matches the fromNode and toNode with objects in sensors, timeSensors,
@@ -193,66 +232,29 @@ public class AnimationInteractivityManager {
      * @param toField
      */
     public void buildInteractiveObject(String fromNode, String fromField, String toNode, String toField) {
-        Sensor routeFromSensor = null;
-        TimeSensor routeToTimeSensor = null;
-        TimeSensor routeFromTimeSensor = null;
-        Interpolator routeToInterpolator = null;
-        Interpolator routeFromInterpolator = null;
-        EventUtility routeToEventUtility = null;
-        EventUtility routeFromEventUtility = null;
-        DefinedItem routeToDefinedItem = null;
-        DefinedItem routeFromDefinedItem = null; // used passing items into a Script
-        ScriptObject routeFromScriptObject = null;
-        ScriptObject routeToScriptObject = null;
-
         // Get pointers to the Sensor, TimeSensor, Interpolator,
         // EventUtility (such as BooleanToggle), ScriptObject
-        // and/or Defined Items based the nodes of this object
-        for (Sensor sensor : sensors) {
-            if (sensor.getName().equalsIgnoreCase(fromNode)) {
-                routeFromSensor = sensor;
-            }
-        }
-
-        for (TimeSensor timeSensor : timeSensors) {
-            if (timeSensor.name.equalsIgnoreCase(toNode)) {
-                routeToTimeSensor = timeSensor;
-            } else if (timeSensor.name.equalsIgnoreCase(fromNode)) {
-                routeFromTimeSensor = timeSensor;
-            }
-        }
-
-        for (Interpolator interpolator : interpolators) {
-            if (interpolator.name.equalsIgnoreCase(toNode)) {
-                routeToInterpolator = interpolator;
-            } else if (interpolator.name.equalsIgnoreCase(fromNode)) {
-                routeFromInterpolator = interpolator;
-            }
-        }
-
-        for (EventUtility eventUtility : eventUtilities) {
-            if (eventUtility.getName().equalsIgnoreCase(toNode)) {
-                routeToEventUtility = eventUtility;
-            } else if (eventUtility.getName().equalsIgnoreCase(fromNode)) {
-                routeFromEventUtility = eventUtility;
-            }
-        }
-
-        for (ScriptObject scriptObject : scriptObjects) {
-            if (scriptObject.getName().equalsIgnoreCase(toNode)) {
-                routeToScriptObject = scriptObject;
-            } else if (scriptObject.getName().equalsIgnoreCase(fromNode)) {
-                routeFromScriptObject = scriptObject;
-            }
-        }
-
-        for (DefinedItem definedItem : definedItems) {
-            if (definedItem.getName().equalsIgnoreCase(toNode)) {
-                routeToDefinedItem = definedItem;
-            } else if (definedItem.getName().equalsIgnoreCase(fromNode)) {
-                routeFromDefinedItem = definedItem;
-            }
+        // and/or Defined Items based the nodes of this object.
+        // Names are not case sensitive.  If fromNode and toNode are
+        // the same name, only the 'to' side is set.
+        if (indexedNodeCount != countIndexedNodes()) {
+            buildNameIndex();
         }
+        String fromKey = nameKey(fromNode);
+        String toKey = nameKey(toNode);
+        boolean sameNode = (toKey != null) && toKey.equals(fromKey);
+
+        Sensor routeFromSensor = sensorNames.get(fromKey);
+        TimeSensor routeToTimeSensor = timeSensorNames.get(toKey);
+        TimeSensor routeFromTimeSensor = sameNode ? null : timeSensorNames.get(fromKey);
+        Interpolator routeToInterpolator = interpolatorNames.get(toKey);
+        Interpolator routeFromInterpolator = sameNode ? null : interpolatorNames.get(fromKey);
+        EventUtility routeToEventUtility = eventUtilityNames.get(toKey);
+        EventUtility routeFromEventUtility = sameNode ? null : eventUtilityNames.get(fromKey);
+        DefinedItem routeToDefinedItem = definedItemNames.get(toKey);
+        DefinedItem routeFromDefinedItem = sameNode ? null : definedItemNames.get(fromKey); // used passing items into a Script
+        ScriptObject routeFromScriptObject = sameNode ? null : scriptObjectNames.get(fromKey);
+        ScriptObject routeToScriptObject = scriptObjectNames.get(toKey);
 
         // Now build the InteractiveObject by assigning pointers
         // to an existing InteractiveObject matches non-null links
@@ -491,6 +493,75 @@ public class AnimationInteractivityManager {
         }  //  end if routeToDefinedItem != null
     }  //  end buildInteractiveObject
 
+    private static String nameKey(String name) {
+        return (name != null) ? name.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private int countIndexedNodes() {
+        return definedItems.size() + interpolators.size() + sensors.size()
+                + timeSensors.size() + eventUtilities.size() + scriptObjects.size();
+    }
+
+    /**
+     * Index the DEF names of all the nodes a <ROUTE /> can refer to.
+     * If several nodes of one kind share a name, the last one parsed is
+     * used, as it was when the lists were searched for each ROUTE.
+     */
+    private void buildNameIndex() {
+        definedItemNames.clear();
+        interpolatorNames.clear();
+        sensorNames.clear();
+        timeSensorNames.clear();
+        eventUtilityNames.clear();
+        scriptObjectNames.clear();
+
+        for (DefinedItem definedItem : definedItems) {
+            if (definedItem.getName() != null) {
+                definedItemNames.put(nameKey(definedItem.getName()), definedItem);
+            }
+        }
+        for (Interpolator interpolator : interpolators) {
+            if (interpolator.name != null) {
+                interpolatorNames.put(nameKey(interpolator.name), interpolator);
+            }
+        }
+        for (Sensor sensor : sensors) {
+            if (sensor.getName() != null) {
+                sensorNames.put(nameKey(sensor.getName()), sensor);
+            }
+        }
+        for (TimeSensor timeSensor : timeSensors) {
+            if (timeSensor.name != null) {
+                timeSensorNames.put(nameKey(timeSensor.name), timeSensor);
+            }
+        }
+        for (EventUtility eventUtility : eventUtilities) {
+            if (eventUtility.getName() != null) {
+                eventUtilityNames.put(nameKey(eventUtility.getName()), eventUtility);
+            }
+        }
+        for (ScriptObject scriptObject : scriptObjects) {
+            if (scriptObject.getName() != null) {
+                scriptObjectNames.put(nameKey(scriptObject.getName()), scriptObject);
+            }
+        }
+        indexedNodeCount = countIndexedNodes();
+    }
+
+    private static class Route {
+        final String fromNode;
+        final String fromField;
+        final String toNode;
+        final String toField;
+
+        Route(String fromNode, String fromField, String toNode, String toField) {
+            this.fromNode = fromNode;
+            this.fromField = fromField;
+            this.toNode = toNode;
+            this.toField = toField;
+        }
+    }
+
 
     /**
      * BuildInteractiveObjectFromAnchor is a special type of interactive object in that it does not get
@@ -658,7 +729,7 @@ public class AnimationInteractivityManager {
                     (interactiveObject.getDefinedItem() != null)) {
                 // a sensor, eventUtility (such as BooleanToggle) and defined object found
                 final InteractiveObject interactiveObjectFinal = interactiveObject;
-                final Vector<InteractiveObject> interactiveObjectsFinal = interactiveObjects;
+                final ArrayList<InteractiveObject> interactiveObjectsFinal = interactiveObjects;
 
                 if (interactiveObject.getSensor().getSensorType() == Sensor.Type.TOUCH) {
                     interactiveObject.getSensor().getOwnerObject().forAllDescendants(
@@ -1109,7 +1180,7 @@ public class AnimationInteractivityManager {
                     (interactiveObject.getEventUtility() != null)) {
                 // a sensor, eventUtility (such as BooleanToggle) and defined object found
                 final InteractiveObject interactiveObjectFinal = interactiveObject;
-                final Vector<InteractiveObject> interactiveObjectsFinal = interactiveObjects;
+                final ArrayList<InteractiveObject> interactiveObjectsFinal = interactiveObjects;
 
                 if (interactiveObject.getSensor().getSensorType() == Sensor.Type.TOUCH) {
                     interactiveObject.getSensor().getOwnerObject().forAllDescendants(
@@ -34,6 +34,7 @@ import com.samsungxr.SXRContext;
 import com.samsungxr.SXRImportSettings;
 import com.samsungxr.SXRIndexBuffer;
 import com.samsungxr.SXRVertexBuffer;
+import com.samsungxr.SXRVertexBufferBuilder;
 import com.samsungxr.nodes.SXRVideoNodePlayer;
 import com.samsungxr.utility.Log;
 import org.joml.Vector3f;
@@ -62,6 +63,7 @@ public class Utility
     X3Dobject mX3DObject;
     MeshCreatorX meshCreator;
     SXRContext gvrContext;
+    private final NumberScanner mScanner = new NumberScanner();
 
     public Utility()
     {
@@ -84,64 +86,23 @@ public class Utility
 
     public float[] parseFixedLengthFloatString(String numberString,
                                                 int componentCount, boolean constrained0to1, boolean zeroOrGreater) {
-        StringReader sr = new StringReader(numberString);
-        StreamTokenizer st = new StreamTokenizer(sr);
-        st.parseNumbers();
-        int tokenType;
+        NumberScanner scanner = mScanner.reset(numberString);
         float componentFloat[] = new float[componentCount];
-        try {
-            for (int i = 0; i < componentCount; i++) {
-                if ((tokenType = st.nextToken()) == StreamTokenizer.TT_NUMBER) {
-                    componentFloat[i] = (float) st.nval;
-                } else { // check for an exponent 'e'
-                    if (tokenType == StreamTokenizer.TT_WORD) {
-                        String word = st.sval;
-                        if (word.startsWith("e-")) { // negative exponent
-                            String exponentString = word.substring(2, word.length());
-                            try {
-                                --i; // with this exponent, we are still working with the
-                                // previous number
-                                Integer exponentInt = Integer.parseInt(exponentString);
-                                componentFloat[i] *= (float) Math
-                                        .pow(10, -exponentInt.intValue());
-                            } catch (NumberFormatException e) {
-                                Log.e(TAG,
-                                        "parsing fixed length string, exponent number conversion error: "
-                                                + exponentString);
-                            }
-                        } else if (word.equalsIgnoreCase("e")) { // exponent with plus sign
-                            tokenType = st.nextToken();
-                            if (tokenType == 43) { // "+" plus sign
-                                if ((tokenType = st.nextToken()) == StreamTokenizer.TT_NUMBER) {
-                                    --i; // with this exponent, we are still working with the
-                                    // previous number
-                                    float exponent = (float) st.nval;
-                                    componentFloat[i] *= (float) Math.pow(10, exponent);
-                                } else {
-                                    st.pushBack();
-                                    Log.e(TAG,
-                                            "Error: exponent in X3D parser with fixed length float");
-                                }
-                            } else
-                                st.pushBack();
-                        } else
-                            st.pushBack();
-                    }
-                } // end check for 'e' exponent
-                if (constrained0to1) {
-                    if (componentFloat[i] < 0)
-                        componentFloat[i] = 0;
-                    else if (componentFloat[i] > 1)
-                        componentFloat[i] = 1;
-                } else if (zeroOrGreater) {
-                    if (componentFloat[i] < 0)
-                        componentFloat[i] = 0;
-                }
-            } // end for-loop
-        } // end 'try'
-        catch (IOException e) {
-            Log.d(TAG, "Error parsing fixed length float string: " + e);
-        }
+
+        for (int i = 0; i < componentCount; i++) {
+            if (scanner.next()) {
+                componentFloat[i] = (float) scanner.value();
+            }
+            if (constrained0to1) {
+                if (componentFloat[i] < 0)
+                    componentFloat[i] = 0;
+                else if (componentFloat[i] > 1)
+                    componentFloat[i] = 1;
+            } else if (zeroOrGreater) {
+                if (componentFloat[i] < 0)
+                    componentFloat[i] = 0;
+            }
+        } // end for-loop
         return componentFloat;
     } // end parseFixedLengthFloatString
 
@@ -172,23 +133,12 @@ public class Utility
     }  //  end parseBooleanString
 
     public int parseIntegerString(String numberString) {
-        StringReader sr = new StringReader(numberString);
-        StreamTokenizer st = new StreamTokenizer(sr);
-        st.parseNumbers();
-        int tokenType;
-        int returnValue = 0;
+        NumberScanner scanner = mScanner.reset(numberString);
 
-        try {
-            if ((tokenType = st.nextToken()) != StreamTokenizer.TT_EOF) {
-                if (tokenType == StreamTokenizer.TT_NUMBER) {
-                    returnValue = (int) st.nval;
-                }
-            }
-        }
-        catch (IOException e) {
-            Log.e(TAG, "Error: parseIntegerString - " + e);
+        if (scanner.next()) {
+            return (int) scanner.value();
         }
-        return returnValue;
+        return 0;
     } // end parseIntegerString
 
     // multi-field string
@@ -223,146 +173,278 @@ public class Utility
 
     protected void parseNumbersString(String numberString, int componentType,
                                     int componentCount) {
-        //preprocessing to get rid of 'e' or 'E' exponent
-        // otherwise the SAX parser splits 3e-2 (which is .03) into two
-        // number, 3 and -2.
-        if ( (numberString.indexOf('e') != -1) || (numberString.indexOf('E') != -1) ) {
-            int stringPos = 0;
-            String newReplacementString = "";
-            // we do assume the numberString won't be mixing 'e' and 'E'
-            // but we want to handle any either character
-            char eChar = 'e';
-            if ( numberString.indexOf('E') != -1 ) eChar = 'E';
-            while (numberString.indexOf(eChar, stringPos) != -1)  {
-                int ePos = numberString.indexOf(eChar, stringPos);
-                // check for the first space or comma before 'e'.
-                int prevSpaceBefore_e = Math.max( (numberString.lastIndexOf(' ', ePos)), (numberString.lastIndexOf(',', ePos)) );
-                prevSpaceBefore_e++;
-                // Copy from the current position until the comma or space before the 'e'
-                newReplacementString += numberString.substring(stringPos, prevSpaceBefore_e);
-                // check for the next space or comma after 'e'.
-                // Otherwise, we might be at the end of the string.
-                int nextSpaceAfter_e = Math.min( (numberString.indexOf(' ', ePos)), (numberString.indexOf(',', ePos)) );
-                if (nextSpaceAfter_e == -1) {
-                    // at the end of the original string, find the last space, comma or EOL of the string
-                    nextSpaceAfter_e = Math.max( (numberString.indexOf(' ', ePos)), (numberString.indexOf(',', ePos)) );
-                    if (nextSpaceAfter_e == -1) nextSpaceAfter_e = Math.max( nextSpaceAfter_e, numberString.length() );
-                }
-                String exponentString = numberString.substring(ePos+1, nextSpaceAfter_e);
-                try {
-                    double newReplacementNumber =
-                            ( (float) (new Float( numberString.substring(prevSpaceBefore_e, ePos) )) )
-                                    * Math.pow(10, (int) (new Integer(exponentString)) );
-                    // At < 1/1000th, it might be more efficient as 0.
-                    if ( Math.abs(newReplacementNumber) < .001 ) newReplacementNumber = 0;
-                    newReplacementString += " " + newReplacementNumber + " ";
-                }
-                catch (java.lang.NumberFormatException exception) {
-                    Log.e(TAG, "NumberFormatException in " + numberString.substring(prevSpaceBefore_e, nextSpaceAfter_e) + "; " + exception);
-                }
-                catch (Exception exception) {
-                    Log.e(TAG, "Exception in " + numberString.substring(prevSpaceBefore_e, nextSpaceAfter_e) + "; " + exception);
-                }
-                stringPos = nextSpaceAfter_e;
-            }
-            // Add any remainder of a string
-            numberString = newReplacementString + numberString.substring(stringPos, numberString.length());
-        }
-        StringReader sr = new StringReader(numberString);
-        StreamTokenizer st = new StreamTokenizer(sr);
-        st.parseNumbers();
-        int tokenType;
-        short componentShort[] = new short[componentCount];
+        NumberScanner scanner = mScanner.reset(numberString);
         float componentFloat[] = new float[componentCount];
-        try {
-            int index = 0;
-            while ((tokenType = st.nextToken()) != StreamTokenizer.TT_EOF) {
-                if (tokenType == StreamTokenizer.TT_NUMBER) {
+        int index = 0;
 
-                    // first componentType's parse for short values
-                    // (integers) and will have no exponents
+        while (scanner.next()) {
+            double value = scanner.value();
 
-                    if (componentType == indexedFaceSetComponent) {
-                        if ((int) st.nval != -1) {
-                            meshCreator.addPositionIndex((int) st.nval);
-                            index++;
-                            if (index == componentCount) {
-                                index = 0;
-                            }
-                        }
-                    } else if (componentType == textureIndexComponent) {
-                        if ((int) st.nval != -1) {
-                            meshCreator.addTexcoordIndex((int) st.nval);
-                            index++;
-                            if (index == componentCount) {
-                                index = 0;
-                            }
-                        }
-                    } else if (componentType == normalIndexComponent) {
-                        if ((int) st.nval != -1) {
-                            meshCreator.addNormalIndex((int) st.nval);
-                            index++;
-                            if (index == componentCount) {
-                                index = 0;
-                            }
-                        }
-                    }
+            // first componentType's parse for short values
+            // (integers) and will have no exponents
 
-                    // The rest of these will be parsing floats that could
-                    // have 'e' exponent value.  3DSMax will export X3D/VRML
-                    // with the 'e' exponent
-                    //TODO: check for 'e' exponent values.
-
-                    else if (componentType == verticesComponent) {
-                        componentFloat[index] = (float) (st.nval);
-                        index++;
-                        if (index == componentCount) {
-                            meshCreator.addInputPosition(componentFloat);
-                            index = 0;
-                        }
-                    } else if (componentType == textureCoordComponent) {
-                        componentFloat[index] = (float) st.nval;
-                        index++;
-                        if (index == componentCount) {
-                            meshCreator.addInputTexcoord(componentFloat);
-                            index = 0;
-                        }
-                    } else if (componentType == normalsComponent) {
-                        componentFloat[index] = (float) st.nval;
-                        index++;
-                        if (index == componentCount) {
-                            meshCreator.addInputNormal(componentFloat);
-                            index = 0;
-                        }
-                    } else if (componentType == interpolatorKeyComponent) {
-                        componentFloat[index] = (float) st.nval;
-                        index++;
-                        if (index == componentCount) {
-                            mX3DObject.AddKeys(componentFloat[0]);
-                            index = 0;
-                        }
-                    } else if (componentType == interpolatorKeyValueComponent) {
-                        componentFloat[index] = (float) st.nval;
-                        index++;
-                        if (index == componentCount) {
-                            mX3DObject.AddKeyValues(componentFloat);
-                            index = 0;
-                        }
-                    } else if (componentType == LODComponent) {
-                        componentFloat[index] = (float) st.nval;
-                        mX3DObject.AddKeys(componentFloat[0]);
-                    } else if (componentType == elevationGridHeight) {
-                        // Elevation Grid not currently supported
-                        mX3DObject.floatArray.add(new Float((float) st.nval));
+            if (componentType == indexedFaceSetComponent) {
+                if ((int) value != -1) {
+                    meshCreator.addPositionIndex((int) value);
+                }
+            } else if (componentType == textureIndexComponent) {
+                if ((int) value != -1) {
+                    meshCreator.addTexcoordIndex((int) value);
+                }
+            } else if (componentType == normalIndexComponent) {
+                if ((int) value != -1) {
+                    meshCreator.addNormalIndex((int) value);
+                }
+            }
+
+            // The rest of these parse floats which may have
+            // an 'e' exponent. 3DSMax exports X3D/VRML that way.
+
+            else if (componentType == verticesComponent) {
+                componentFloat[index] = (float) value;
+                index++;
+                if (index == componentCount) {
+                    meshCreator.addInputPosition(componentFloat);
+                    index = 0;
+                }
+            } else if (componentType == textureCoordComponent) {
+                componentFloat[index] = (float) value;
+                index++;
+                if (index == componentCount) {
+                    meshCreator.addInputTexcoord(componentFloat);
+                    index = 0;
+                }
+            } else if (componentType == normalsComponent) {
+                componentFloat[index] = (float) value;
+                index++;
+                if (index == componentCount) {
+                    meshCreator.addInputNormal(componentFloat);
+                    index = 0;
+                }
+            } else if (componentType == interpolatorKeyComponent) {
+                componentFloat[index] = (float) value;
+                index++;
+                if (index == componentCount) {
+                    mX3DObject.AddKeys(componentFloat[0]);
+                    index = 0;
+                }
+            } else if (componentType == interpolatorKeyValueComponent) {
+                componentFloat[index] = (float) value;
+                index++;
+                if (index == componentCount) {
+                    mX3DObject.AddKeyValues(componentFloat);
+                    index = 0;
+                }
+            } else if (componentType == LODComponent) {
+                mX3DObject.AddKeys((float) value);
+            } else if (componentType == elevationGridHeight) {
+                // Elevation Grid not currently supported
+                mX3DObject.floatArray.add((float) value);
+            }
+        } // end while loop
+    } // parseNumbersString
+
+    /**
+     * Scans numbers out of X3D and VRML attribute strings.
+     * <p>
+     * Numbers may be separated by white space or commas and use the full
+     * X3D syntax: optional sign, integer and fraction parts, an exponent
+     * with 'e' or 'E' and hexadecimal integers starting with 0x.
+     * The string is scanned in a single pass with no allocation,
+     * tokens which are not numbers are skipped.
+     * A single scanner is reused for every attribute parsed by a
+     * {@link Utility} instance.
+     */
+    static class NumberScanner
+    {
+        private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+        private static final long MAX_MANTISSA = 100000000000000000L;
+
+        private String mText = "";
+        private int mLength = 0;
+        private int mPos = 0;
+        private double mValue = 0;
+
+        NumberScanner reset(String text)
+        {
+            mText = (text != null) ? text : "";
+            mLength = mText.length();
+            mPos = 0;
+            mValue = 0;
+            return this;
+        }
+
+        /**
+         * Scan the next number.
+         * @return true if a number was found, false at the end of the string
+         */
+        boolean next()
+        {
+            while (true)
+            {
+                while ((mPos < mLength) && isSeparator(mText.charAt(mPos)))
+                {
+                    ++mPos;
+                }
+                if (mPos >= mLength)
+                {
+                    return false;
+                }
+                int start = mPos;
+                if (scanNumber() && ((mPos >= mLength) || isSeparator(mText.charAt(mPos))))
+                {
+                    return true;
+                }
+                // not a number, skip the rest of the token
+                mPos = start;
+                while ((mPos < mLength) && !isSeparator(mText.charAt(mPos)))
+                {
+                    ++mPos;
+                }
+            }
+        }
+
+        /**
+         * @return value of the number found by the last call to {@link #next()}
+         */
+        double value()
+        {
+            return mValue;
+        }
+
+        private boolean scanNumber()
+        {
+            final int start = mPos;
+            boolean negative = false;
+            long mantissa = 0;
+            int scale = 0;
+            int numDigits = 0;
+            char c = mText.charAt(mPos);
+
+            if ((c == '-') || (c == '+'))
+            {
+                negative = (c == '-');
+                if (++mPos >= mLength)
+                {
+                    return false;
+                }
+                c = mText.charAt(mPos);
+            }
+            if ((c == '0') && (mPos + 1 < mLength) &&
+                ((mText.charAt(mPos + 1) == 'x') || (mText.charAt(mPos + 1) == 'X')))
+            {
+                return scanHex(negative);
+            }
+            while ((mPos < mLength) && isDigit(c = mText.charAt(mPos)))
+            {
+                if (mantissa < MAX_MANTISSA)
+                {
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                else
+                {
+                    ++scale;
+                }
+                ++numDigits;
+                ++mPos;
+            }
+            if ((mPos < mLength) && (mText.charAt(mPos) == '.'))
+            {
+                ++mPos;
+                while ((mPos < mLength) && isDigit(c = mText.charAt(mPos)))
+                {
+                    if (mantissa < MAX_MANTISSA)
+                    {
+                        mantissa = mantissa * 10 + (c - '0');
+                        --scale;
                     }
+                    ++numDigits;
+                    ++mPos;
+                }
+            }
+            if (numDigits == 0)
+            {
+                return false;
+            }
+            if ((mPos < mLength) && (((c = mText.charAt(mPos)) == 'e') || (c == 'E')))
+            {
+                int exponent = 0;
+                boolean negativeExponent = false;
+                int expDigits = 0;
 
-                } // end if token = number
-            } // end while loop
-        } // end try statement
-        catch (IOException e) {
-            Log.e(TAG, "Error: parseNumbersString - " + e);
+                if ((++mPos < mLength) && (((c = mText.charAt(mPos)) == '-') || (c == '+')))
+                {
+                    negativeExponent = (c == '-');
+                    ++mPos;
+                }
+                while ((mPos < mLength) && isDigit(c = mText.charAt(mPos)))
+                {
+                    exponent = Math.min(exponent * 10 + (c - '0'), 1000);
+                    ++expDigits;
+                    ++mPos;
+                }
+                if (expDigits == 0)
+                {
+                    return false;
+                }
+                scale += negativeExponent ? -exponent : exponent;
+            }
+            double value;
+            if (scale == 0)
+            {
+                value = mantissa;
+            }
+            else if ((scale < 0) && (scale >= -22))
+            {
+                value = mantissa / POWERS_OF_TEN[-scale];
+            }
+            else if ((scale > 0) && (scale <= 22))
+            {
+                value = mantissa * POWERS_OF_TEN[scale];
+            }
+            else
+            {
+                // rare: too many digits for an exact conversion
+                value = Math.abs(Double.parseDouble(mText.substring(start, mPos)));
+            }
+            mValue = negative ? -value : value;
+            return true;
+        }
+
+        private boolean scanHex(boolean negative)
+        {
+            long value = 0;
+            int numDigits = 0;
+
+            mPos += 2;
+            while (mPos < mLength)
+            {
+                int digit = Character.digit(mText.charAt(mPos), 16);
+                if (digit < 0)
+                {
+                    break;
+                }
+                value = (value << 4) | digit;
+                ++numDigits;
+                ++mPos;
+            }
+            mValue = negative ? -value : value;
+            return numDigits > 0;
+        }
+
+        private static boolean isSeparator(char c)
+        {
+            return (c == ' ') || (c == ',') || (c == '\n') || (c == '\r') || (c == '\t');
         }
-    } // parseNumbersString
+
+        private static boolean isDigit(char c)
+        {
+            return (c >= '0') && (c <= '9');
+        }
+    } // end NumberScanner
 
     /*
     private void AddKeys(float key)
@@ -872,18 +954,20 @@ public class Utility
          */
         public SXRVertexBuffer copyVertices(String descriptor, SXRIndexBuffer ibuf, boolean makeNormals)
         {
-            SXRVertexBuffer vbuffer = new SXRVertexBuffer(mContext, descriptor, mInputPositions.getSize() / 3);
+            int numVertices = mInputPositions.getSize() / 3;
+            SXRVertexBuffer vbuffer = new SXRVertexBuffer(mContext, descriptor, numVertices);
+            SXRVertexBufferBuilder builder = new SXRVertexBufferBuilder(vbuffer, numVertices);
             if (mVertexBufferDefine != null)
             {
                 mVertexBufferDefine.setVertexBuffer(vbuffer);
             }
-            vbuffer.setFloatArray("a_position", mInputPositions.array(), 3, 0);
+            builder.setFloatArray("a_position", mInputPositions.array());
             if (mInputNormals.getSize() == 0)
             {
                 if (makeNormals)
                 {
                     generateNormals(mPositionIndices.array(), mPositionIndices.getSize(), mInputPositions);
-                    vbuffer.setFloatArray("a_normal", mOutputNormals.array(), 3, 0);
+                    builder.setFloatArray("a_normal", mOutputNormals.array());
                 }
             }
             else
@@ -892,21 +976,20 @@ public class Utility
                 {
                     throw new UnsupportedOperationException("MeshCreator.copyVertices requires input positions and normals to be the same length");
                 }
-                vbuffer.setFloatArray("a_normal", mInputNormals.array(), 3, 0);
+                builder.setFloatArray("a_normal", mInputNormals.array());
             }
-            if (mInputTexCoords.getSize() > 0)
+            int texCoordAttr = builder.getAttributeIndex("a_texcoord");
+            if ((mInputTexCoords.getSize() > 0) && (texCoordAttr >= 0))
             {
-                // flip the Y texture coordinate
-
-                float[] texCoords = mInputTexCoords.array().clone();
-                int n = texCoords.length;
-                for(int i=1; i<n; i+=2)
+                // flip the Y texture coordinate while copying
+                float[] texCoords = mInputTexCoords.array();
+                int n = Math.min(numVertices, mInputTexCoords.getSize() / 2);
+                for (int v = 0; v < n; ++v)
                 {
-                    //texCoords[i] = -texCoords[i];
-                    texCoords[i] = mMaxYTexcoord - texCoords[i];
+                    builder.setFloat(texCoordAttr, v, texCoords[v * 2], mMaxYTexcoord - texCoords[v * 2 + 1]);
                 }
-                vbuffer.setFloatArray("a_texcoord", texCoords, 2, 0);
             }
+            builder.commit();
             ibuf.setIntVec(mPositionIndices.array());
             clear();
             return vbuffer;
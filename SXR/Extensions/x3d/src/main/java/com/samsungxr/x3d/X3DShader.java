@@ -62,6 +62,13 @@ public class X3DShader extends SXRShaderTemplate
         return defines;
     }
 
+    // a_normal is only disabled without light sources, see base key
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
+
     protected void setMaterialDefaults(SXRShaderData material)
     {
         material.setVec4("ambient_color", 0.2f, 0.2f, 0.2f, 1.0f);
@@ -42,10 +42,10 @@ import java.io.StreamTokenizer;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
@@ -196,7 +196,10 @@ public class X3Dobject {
      * As public, enables implementation of HTML5 DOM's
      * getElementByTagName() method.
      */
-    public Vector<DefinedItem> mDefinedItems = new Vector<DefinedItem>();
+    public ArrayList<DefinedItem> mDefinedItems = new ArrayList<DefinedItem>();
+
+    // DEF names of mDefinedItems, for USE lookups while parsing
+    private HashMap<String, DefinedItem> mDefinedItemNames = new HashMap<String, DefinedItem>();
 
 
     // When Translation object has multiple properties (center, scale, rotation
@@ -237,28 +240,28 @@ public class X3Dobject {
     private SXRTexture gvrTexture = null;
     private ArrayList<ScriptObject> scriptObjects = new ArrayList<ScriptObject>();
 
-    protected Vector<Key> keys = new Vector<Key>();
-    protected Vector<KeyValue> keyValues = new Vector<KeyValue>();
-    protected Vector<Float> floatArray = new Vector<Float>();
+    protected ArrayList<Key> keys = new ArrayList<Key>();
+    protected ArrayList<KeyValue> keyValues = new ArrayList<KeyValue>();
+    protected ArrayList<Float> floatArray = new ArrayList<Float>();
 
-    private Vector<TimeSensor> timeSensors = new Vector<TimeSensor>();
-    private Vector<Interpolator> interpolators = new Vector<Interpolator>();
+    private ArrayList<TimeSensor> timeSensors = new ArrayList<TimeSensor>();
+    private ArrayList<Interpolator> interpolators = new ArrayList<Interpolator>();
 
-    private Vector<InlineObject> inlineObjects = new Vector<InlineObject>();
+    private ArrayList<InlineObject> inlineObjects = new ArrayList<InlineObject>();
     private Utility utility = null;
 
     /**
      * public list of <Viewpoints> since camera position can be
      * changed in real-time
      */
-    public Vector<Viewpoint> viewpoints = new Vector<Viewpoint>();
+    public ArrayList<Viewpoint> viewpoints = new ArrayList<Viewpoint>();
 
     /**
      * Array List of sensors can be accessed in real-time
      * such as in the onStep() function
      */
-    public Vector<Sensor> sensors = new Vector<Sensor>();
-    public Vector<EventUtility> eventUtilities = new Vector<EventUtility>();
+    public ArrayList<Sensor> sensors = new ArrayList<Sensor>();
+    public ArrayList<EventUtility> eventUtilities = new ArrayList<EventUtility>();
 
 
     private ShaderSettings shaderSettings = null;
@@ -394,7 +397,7 @@ public class X3Dobject {
                         DefinedItem definedItem = new DefinedItem(
                                 shaderSettings.getMaterialName());
                         definedItem.setSXRMaterial(gvrMaterial);
-                        mDefinedItems.add(definedItem); // Add gvrMaterial to Array list
+                        addDefinedItem(definedItem); // Add gvrMaterial to Array list
                         // of DEFined items Clones
                         // objects with USE
                     }
@@ -404,7 +407,7 @@ public class X3Dobject {
                             DefinedItem definedItem = new DefinedItem(
                                     shaderSettings.getMultiTextureName() );
                             definedItem.setSXRMaterial(gvrMaterial);
-                            mDefinedItems.add(definedItem); // Add gvrMaterial to Array list
+                            addDefinedItem(definedItem); // Add gvrMaterial to Array list
                         }
                         gvrMaterial.setTexture("diffuseTexture", shaderSettings.getMultiTextureSXRTexture(0) );
                         gvrMaterial.setTexture("diffuseTexture1", shaderSettings.getMultiTextureSXRTexture(1) );
@@ -455,7 +458,7 @@ public class X3Dobject {
                                 gvrVideoNode.setName(shaderSettings.getMovieTextureName());
                                 DefinedItem item = new DefinedItem(shaderSettings.getMovieTextureName());
                                 item.setSXRVideoNode(gvrVideoNode);
-                                mDefinedItems.add(item);
+                                addDefinedItem(item);
                             }
                         } catch (Exception e) {
                             e.printStackTrace();
@@ -478,7 +481,7 @@ public class X3Dobject {
                             definedItem.setTextureScale(shaderSettings.getTextureScale());
                             definedItem.setTextureRotation(shaderSettings.getTextureRotation().getValue());
                             definedItem.setName(shaderSettings.getTextureTransformName());
-                            mDefinedItems.add(definedItem); // Add gvrMaterial to Array list
+                            addDefinedItem(definedItem); // Add gvrMaterial to Array list
                         }
                         // Texture Transform Matrix equation:
                         // TC' = -C * S * R * C * T * TC
@@ -503,7 +506,7 @@ public class X3Dobject {
                         DefinedItem definedItem = new DefinedItem(
                                 shaderSettings.getAppearanceName());
                         definedItem.setSXRMaterial(gvrMaterial);
-                        mDefinedItems.add(definedItem);
+                        addDefinedItem(definedItem);
                         // Add gvrMaterial to Array list
                         // of DEFined items Clones
                         // objects with USE
@@ -618,6 +621,23 @@ public class X3Dobject {
     }
 
 
+    /**
+     * Add a DEFined item.  If the name is already DEFined,
+     * USE keeps referring to the first item with that name.
+     */
+    private void addDefinedItem(DefinedItem definedItem) {
+        mDefinedItems.add(definedItem);
+        String name = definedItem.getName();
+        if ((name != null) && !mDefinedItemNames.containsKey(name)) {
+            mDefinedItemNames.put(name, definedItem);
+        }
+    }
+
+    private DefinedItem findDefinedItem(String name) {
+        return mDefinedItemNames.get(name);
+    }
+
+
     /**
      * @author m1.williams
      *         Java SAX parser interface
@@ -637,13 +657,7 @@ public class X3Dobject {
             // causes an infinite loop in the renderer.
             // Solution therefore is to duplicate SXRNode(s) including children
             // and share the SXRMesh and SXRMaterials.
-            DefinedItem useItem = null;
-            for (DefinedItem definedItem : mDefinedItems) {
-                if (attributeValue.equals(definedItem.getName())) {
-                    useItem = definedItem;
-                    break;
-                }
-            }
+            DefinedItem useItem = findDefinedItem(attributeValue);
             if (useItem != null) {
                 // Get the SXRNode to replicate from the DEFinedItem list.
                 SXRNode gvrNodeDEFitem = useItem.getSXRNode();
@@ -868,7 +882,7 @@ public class X3Dobject {
                         DefinedItem definedItem = new DefinedItem(name, rotation[3],
                                 rotation[0], rotation[1], rotation[2]);
                         definedItem.setSXRNode(currentNode);
-                        mDefinedItems.add(definedItem); // Array list of DEFined items
+                        addDefinedItem(definedItem); // Array list of DEFined items
                     } // end if DEF name and thus possible animation / interactivity
 
                     // Check if there is an active Level-of-Detail (LOD)
@@ -907,7 +921,7 @@ public class X3Dobject {
                         currentNode.setName(attributeValue);
                         DefinedItem definedItem = new DefinedItem(attributeValue);
                         definedItem.setSXRNode(currentNode);
-                        mDefinedItems.add(definedItem); // Array list of DEFined items
+                        addDefinedItem(definedItem); // Array list of DEFined items
                     }
 
                     // Check if there is an active Level-of-Detail (LOD)
@@ -945,13 +959,7 @@ public class X3Dobject {
 
                 attributeValue = attributes.getValue("USE");
                 if (attributeValue != null) { // Shape node to be shared / re-used
-                    DefinedItem useItem = null;
-                    for (DefinedItem definedItem : mDefinedItems) {
-                        if (attributeValue.equals(definedItem.getName())) {
-                            useItem = definedItem;
-                            break;
-                        }
-                    }
+                    DefinedItem useItem = findDefinedItem(attributeValue);
                     if (useItem != null) {
                         // SXRRenderingData doesn't seem to be shared, but instead has an
                         // owner.  Thus share the SXRMesh and SXRMaterial attached to
@@ -970,7 +978,7 @@ public class X3Dobject {
                     if (attributeValue != null) {
                         DefinedItem definedItem = new DefinedItem(attributeValue);
                         definedItem.setSXRRenderData(gvrRenderData);
-                        mDefinedItems.add(definedItem); // Array list of DEFined items
+                        addDefinedItem(definedItem); // Array list of DEFined items
                         // Clones objects with USE
                     }
                     if ( proto != null) {
@@ -993,13 +1001,7 @@ public class X3Dobject {
         /* This gives the X3D-only Shader */
                 attributeValue = attributes.getValue("USE");
                 if (attributeValue != null) { // shared Appearance node, SXRMaterial
-                    DefinedItem useItem = null;
-                    for (DefinedItem definedItem : mDefinedItems) {
-                        if (attributeValue.equals(definedItem.getName())) {
-                            useItem = definedItem;
-                            break;
-                        }
-                    }
+                    DefinedItem useItem = findDefinedItem(attributeValue);
                     if (useItem != null) {
                         gvrMaterial = useItem.getSXRMaterial();
                         gvrRenderData.setMaterial(gvrMaterial);
@@ -1028,13 +1030,7 @@ public class X3Dobject {
             else if (qName.equalsIgnoreCase("material")) {
                 attributeValue = attributes.getValue("USE");
                 if (attributeValue != null) {
-                    DefinedItem useItem = null;
-                    for (DefinedItem definedItem : mDefinedItems) {
-                        if (attributeValue.equals(definedItem.getName())) {
-                            useItem = definedItem;
-                            break;
-                        }
-                    }
+                    DefinedItem useItem = findDefinedItem(attributeValue);
                     if (useItem != null) {
                         gvrMaterial = useItem.getSXRMaterial();
                         gvrRenderData.setMaterial(gvrMaterial);
@@ -1115,13 +1111,7 @@ public class X3Dobject {
                 if ( !blockTexturing ) {
                     attributeValue = attributes.getValue("USE");
                     if (attributeValue != null) {
-                        DefinedItem useItem = null;
-                        for (DefinedItem definedItem : mDefinedItems) {
-                            if (attributeValue.equals(definedItem.getName())) {
-                                useItem = definedItem;
-                                break;
-                            }
-                        }
+                        DefinedItem useItem = findDefinedItem(attributeValue);
                         if (useItem != null) {
                             gvrTexture = useItem.getSXRTexture();
                             shaderSettings.setTexture(gvrTexture);
@@ -1164,7 +1154,7 @@ public class X3Dobject {
                             if (defValue != null) {
                                 DefinedItem item = new DefinedItem(defValue);
                                 item.setSXRTexture(gvrTexture);
-                                mDefinedItems.add(item);
+                                addDefinedItem(item);
                             }
 
                             if ( shaderSettings.getMultiTexture() ) {
@@ -1322,13 +1312,7 @@ public class X3Dobject {
             else if (qName.equalsIgnoreCase("Coordinate")) {
                 attributeValue = attributes.getValue("USE");
                 if (attributeValue != null) { // Coordinate node to be shared / re-used
-                    DefinedItem useItem = null;
-                    for (DefinedItem definedItem : mDefinedItems) {
-                        if (attributeValue.equals(definedItem.getName())) {
-                            useItem = definedItem;
-                            break;
-                        }
-                    }
+                    DefinedItem useItem = findDefinedItem(attributeValue);
                     if (useItem != null) {
 
                         // 'useItem' points to SXRMesh who's useItem.getSXRMesh Coordinates
@@ -1346,7 +1330,7 @@ public class X3Dobject {
                         DefinedItem definedItem = new DefinedItem(attributeValue);
                             utility.meshCreator.defineVertexBuffer(definedItem);
                         // Array list of DEFined items clones objects with USE
-                        mDefinedItems.add(definedItem);
+                        addDefinedItem(definedItem);
                     }
                     String pointAttribute = attributes.getValue("point");
                     if (pointAttribute != null) {
@@ -1380,13 +1364,7 @@ public class X3Dobject {
             else if (qName.equalsIgnoreCase("TextureCoordinate")) {
                 attributeValue = attributes.getValue("USE");
                 if (attributeValue != null) { // Coordinate node to be shared / re-used
-                    DefinedItem useItem = null;
-                    for (DefinedItem definedItem : mDefinedItems) {
-                        if (attributeValue.equals(definedItem.getName())) {
-                            useItem = definedItem;
-                            break;
-                        }
-                    }
+                    DefinedItem useItem = findDefinedItem(attributeValue);
                     if (useItem != null) {
 
                         // 'useItem' points to SXRVertexBuffer who's useItem.getVertexBuffer
@@ -1406,7 +1384,7 @@ public class X3Dobject {
                         DefinedItem definedItem = new DefinedItem(attributeValue);
                             definedItem.setVertexBuffer(gvrVertexBuffer);
                         // Array list of DEFined items clones objects with USE
-                        mDefinedItems.add(definedItem);
+                        addDefinedItem(definedItem);
                     }
                     // Have to flip the y texture coordinates because the image will be
                     // upside down
@@ -1441,13 +1419,7 @@ public class X3Dobject {
             else if (qName.equalsIgnoreCase("Normal")) {
                 attributeValue = attributes.getValue("USE");
                 if (attributeValue != null) { // Coordinate node to be shared / re-used
-                    DefinedItem useItem = null;
-                    for (DefinedItem definedItem : mDefinedItems) {
-                        if (attributeValue.equals(definedItem.getName())) {
-                            useItem = definedItem;
-                            break;
-                        }
-                    }
+                    DefinedItem useItem = findDefinedItem(attributeValue);
                     if (useItem != null) {
 
                         // 'useItem' points to SXRVertexBuffer who's useItem.getVertexBuffer Coordinates
@@ -1466,7 +1438,7 @@ public class X3Dobject {
                         DefinedItem definedItem = new DefinedItem(attributeValue);
                             definedItem.setVertexBuffer(gvrVertexBuffer);
                         // Array list of DEFined items clones objects with USE
-                        mDefinedItems.add(definedItem);
+                        addDefinedItem(definedItem);
                     }
                     String vectorAttribute = attributes.getValue("vector");
                     if (vectorAttribute != null) {
@@ -1500,13 +1472,7 @@ public class X3Dobject {
                 if (UNIVERSAL_LIGHTS && !blockLighting) {
                     attributeValue = attributes.getValue("USE");
                     if (attributeValue != null) { // shared PointLight
-                        DefinedItem useItem = null;
-                        for (DefinedItem definedItem : mDefinedItems) {
-                            if (attributeValue.equals(definedItem.getName())) {
-                                useItem = definedItem;
-                                break;
-                            }
-                        }
+                        DefinedItem useItem = findDefinedItem(attributeValue);
                         if (useItem != null) {
                             // SXRf does not allow a light attached at two places
                             // so copy the attributes of the original light into the second
@@ -1573,7 +1539,7 @@ public class X3Dobject {
                             newPtLightSceneObj.setName(attributeValue);
                             DefinedItem definedItem = new DefinedItem(attributeValue);
                             definedItem.setSXRNode(newPtLightSceneObj);
-                            mDefinedItems.add(definedItem); // Array list of DEFined items
+                            addDefinedItem(definedItem); // Array list of DEFined items
                             // Clones objects with USE
                         }
                         attributeValue = attributes.getValue("ambientIntensity");
@@ -1648,13 +1614,7 @@ public class X3Dobject {
                 if (UNIVERSAL_LIGHTS && !blockLighting) {
                     attributeValue = attributes.getValue("USE");
                     if (attributeValue != null) { // shared PointLight
-                        DefinedItem useItem = null;
-                        for (DefinedItem definedItem : mDefinedItems) {
-                            if (attributeValue.equals(definedItem.getName())) {
-                                useItem = definedItem;
-                                break;
-                            }
-                        }
+                        DefinedItem useItem = findDefinedItem(attributeValue);
                         if (useItem != null) {
                             // SXRf does not allow a light attached at two places
                             // so copy the attributes of the original light into the second
@@ -1714,7 +1674,7 @@ public class X3Dobject {
                             newDirectionalLightSceneObj.setName(attributeValue);
                             definedItem = new DefinedItem(attributeValue);
                             definedItem.setSXRNode(newDirectionalLightSceneObj);
-                            mDefinedItems.add(definedItem); // Array list of DEFined items
+                            addDefinedItem(definedItem); // Array list of DEFined items
                             // Clones objects with USE
                         }
                         attributeValue = attributes.getValue("ambientIntensity");
@@ -1777,13 +1737,7 @@ public class X3Dobject {
                 if (UNIVERSAL_LIGHTS && !blockLighting) {
                     attributeValue = attributes.getValue("USE");
                     if (attributeValue != null) { // shared PointLight
-                        DefinedItem useItem = null;
-                        for (DefinedItem definedItem : mDefinedItems) {
-                            if (attributeValue.equals(definedItem.getName())) {
-                                useItem = definedItem;
-                                break;
-                            }
-                        }
+                        DefinedItem useItem = findDefinedItem(attributeValue);
                         if (useItem != null) {
                             // SXRf does not allow a light attached at two places
                             // so copy the attributes of the original light into the second
@@ -1867,7 +1821,7 @@ public class X3Dobject {
                             newSpotLightSceneObj.setName(attributeValue);
                             definedItem = new DefinedItem(attributeValue);
                             definedItem.setSXRNode(newSpotLightSceneObj);
-                            mDefinedItems.add(definedItem); // Array list of DEFined items
+                            addDefinedItem(definedItem); // Array list of DEFined items
                             // Clones objects with USE
                         }
                         attributeValue = attributes.getValue("ambientIntensity");
@@ -2043,7 +1997,7 @@ public class X3Dobject {
                         toField = attributeValue;
                     }
 
-                    animationInteractivityManager.buildInteractiveObject(fromNode, fromField, toNode, toField);
+                    animationInteractivityManager.addRoute(fromNode, fromField, toNode, toField);
                 } // end <ROUTE> node
 
 
@@ -2379,7 +2333,7 @@ public class X3Dobject {
                     if ( !name.equals("") ) {
                         DefinedItem definedItem = new DefinedItem(name);
                         definedItem.setViewpoint(viewpoint);
-                        mDefinedItems.add(definedItem); // Array list of DEFined items
+                        addDefinedItem(definedItem); // Array list of DEFined items
                     }
 
 
@@ -2683,7 +2637,7 @@ public class X3Dobject {
 
                     DefinedItem definedItem = new DefinedItem(currentNode.getName());
                     definedItem.setSXRNode(currentNode);
-                    mDefinedItems.add(definedItem); // Array list of DEFined items in the X3D scene
+                    addDefinedItem(definedItem); // Array list of DEFined items in the X3D scene
                 } // end <Switch> node
 
 
@@ -2967,13 +2921,7 @@ public class X3Dobject {
                 else if (qName.equalsIgnoreCase("MovieTexture")) {
                     attributeValue = attributes.getValue("USE");
                     if (attributeValue != null) {
-                        DefinedItem useItem = null;
-                        for (DefinedItem definedItem : mDefinedItems) {
-                            if (attributeValue.equals(definedItem.getName())) {
-                                useItem = definedItem;
-                                break;
-                            }
-                        }
+                        DefinedItem useItem = findDefinedItem(attributeValue);
                         if (useItem != null) {
                             Log.e(TAG, "MovieTexture USE not implemented");
                             gvrTexture = useItem.getSXRTexture();
@@ -3866,13 +3814,7 @@ public class X3Dobject {
             } else if (qName.equalsIgnoreCase("IndexedFaceSet")) {
                 if (indexedSetUSEName.length() > 0) {
                     //Using previously defined mesh
-                    DefinedItem useItem = null;
-                    for (DefinedItem definedItem : mDefinedItems) {
-                        if (indexedSetUSEName.equals(definedItem.getName())) {
-                            useItem = definedItem;
-                            break;
-                        }
-                    }
+                    DefinedItem useItem = findDefinedItem(indexedSetUSEName);
                     if (useItem != null) {
                         gvrRenderData.setMesh( useItem.getSXRMesh() );
                     }
@@ -3890,7 +3832,7 @@ public class X3Dobject {
                         // Save SXRMesh since it may be reused later.
                         DefinedItem definedItem = new DefinedItem(indexedSetDEFName);
                         definedItem.setSXRMesh(mesh);
-                        mDefinedItems.add(definedItem); // Array list of DEFined items
+                        addDefinedItem(definedItem); // Array list of DEFined items
                     }
                     gvrRenderData.setMesh(mesh);
                     mesh.setIndexBuffer(gvrIndexBuffer);
@@ -3945,13 +3887,13 @@ public class X3Dobject {
                         // add it to the list of DEFined objects
                         DefinedItem definedItem = new DefinedItem(Text_FontParams.nameTextAttribute);
                         definedItem.setSXRTextViewNode(gvrTextViewNode);
-                        mDefinedItems.add(definedItem); // Array list of DEFined items
+                        addDefinedItem(definedItem); // Array list of DEFined items
                     }
                     if (!Text_FontParams.nameFontStyle.equals("")) {
                         // add FontStyle to the list of DEFined objects
                         DefinedItem definedItem = new DefinedItem(Text_FontParams.nameFontStyle);
                         definedItem.setSXRTextViewNode(gvrTextViewNode);
-                        mDefinedItems.add(definedItem); // Array list of DEFined items
+                        addDefinedItem(definedItem); // Array list of DEFined items
                     }
 
                     gvrTextViewNode.setTextColor(Color.WHITE); // default
@@ -4235,7 +4177,7 @@ public class X3Dobject {
                         // X3D file contained a <Viewpoint> node.
                         // Per X3D spec., when there is 1 or more Viewpoints in the
                         // X3D file, init with the first viewpoint in the X3D file
-                        Viewpoint viewpoint = viewpoints.firstElement();
+                        Viewpoint viewpoint = viewpoints.get(0);
                         viewpoint.setIsBound(true);
                         cameraPosition = viewpoint.getPosition();
                     } // <Viewpoint> node existed
@@ -4363,6 +4305,7 @@ public class X3Dobject {
             }
 
             try {
+                animationInteractivityManager.resolveRoutes();
                 animationInteractivityManager.initAnimationsAndInteractivity();
                 // Need to build a JavaScript function that constructs the
                 // X3D data type objects used with a SCRIPT.
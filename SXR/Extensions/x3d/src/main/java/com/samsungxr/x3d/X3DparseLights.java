@@ -76,41 +76,32 @@ public class X3DparseLights
   class UserHandler extends DefaultHandler
   {
     String attributeValue = null;
+    private final Utility.NumberScanner mScanner = new Utility.NumberScanner();
 
     public float[] parseFixedLengthFloatString(String numberString,
         int componentCount, boolean constrained0to1, boolean zeroOrGreater)
     {
-      StringReader sr = new StringReader(numberString);
-      StreamTokenizer st = new StreamTokenizer(sr);
-      st.parseNumbers();
-      int tokenType;
+      Utility.NumberScanner scanner = mScanner.reset(numberString);
       float componentFloat[] = new float[componentCount];
-      try
+      for (int i = 0; i < componentCount; i++)
       {
-        for (int i = 0; i < componentCount; i++)
+        if (scanner.next())
         {
-          if ((tokenType = st.nextToken()) == StreamTokenizer.TT_NUMBER)
+          componentFloat[i] = (float) scanner.value();
+          if (constrained0to1)
+          {
+            if (componentFloat[i] < 0)
+              componentFloat[i] = 0;
+            else if (componentFloat[i] > 1)
+              componentFloat[i] = 1;
+          }
+          else if (zeroOrGreater)
           {
-            componentFloat[i] = (float) st.nval;
-            if (constrained0to1)
-            {
-              if (componentFloat[i] < 0)
-                componentFloat[i] = 0;
-              else if (componentFloat[i] > 1)
-                componentFloat[i] = 1;
-            }
-            else if (zeroOrGreater)
-            {
-              if (componentFloat[i] < 0)
-                componentFloat[i] = 0;
-            }
+            if (componentFloat[i] < 0)
+              componentFloat[i] = 0;
           }
         }
       }
-      catch (IOException e)
-      {
-        Log.d(TAG, "Error: " + e);
-      }
       return componentFloat;
     }
 
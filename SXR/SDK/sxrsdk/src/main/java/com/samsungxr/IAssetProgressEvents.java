@@ -0,0 +1,36 @@
+/* Copyright 2016 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsungxr;
+
+/**
+ * Interface for observing the progress of a model import.
+ * The asset loader raises these events along with the
+ * {@link IAssetEvents} for handlers which implement this interface.
+ * @see SXREventListeners.AssetEvents
+ */
+public interface IAssetProgressEvents extends IAssetEvents
+{
+    /**
+     * Called as the meshes of a model are imported.
+     * This event is raised after each mesh is added to the model.
+     * Loading can be stopped with {@link SXRAssetLoader#cancelLoad(SXRNode)}.
+     * @param context   SXRContext used to load the model
+     * @param model     root of the scene graph representing the model.
+     * @param filePath  File path or URL of the model.
+     * @param numLoaded number of meshes imported so far.
+     * @param numMeshes total number of meshes in the model.
+     */
+    public void onModelProgress(SXRContext context, SXRNode model, String filePath, int numLoaded, int numMeshes);
+}
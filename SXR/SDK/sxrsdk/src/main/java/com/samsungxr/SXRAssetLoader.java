@@ -31,6 +31,7 @@ import com.samsungxr.jassimp.Jassimp;
 import com.samsungxr.utility.FileNameUtils;
 import com.samsungxr.utility.SXRByteArray;
 import com.samsungxr.utility.Log;
+import com.samsungxr.utility.BoundedResourceCache;
 import com.samsungxr.utility.ResourceCache;
 import com.samsungxr.utility.ResourceCacheBase;
 import com.samsungxr.utility.Threads;
@@ -51,7 +52,6 @@ import java.nio.ByteBuffer;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -81,7 +81,7 @@ public final class SXRAssetLoader {
      * called by SXRAssetLoader to get around the restriction that SXRContext
      * can only have a single listener for asset events.
      */
-    public static class AssetRequest implements IAssetEvents
+    public static class AssetRequest implements IAssetProgressEvents
     {
         protected final SXRContext        mContext;
         protected final SXRScene          mScene;
@@ -94,6 +94,8 @@ public final class SXRAssetLoader {
         protected boolean                 mReplaceScene = false;
         protected boolean                 mCacheEnabled = true;
         protected EnumSet<SXRImportSettings> mSettings = null;
+        protected volatile boolean        mCanceled = false;
+        protected long                    mSharedGeometryBytes = 0;
 
 
         /**
@@ -124,6 +126,31 @@ public final class SXRAssetLoader {
         public boolean replaceScene()           { return mReplaceScene; }
         public SXRResourceVolume getVolume()    { return mVolume; }
         public EnumSet<SXRImportSettings> getImportSettings()  { return mSettings; }
+        public boolean isCanceled()             { return mCanceled; }
+
+        /**
+         * Get the number of bytes of vertex and index data this model
+         * shares with meshes which have the same contents.
+         * Always 0 unless the model is imported with
+         * {@link SXRImportSettings#SHARE_GEOMETRY}.
+         * @see SXRAssetLoader#getVertexBufferCache()
+         */
+        public long getSharedGeometryBytes()    { return mSharedGeometryBytes; }
+
+        void addSharedGeometryBytes(long bytes)
+        {
+            mSharedGeometryBytes += bytes;
+        }
+
+        /**
+         * Stop importing the model.
+         * The importer checks this between meshes. A canceled
+         * load raises {@link IAssetEvents#onModelError}.
+         */
+        public void cancel()
+        {
+            mCanceled = true;
+        }
 
         public void setImportSettings(EnumSet<SXRImportSettings> settings)
         {
@@ -202,7 +229,7 @@ public final class SXRAssetLoader {
             SXRImage image;
 
             Log.d(TAG, "ASSET: loadEmbeddedTexture %s %d", request.TextureFile, mNumTextures);
-            Map<String, SXRImage> texCache = SXRAssetLoader.getEmbeddedTextureCache();
+            BoundedResourceCache<String, SXRImage> texCache = SXRAssetLoader.getEmbeddedTextureCache();
             synchronized (mNumTextures)
             {
                 ++mNumTextures;
@@ -275,6 +302,24 @@ public final class SXRAssetLoader {
             }
         }
 
+        /**
+         * Called while the meshes of a model are imported.
+         * @param context   SXRContext which is loading the model
+         * @param model     root node of model hierarchy being loaded
+         * @param modelFile filename of model being loaded
+         * @param numLoaded number of meshes imported so far
+         * @param numMeshes total number of meshes in the model
+         */
+        public void onModelProgress(SXRContext context, SXRNode model, String modelFile, int numLoaded, int numMeshes)
+        {
+            if (mUserHandler instanceof IAssetProgressEvents)
+            {
+                ((IAssetProgressEvents) mUserHandler).onModelProgress(context, model, modelFile, numLoaded, numMeshes);
+            }
+            mContext.getEventManager().sendEvent(mContext, IAssetProgressEvents.class,
+                                                 "onModelProgress", new Object[] { mContext, model, modelFile, numLoaded, numMeshes });
+        }
+
         /**
          * Called when a texture is successfully loaded.
          * @param context SXRContext which loaded the texture
@@ -567,11 +612,79 @@ public final class SXRAssetLoader {
     }
 
 
+    /**
+     * Default number of bytes of texture data kept in memory
+     * by the texture cache after the scene stops using them.
+     */
+    public static final long DEFAULT_TEXTURE_CACHE_BYTES = 32 * 1024 * 1024;
+
+    /**
+     * Default number of bytes of vertex and index data kept in memory
+     * by the mesh cache after the scene stops using them.
+     */
+    public static final long DEFAULT_MESH_CACHE_BYTES = 16 * 1024 * 1024;
+
+    private static final BoundedResourceCache.SizeEstimator<SXRImage> sImageSizer =
+        new BoundedResourceCache.SizeEstimator<SXRImage>()
+        {
+            public long sizeOf(SXRImage image)
+            {
+                return image.getDataSize();
+            }
+        };
+
+    private static final BoundedResourceCache.SizeEstimator<SXRMesh> sMeshSizer =
+        new BoundedResourceCache.SizeEstimator<SXRMesh>()
+        {
+            public long sizeOf(SXRMesh mesh)
+            {
+                SXRVertexBuffer vbuf = mesh.getVertexBuffer();
+                SXRIndexBuffer ibuf = mesh.getIndexBuffer();
+                long size = 0;
+
+                if (vbuf != null)
+                {
+                    size += vbuf.getDataSize();
+                }
+                if (ibuf != null)
+                {
+                    size += ibuf.getDataSize();
+                }
+                return size;
+            }
+        };
+
+    private static final BoundedResourceCache.SizeEstimator<SXRVertexBuffer> sVertexBufferSizer =
+        new BoundedResourceCache.SizeEstimator<SXRVertexBuffer>()
+        {
+            public long sizeOf(SXRVertexBuffer vbuf)
+            {
+                return vbuf.getDataSize();
+            }
+        };
+
+    private static final BoundedResourceCache.SizeEstimator<SXRIndexBuffer> sIndexBufferSizer =
+        new BoundedResourceCache.SizeEstimator<SXRIndexBuffer>()
+        {
+            public long sizeOf(SXRIndexBuffer ibuf)
+            {
+                return ibuf.getDataSize();
+            }
+        };
+
     protected SXRContext mContext;
-    protected static ResourceCache<SXRImage> mTextureCache = new ResourceCache<SXRImage>();
-    protected ResourceCacheBase<SXRMesh> mMeshCache = new ResourceCacheBase<>();
-    protected static HashMap<String, SXRImage> mEmbeddedCache = new HashMap<String, SXRImage>();
+    protected static ResourceCache<SXRImage> mTextureCache =
+        new ResourceCache<SXRImage>(DEFAULT_TEXTURE_CACHE_BYTES, sImageSizer);
+    protected ResourceCacheBase<SXRMesh> mMeshCache =
+        new ResourceCacheBase<SXRMesh>(DEFAULT_MESH_CACHE_BYTES, sMeshSizer);
+    protected static BoundedResourceCache<String, SXRImage> mEmbeddedCache =
+        new BoundedResourceCache<String, SXRImage>(DEFAULT_TEXTURE_CACHE_BYTES, sImageSizer);
+    protected static BoundedResourceCache<String, SXRVertexBuffer> mVertexBufferCache =
+        new BoundedResourceCache<String, SXRVertexBuffer>(DEFAULT_MESH_CACHE_BYTES, sVertexBufferSizer);
+    protected static BoundedResourceCache<String, SXRIndexBuffer> mIndexBufferCache =
+        new BoundedResourceCache<String, SXRIndexBuffer>(DEFAULT_MESH_CACHE_BYTES, sIndexBufferSizer);
     protected static SXRBitmapImage mDefaultImage = null;
+    protected final HashMap<SXRNode, AssetRequest> mModelRequests = new HashMap<SXRNode, AssetRequest>();
 
     /**
      * When the application is restarted we recreate the texture cache
@@ -583,8 +696,10 @@ public final class SXRAssetLoader {
 
             @Override
             public void run() {
-                mTextureCache = new ResourceCache<SXRImage>();
-                mEmbeddedCache = new HashMap<String, SXRImage>();
+                mTextureCache = new ResourceCache<SXRImage>(mTextureCache.getMaxBytes(), sImageSizer);
+                mEmbeddedCache = new BoundedResourceCache<String, SXRImage>(mEmbeddedCache.getMaxBytes(), sImageSizer);
+                mVertexBufferCache = new BoundedResourceCache<String, SXRVertexBuffer>(mVertexBufferCache.getMaxBytes(), sVertexBufferSizer);
+                mIndexBufferCache = new BoundedResourceCache<String, SXRIndexBuffer>(mIndexBufferCache.getMaxBytes(), sIndexBufferSizer);
                 mDefaultImage = null;
             }
         });
@@ -606,11 +721,63 @@ public final class SXRAssetLoader {
      * embedded textures.
      * @return embedded texture cache
      */
-    static Map<String, SXRImage> getEmbeddedTextureCache()
+    static BoundedResourceCache<String, SXRImage> getEmbeddedTextureCache()
     {
         return mEmbeddedCache;
     }
 
+    /**
+     * Get the cache of textures loaded from files and resources.
+     * <p>
+     * The most recently used textures stay in memory after the scene
+     * stops using them, up to the byte budget of the cache.
+     * Use {@link ResourceCacheBase#setMaxBytes(long)} to change the budget,
+     * {@link ResourceCacheBase#pin(SXRAndroidResource)} to keep the textures
+     * of the current scene resident and the hit, miss and eviction counts
+     * to tune it.
+     * @return texture cache shared by all asset loaders
+     */
+    public static ResourceCache<SXRImage> getTextureCache()
+    {
+        return mTextureCache;
+    }
+
+    /**
+     * Get the cache of meshes loaded by {@link #loadMesh(SXRAndroidResource)}.
+     * @return mesh cache for this asset loader
+     * @see #getTextureCache()
+     */
+    public ResourceCacheBase<SXRMesh> getMeshCache()
+    {
+        return mMeshCache;
+    }
+
+    /**
+     * Get the cache used to share vertex buffers between imported meshes.
+     * <p>
+     * When a model is imported with {@link SXRImportSettings#SHARE_GEOMETRY},
+     * each vertex buffer is identified by a hash of its contents. A mesh whose vertices are the same as those of a mesh
+     * imported before, in the same model or another one, uses the existing
+     * vertex buffer instead of a new copy. Only buffers still in the cache
+     * can be shared. Set the byte budget to 0 to turn sharing off.
+     * @return vertex buffer cache shared by all asset loaders
+     * @see AssetRequest#getSharedGeometryBytes()
+     */
+    public static BoundedResourceCache<String, SXRVertexBuffer> getVertexBufferCache()
+    {
+        return mVertexBufferCache;
+    }
+
+    /**
+     * Get the cache used to share index buffers between imported meshes.
+     * @return index buffer cache shared by all asset loaders
+     * @see #getVertexBufferCache()
+     */
+    public static BoundedResourceCache<String, SXRIndexBuffer> getIndexBufferCache()
+    {
+        return mIndexBufferCache;
+    }
+
     private static SXRImage getDefaultImage(SXRContext ctx)
     {
         if (mDefaultImage == null)
@@ -1818,25 +1985,48 @@ public final class SXRAssetLoader {
 
         model.setName(filePath);
         ResourceVolumeIO jassimpIO = new ResourceVolumeIO(request.getVolume());
-        try
+        synchronized (mModelRequests)
         {
-            assimpScene = Jassimp.importFile(FileNameUtils.getFilename(filePath),
-                                             jassimpAdapter.toJassimpSettings(request.getImportSettings()),
-                                             jassimpIO);
+            mModelRequests.put(model, request);
         }
-        catch (IOException ex)
+        try
         {
-            String errmsg = "Cannot load model: " + ex.getMessage() + " " + jassimpIO.getLastError();
-            request.onModelError(mContext, errmsg, filePath);
-            throw new IOException(errmsg);
+            try
+            {
+                assimpScene = Jassimp.importFile(FileNameUtils.getFilename(filePath),
+                                                 jassimpAdapter.toJassimpSettings(request.getImportSettings()),
+                                                 jassimpIO);
+            }
+            catch (IOException ex)
+            {
+                String errmsg = "Cannot load model: " + ex.getMessage() + " " + jassimpIO.getLastError();
+                request.onModelError(mContext, errmsg, filePath);
+                throw new IOException(errmsg);
+            }
+            if (assimpScene == null)
+            {
+                String errmsg = "Cannot load model: " + filePath;
+                request.onModelError(mContext, errmsg, filePath);
+                throw new IOException(errmsg);
+            }
+            if (!request.isCanceled())
+            {
+                jassimpAdapter.processScene(request, model, assimpScene);
+            }
+            if (request.isCanceled())
+            {
+                String errmsg = "Model loading canceled: " + filePath;
+                request.onModelError(mContext, errmsg, filePath);
+                throw new IOException(errmsg);
+            }
         }
-        if (assimpScene == null)
+        finally
         {
-            String errmsg = "Cannot load model: " + filePath;
-            request.onModelError(mContext, errmsg, filePath);
-            throw new IOException(errmsg);
+            synchronized (mModelRequests)
+            {
+                mModelRequests.remove(model);
+            }
         }
-        jassimpAdapter.processScene(request, model, assimpScene);
         request.onModelLoaded(mContext, model, filePath);
         mContext.runOnTheFrameworkThread(new Runnable() {
             public void run() {
@@ -1851,6 +2041,32 @@ public final class SXRAssetLoader {
     }
 
 
+    /**
+     * Stop loading a model.
+     * <p>
+     * Models are imported a mesh at a time. If the model is still
+     * being imported, no more meshes are added to it and
+     * {@link IAssetEvents#onModelError} is raised instead of
+     * {@link IAssetEvents#onModelLoaded}. This can be called from
+     * {@link IAssetProgressEvents#onModelProgress} or from any other thread.
+     * @param model root node passed to or returned by the load function
+     * @return true if the model was being loaded, false if it was not
+     */
+    public boolean cancelLoad(SXRNode model)
+    {
+        synchronized (mModelRequests)
+        {
+            AssetRequest request = mModelRequests.get(model);
+            if (request == null)
+            {
+                return false;
+            }
+            request.cancel();
+            return true;
+        }
+    }
+
+
     SXRNode loadX3DModel(SXRAssetLoader.AssetRequest assetRequest,
                                 SXRNode root) throws IOException
     {
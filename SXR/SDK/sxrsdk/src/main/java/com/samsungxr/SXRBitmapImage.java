@@ -109,6 +109,7 @@ public class SXRBitmapImage extends SXRImage
     {
         super(gvrContext, NativeBitmapImage.constructor(ImageType.BITMAP.Value, GL_LUMINANCE));
         NativeBitmapImage.updateFromMemory(getNative(), width, height, grayscaleData);
+        mDataSize = (long) width * height;
     }
 
     /**
@@ -137,6 +138,7 @@ public class SXRBitmapImage extends SXRImage
             bmap = getBitmapSupported(bmap);
 
         NativeBitmapImage.updateFromBitmap(getNative(), bmap, bmap.hasAlpha(), bmap.getConfig().name());
+        mDataSize = (long) bmap.getRowBytes() * bmap.getHeight();
     }
 
     private Bitmap getBitmapSupported(Bitmap orig)
@@ -176,6 +178,7 @@ public class SXRBitmapImage extends SXRImage
     public void setBuffer(final int width, final int height, final int format, final int type, final Buffer pixels)
     {
         NativeBitmapImage.updateFromBuffer(getNative(), 0, 0, width, height, format, type, pixels);
+        mDataSize = (long) width * height * 4;
     }
 
     /**
@@ -228,6 +231,7 @@ public class SXRBitmapImage extends SXRImage
     public void update(int width, int height, byte[] grayscaleData)
     {
         NativeBitmapImage.updateFromMemory(getNative(), width, height, grayscaleData);
+        mDataSize = (long) width * height;
     }
 
     private static Bitmap loadBitmap(SXRContext gvrContext, String pngAssetFilename)
@@ -268,7 +268,10 @@ public class SXRBoundsPicker extends SXRPicker
         sFindObjectsLock.lock();
         try
         {
-            final SXRPickedObject[] result = NativePicker.pickBounds(scene.getNative(), collidables);
+            SXRColliderTree tree = scene.getColliderTree();
+            final SXRPickedObject[] result = (tree != null) ?
+                    tree.pickBounds(collidables) :
+                    NativePicker.pickBounds(scene.getNative(), collidables);
             if (result == null)
             {
                 return sEmptyList;
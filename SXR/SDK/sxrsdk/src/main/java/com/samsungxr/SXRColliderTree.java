@@ -0,0 +1,346 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr;
+
+import com.samsungxr.utility.BoundingVolumeTree;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Bounding volume hierarchy of the colliders in a scene.
+ * <p>
+ * Without it, every pick ray is tested against every enabled
+ * collider in the scene. With it, the ray is first cast against
+ * the world space bounds of the colliders and only the colliders
+ * whose bounds it crosses are tested exactly, so picking in scenes
+ * with many colliders only pays for the colliders near the ray.
+ * <p>
+ * The bounds are read again from the scene on the first pick of
+ * every frame, after the transforms have been updated. The tree is
+ * refitted, reinserted or rebuilt according to its
+ * {@link BoundingVolumeTree.UpdatePolicy}. Colliders whose extent
+ * is unknown, like collider groups, are always tested.
+ * <p>
+ * Attach it with {@link SXRScene#setColliderTree(SXRColliderTree)},
+ * {@link SXRPicker} and {@link SXRBoundsPicker} then use it for
+ * the scene automatically.
+ * @see BoundingVolumeTree
+ */
+public class SXRColliderTree implements SXRDrawFrameListener
+{
+    private final SXRScene mScene;
+    private final BoundingVolumeTree mTree = new BoundingVolumeTree();
+    private volatile boolean mStale = true;
+
+    // colliders read from the scene this frame
+    private long[] mColliders = new long[64];
+    private int[] mIndices = new int[64];
+    private float[] mBounds = new float[64 * 6];
+    private int mCount = 0;
+
+    // colliders in the tree and their leaves, in the order of the last update
+    private long[] mTreeColliders = new long[64];
+    private int[] mLeaves = new int[64];
+    private final HashMap<Long, Integer> mLeafMap = new HashMap<Long, Integer>();
+
+    // candidates of the current pick
+    private long[] mCandidates = new long[64];
+    private int[] mCandidateIndices = new int[64];
+    private boolean[] mMarked = new boolean[64];
+
+    private final Matrix4f mMatrix = new Matrix4f();
+    private final Vector3f mOrigin = new Vector3f();
+    private final Vector3f mDirection = new Vector3f();
+
+    /**
+     * Create a collider tree for a scene.
+     * It is not used until it is attached to the scene with
+     * {@link SXRScene#setColliderTree(SXRColliderTree)}.
+     * @param scene scene whose colliders are picked
+     */
+    public SXRColliderTree(SXRScene scene)
+    {
+        mScene = scene;
+    }
+
+    public SXRScene getScene()
+    {
+        return mScene;
+    }
+
+    /**
+     * Get the bounding volume hierarchy to change its update policy,
+     * margin and rebuild threshold or read its statistics.
+     * Do not insert or remove leaves, they are managed by the collider tree.
+     */
+    public BoundingVolumeTree getTree()
+    {
+        return mTree;
+    }
+
+    /**
+     * Read the collider bounds again before the next pick.
+     * This happens at the start of every frame, call it after moving
+     * colliders if you pick several times during a frame.
+     */
+    public void invalidate()
+    {
+        mStale = true;
+    }
+
+    @Override
+    public void onDrawFrame(float frameTime)
+    {
+        mStale = true;
+    }
+
+    /**
+     * Casts a ray into the scene and returns the objects it intersects,
+     * like {@link SXRPicker#pickObjects(SXRScene, SXRTransform, float, float, float, float, float, float)}.
+     * @param trans transform establishing the coordinate system of the ray,
+     *              if null the head transform of the main camera rig is used
+     * @return objects hit, sorted by distance from the pick ray origin.
+     */
+    public synchronized SXRPicker.SXRPickedObject[] pickObjects(SXRTransform trans,
+                                                                float ox, float oy, float oz,
+                                                                float dx, float dy, float dz)
+    {
+        int n = findCandidates(trans, ox, oy, oz, dx, dy, dz);
+
+        if (n < 0)
+        {
+            return null;
+        }
+        return NativePicker.pickColliders(mScene.getNative(), mCandidates, mCandidateIndices, n,
+                                          mOrigin.x, mOrigin.y, mOrigin.z,
+                                          mDirection.x, mDirection.y, mDirection.z);
+    }
+
+    /**
+     * Casts a ray into the scene and returns the closest object hit,
+     * like {@link SXRPicker#pickClosest(SXRScene, SXRTransform, float, float, float, float, float, float)}.
+     * @param trans transform establishing the coordinate system of the ray,
+     *              if null the head transform of the main camera rig is used
+     * @return object closest to the ray origin or null if nothing is hit
+     */
+    public synchronized SXRPicker.SXRPickedObject pickClosest(SXRTransform trans,
+                                                              float ox, float oy, float oz,
+                                                              float dx, float dy, float dz)
+    {
+        int n = findCandidates(trans, ox, oy, oz, dx, dy, dz);
+
+        if (n <= 0)
+        {
+            return null;
+        }
+        return NativePicker.pickClosestCollider(mScene.getNative(), mCandidates, mCandidateIndices, n,
+                                                mOrigin.x, mOrigin.y, mOrigin.z,
+                                                mDirection.x, mDirection.y, mDirection.z);
+    }
+
+    /**
+     * Collides the bounding spheres of the collidables with the colliders
+     * in the scene, like {@link SXRBoundsPicker#pickBounds(SXRScene, List)}.
+     * @param collidables scene objects to collide against the scene
+     * @return objects hit or null if nothing is hit
+     */
+    public synchronized SXRPicker.SXRPickedObject[] pickBounds(List<SXRNode> collidables)
+    {
+        if (mStale)
+        {
+            mStale = false;
+            update();
+        }
+        if (mMarked.length < mCount)
+        {
+            mMarked = new boolean[mColliders.length];
+        }
+        int n = 0;
+
+        for (SXRNode collidable : collidables)
+        {
+            if (collidable == null)
+            {
+                continue;
+            }
+            float[] bv = collidable.getBoundingVolumeRawValues();
+            float radius = bv[3];
+
+            if ((radius <= 0) || Float.isInfinite(radius))
+            {
+                continue;
+            }
+            int hits = mTree.overlap(bv[0] - radius, bv[1] - radius, bv[2] - radius,
+                                     bv[0] + radius, bv[1] + radius, bv[2] + radius);
+
+            for (int i = 0; i < hits; ++i)
+            {
+                int slot = mTree.getResult(i);
+
+                if (!mMarked[slot])
+                {
+                    mMarked[slot] = true;
+                    n = addCandidate(n, slot);
+                }
+            }
+        }
+        if (n == 0)
+        {
+            return null;
+        }
+        for (int i = 0; i < mCount; ++i)
+        {
+            mMarked[i] = false;
+        }
+        return NativePicker.pickBoundsColliders(mScene.getNative(), collidables,
+                                                mCandidates, mCandidateIndices, n);
+    }
+
+    /*
+     * Put the ray in world coordinates, the same way as the native picker,
+     * and collect the colliders whose bounds it crosses.
+     * Returns -1 if there is no transform for the ray.
+     */
+    private int findCandidates(SXRTransform trans,
+                               float ox, float oy, float oz,
+                               float dx, float dy, float dz)
+    {
+        if (trans == null)
+        {
+            SXRCameraRig rig = mScene.getMainCameraRig();
+
+            if (rig == null)
+            {
+                return -1;
+            }
+            trans = rig.getHeadTransform();
+        }
+        if (mStale)
+        {
+            mStale = false;
+            update();
+        }
+        mMatrix.set(trans.getModelMatrix4f());
+        mMatrix.transformPosition(ox, oy, oz, mOrigin);
+        mMatrix.transformDirection(dx, dy, dz, mDirection);
+        mDirection.normalize();
+
+        int n = mTree.raycast(mOrigin.x, mOrigin.y, mOrigin.z,
+                              mDirection.x, mDirection.y, mDirection.z,
+                              Float.POSITIVE_INFINITY);
+
+        for (int i = 0; i < n; ++i)
+        {
+            addCandidate(i, mTree.getResult(i));
+        }
+        return n;
+    }
+
+    private int addCandidate(int n, int slot)
+    {
+        if (n >= mCandidates.length)
+        {
+            mCandidates = Arrays.copyOf(mCandidates, n * 2);
+            mCandidateIndices = Arrays.copyOf(mCandidateIndices, n * 2);
+        }
+        mCandidates[n] = mColliders[slot];
+        mCandidateIndices[n] = mIndices[slot];
+        return n + 1;
+    }
+
+    /*
+     * Read the bounds of the enabled colliders and update the tree.
+     * If the colliders are the same as last time, in the same order,
+     * the leaves are moved directly, otherwise they are matched by collider.
+     */
+    private void update()
+    {
+        int n = NativePicker.getColliderBounds(mScene.getNative(), mColliders, mIndices, mBounds);
+
+        while (n > mColliders.length)
+        {
+            int capacity = n * 2;
+
+            mColliders = new long[capacity];
+            mIndices = new int[capacity];
+            mBounds = new float[capacity * 6];
+            n = NativePicker.getColliderBounds(mScene.getNative(), mColliders, mIndices, mBounds);
+        }
+        if (mTreeColliders.length < n)
+        {
+            mTreeColliders = Arrays.copyOf(mTreeColliders, mColliders.length);
+            mLeaves = Arrays.copyOf(mLeaves, mColliders.length);
+        }
+        if ((n == mCount) && sameColliders(n))
+        {
+            for (int i = 0; i < n; ++i)
+            {
+                int b = i * 6;
+
+                mTree.update(mLeaves[i], mBounds[b], mBounds[b + 1], mBounds[b + 2],
+                             mBounds[b + 3], mBounds[b + 4], mBounds[b + 5]);
+            }
+            return;
+        }
+        mLeafMap.clear();
+        for (int i = 0; i < mCount; ++i)
+        {
+            mLeafMap.put(mTreeColliders[i], mLeaves[i]);
+        }
+        for (int i = 0; i < n; ++i)
+        {
+            Integer leaf = mLeafMap.remove(mColliders[i]);
+            int b = i * 6;
+
+            if (leaf == null)
+            {
+                mLeaves[i] = mTree.insert(i, mBounds[b], mBounds[b + 1], mBounds[b + 2],
+                                          mBounds[b + 3], mBounds[b + 4], mBounds[b + 5]);
+            }
+            else
+            {
+                mLeaves[i] = leaf;
+                mTree.setData(leaf, i);
+                mTree.update(leaf, mBounds[b], mBounds[b + 1], mBounds[b + 2],
+                             mBounds[b + 3], mBounds[b + 4], mBounds[b + 5]);
+            }
+            mTreeColliders[i] = mColliders[i];
+        }
+        for (Integer leaf : mLeafMap.values())
+        {
+            mTree.remove(leaf);
+        }
+        mLeafMap.clear();
+        mCount = n;
+    }
+
+    private boolean sameColliders(int n)
+    {
+        for (int i = 0; i < n; ++i)
+        {
+            if (mColliders[i] != mTreeColliders[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -41,11 +41,16 @@ public class SXRCompressedCubemapImage extends SXRImage
         mWidth = width;
         mHeight = height;
         mImageSize = imageSize;
-        NativeCubemapImage.updateCompressed(getNative(), width, height, imageSize, data, dataOffsets);
+        update(data, dataOffsets);
     }
 
     public void update(byte[][] data, int[] dataOffsets)
     {
         NativeCubemapImage.updateCompressed(getNative(), mWidth, mHeight, mImageSize, data, dataOffsets);
+        mDataSize = 0;
+        for (byte[] face : data)
+        {
+            mDataSize += face.length;
+        }
     }
 }
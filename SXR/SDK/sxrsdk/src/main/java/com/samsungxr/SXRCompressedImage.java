@@ -65,6 +65,7 @@ public class SXRCompressedImage extends SXRImage
         mHeight = height;
         mLevels = levels;
         mImageSize = imageSize;
+        mDataSize = data.length;
     }
 
     /**
@@ -28,6 +28,7 @@ import com.samsungxr.animation.SXRAnimationEngine;
 import com.samsungxr.animation.SXRMaterialAnimation;
 import com.samsungxr.animation.SXROnFinish;
 import com.samsungxr.debug.DebugServer;
+import com.samsungxr.debug.SXRFrameProfiler;
 import com.samsungxr.io.SXRInputManager;
 import com.samsungxr.periodic.SXRPeriodicEngine;
 import com.samsungxr.nodes.SXRTextViewNode;
@@ -38,9 +39,10 @@ import com.samsungxr.utility.Threads;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Like the Android {@link Context} class, {@code SXRContext} provides core
@@ -168,6 +170,8 @@ public abstract class SXRContext implements IEventReceiver {
     // Debug server
     protected DebugServer mDebugServer;
 
+    private final SXRFrameProfiler mFrameProfiler = new SXRFrameProfiler();
+
     protected SXRAssetLoader mImporter = new SXRAssetLoader(this);
     /*
      * Methods
@@ -416,6 +420,30 @@ public abstract class SXRContext implements IEventReceiver {
      */
     public abstract void runOnGlThread(Runnable runnable);
 
+    /**
+     * Enqueues a callback to be run in the GL thread with a priority.
+     *
+     * Like {@link #runOnGlThread(Runnable)} but the
+     * {@linkplain SXRGlTaskQueue.Priority#INPUT input} callbacks all run
+     * in the next frame while the others only run until the
+     * {@linkplain SXRGlTaskQueue#setTimeBudget(float) time budget} of the
+     * frame is spent. {@linkplain SXRGlTaskQueue.Priority#BACKGROUND Background}
+     * callbacks are queued even when called from the GL thread.
+     *
+     * @param runnable
+     *            A bit of code that must run on the GL thread
+     * @param priority
+     *            Priority of the callback
+     * @see #getGlTaskQueue()
+     */
+    public abstract void runOnGlThread(Runnable runnable, SXRGlTaskQueue.Priority priority);
+
+    /**
+     * Get the queue of the GL thread callbacks, to set its time budget
+     * or read how many callbacks ran in the last frame.
+     */
+    public abstract SXRGlTaskQueue getGlTaskQueue();
+
     /**
      * Enqueues a callback to be run in the GL thread after rendering a frame.
      *
@@ -754,22 +782,58 @@ public abstract class SXRContext implements IEventReceiver {
     }
 
     /**
-     * Our {@linkplain SXRReference references} are placed on this queue, once
-     * they've been finalized
+     * Tracks the native objects of our {@linkplain SXRHybridObject hybrid objects}
+     * and deletes them once their owners have been garbage collected.
      */
-    private ReferenceQueue<SXRHybridObject> mReferenceQueue = new ReferenceQueue<SXRHybridObject>();
+    private SXRReferenceRegistry mReferences = new SXRReferenceRegistry();
+    private volatile long mFinalizeBudgetNanos = DEFAULT_FINALIZE_BUDGET_NANOS;
+    private static final long DEFAULT_FINALIZE_BUDGET_NANOS = 2000000;
+
+    protected final void finalizeUnreachableObjects() {
+        mReferences.drain(mFinalizeBudgetNanos);
+    }
+
     /**
-     * We need hard references to {@linkplain SXRReference our references} -
-     * otherwise, the references get garbage collected (usually before their
-     * objects) and never get enqueued.
+     * Set how long the native objects of garbage collected
+     * {@linkplain SXRHybridObject hybrid objects} can be deleted for after each frame.
+     * The objects which are not deleted in time are deleted after the next frames.
+     *
+     * @param milliseconds time budget per frame, 2 ms by default,
+     *                     0 deletes all the objects after every frame
      */
-    private Set<SXRReference> mReferenceSet = new HashSet<SXRReference>();
+    public void setFinalizeTimeBudget(float milliseconds) {
+        mFinalizeBudgetNanos = (long) (Math.max(0, milliseconds) * 1000000);
+    }
 
-    protected final void finalizeUnreachableObjects() {
-        SXRReference reference;
-        while (null != (reference = (SXRReference)mReferenceQueue.poll())) {
-            reference.close(mReferenceSet);
-        }
+    /**
+     * Get the profiler timing the phases of each frame, like the GL thread
+     * tasks, the frame listeners, the animations and picking.
+     *
+     * @return the frame profiler of this context
+     */
+    public SXRFrameProfiler getFrameProfiler() {
+        return mFrameProfiler;
+    }
+
+    /**
+     * @return number of {@linkplain SXRHybridObject hybrid objects}
+     *         whose native object has not been deleted yet
+     */
+    public int getLiveObjectCount() {
+        SXRReferenceRegistry references = mReferences;
+        return (references != null) ? references.size() : 0;
+    }
+
+    /**
+     * Get the number of {@linkplain SXRHybridObject hybrid objects}
+     * whose native object has not been deleted yet, by class.
+     * Useful to find what is leaking native memory.
+     *
+     * @return map from class name to number of live objects
+     */
+    public Map<String, Integer> getLiveObjectCounts() {
+        SXRReferenceRegistry references = mReferences;
+        return (references != null) ? references.getLiveCounts() : new TreeMap<String, Integer>();
     }
 
     /**
@@ -781,27 +845,18 @@ public abstract class SXRContext implements IEventReceiver {
     }
 
     final static class UndertakerThread extends Thread {
-        private final ReferenceQueue<SXRHybridObject> referenceQueue;
-        private final Set<SXRReference> referenceSet;
+        private final SXRReferenceRegistry references;
 
-        UndertakerThread(final ReferenceQueue<SXRHybridObject> referenceQueue, final Set<SXRReference> referenceSet, final String threadName) {
+        UndertakerThread(final SXRReferenceRegistry references, final String threadName) {
             super(threadName);
-            this.referenceQueue = referenceQueue;
-            this.referenceSet = referenceSet;
+            this.references = references;
         }
 
         @Override
         public void run() {
-            while (true) {
+            while (0 != references.size()) {
                 try {
-                    SXRReference reference = (SXRReference)referenceQueue.remove();
-                    reference.close(referenceSet);
-
-                    synchronized (referenceSet) {
-                        if (0 == referenceSet.size()) {
-                            break;
-                        }
-                    }
+                    references.drainBlocking();
                 } catch (InterruptedException e) {
                     //ignore; nobody has a handle to this thread, nobody can and is supposed to interrupt it
                 }
@@ -815,50 +870,30 @@ public abstract class SXRContext implements IEventReceiver {
         }
 
         final String threadName = "Undertaker-" + Integer.toHexString(hashCode());
-        new UndertakerThread(mReferenceQueue, mReferenceSet, threadName).start();
+        new UndertakerThread(mReferences, threadName).start();
 
-        mReferenceQueue = null;
-        mReferenceSet = null;
+        mReferences = null;
     }
 
     static final class SXRReference extends PhantomReference<SXRHybridObject> {
-        private long mNativePointer;
-        private final List<NativeCleanupHandler> mCleanupHandlers;
-
-        private SXRReference(SXRHybridObject object, long nativePointer, List<NativeCleanupHandler> cleanupHandlers, final ReferenceQueue<SXRHybridObject> referenceQueue) {
+        final long mKey;
+        final List<NativeCleanupHandler> mCleanupHandlers;
+        final AtomicInteger mCounter;
+        /** Next reference to the same native object, see {@link SXRReferenceRegistry} */
+        SXRReference mNextSameKey;
+
+        SXRReference(SXRHybridObject object, long nativePointer, List<NativeCleanupHandler> cleanupHandlers,
+                     final ReferenceQueue<SXRHybridObject> referenceQueue, AtomicInteger counter) {
             super(object, referenceQueue);
 
-            mNativePointer = nativePointer;
+            mKey = nativePointer;
             mCleanupHandlers = cleanupHandlers;
-        }
-
-        private void close(final Set<SXRReference> referenceSet) {
-            close(referenceSet, true);
-        }
-
-        private void close(final Set<SXRReference> referenceSet, boolean removeFromSet) {
-            synchronized (referenceSet) {
-                if (mNativePointer != 0) {
-                    if (mCleanupHandlers != null) {
-                        for (NativeCleanupHandler handler : mCleanupHandlers) {
-                            handler.nativeCleanup(mNativePointer);
-                        }
-                    }
-                    NativeHybridObject.delete(mNativePointer);
-                    mNativePointer = 0;
-                }
-
-                if (removeFromSet) {
-                    referenceSet.remove(this);
-                }
-            }
+            mCounter = counter;
         }
     }
 
     final void registerHybridObject(SXRHybridObject gvrHybridObject, long nativePointer, List<NativeCleanupHandler> cleanupHandlers) {
-        synchronized (mReferenceSet) {
-            mReferenceSet.add(new SXRReference(gvrHybridObject, nativePointer, cleanupHandlers, mReferenceQueue));
-        }
+        mReferences.register(gvrHybridObject, nativePointer, cleanupHandlers);
     }
 
     /**
@@ -868,12 +903,7 @@ public abstract class SXRContext implements IEventReceiver {
      * {@link SXRHybridObject} a hard reference to its {@link SXRReference}.
      */
     final SXRReference findReference(long nativePointer) {
-        for (SXRReference reference : mReferenceSet) {
-            if (reference.mNativePointer == nativePointer) {
-                return reference;
-            }
-        }
-        return null;
+        return mReferences.find(nativePointer);
     }
 
 }
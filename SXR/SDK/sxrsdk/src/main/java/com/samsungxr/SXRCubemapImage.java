@@ -59,6 +59,14 @@ public class SXRCubemapImage extends SXRImage
     public void update(Bitmap[] bitmapArray)
     {
         NativeCubemapImage.update(getNative(), bitmapArray);
+        mDataSize = 0;
+        for (Bitmap bitmap : bitmapArray)
+        {
+            if (bitmap != null)
+            {
+                mDataSize += (long) bitmap.getRowBytes() * bitmap.getHeight();
+            }
+        }
     }
 
     /**
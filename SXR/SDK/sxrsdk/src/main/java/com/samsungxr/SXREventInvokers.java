@@ -0,0 +1,158 @@
+/* Copyright 2016 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr;
+
+import android.view.MotionEvent;
+
+import com.samsungxr.SXREventManager.IEventInvoker;
+import com.samsungxr.script.IScriptable;
+
+/**
+ * Typed invokers for the events sent most often by the framework.
+ * <p>
+ * Pick, touch and script events are sent every frame for every
+ * cursor controller and script. Calling them through these invokers
+ * avoids {@link java.lang.reflect.Method#invoke} for the common case.
+ * Events without a typed invoker are still called by reflection.
+ *
+ * @see SXREventManager#registerInvoker(Class, String, IEventInvoker, Class[])
+ */
+final class SXREventInvokers {
+    private SXREventInvokers() {
+    }
+
+    static void registerDefaults() {
+        registerPickEvents();
+        registerTouchEvents();
+        registerScriptEvents();
+    }
+
+    private static void registerPickEvents() {
+        SXREventManager.registerInvoker(IPickEvents.class, "onPick", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IPickEvents) target).onPick((SXRPicker) params[0]);
+            }
+        }, SXRPicker.class);
+
+        SXREventManager.registerInvoker(IPickEvents.class, "onNoPick", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IPickEvents) target).onNoPick((SXRPicker) params[0]);
+            }
+        }, SXRPicker.class);
+
+        SXREventManager.registerInvoker(IPickEvents.class, "onEnter", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IPickEvents) target).onEnter((SXRNode) params[0],
+                        (SXRPicker.SXRPickedObject) params[1]);
+            }
+        }, SXRNode.class, SXRPicker.SXRPickedObject.class);
+
+        SXREventManager.registerInvoker(IPickEvents.class, "onExit", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IPickEvents) target).onExit((SXRNode) params[0]);
+            }
+        }, SXRNode.class);
+
+        SXREventManager.registerInvoker(IPickEvents.class, "onInside", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IPickEvents) target).onInside((SXRNode) params[0],
+                        (SXRPicker.SXRPickedObject) params[1]);
+            }
+        }, SXRNode.class, SXRPicker.SXRPickedObject.class);
+    }
+
+    private static void registerTouchEvents() {
+        SXREventManager.registerInvoker(ITouchEvents.class, "onEnter", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((ITouchEvents) target).onEnter((SXRNode) params[0],
+                        (SXRPicker.SXRPickedObject) params[1]);
+            }
+        }, SXRNode.class, SXRPicker.SXRPickedObject.class);
+
+        SXREventManager.registerInvoker(ITouchEvents.class, "onExit", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((ITouchEvents) target).onExit((SXRNode) params[0],
+                        (SXRPicker.SXRPickedObject) params[1]);
+            }
+        }, SXRNode.class, SXRPicker.SXRPickedObject.class);
+
+        SXREventManager.registerInvoker(ITouchEvents.class, "onTouchStart", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((ITouchEvents) target).onTouchStart((SXRNode) params[0],
+                        (SXRPicker.SXRPickedObject) params[1]);
+            }
+        }, SXRNode.class, SXRPicker.SXRPickedObject.class);
+
+        SXREventManager.registerInvoker(ITouchEvents.class, "onTouchEnd", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((ITouchEvents) target).onTouchEnd((SXRNode) params[0],
+                        (SXRPicker.SXRPickedObject) params[1]);
+            }
+        }, SXRNode.class, SXRPicker.SXRPickedObject.class);
+
+        SXREventManager.registerInvoker(ITouchEvents.class, "onInside", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((ITouchEvents) target).onInside((SXRNode) params[0],
+                        (SXRPicker.SXRPickedObject) params[1]);
+            }
+        }, SXRNode.class, SXRPicker.SXRPickedObject.class);
+
+        SXREventManager.registerInvoker(ITouchEvents.class, "onMotionOutside", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((ITouchEvents) target).onMotionOutside((SXRPicker) params[0],
+                        (MotionEvent) params[1]);
+            }
+        }, SXRPicker.class, MotionEvent.class);
+    }
+
+    private static void registerScriptEvents() {
+        SXREventManager.registerInvoker(IScriptEvents.class, "onStep", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IScriptEvents) target).onStep();
+            }
+        });
+
+        SXREventManager.registerInvoker(IScriptEvents.class, "onEarlyInit", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IScriptEvents) target).onEarlyInit((SXRContext) params[0]);
+            }
+        }, SXRContext.class);
+
+        SXREventManager.registerInvoker(IScriptEvents.class, "onInit", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) throws Throwable {
+                ((IScriptEvents) target).onInit((SXRContext) params[0]);
+            }
+        }, SXRContext.class);
+
+        SXREventManager.registerInvoker(IScriptEvents.class, "onAfterInit", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IScriptEvents) target).onAfterInit();
+            }
+        });
+
+        SXREventManager.registerInvoker(IScriptEvents.class, "onAttach", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IScriptEvents) target).onAttach((IScriptable) params[0]);
+            }
+        }, IScriptable.class);
+
+        SXREventManager.registerInvoker(IScriptEvents.class, "onDetach", new IEventInvoker() {
+            public void invoke(Object target, Object[] params) {
+                ((IScriptEvents) target).onDetach((IScriptable) params[0]);
+            }
+        }, IScriptable.class);
+    }
+}
@@ -165,9 +165,9 @@ public class SXREventListeners {
     }
 
     /**
-     * Null implementation of {@link IAssetEvents}
+     * Null implementation of {@link IAssetEvents} and {@link IAssetProgressEvents}
      */
-    public static class AssetEvents implements IAssetEvents
+    public static class AssetEvents implements IAssetProgressEvents
     {
         @Override
         public void onAssetLoaded(SXRContext context, SXRNode model, String filePath, String errors) { }
@@ -175,6 +175,9 @@ public class SXREventListeners {
         @Override
         public void onModelLoaded(SXRContext context, SXRNode model, String filePath) { }
 
+        @Override
+        public void onModelProgress(SXRContext context, SXRNode model, String filePath, int numLoaded, int numMeshes) { }
+
         @Override
         public void onTextureLoaded(SXRContext context, SXRTexture texture, String filePath) { }
 
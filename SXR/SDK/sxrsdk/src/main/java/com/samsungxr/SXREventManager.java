@@ -17,11 +17,11 @@ package com.samsungxr;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.samsungxr.debug.SXRFrameProfiler;
 import com.samsungxr.script.IScriptManager;
 import com.samsungxr.script.IScriptFile;
 import com.samsungxr.script.IScriptable;
@@ -59,17 +59,89 @@ public class SXREventManager {
     private static final String TAG = SXREventManager.class.getSimpleName();
     private SXRContext mGvrContext;
 
-    // Cache for Java handler methods; keys *must* be weakly referenced
-    private final WeakHashMap<Object, Map<String, Method>> mHandlerMethodCache;
-
     public static final int SEND_MASK_OBJECT = 0x1;
     protected static final int SEND_MASK_LISTENERS = 0x2;
     protected static final int SEND_MASK_SCRIPTS = 0x4;
     public static final int SEND_MASK_ALL = SEND_MASK_OBJECT | SEND_MASK_LISTENERS | SEND_MASK_SCRIPTS;
 
+    /**
+     * Calls an event handler method on a target object.
+     * <p>
+     * A typed invoker casts the target and the parameters and calls
+     * the handler directly instead of using reflection. Invokers are
+     * registered once for each event method with
+     * {@link #registerInvoker(Class, String, IEventInvoker, Class[])}.
+     */
+    public interface IEventInvoker {
+        /**
+         * Call the event handler.
+         * @param target object implementing the event interface
+         * @param params event parameters, already checked against the method signature
+         * @throws Throwable any exception thrown by the handler
+         */
+        void invoke(Object target, Object[] params) throws Throwable;
+    }
+
+    /*
+     * An event method in an IEvents interface, with the invoker used
+     * to call it. The invoker is null if the method is called by reflection.
+     */
+    private static final class Handler {
+        final Method method;
+        final Class<?>[] paramTypes;
+        final IEventInvoker invoker;
+
+        Handler(Method method, IEventInvoker invoker) {
+            this.method = method;
+            this.paramTypes = method.getParameterTypes();
+            this.invoker = invoker;
+        }
+    }
+
+    // Handlers for each event name, cached per events interface and shared by all targets
+    private static final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Handler[]>> sHandlerCache
+            = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Handler[]>>();
+
+    private static final ConcurrentHashMap<Method, IEventInvoker> sInvokers
+            = new ConcurrentHashMap<Method, IEventInvoker>();
+
+    static {
+        SXREventInvokers.registerDefaults();
+    }
+
     SXREventManager(SXRContext gvrContext) {
         mGvrContext = gvrContext;
-        mHandlerMethodCache = new WeakHashMap<Object, Map<String, Method>>();
+    }
+
+    /**
+     * Registers a typed invoker for an event method.
+     * <p>
+     * Events which have an invoker are delivered by calling the
+     * invoker instead of calling the handler method by reflection.
+     * The invoker is shared by all objects and listeners which
+     * handle the event.
+     *
+     * @param eventsClass
+     *     The interface class object representing an event group, such
+     *     as {@link IScriptEvents}.class.
+     * @param eventName
+     *     The name of the event, such as "onStep".
+     * @param invoker
+     *     invoker which calls the event method on a target
+     * @param paramTypes
+     *     parameter types of the event method
+     * @throws IllegalArgumentException if the interface has no such method.
+     */
+    public static void registerInvoker(Class<? extends IEvents> eventsClass, String eventName,
+            IEventInvoker invoker, Class<?>... paramTypes) {
+        try {
+            Method method = eventsClass.getMethod(eventName, paramTypes);
+            sInvokers.put(method, invoker);
+            sHandlerCache.remove(eventsClass);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(String.format("The interface %s contains no method %s",
+                    eventsClass.getSimpleName(), eventName));
+        }
     }
 
     /**
@@ -115,15 +187,26 @@ public class SXREventManager {
 
     protected boolean sendEventWithMaskParamArray(int sendMask, Object target, Class<? extends IEvents> eventsClass,
             String eventName, Object[] params) {
+        final SXRFrameProfiler profiler = mGvrContext.getFrameProfiler();
+        final long start = profiler.begin(SXRFrameProfiler.Phase.SCRIPT_EVENTS);
+        try {
+            return deliverEvent(sendMask, target, eventsClass, eventName, params);
+        } finally {
+            profiler.end(SXRFrameProfiler.Phase.SCRIPT_EVENTS, start);
+        }
+    }
+
+    private boolean deliverEvent(int sendMask, Object target, Class<? extends IEvents> eventsClass,
+            String eventName, Object[] params) {
         // Set to true if an event is handled.
         boolean handledSuccessful = false;
 
         // Verify the event name and parameters (cached)
-        Method method = findHandlerMethod(target, eventsClass, eventName, params);
+        Handler handler = findHandler(eventsClass, eventName, params);
         if ((sendMask & SEND_MASK_OBJECT) != 0) {
             // Invoke the method if the target implements the interface
             if (eventsClass.isInstance(target)) {
-                invokeMethod(target, method, params);
+                invokeHandler(target, handler, params);
                 handledSuccessful = true;
             }
         }
@@ -141,12 +224,9 @@ public class SXREventManager {
                     if (!eventsClass.isInstance(listener) || receiver.getOwner() != target)
                         continue;
 
-                    Method listenerMethod = findHandlerMethod(listener, eventsClass, eventName, params);
-                    if (listenerMethod != null) {
-                        // This may throw RuntimeException if the handler does so.
-                        invokeMethod(listener, listenerMethod, params);
-                        handledSuccessful = true;
-                    }
+                    // This may throw RuntimeException if the handler does so.
+                    invokeHandler(listener, handler, params);
+                    handledSuccessful = true;
                 }
             }
         }
@@ -162,63 +242,65 @@ public class SXREventManager {
     }
 
     /*
-     * Return the method in eventsClass by checking the signature.
+     * Return the handler for the method in eventsClass by checking the signature.
      * RuntimeException is thrown if the event is not found in the eventsClass interface,
      * or the parameter types don't match.
+     * The methods with each name are found once per interface, after that the
+     * lookup does not lock or allocate.
      */
-    private Method findHandlerMethod(Object target, Class<? extends IEvents> eventsClass,
+    private Handler findHandler(Class<? extends IEvents> eventsClass,
             String eventName, Object[] params) {
-        // Use cached method if available. Note: no further type checking is done if the
-        // method has been cached. It will be checked by JRE when the method is invoked.
-        Method cachedMethod = getCachedMethod(target, eventName);
-        if (cachedMethod != null) {
-            return cachedMethod;
+        ConcurrentHashMap<String, Handler[]> classHandlers = sHandlerCache.get(eventsClass);
+        if (classHandlers == null) {
+            classHandlers = new ConcurrentHashMap<String, Handler[]>();
+            ConcurrentHashMap<String, Handler[]> existing = sHandlerCache.putIfAbsent(eventsClass, classHandlers);
+            if (existing != null) {
+                classHandlers = existing;
+            }
+        }
+        Handler[] handlers = classHandlers.get(eventName);
+        if (handlers == null) {
+            handlers = makeHandlers(eventsClass, eventName);
+            classHandlers.put(eventName, handlers);
         }
 
-        // Check the event and params against the eventsClass interface object.
-        Method nameMatch = null;
-        Method signatureMatch = null;
-        for (Method method : eventsClass.getMethods()) {
-            // Match method name and event name
-            if (method.getName().equals(eventName)) {
-                nameMatch = method;
-
-                // Check number of parameters
-                Class<?>[] types = method.getParameterTypes();
-                if (types.length != params.length)
-                    continue;
-
-                // Check parameter types
-                int i = 0;
-                boolean foundMatchedMethod = true;
-                for (Class<?> type : types) {
-                    Object param = params[i++];
-                    if (!isInstanceWithAutoboxing(type, param)) {
-                        foundMatchedMethod = false;
-                        break;
-                    }
-                }
+        // Error
+        if (handlers.length == 0) {
+            throw new RuntimeException(String.format("The interface contains no method %s", eventName));
+        }
 
-                if (foundMatchedMethod) {
-                    signatureMatch = method;
+        // Check parameter types
+        for (Handler handler : handlers) {
+            Class<?>[] types = handler.paramTypes;
+            if (types.length != params.length)
+                continue;
+
+            boolean foundMatchedMethod = true;
+            for (int i = 0; i < types.length; ++i) {
+                if (!isInstanceWithAutoboxing(types[i], params[i])) {
+                    foundMatchedMethod = false;
                     break;
                 }
             }
-        }
 
-        // Error
-        if (nameMatch == null) {
-            throw new RuntimeException(String.format("The interface contains no method %s", eventName));
-        } else if (signatureMatch == null ){
-            throw new RuntimeException(String.format("The interface contains a method %s but "
-                    + "parameters don't match", eventName));
+            if (foundMatchedMethod) {
+                return handler;
+            }
         }
+        throw new RuntimeException(String.format("The interface contains a method %s but "
+                + "parameters don't match", eventName));
+    }
 
-        // Cache the method for the target, even if it doesn't implement the interface. This is
-        // to avoid always verifying the event.
-        addCachedMethod(target, eventName, signatureMatch);
+    private static Handler[] makeHandlers(Class<? extends IEvents> eventsClass, String eventName) {
+        List<Handler> handlers = new ArrayList<Handler>();
 
-        return signatureMatch;
+        for (Method method : eventsClass.getMethods()) {
+            // Match method name and event name
+            if (method.getName().equals(eventName)) {
+                handlers.add(new Handler(method, sInvokers.get(method)));
+            }
+        }
+        return handlers.toArray(new Handler[handlers.size()]);
     }
 
     private boolean isInstanceWithAutoboxing(Class<?> type, Object value) {
@@ -268,31 +350,6 @@ public class SXREventManager {
         return false;
     }
 
-    private Method getCachedMethod(Object target, String eventName) {
-        // Lock the whole cache for both first- and second-level lookup
-        synchronized (mHandlerMethodCache) {
-            Map<String, Method> targetCache = mHandlerMethodCache.get(target);
-            if (targetCache == null) {
-                return null;
-            }
-
-            return targetCache.get(eventName);
-        }
-    }
-
-    private void addCachedMethod(Object target, String eventName, Method method) {
-        // Lock the whole cache for both first- and second-level lookup
-        synchronized (mHandlerMethodCache) {
-            Map<String, Method> targetCache = mHandlerMethodCache.get(target);
-            if (targetCache == null) {
-                targetCache = new TreeMap<String, Method>();
-                mHandlerMethodCache.put(target, targetCache);
-            }
-
-            targetCache.put(eventName, method);
-        }
-    }
-
     private boolean tryInvokeScript(IScriptable target, String eventName,
             Object[] params) {
         IScriptManager sm = mGvrContext.getScriptManager();
@@ -307,6 +364,22 @@ public class SXREventManager {
         return script.invokeFunction(eventName, params);
     }
 
+    private void invokeHandler(Object target, Handler handler, Object[] params) {
+        if (handler.invoker == null) {
+            invokeMethod(target, handler.method, params);
+            return;
+        }
+        try {
+            handler.invoker.invoke(target, params);
+        } catch (RuntimeException e) {
+            // rethrow the RuntimeException back to the application
+            throw e;
+        } catch (Throwable e) {
+            e.printStackTrace();
+            mGvrContext.logError(e.getMessage(), target);
+        }
+    }
+
     private void invokeMethod(Object target, Method method, Object[] params) {
         try {
             method.invoke(target, params);
@@ -53,6 +53,7 @@ public class SXRFloatImage extends SXRImage
     {
         super(gvrContext, NativeBitmapImage.constructor(ImageType.FLOAT_BITMAP.Value, GL_RG));
         NativeFloatImage.update(getNative(), width, height, GL_RG, data);
+        mDataSize = (long) data.length * 4;
     }
 
     public SXRFloatImage(SXRContext gvrContext, int pixelFormat)
@@ -98,6 +99,7 @@ public class SXRFloatImage extends SXRImage
             throw new IllegalArgumentException();
         }
         NativeFloatImage.update(getNative(), width, height, 0, data);
+        mDataSize = (long) data.length * 4;
     }
 }
 
@@ -0,0 +1,350 @@
+/* Copyright 2016 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsungxr;
+
+import com.samsungxr.utility.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The tasks waiting to run on the GL thread.
+ * <p>
+ * Tasks posted with {@link SXRContext#runOnGlThread(Runnable, Priority)}
+ * run before the frame listeners. The {@linkplain Priority#INPUT input}
+ * tasks all run every frame. The {@linkplain Priority#NORMAL normal} and
+ * {@linkplain Priority#BACKGROUND background} tasks only run until the
+ * {@linkplain #setTimeBudget(float) time budget} of the frame is spent,
+ * the others are left for the next frames, so a loader posting
+ * thousands of tasks does not stall a frame. At least one task of
+ * each priority runs every frame. Tasks of the same priority
+ * run in the order they were posted.
+ * <p>
+ * Tasks posted with {@link SXRContext#runOnGlThreadPostRender(int, Runnable)}
+ * wait in a timing wheel indexed by frame, so each frame only looks at
+ * the tasks due in that frame.
+ * <p>
+ * The statistics of the last frame are kept to tune the budget.
+ */
+public final class SXRGlTaskQueue {
+    private static final String TAG = Log.tag(SXRGlTaskQueue.class);
+    private static final int WHEEL_SIZE = 64;
+
+    /**
+     * Priority of a GL thread task.
+     */
+    public enum Priority {
+        /**
+         * Tasks the user is waiting for, like input handling.
+         * They all run in the next frame whatever the budget.
+         */
+        INPUT,
+        /**
+         * Default priority of {@link SXRContext#runOnGlThread(Runnable)}.
+         */
+        NORMAL,
+        /**
+         * Tasks which can wait, like uploading loaded resources.
+         * They only run when the normal tasks left some budget.
+         */
+        BACKGROUND
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final ConcurrentLinkedQueue<Runnable>[] mQueues;
+    private final AtomicInteger[] mCounts;
+    private volatile long mTimeBudgetNanos = 4000000;
+
+    // post render timing wheel, guarded by mWheel
+    private final ArrayList<PostRenderTask>[] mWheel;
+    private final HashMap<Runnable, PostRenderTask> mPostRenderTasks = new HashMap<Runnable, PostRenderTask>();
+    private ArrayList<PostRenderTask> mDueTasks = new ArrayList<PostRenderTask>();
+    private long mFrame = 0;
+
+    // statistics of the last frame
+    private final int[] mTasksRun = new int[PRIORITIES.length];
+    private volatile int mTasksDeferred;
+    private volatile int mPostRenderTasksRun;
+    private volatile long mTaskTimeNanos;
+    private volatile long mOverrunNanos;
+    private volatile long mMaxOverrunNanos;
+    private volatile int mOverrunCount;
+
+    @SuppressWarnings("unchecked")
+    SXRGlTaskQueue() {
+        mQueues = new ConcurrentLinkedQueue[PRIORITIES.length];
+        mCounts = new AtomicInteger[PRIORITIES.length];
+        for (int i = 0; i < PRIORITIES.length; ++i) {
+            mQueues[i] = new ConcurrentLinkedQueue<Runnable>();
+            mCounts[i] = new AtomicInteger();
+        }
+        mWheel = new ArrayList[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; ++i) {
+            mWheel[i] = new ArrayList<PostRenderTask>();
+        }
+    }
+
+    /**
+     * Set how long the normal and background tasks may run each frame.
+     * The default is 4 milliseconds.
+     * @param milliseconds time budget, 0 to run all the tasks every frame
+     */
+    public void setTimeBudget(float milliseconds) {
+        mTimeBudgetNanos = (long) (milliseconds * 1000000);
+    }
+
+    public float getTimeBudget() {
+        return mTimeBudgetNanos / 1000000.0f;
+    }
+
+    /**
+     * @return number of tasks of a priority waiting to run
+     */
+    public int getPendingCount(Priority priority) {
+        return mCounts[priority.ordinal()].get();
+    }
+
+    /**
+     * @return number of post render tasks waiting for their frame
+     */
+    public int getPendingPostRenderCount() {
+        synchronized (mWheel) {
+            return mPostRenderTasks.size();
+        }
+    }
+
+    /**
+     * @return number of tasks of a priority run in the last frame
+     */
+    public int getTasksRun(Priority priority) {
+        return mTasksRun[priority.ordinal()];
+    }
+
+    /**
+     * @return number of tasks left for the next frames at the end of the last frame
+     */
+    public int getTasksDeferred() {
+        return mTasksDeferred;
+    }
+
+    /**
+     * @return number of post render tasks run after the last frame
+     */
+    public int getPostRenderTasksRun() {
+        return mPostRenderTasksRun;
+    }
+
+    /**
+     * @return time spent running the tasks of the last frame, in nanoseconds
+     */
+    public long getTaskTimeNanos() {
+        return mTaskTimeNanos;
+    }
+
+    /**
+     * @return time the tasks of the last frame ran past the budget,
+     *         in nanoseconds, 0 if they did not
+     */
+    public long getOverrunNanos() {
+        return mOverrunNanos;
+    }
+
+    /**
+     * @return longest overrun since the statistics were reset, in nanoseconds
+     */
+    public long getMaxOverrunNanos() {
+        return mMaxOverrunNanos;
+    }
+
+    /**
+     * @return number of frames whose tasks ran past the budget
+     *         since the statistics were reset
+     */
+    public int getOverrunCount() {
+        return mOverrunCount;
+    }
+
+    public void resetStatistics() {
+        mMaxOverrunNanos = 0;
+        mOverrunCount = 0;
+    }
+
+    void post(Runnable runnable, Priority priority) {
+        int i = priority.ordinal();
+
+        mCounts[i].incrementAndGet();
+        mQueues[i].add(runnable);
+    }
+
+    /**
+     * Post a task to run after a frame has been rendered.
+     * Posting a task which is already waiting changes its delay.
+     */
+    void postRender(int delayFrames, Runnable runnable) {
+        synchronized (mWheel) {
+            PostRenderTask task = new PostRenderTask(runnable, mFrame + Math.max(delayFrames, 0));
+            PostRenderTask old = mPostRenderTasks.put(runnable, task);
+
+            if (old != null) {
+                old.mCanceled = true;
+            }
+            mWheel[(int) (task.mFrame % WHEEL_SIZE)].add(task);
+        }
+    }
+
+    /**
+     * Run the input tasks and the other tasks until the budget is spent.
+     * Only the tasks posted before the call run, tasks posted by the
+     * tasks wait for the next frame.
+     */
+    void runTasks() {
+        final long budget = mTimeBudgetNanos;
+        final long start = System.nanoTime();
+        int deferred = 0;
+
+        for (int p = 0; p < PRIORITIES.length; ++p) {
+            boolean budgeted = (budget > 0) && (PRIORITIES[p] != Priority.INPUT);
+            int count = mCounts[p].get();
+            int run = 0;
+
+            while (run < count) {
+                if (budgeted && (run > 0) && (System.nanoTime() - start >= budget)) {
+                    break;
+                }
+                Runnable runnable = poll(p);
+                if (runnable == null) {
+                    break;
+                }
+                ++run;
+                runTask(runnable);
+            }
+            mTasksRun[p] = run;
+            deferred += mCounts[p].get();
+        }
+        updateStatistics(budget, System.nanoTime() - start, deferred);
+    }
+
+    /**
+     * Run all the tasks, including the ones they post, whatever the budget.
+     */
+    void runAllTasks() {
+        for (int p = 0; p < PRIORITIES.length; ++p) {
+            Runnable runnable;
+
+            while ((runnable = poll(p)) != null) {
+                runTask(runnable);
+            }
+        }
+    }
+
+    /**
+     * Run the post render tasks due in this frame and move to the next frame.
+     */
+    void runPostRenderTasks() {
+        ArrayList<PostRenderTask> due;
+
+        synchronized (mWheel) {
+            int slot = (int) (mFrame % WHEEL_SIZE);
+
+            due = mWheel[slot];
+            mWheel[slot] = mDueTasks;
+            mDueTasks = due;
+            for (int i = 0; i < due.size(); ++i) {
+                PostRenderTask task = due.get(i);
+
+                if (task.mCanceled) {
+                    due.set(i, null);
+                } else if (task.mFrame > mFrame) {
+                    // due in a later turn of the wheel
+                    mWheel[slot].add(task);
+                    due.set(i, null);
+                } else {
+                    mPostRenderTasks.remove(task.mRunnable);
+                }
+            }
+            ++mFrame;
+        }
+        int run = 0;
+
+        for (int i = 0; i < due.size(); ++i) {
+            PostRenderTask task = due.get(i);
+
+            if (task != null) {
+                ++run;
+                runTask(task.mRunnable);
+            }
+        }
+        due.clear();
+        mPostRenderTasksRun = run;
+    }
+
+    void clear() {
+        for (int p = 0; p < PRIORITIES.length; ++p) {
+            while (poll(p) != null);
+        }
+        synchronized (mWheel) {
+            for (ArrayList<PostRenderTask> slot : mWheel) {
+                slot.clear();
+            }
+            mPostRenderTasks.clear();
+        }
+    }
+
+    private Runnable poll(int priority) {
+        Runnable runnable = mQueues[priority].poll();
+
+        if (runnable != null) {
+            mCounts[priority].decrementAndGet();
+        }
+        return runnable;
+    }
+
+    private static void runTask(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (final Exception exc) {
+            Log.e(TAG, "Runnable-on-GL %s threw %s", runnable, exc.toString());
+            exc.printStackTrace();
+        }
+    }
+
+    private void updateStatistics(long budget, long elapsed, int deferred) {
+        mTaskTimeNanos = elapsed;
+        mTasksDeferred = deferred;
+        if ((budget > 0) && (elapsed > budget)) {
+            long overrun = elapsed - budget;
+
+            mOverrunNanos = overrun;
+            mMaxOverrunNanos = Math.max(mMaxOverrunNanos, overrun);
+            ++mOverrunCount;
+        } else {
+            mOverrunNanos = 0;
+        }
+    }
+
+    private static final class PostRenderTask {
+        final Runnable mRunnable;
+        final long mFrame;
+        boolean mCanceled;
+
+        PostRenderTask(Runnable runnable, long frame) {
+            mRunnable = runnable;
+            mFrame = frame;
+        }
+    }
+}
@@ -50,6 +50,7 @@ public class SXRImage extends SXRHybridObject
     }
 
     protected static final String TAG = "SXRImage";
+    protected long mDataSize = 0;
 
     public String getFileName()
     {
@@ -60,4 +61,15 @@ public class SXRImage extends SXRHybridObject
     {
         NativeBitmapImage.setFileName(getNative(), fname);
     }
+
+    /**
+     * Get the approximate number of bytes of pixel data in this image.
+     * This is the size of the data last given to the image,
+     * it is used to decide how many images the asset loader keeps cached.
+     * @return size of the image data in bytes, 0 if not known
+     */
+    public long getDataSize()
+    {
+        return mDataSize;
+    }
 }
@@ -103,7 +103,17 @@ public enum SXRImportSettings {
     /**
      * Do not include textures and omit texture coordinates from meshes
      */
-    NO_TEXTURING(0x8000000);
+    NO_TEXTURING(0x8000000),
+
+    /**
+     * Share vertex and index buffers with models imported before
+     * which have meshes with the same contents.
+     * The shared buffers are the same objects in every model,
+     * changing the mesh of one model changes it in the others,
+     * so only use this for models whose meshes are not modified.
+     * @see SXRAssetLoader#getVertexBufferCache()
+     */
+    SHARE_GEOMETRY(0x10000000);
 
     
     private int mValue;
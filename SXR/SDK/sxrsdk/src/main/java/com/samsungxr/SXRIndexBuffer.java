@@ -332,6 +332,15 @@ public class SXRIndexBuffer extends SXRHybridObject implements PrettyPrint
         return NativeIndexBuffer.getIndexSize(getNative());
     }
 
+    /**
+     * Get the number of bytes of index data in this index buffer.
+     * @return index size in bytes times the number of indices.
+     */
+    public int getDataSize()
+    {
+        return getIndexCount() * getIndexSize();
+    }
+
 
     @Override
     public void prettyPrint(StringBuffer sb, int indent) {
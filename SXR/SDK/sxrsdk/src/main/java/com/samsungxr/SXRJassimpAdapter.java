@@ -5,17 +5,24 @@ import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static java.lang.Math.max;
 
 import com.samsungxr.animation.SXRAnimation;
@@ -49,6 +56,7 @@ import com.samsungxr.jassimp.SXRNewWrapperProvider;
 import com.samsungxr.jassimp.Jassimp;
 import com.samsungxr.jassimp.JassimpConfig;
 import com.samsungxr.shaders.SXRPBRShader;
+import com.samsungxr.utility.BoundedResourceCache;
 import com.samsungxr.utility.Log;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
@@ -77,8 +85,10 @@ class  SXRJassimpAdapter
     /*
      * Maps SXRNode created for each Assimp node to the Assimp
      * mesh ID (the index of the mesh in AiScene).
+     * Kept in scene graph order so meshes are attached in the same
+     * order on every import.
      */
-    private HashMap<SXRNode, Integer> mNodeMap = new HashMap<>();
+    private LinkedHashMap<SXRNode, Integer> mNodeMap = new LinkedHashMap<>();
 
     /**
      * Maps the Assimp mesh ID to the corresponding SXRMesh
@@ -91,29 +101,214 @@ class  SXRJassimpAdapter
      */
     private SXRMaterial[] mMaterials;
 
+    /*
+     * Number of vertex and index buffers shared with meshes
+     * which have the same contents and the bytes this saved.
+     */
+    private int mNumSharedBuffers = 0;
+    private long mSharedBytes = 0;
+
 
     public SXRJassimpAdapter(SXRAssetLoader loader, String filename)
     {
         mFileName = filename;
     }
 
+    /**
+     * Vertex, index, bone and morph target data for one Assimp mesh.
+     * It is gathered from the {@link AiMesh} by {@link #convertMesh},
+     * which does not touch any native SXR objects and can run on a
+     * worker thread. {@link #buildMesh} makes the {@link SXRMesh}
+     * from it on the importing thread.
+     * <p>
+     * The vertex attributes are the direct buffers of the {@link AiMesh}
+     * when they can be used as they are, and direct buffers otherwise,
+     * so they are handed to the native vertex buffer without being
+     * copied through the Java heap.
+     */
+    private static class MeshData
+    {
+        String      descriptor = "float3 a_position";
+        FloatBuffer positions;
+        FloatBuffer normals;
+        FloatBuffer tangents;
+        FloatBuffer bitangents;
+        FloatBuffer[] texCoords = new FloatBuffer[MAX_TEX_COORDS];
+        FloatBuffer[] colors = new FloatBuffer[MAX_VERTEX_COLORS];
+        IntBuffer   indices;
+        float[]     boneWeights;
+        int[]       boneIndices;
+        int[]       boneMap;
+        MorphTarget[] morphTargets;
+        String      vertexKey;
+        String      indexKey;
+
+        /**
+         * Hash the vertex and index data so identical buffers
+         * can be shared with meshes imported before.
+         * Only used with {@link SXRImportSettings#SHARE_GEOMETRY}.
+         */
+        void makeKeys()
+        {
+            ContentHash hash = new ContentHash();
+
+            hash.add(descriptor).add(positions).add(normals).add(tangents).add(bitangents);
+            for (FloatBuffer coords : texCoords)
+            {
+                hash.add(coords);
+            }
+            for (FloatBuffer color : colors)
+            {
+                hash.add(color);
+            }
+            hash.add(boneWeights).add(boneIndices);
+            vertexKey = hash.toString();
+            indexKey = new ContentHash().add(indices).toString();
+        }
+    }
+
+    /**
+     * 128 bit hash of the contents of a vertex or index buffer,
+     * computed as two independent 64 bit MurmurHash3 style lanes.
+     * Buffers with the same hash are treated as identical.
+     */
+    private static final class ContentHash
+    {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+        private long mHash1 = 0;
+        private long mHash2 = 0;
+        private long mLength = 0;
+
+        ContentHash add(int value)
+        {
+            long k1 = Long.rotateLeft(value * C1, 31) * C2;
+            long k2 = Long.rotateLeft(value * C2, 33) * C1;
+
+            mHash1 = Long.rotateLeft(mHash1 ^ k1, 27) * 5 + 0x52dce729;
+            mHash2 = Long.rotateLeft(mHash2 ^ k2, 31) * 5 + 0x38495ab5;
+            ++mLength;
+            return this;
+        }
+
+        ContentHash add(float[] values)
+        {
+            if (values == null)
+            {
+                return add(-1);
+            }
+            add(values.length);
+            for (float v : values)
+            {
+                add(Float.floatToRawIntBits(v));
+            }
+            return this;
+        }
+
+        ContentHash add(int[] values)
+        {
+            if (values == null)
+            {
+                return add(-1);
+            }
+            add(values.length);
+            for (int v : values)
+            {
+                add(v);
+            }
+            return this;
+        }
+
+        ContentHash add(FloatBuffer values)
+        {
+            if (values == null)
+            {
+                return add(-1);
+            }
+            int n = values.limit();
+
+            add(n);
+            for (int i = 0; i < n; ++i)
+            {
+                add(Float.floatToRawIntBits(values.get(i)));
+            }
+            return this;
+        }
+
+        ContentHash add(IntBuffer values)
+        {
+            int n = values.limit();
+
+            add(n);
+            for (int i = 0; i < n; ++i)
+            {
+                add(values.get(i));
+            }
+            return this;
+        }
+
+        ContentHash add(String s)
+        {
+            add(s.length());
+            for (int i = 0; i < s.length(); ++i)
+            {
+                add(s.charAt(i));
+            }
+            return this;
+        }
+
+        private static long mix(long h)
+        {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%016x%016x", mix(mHash1 ^ mLength), mix(mHash2 ^ mLength));
+        }
+    }
+
+    /**
+     * Vertex data for one blend shape of a mesh
+     */
+    private static class MorphTarget
+    {
+        FloatBuffer positions;
+        FloatBuffer normals;
+        FloatBuffer tangents;
+        FloatBuffer bitangents;
+    }
+
     public SXRMesh createMesh(SXRContext ctx, AiMesh aiMesh, EnumSet<SXRImportSettings> settings)
     {
-        String vertexDescriptor = "float3 a_position";
-        float[] verticesArray = null;
-        float[] tangentsArray = null;
-        float[] bitangentsArray = null;
-        float[] normalsArray = null;
+        MeshData data = convertMesh(aiMesh, settings);
+
+        if (settings.contains(SXRImportSettings.SHARE_GEOMETRY))
+        {
+            data.makeKeys();
+        }
+        return buildMesh(ctx, data);
+    }
+
+    /**
+     * Gather the vertex attributes and indices of an Assimp mesh.
+     * This does not call into the native SXR objects so meshes can be
+     * converted in parallel.
+     */
+    private MeshData convertMesh(AiMesh aiMesh, EnumSet<SXRImportSettings> settings)
+    {
+        MeshData data = new MeshData();
         boolean doTexturing = !settings.contains(SXRImportSettings.NO_TEXTURING);
         boolean doLighting = !settings.contains(SXRImportSettings.NO_LIGHTING);
+        int numVertices = aiMesh.getNumVertices();
 
         // Vertices
-        FloatBuffer verticesBuffer = aiMesh.getPositionBuffer();
-        if (verticesBuffer != null)
-        {
-            verticesArray = new float[verticesBuffer.capacity()];
-            verticesBuffer.get(verticesArray, 0, verticesBuffer.capacity());
-        }
+        data.positions = aiMesh.getPositionBuffer();
         // TexCoords
         if (doTexturing)
         {
@@ -122,29 +317,31 @@ class  SXRJassimpAdapter
                 FloatBuffer fbuf = aiMesh.getTexCoordBuffer(texIndex);
                 if (fbuf != null)
                 {
-                    vertexDescriptor += " float2 a_texcoord";
+                    int numComponents = aiMesh.getNumUVComponents(texIndex);
+
+                    data.descriptor += " float2 a_texcoord";
                     if (texIndex > 0)
                     {
-                        vertexDescriptor += texIndex;
+                        data.descriptor += texIndex;
+                    }
+                    if (numComponents != 2)
+                    {
+                        fbuf = repackTexCoords(fbuf, numVertices, numComponents);
                     }
+                    data.texCoords[texIndex] = fbuf;
                 }
             }
         }
         // Normals
         if (doLighting)
         {
-
-            FloatBuffer normalsBuffer = aiMesh.getNormalBuffer();
-            if (normalsBuffer != null)
+            data.normals = aiMesh.getNormalBuffer();
+            if (data.normals != null)
             {
-                vertexDescriptor += " float3 a_normal";
-
-                normalsArray = new float[normalsBuffer.capacity()];
-                normalsBuffer.get(normalsArray, 0, normalsBuffer.capacity());
+                data.descriptor += " float3 a_normal";
             }
-
         }
-
+        // Vertex Colors
         for (int c = 0; c < MAX_VERTEX_COLORS; c++)
         {
             FloatBuffer fbuf = aiMesh.getColorBuffer(c);
@@ -156,176 +353,230 @@ class  SXRJassimpAdapter
                 {
                     name += c;
                 }
-                vertexDescriptor += " float4 " + name;
+                data.descriptor += " float4 " + name;
+                data.colors[c] = fbuf;
             }
         }
 
         if (aiMesh.hasBones())
         {
-            vertexDescriptor += " float4 a_bone_weights int4 a_bone_indices";
+            data.descriptor += " float4 a_bone_weights int4 a_bone_indices";
         }
         if (doLighting && aiMesh.hasTangentsAndBitangents())
         {
+            data.descriptor += " float3 a_tangent float3 a_bitangent";
+            data.tangents = aiMesh.getTangentBuffer();
+            data.bitangents = makeBitangents(data.tangents, data.normals);
+        }
+        data.indices = aiMesh.getIndexBuffer();
+        return data;
+    }
 
-            vertexDescriptor += " float3 a_tangent float3 a_bitangent";
+    /**
+     * Compute the bitangents (normal x tangent) in one pass over
+     * the tangents and normals, into a direct buffer.
+     */
+    private static FloatBuffer makeBitangents(FloatBuffer tangents, FloatBuffer normals)
+    {
+        int n = tangents.limit();
+        FloatBuffer bitangents = allocateFloats(n);
 
-            FloatBuffer tangentBuffer = aiMesh.getTangentBuffer();
+        for (int i = 0; i < n; i += 3)
+        {
+            float tx = tangents.get(i);
+            float ty = tangents.get(i + 1);
+            float tz = tangents.get(i + 2);
+            float nx = normals.get(i);
+            float ny = normals.get(i + 1);
+            float nz = normals.get(i + 2);
 
-            tangentsArray = new float[tangentBuffer.capacity()];
-            tangentBuffer.get(tangentsArray, 0, tangentBuffer.capacity());
-            bitangentsArray = new float[tangentsArray.length];
+            bitangents.put(i, ny * tz - nz * ty);
+            bitangents.put(i + 1, nz * tx - nx * tz);
+            bitangents.put(i + 2, nx * ty - ny * tx);
+        }
+        return bitangents;
+    }
 
-            Vector3f tangent = new Vector3f();
-            Vector3f normal = new Vector3f();
-            Vector3f bitangent = new Vector3f();
+    /**
+     * Keep the U and V of texture coordinates which
+     * have one or three components per vertex.
+     */
+    private static FloatBuffer repackTexCoords(FloatBuffer src, int numVertices, int numComponents)
+    {
+        FloatBuffer coords = allocateFloats(numVertices * 2);
 
-            for (int i = 0; i < tangentsArray.length; i += 3)
-            {
-                tangent.set(tangentsArray[i], tangentsArray[i + 1], tangentsArray[i + 2]);
-                normal.set(normalsArray[i], normalsArray[i + 1], normalsArray[i + 2]);
-                normal.cross(tangent, bitangent);
-                bitangentsArray[i] = bitangent.x; bitangentsArray[i+1] = bitangent.y; bitangentsArray[i + 2] = bitangent.z;
-            }
+        for (int i = 0; i < numVertices; ++i)
+        {
+            int s = i * numComponents;
+
+            coords.put(2 * i, src.get(s));
+            coords.put(2 * i + 1, (numComponents > 1) ? src.get(s + 1) : 0.0f);
         }
+        return coords;
+    }
 
-        SXRMesh mesh = new SXRMesh(ctx, vertexDescriptor);
+    private static FloatBuffer allocateFloats(int count)
+    {
+        return ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
 
-        // Vertex Colors
-        for (int c = 0; c < MAX_VERTEX_COLORS; c++)
+    /**
+     * Make a {@link SXRMesh} from converted mesh data.
+     * If the mesh data has been hashed for {@link SXRImportSettings#SHARE_GEOMETRY},
+     * vertex and index buffers with the same contents as ones already
+     * imported are shared instead of being created again.
+     * Must be called from the importing thread.
+     */
+    private SXRMesh buildMesh(SXRContext ctx, MeshData data)
+    {
+        if (data.vertexKey == null)
         {
-            FloatBuffer fbuf = aiMesh.getColorBuffer(c);
-            if (fbuf != null)
-            {
-                FloatBuffer coords = FloatBuffer.allocate(aiMesh.getNumVertices() * 4);
-                FloatBuffer source = aiMesh.getColorBuffer(c);
-                String name = "a_color";
+            SXRIndexBuffer indexBuffer = new SXRIndexBuffer(ctx, 4, data.indices.capacity());
 
-                if (c > 0)
-                {
-                    name += c;
-                }
-                coords.put(source);
-                mesh.setFloatVec(name, coords);
-            }
+            indexBuffer.setIntVec(data.indices);
+            return new SXRMesh(buildVertexBuffer(ctx, data), indexBuffer);
         }
+        BoundedResourceCache<String, SXRVertexBuffer> vertexCache = SXRAssetLoader.getVertexBufferCache();
+        BoundedResourceCache<String, SXRIndexBuffer> indexCache = SXRAssetLoader.getIndexBufferCache();
+        SXRVertexBuffer vertexBuffer = vertexCache.get(data.vertexKey);
+        SXRIndexBuffer indexBuffer = indexCache.get(data.indexKey);
 
-        IntBuffer indices = aiMesh.getIndexBuffer();
-        int len = indices.capacity();
-        SXRIndexBuffer indexBuffer = new SXRIndexBuffer(ctx, 4, len);
+        if (vertexBuffer == null)
+        {
+            vertexBuffer = buildVertexBuffer(ctx, data);
+            vertexCache.put(data.vertexKey, vertexBuffer);
+        }
+        else
+        {
+            ++mNumSharedBuffers;
+            mSharedBytes += vertexBuffer.getDataSize();
+        }
+        if (indexBuffer == null)
+        {
+            indexBuffer = new SXRIndexBuffer(ctx, 4, data.indices.capacity());
+            indexBuffer.setIntVec(data.indices);
+            indexCache.put(data.indexKey, indexBuffer);
+        }
+        else
+        {
+            ++mNumSharedBuffers;
+            mSharedBytes += indexBuffer.getDataSize();
+        }
+        return new SXRMesh(vertexBuffer, indexBuffer);
+    }
 
-        indexBuffer.setIntVec(indices);
-        mesh.setIndexBuffer(indexBuffer);
+    private SXRVertexBuffer buildVertexBuffer(SXRContext ctx, MeshData data)
+    {
+        SXRVertexBuffer vbuf = new SXRVertexBuffer(ctx, data.descriptor, 0);
 
-        if (verticesArray != null)
+        for (int c = 0; c < MAX_VERTEX_COLORS; c++)
         {
-            mesh.setVertices(verticesArray);
+            if (data.colors[c] != null)
+            {
+                vbuf.setFloatVec((c > 0) ? ("a_color" + c) : "a_color", data.colors[c]);
+            }
         }
-        if (normalsArray != null)
+        if (data.positions != null)
         {
-            mesh.setNormals(normalsArray);
+            vbuf.setFloatVec("a_position", data.positions);
         }
-        if (tangentsArray != null)
+        if (data.normals != null)
         {
-            mesh.setFloatArray("a_tangent", tangentsArray);
+            vbuf.setFloatVec("a_normal", data.normals);
         }
-        if (bitangentsArray != null)
+        if (data.tangents != null)
         {
-            mesh.setFloatArray("a_bitangent", bitangentsArray);
+            vbuf.setFloatVec("a_tangent", data.tangents);
         }
-        // TexCords
-        if (doTexturing)
+        if (data.bitangents != null)
         {
-            for (int texIndex = 0; texIndex < MAX_TEX_COORDS; texIndex++)
+            vbuf.setFloatVec("a_bitangent", data.bitangents);
+        }
+        for (int texIndex = 0; texIndex < MAX_TEX_COORDS; texIndex++)
+        {
+            if (data.texCoords[texIndex] != null)
             {
-                FloatBuffer fbuf = aiMesh.getTexCoordBuffer(texIndex);
-                if (fbuf != null)
-                {
-                    FloatBuffer coords = FloatBuffer.allocate(aiMesh.getNumVertices() * 2);
-                    if (aiMesh.getNumUVComponents(texIndex) == 2)
-                    {
-                        FloatBuffer coordsSource = aiMesh.getTexCoordBuffer(texIndex);
-                        coords.put(coordsSource);
-                    }
-                    else
-                    {
-                        for (int i = 0; i < aiMesh.getNumVertices(); ++i)
-                        {
-                            float u = aiMesh.getTexCoordU(i, texIndex);
-                            float v = aiMesh.getTexCoordV(i, texIndex);
-                            coords.put(u);
-                            coords.put(v);
-                        }
-                    }
-                    mesh.setTexCoords(coords.array(), texIndex);
-                }
+                vbuf.setFloatVec((texIndex > 0) ? ("a_texcoord" + texIndex) : "a_texcoord",
+                                 data.texCoords[texIndex]);
             }
         }
-        return mesh;
+        if (data.boneWeights != null)
+        {
+            vbuf.setFloatArray("a_bone_weights", data.boneWeights);
+            vbuf.setIntArray("a_bone_indices", data.boneIndices);
+        }
+        return vbuf;
     }
 
     public void setMeshMorphComponent(SXRMesh mesh, SXRNode sceneObject, AiMesh aiMesh)
     {
-        int nAnimationMeshes = aiMesh.getAnimationMeshes().size();
-        if (nAnimationMeshes == 0)
+        attachMorph(mesh, sceneObject, convertMorphTargets(aiMesh));
+    }
+
+    /**
+     * Gather the blend shapes of an Assimp mesh.
+     * @return blend shapes or null if the mesh does not have any
+     */
+    private static MorphTarget[] convertMorphTargets(AiMesh aiMesh)
+    {
+        List<AiAnimMesh> animMeshes = aiMesh.getAnimationMeshes();
+
+        if (animMeshes.size() == 0)
+        {
+            return null;
+        }
+        MorphTarget[] targets = new MorphTarget[animMeshes.size()];
+        int blendShapeNum = 0;
+
+        for (AiAnimMesh animMesh : animMeshes)
+        {
+            MorphTarget target = new MorphTarget();
+
+            target.positions = animMesh.getPositionBuffer();
+            target.normals = animMesh.getNormalBuffer();
+
+            //calculate bitangents from the target tangents
+            target.tangents = animMesh.getTangentBuffer();
+            if (target.tangents != null)
+            {
+                target.bitangents = makeBitangents(target.tangents, target.normals);
+            }
+            targets[blendShapeNum++] = target;
+        }
+        return targets;
+    }
+
+    private void attachMorph(SXRMesh mesh, SXRNode sceneObject, MorphTarget[] targets)
+    {
+        if (targets == null)
+        {
             return;
+        }
         try
         {
-            SXRMeshMorph morph = new SXRMeshMorph(mContext, nAnimationMeshes);
+            SXRMeshMorph morph = new SXRMeshMorph(mContext, targets.length);
             sceneObject.attachComponent(morph);
-            int blendShapeNum = 0;
 
-            for (AiAnimMesh animMesh : aiMesh.getAnimationMeshes())
+            for (int blendShapeNum = 0; blendShapeNum < targets.length; ++blendShapeNum)
             {
+                MorphTarget target = targets[blendShapeNum];
                 SXRVertexBuffer animBuff = new SXRVertexBuffer(mesh.getVertexBuffer(),
                                                                "float3 a_position float3 a_normal float3 a_tangent float3 a_bitangent");
-                float[] vertexArray = null;
-                float[] normalArray = null;
-                float[] tangentArray = null;
-                float[] bitangentArray = null;
-
-                //copy target positions to anim vertex buffer
-                FloatBuffer animPositionBuffer = animMesh.getPositionBuffer();
-                if (animPositionBuffer != null)
+
+                if (target.positions != null)
                 {
-                    vertexArray = new float[animPositionBuffer.capacity()];
-                    animPositionBuffer.get(vertexArray, 0, animPositionBuffer.capacity());
-                    animBuff.setFloatArray("a_position", vertexArray);
+                    animBuff.setFloatVec("a_position", target.positions);
                 }
-
-                //copy target normals to anim normal buffer
-                FloatBuffer animNormalBuffer = animMesh.getNormalBuffer();
-                if (animNormalBuffer != null)
+                if (target.normals != null)
                 {
-                    normalArray = new float[animNormalBuffer.capacity()];
-                    animNormalBuffer.get(normalArray, 0, animNormalBuffer.capacity());
-                    animBuff.setFloatArray("a_normal", normalArray);
+                    animBuff.setFloatVec("a_normal", target.normals);
                 }
-
-                //copy target tangents to anim tangent buffer
-                FloatBuffer animTangentBuffer = animMesh.getTangentBuffer();
-                if (animTangentBuffer != null)
+                if (target.tangents != null)
                 {
-                    tangentArray = new float[animTangentBuffer.capacity()];
-                    animTangentBuffer.get(tangentArray, 0, animTangentBuffer.capacity());
-                    animBuff.setFloatArray("a_tangent", tangentArray);
-                    //calculate bitangents
-                    bitangentArray = new float[tangentArray.length];
-                    for (int i = 0; i < tangentArray.length; i += 3)
-                    {
-                        Vector3f tangent =
-                            new Vector3f(tangentArray[i], tangentArray[i + 1], tangentArray[i + 2]);
-                        Vector3f normal =
-                            new Vector3f(normalArray[i], normalArray[i + 1], normalArray[i + 2]);
-                        Vector3f bitangent = new Vector3f();
-                        normal.cross(tangent, bitangent);
-                        bitangentArray[i] = bitangent.x;
-                        bitangentArray[i + 1] = bitangent.y;
-                        bitangentArray[i + 2] = bitangent.z;
-                    }
-                    animBuff.setFloatArray("a_bitangent", bitangentArray);
+                    animBuff.setFloatVec("a_tangent", target.tangents);
+                    animBuff.setFloatVec("a_bitangent", target.bitangents);
                 }
                 morph.setBlendShape(blendShapeNum, animBuff);
-                blendShapeNum++;
             }
             morph.update();
         }
@@ -337,19 +588,28 @@ class  SXRJassimpAdapter
 
     public SXRSkin processBones(SXRMesh mesh, List<AiBone> aiBones)
     {
-        final int MAX_WEIGHTS = 4;
         SXRVertexBuffer vbuf = mesh.getVertexBuffer();
-        int nverts = vbuf.getVertexCount();
+        MeshData data = new MeshData();
+
+        convertBones(data, vbuf.getVertexCount(), aiBones);
+        vbuf.setFloatArray("a_bone_weights", data.boneWeights);
+        vbuf.setIntArray("a_bone_indices", data.boneIndices);
+        return makeSkin(data);
+    }
+
+    /**
+     * Compute the bone weights and indices of a mesh.
+     * Only reads the skeleton so it can run on a worker thread
+     * once the skeleton has been made.
+     */
+    private void convertBones(MeshData data, int nverts, List<AiBone> aiBones)
+    {
+        final int MAX_WEIGHTS = 4;
         int n = nverts * MAX_WEIGHTS;
         float[] weights = new float[n];
         int[] indices = new int[n];
         int[] boneMap = new int[aiBones.size()];
         int boneIndex = -1;
-        SXRSkin skin = new SXRSkin(mSkeleton);
-
-        // Process bones
-        Arrays.fill(weights, 0, n - 1,  0.0f);
-        Arrays.fill(indices, 0, n - 1, 0);
 
         /*
          * Accumulate vertex weights and indices for all the bones
@@ -389,7 +649,6 @@ class  SXRJassimpAdapter
                 }
             }
         }
-        skin.setBoneMap(boneMap);
         /*
          * Normalize the weights for each vertex.
          * Sum the weights and divide by the sum.
@@ -397,16 +656,10 @@ class  SXRJassimpAdapter
         for (int v = 0; v < nverts; ++v)
         {
             float t = 0.0f;
-            String is = v + " ";
-            String ws = "";
             for (int i = 0; i < MAX_WEIGHTS; ++i)
             {
-                int j = (v * MAX_WEIGHTS) + i;
-                t += weights[j];
-                //is += " " + indices[j];
-                //ws += " " + weights[j];
+                t += weights[(v * MAX_WEIGHTS) + i];
             }
-            //Log.v("BONES", is + ws);
             if (t > 0.000001f)
             {
                 for (int i = 0; i < MAX_WEIGHTS; ++i)
@@ -415,8 +668,20 @@ class  SXRJassimpAdapter
                 }
             }
         }
-        vbuf.setFloatArray("a_bone_weights", weights);
-        vbuf.setIntArray("a_bone_indices", indices);
+        data.boneWeights = weights;
+        data.boneIndices = indices;
+        data.boneMap = boneMap;
+    }
+
+    /**
+     * Make the skin for a mesh whose vertex buffer already
+     * has the bone weights and indices.
+     */
+    private SXRSkin makeSkin(MeshData data)
+    {
+        SXRSkin skin = new SXRSkin(mSkeleton);
+
+        skin.setBoneMap(data.boneMap);
         return skin;
     }
 
@@ -868,19 +1133,120 @@ class  SXRJassimpAdapter
         {
             processAnimations(model, scene, settings.contains(SXRImportSettings.START_ANIMATIONS));
         }
-        for (Map.Entry<SXRNode, Integer> entry : mNodeMap.entrySet())
+        processMeshes(request, model);
+        if (modelParent != null)
         {
-            SXRNode obj = entry.getKey();
-            int meshId = entry.getValue();
+            modelParent.addChildObject(model);
+        }
+    }
+
+    /**
+     * Convert all the meshes in the scene and attach them to the nodes
+     * which use them.
+     * <p>
+     * Vertex attributes, indices, bone weights and blend shapes of the
+     * meshes are copied out of the Assimp scene on a pool of worker threads.
+     * The calling thread makes the SXRMeshes, materials and skins from the
+     * results in scene graph order, so the model is the same as a
+     * sequential import. Progress is reported through
+     * {@link IAssetProgressEvents#onModelProgress} after each mesh is attached and
+     * the import stops if the request is canceled.
+     */
+    private void processMeshes(final SXRAssetLoader.AssetRequest request, SXRNode model)
+    {
+        final EnumSet<SXRImportSettings> settings = request.getImportSettings();
+        final List<AiMesh> aiMeshes = mScene.getMeshes();
+        @SuppressWarnings("unchecked")
+        Future<MeshData>[] results = new Future[aiMeshes.size()];
+        List<Integer> meshIds = new ArrayList<Integer>();
+        boolean[] isUsed = new boolean[aiMeshes.size()];
 
-            if (meshId >= 0)
+        for (int meshId : mNodeMap.values())
+        {
+            if ((meshId >= 0) && !isUsed[meshId])
             {
-                processMesh(request, obj, meshId);
+                isUsed[meshId] = true;
+                meshIds.add(meshId);
             }
         }
-        if (modelParent != null)
+        if (meshIds.isEmpty())
         {
-            modelParent.addChildObject(model);
+            return;
+        }
+        int numThreads = Math.min(Runtime.getRuntime().availableProcessors(), meshIds.size());
+        ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+        int numDone = 0;
+
+        try
+        {
+            for (int meshId : meshIds)
+            {
+                final AiMesh aiMesh = aiMeshes.get(meshId);
+
+                results[meshId] = workers.submit(new Callable<MeshData>()
+                {
+                    public MeshData call()
+                    {
+                        MeshData data = convertMesh(aiMesh, settings);
+
+                        if (aiMesh.hasBones() && (mSkeleton != null))
+                        {
+                            convertBones(data, aiMesh.getNumVertices(), aiMesh.getBones());
+                        }
+                        data.morphTargets = convertMorphTargets(aiMesh);
+                        if (settings.contains(SXRImportSettings.SHARE_GEOMETRY))
+                        {
+                            data.makeKeys();
+                        }
+                        return data;
+                    }
+                });
+            }
+            for (Map.Entry<SXRNode, Integer> entry : mNodeMap.entrySet())
+            {
+                int meshId = entry.getValue();
+
+                if (meshId < 0)
+                {
+                    continue;
+                }
+                if (request.isCanceled())
+                {
+                    Log.d(TAG, "import of %s canceled after %d of %d meshes", mFileName, numDone, meshIds.size());
+                    return;
+                }
+                boolean isNewMesh = (mMeshes[meshId] == null);
+
+                processMesh(request, entry.getKey(), meshId, results[meshId].get());
+                if (isNewMesh)
+                {
+                    request.onModelProgress(mContext, model, mFileName, ++numDone, meshIds.size());
+                }
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            request.cancel();
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+        finally
+        {
+            workers.shutdownNow();
+            if (mNumSharedBuffers > 0)
+            {
+                Log.d(TAG, "ASSET: %s shares %d vertex and index buffers with other meshes, saved %d bytes",
+                      mFileName, mNumSharedBuffers, mSharedBytes);
+            }
+            request.addSharedGeometryBytes(mSharedBytes);
         }
     }
 
@@ -1055,11 +1421,15 @@ class  SXRJassimpAdapter
      *
      * @param meshId
      *            The index of the assimp mesh in the AiScene mesh list
+     *
+     * @param data
+     *            Mesh data converted by {@link #convertMesh}
      */
     private void processMesh(
             SXRAssetLoader.AssetRequest assetRequest,
             SXRNode sceneObject,
-            int meshId)
+            int meshId,
+            MeshData data)
     {
         EnumSet<SXRImportSettings> settings = assetRequest.getImportSettings();
         AiMesh aiMesh = mScene.getMeshes().get(meshId);
@@ -1068,11 +1438,11 @@ class  SXRJassimpAdapter
 
         if (mesh == null)
         {
-            mesh = createMesh(mContext, aiMesh, settings);
+            mesh = buildMesh(mContext, data);
             mMeshes[meshId] = mesh;
-            if (aiMesh.hasBones() && (mSkeleton != null))
+            if (data.boneWeights != null)
             {
-                SXRSkin skin = processBones(mesh, aiMesh.getBones());
+                SXRSkin skin = makeSkin(data);
                 if (skin != null)
                 {
                     sceneObject.attachComponent(skin);
@@ -1097,7 +1467,7 @@ class  SXRJassimpAdapter
             renderData.disableLight();
         }
         sceneObject.attachRenderData(renderData);
-        setMeshMorphComponent(mesh, sceneObject, aiMesh);
+        attachMorph(mesh, sceneObject, data.morphTargets);
     }
 
     private static final Map<AiTextureType, String> textureMap;
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import com.samsungxr.debug.SXRFrameProfiler;
 import com.samsungxr.io.SXRCursorController;
 import com.samsungxr.utility.Log;
 import org.joml.Matrix4f;
@@ -489,12 +490,15 @@ public class SXRPicker extends SXRBehavior implements IEventReceiver {
         if (isEnabled() && (mScene != null) && mPickEventLock.tryLock())
         {
             // Don't call if we are in the middle of processing another pick
+            final SXRFrameProfiler profiler = getSXRContext().getFrameProfiler();
+            final long start = profiler.begin(SXRFrameProfiler.Phase.PICKING);
             try
             {
                 doPick();
             }
             finally
             {
+                profiler.end(SXRFrameProfiler.Phase.PICKING, start);
                 mPickEventLock.unlock();
             }
         }
@@ -1066,6 +1070,10 @@ public class SXRPicker extends SXRBehavior implements IEventReceiver {
                                                       float dy, float dz) {
         sFindObjectsLock.lock();
         try {
+            SXRColliderTree tree = scene.getColliderTree();
+            if (tree != null) {
+                return tree.pickObjects(null, ox, oy, oz, dx, dy, dz);
+            }
             final SXRPickedObject[] result = NativePicker.pickObjects(scene.getNative(), 0L, ox, oy, oz, dx, dy, dz);
             return result;
         } finally {
@@ -1134,6 +1142,10 @@ public class SXRPicker extends SXRBehavior implements IEventReceiver {
     {
         sFindObjectsLock.lock();
         try {
+            SXRColliderTree tree = scene.getColliderTree();
+            if (tree != null) {
+                return tree.pickClosest(trans, ox, oy, oz, dx, dy, dz);
+            }
             long nativeTrans = (trans != null) ? trans.getNative() : 0L;
             final SXRPickedObject result =
                     NativePicker.pickClosest(scene.getNative(),
@@ -1203,6 +1215,10 @@ public class SXRPicker extends SXRBehavior implements IEventReceiver {
                                                       float dy, float dz) {
         sFindObjectsLock.lock();
         try {
+            SXRColliderTree tree = scene.getColliderTree();
+            if (tree != null) {
+                return tree.pickObjects(trans, ox, oy, oz, dx, dy, dz);
+            }
             long nativeTrans = (trans != null) ? trans.getNative() : 0L;
             final SXRPickedObject[] result = NativePicker.pickObjects(scene.getNative(), nativeTrans, ox, oy, oz, dx, dy, dz);
             return result;
@@ -1451,6 +1467,19 @@ final class NativePicker {
 
     static native SXRPicker.SXRPickedObject[] pickVisible(long scene);
 
+    static native int getColliderBounds(long scene, long[] colliders, int[] indices, float[] bounds);
+
+    static native SXRPicker.SXRPickedObject[] pickColliders(long scene, long[] colliders, int[] indices, int count,
+                                                            float ox, float oy, float oz,
+                                                            float dx, float dy, float dz);
+
+    static native SXRPicker.SXRPickedObject pickClosestCollider(long scene, long[] colliders, int[] indices, int count,
+                                                                float ox, float oy, float oz,
+                                                                float dx, float dy, float dz);
+
+    static native SXRPicker.SXRPickedObject[] pickBoundsColliders(long scene, List<SXRNode> collidables,
+                                                                  long[] colliders, int[] indices, int count);
+
     static native boolean pickNodeAgainstBoundingBox(long sceneObject,
                                                             float ox, float oy, float oz, float dx, float dy, float dz, ByteBuffer readbackBuffer);
 }
@@ -0,0 +1,328 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr;
+
+import com.samsungxr.SXRContext.SXRReference;
+import com.samsungxr.SXRHybridObject.NativeCleanupHandler;
+
+import java.lang.ref.ReferenceQueue;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the {@linkplain SXRReference references} to the native objects of
+ * the {@link SXRHybridObject}s of a context until they are deleted.
+ * <p>
+ * The references are spread over shards by native pointer. Each shard has
+ * its own lock and a hash table keyed by the native pointer, so threads
+ * creating objects rarely wait for each other and looking up the reference
+ * of a native pointer does not scan all the references.
+ * <p>
+ * The native objects of the garbage collected {@link SXRHybridObject}s are
+ * deleted in batches, one JNI call per batch, and {@link #drain(long)} stops
+ * once its time budget is spent so a frame which follows a large garbage
+ * collection is not delayed by thousands of deletes.
+ */
+final class SXRReferenceRegistry {
+    private static final int SHARD_COUNT = 16;
+    private static final int BATCH_SIZE = 256;
+
+    private final Shard[] mShards = new Shard[SHARD_COUNT];
+    private final ReferenceQueue<SXRHybridObject> mReferenceQueue = new ReferenceQueue<SXRHybridObject>();
+    private final ConcurrentHashMap<Class<?>, AtomicInteger> mLiveCounts =
+            new ConcurrentHashMap<Class<?>, AtomicInteger>();
+    private final long[] mBatch = new long[BATCH_SIZE];
+    private int mBatchCount = 0;
+
+    SXRReferenceRegistry() {
+        for (int i = 0; i < SHARD_COUNT; ++i) {
+            mShards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Start tracking the native object of a {@link SXRHybridObject}.
+     * Objects without a native object yet are not tracked, they are
+     * registered again by {@link SXRHybridObject#setNative(long)}.
+     */
+    void register(SXRHybridObject object, long nativePointer, List<NativeCleanupHandler> cleanupHandlers) {
+        if (nativePointer == 0) {
+            return;
+        }
+        AtomicInteger counter = getCounter(object.getClass());
+        SXRReference reference = new SXRReference(object, nativePointer, cleanupHandlers,
+                mReferenceQueue, counter);
+
+        counter.incrementAndGet();
+        shardFor(nativePointer).add(reference);
+    }
+
+    /**
+     * @return the reference of a native object, null if it is not tracked
+     */
+    SXRReference find(long nativePointer) {
+        if (nativePointer == 0) {
+            return null;
+        }
+        return shardFor(nativePointer).find(nativePointer);
+    }
+
+    /**
+     * @return number of native objects not deleted yet
+     */
+    int size() {
+        int size = 0;
+        for (Shard shard : mShards) {
+            synchronized (shard) {
+                size += shard.mSize;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Delete the native objects of the garbage collected objects.
+     * At least one batch is deleted on every call so the deletes keep up
+     * with the garbage collector even if the budget is very small.
+     * @param budgetNanos time after which no more batches are started,
+     *                    0 or less to delete everything
+     * @return number of native objects deleted
+     */
+    int drain(long budgetNanos) {
+        final long start = System.nanoTime();
+        int closed = 0;
+
+        synchronized (mBatch) {
+            SXRReference reference;
+            while (null != (reference = (SXRReference) mReferenceQueue.poll())) {
+                close(reference);
+                ++closed;
+                if ((closed % BATCH_SIZE == 0) && (budgetNanos > 0) &&
+                    (System.nanoTime() - start >= budgetNanos)) {
+                    break;
+                }
+            }
+            flush();
+        }
+        return closed;
+    }
+
+    /**
+     * Wait for the next garbage collected object and delete its native object.
+     * Used once the context is destroyed and nobody drains the references anymore.
+     */
+    void drainBlocking() throws InterruptedException {
+        SXRReference reference = (SXRReference) mReferenceQueue.remove();
+
+        synchronized (mBatch) {
+            close(reference);
+            flush();
+        }
+    }
+
+    /**
+     * @return number of live objects of each {@link SXRHybridObject} class,
+     *         by class name
+     */
+    Map<String, Integer> getLiveCounts() {
+        Map<String, Integer> counts = new TreeMap<String, Integer>();
+        for (Map.Entry<Class<?>, AtomicInteger> entry : mLiveCounts.entrySet()) {
+            int count = entry.getValue().get();
+            if (count > 0) {
+                counts.put(entry.getKey().getName(), count);
+            }
+        }
+        return counts;
+    }
+
+    private AtomicInteger getCounter(Class<?> type) {
+        AtomicInteger counter = mLiveCounts.get(type);
+        if (counter == null) {
+            AtomicInteger newCounter = new AtomicInteger();
+            counter = mLiveCounts.putIfAbsent(type, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /*
+     * Runs the cleanup handlers and queues the native pointer for deletion.
+     * Must be called with the batch locked.
+     */
+    private void close(SXRReference reference) {
+        if (!shardFor(reference.mKey).remove(reference)) {
+            return;
+        }
+        reference.mCounter.decrementAndGet();
+        if (reference.mCleanupHandlers != null) {
+            for (NativeCleanupHandler handler : reference.mCleanupHandlers) {
+                handler.nativeCleanup(reference.mKey);
+            }
+        }
+        mBatch[mBatchCount++] = reference.mKey;
+        if (mBatchCount == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (mBatchCount > 0) {
+            NativeHybridObject.deleteAll(mBatch, mBatchCount);
+            mBatchCount = 0;
+        }
+    }
+
+    private Shard shardFor(long nativePointer) {
+        return mShards[mix(nativePointer) & (SHARD_COUNT - 1)];
+    }
+
+    /*
+     * Native pointers are aligned and allocated close to each other,
+     * spread their bits before using them as a hash.
+     */
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Open addressing hash table from native pointer to reference,
+     * with linear probing. References with the same native pointer
+     * are chained from the one in the table.
+     */
+    private static final class Shard {
+        private long[] mKeys = new long[64];
+        private SXRReference[] mValues = new SXRReference[64];
+        private int mSize = 0;
+        private int mSlots = 0;
+
+        synchronized void add(SXRReference reference) {
+            int slot = findSlot(reference.mKey);
+
+            if (mKeys[slot] == reference.mKey) {
+                reference.mNextSameKey = mValues[slot];
+                mValues[slot] = reference;
+            } else {
+                if ((mSlots + 1) * 4 > mKeys.length * 3) {
+                    resize(mKeys.length * 2);
+                    slot = findSlot(reference.mKey);
+                }
+                mKeys[slot] = reference.mKey;
+                mValues[slot] = reference;
+                ++mSlots;
+            }
+            ++mSize;
+        }
+
+        synchronized SXRReference find(long key) {
+            int slot = findSlot(key);
+            return (mKeys[slot] == key) ? mValues[slot] : null;
+        }
+
+        /**
+         * @return true if the reference was removed, false if it was already removed
+         */
+        synchronized boolean remove(SXRReference reference) {
+            int slot = findSlot(reference.mKey);
+
+            if (mKeys[slot] != reference.mKey) {
+                return false;
+            }
+            SXRReference head = mValues[slot];
+            if (head == reference) {
+                if (reference.mNextSameKey != null) {
+                    mValues[slot] = reference.mNextSameKey;
+                } else {
+                    deleteSlot(slot);
+                }
+            } else {
+                SXRReference prev = head;
+                while ((prev.mNextSameKey != null) && (prev.mNextSameKey != reference)) {
+                    prev = prev.mNextSameKey;
+                }
+                if (prev.mNextSameKey == null) {
+                    return false;
+                }
+                prev.mNextSameKey = reference.mNextSameKey;
+            }
+            reference.mNextSameKey = null;
+            --mSize;
+            return true;
+        }
+
+        /*
+         * Slot holding the key or the empty slot where it would go.
+         */
+        private int findSlot(long key) {
+            int mask = mKeys.length - 1;
+            int slot = mix(key) >>> 4 & mask;
+
+            while ((mKeys[slot] != 0) && (mKeys[slot] != key)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /*
+         * Empty a slot and move back the following keys which
+         * would not be found anymore because of the hole.
+         */
+        private void deleteSlot(int slot) {
+            int mask = mKeys.length - 1;
+            int next = slot;
+
+            while (true) {
+                next = (next + 1) & mask;
+                if (mKeys[next] == 0) {
+                    break;
+                }
+                int home = mix(mKeys[next]) >>> 4 & mask;
+                // move the key if its home is not between the hole and its slot
+                if (((next > slot) && ((home <= slot) || (home > next))) ||
+                    ((next < slot) && ((home <= slot) && (home > next)))) {
+                    mKeys[slot] = mKeys[next];
+                    mValues[slot] = mValues[next];
+                    slot = next;
+                }
+            }
+            mKeys[slot] = 0;
+            mValues[slot] = null;
+            --mSlots;
+        }
+
+        private void resize(int capacity) {
+            long[] keys = mKeys;
+            SXRReference[] values = mValues;
+
+            mKeys = new long[capacity];
+            mValues = new SXRReference[capacity];
+            for (int i = 0; i < keys.length; ++i) {
+                if (keys[i] != 0) {
+                    int slot = findSlot(keys[i]);
+                    mKeys[slot] = keys[i];
+                    mValues[slot] = values[i];
+                }
+            }
+        }
+    }
+}
@@ -149,6 +149,17 @@ public final class SXRRenderData extends SXRComponent implements IRenderable, Pr
         NativeRenderData.setMesh(getNative(), mesh.getNative());
     }
 
+    /**
+     * Recompute the bounding volume of the mesh.
+     * <p>
+     * The bounding volume used for culling is computed once from the
+     * vertex positions. Call this after changing the positions of a mesh
+     * which is already being rendered so it is computed again.
+     */
+    public void invalidateBoundingVolume() {
+        NativeRenderData.dirtyBoundingVolume(getNative());
+    }
+
     /**
      * Add a render {@link SXRRenderPass pass} to this RenderData.
      * @param pass
@@ -855,6 +866,8 @@ class NativeRenderData {
 
     static native void setMesh(long renderData, long mesh);
 
+    static native void dirtyBoundingVolume(long renderData);
+
     static native void addPass(long renderData, long renderPass);
 
     static native void removePass(long renderData, int renderPass);
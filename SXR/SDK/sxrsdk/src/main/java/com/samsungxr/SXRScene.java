@@ -62,6 +62,7 @@ public class SXRScene extends SXRHybridObject implements PrettyPrint, IScriptabl
     private StringBuilder mStatMessage = new StringBuilder();
     private SXREventReceiver mEventReceiver = new SXREventReceiver(this);
     private SXRNode mSceneRoot;
+    private volatile SXRColliderTree mColliderTree = null;
     /**
      * Constructs a scene with a camera rig holding left & right cameras in it.
      * 
@@ -303,6 +304,38 @@ public class SXRScene extends SXRHybridObject implements PrettyPrint, IScriptabl
         NativeScene.setPickVisible(getNative(), flag);
     }
 
+    /**
+     * Attach a bounding volume hierarchy of the colliders to the scene.
+     * {@link SXRPicker} casts its rays against the hierarchy first and
+     * only tests the colliders near the ray, instead of all of them.
+     * @param tree collider tree made for this scene, null to test all the colliders
+     * @see SXRColliderTree
+     */
+    public void setColliderTree(SXRColliderTree tree) {
+        if ((tree != null) && (tree.getScene() != this)) {
+            throw new IllegalArgumentException("Collider tree belongs to another scene");
+        }
+        SXRContext context = getSXRContext();
+        synchronized (this) {
+            if (mColliderTree != null) {
+                context.unregisterDrawFrameListener(mColliderTree);
+            }
+            mColliderTree = tree;
+            if (tree != null) {
+                tree.invalidate();
+                context.registerDrawFrameListener(tree);
+            }
+        }
+    }
+
+    /**
+     * @return the collider tree used to pick in the scene, null if there is none
+     * @see #setColliderTree(SXRColliderTree)
+     */
+    public SXRColliderTree getColliderTree() {
+        return mColliderTree;
+    }
+
     /**
      * Sets the frustum culling for the {@link SXRScene}.
      */
@@ -19,7 +19,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -55,6 +58,22 @@ public class SXRShaderData extends SXRHybridObject
 
     final protected Map<String, SXRTexture> textures = new HashMap();
 
+    /*
+     * Every change which may select a different shader variant
+     * gives the material a new, globally unique layout key.
+     */
+    private static final AtomicLong sLayoutKeys = new AtomicLong();
+    private volatile long mLayoutKey = sLayoutKeys.incrementAndGet();
+    private final Set<String> mDefinedUniforms = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /*
+     * Shader variants this material has been bound with, most recent first.
+     * Replaced as a whole so bindShader can read it without locking.
+     */
+    private static final int MAX_BOUND_VARIANTS = 8;
+    private static final SXRShaderTemplate.BoundVariant[] NO_BOUND_VARIANTS = new SXRShaderTemplate.BoundVariant[0];
+    private volatile SXRShaderTemplate.BoundVariant[] mBoundVariants = NO_BOUND_VARIANTS;
+
     /**
      * Initialize shader data for a specific shader.
      * <p>
@@ -220,8 +239,13 @@ public class SXRShaderData extends SXRHybridObject
         checkStringNotNullOrEmpty("key", key);
         synchronized (textures)
         {
-            textures.put(key, texture);
+            SXRTexture oldTexture = textures.put(key, texture);
+
             NativeShaderData.setTexture(getNative(), key, texture != null ? texture.getNative() : 0);
+            if (!sameTexCoords(oldTexture, texture))
+            {
+                layoutChanged();
+            }
         }
     }
 
@@ -247,6 +271,7 @@ public class SXRShaderData extends SXRHybridObject
     public void setFloat(String key, float value)
     {
         checkKeyIsUniform(key);
+        defineUniform(key);
         checkFloatNotNaNOrInfinity("value", value);
         NativeShaderData.setFloat(getNative(), key, value);
     }
@@ -271,6 +296,7 @@ public class SXRShaderData extends SXRHybridObject
     public void setInt(String key, int value)
     {
         checkKeyIsUniform(key);
+        defineUniform(key);
         NativeShaderData.setInt(getNative(), key, value);
     }
 
@@ -324,6 +350,7 @@ public class SXRShaderData extends SXRHybridObject
     public void setVec2(String key, float x, float y)
     {
         checkKeyIsUniform(key);
+        defineUniform(key);
         NativeShaderData.setVec2(getNative(), key, x, y);
     }
 
@@ -350,6 +377,7 @@ public class SXRShaderData extends SXRHybridObject
     public void setVec3(String key, float x, float y, float z)
     {
         checkKeyIsUniform(key);
+        defineUniform(key);
         NativeShaderData.setVec3(getNative(), key, x, y, z);
     }
 
@@ -377,6 +405,7 @@ public class SXRShaderData extends SXRHybridObject
     public void setVec4(String key, float x, float y, float z, float w)
     {
         checkKeyIsUniform(key);
+        defineUniform(key);
         NativeShaderData.setVec4(getNative(), key, x, y, z, w);
     }
 
@@ -402,6 +431,7 @@ public class SXRShaderData extends SXRHybridObject
                         float z3, float w3, float x4, float y4, float z4, float w4)
     {
         checkKeyIsUniform(key);
+        defineUniform(key);
         NativeShaderData.setMat4(getNative(), key, x1, y1, z1, w1, x2, y2,
                 z2, w2, x3, y3, z3, w3, x4, y4, z4, w4);
     }
@@ -418,6 +448,7 @@ public class SXRShaderData extends SXRHybridObject
     public void setFloatArray(String key, float val[])
     {
         checkKeyIsUniform(key);
+        defineUniform(key);
         NativeShaderData.setFloatVec(getNative(), key, val, val.length);
     }
 
@@ -433,9 +464,81 @@ public class SXRShaderData extends SXRHybridObject
     public void setIntArray(String key, int val[])
     {
         checkKeyIsUniform(key);
+        defineUniform(key);
         NativeShaderData.setIntVec(getNative(), key, val, val.length);
     }
 
+    /**
+     * Get the key which identifies the current layout of this material.
+     * <p>
+     * The layout is the set of uniforms and textures which have been
+     * assigned and the texture coordinates used by the textures.
+     * These determine which shader variant a {@link SXRShaderTemplate}
+     * generates for the material. The key changes whenever the layout
+     * might have changed and is never reused by another material.
+     * @return layout key
+     */
+    long getLayoutKey()
+    {
+        return mLayoutKey;
+    }
+
+    private void layoutChanged()
+    {
+        mLayoutKey = sLayoutKeys.incrementAndGet();
+        mBoundVariants = NO_BOUND_VARIANTS;
+    }
+
+    /**
+     * Get the shader variants this material has been bound with.
+     * @return bound variants, most recently bound first
+     * @see SXRShaderTemplate#bindShader(SXRContext, IRenderable, SXRScene, boolean)
+     */
+    SXRShaderTemplate.BoundVariant[] getBoundVariants()
+    {
+        return mBoundVariants;
+    }
+
+    /**
+     * Remember a shader variant this material has been bound with.
+     * Only the last few variants are kept, a material is rarely
+     * rendered with more than a couple of shaders or light setups.
+     * @param variant variant bound with this material
+     */
+    synchronized void addBoundVariant(SXRShaderTemplate.BoundVariant variant)
+    {
+        SXRShaderTemplate.BoundVariant[] old = mBoundVariants;
+        int n = Math.min(old.length, MAX_BOUND_VARIANTS - 1);
+        SXRShaderTemplate.BoundVariant[] variants = new SXRShaderTemplate.BoundVariant[n + 1];
+
+        variants[0] = variant;
+        System.arraycopy(old, 0, variants, 1, n);
+        mBoundVariants = variants;
+    }
+
+    private void defineUniform(String key)
+    {
+        if (!mDefinedUniforms.contains(key) && mDefinedUniforms.add(key))
+        {
+            layoutChanged();
+        }
+    }
+
+    private static boolean sameTexCoords(SXRTexture t1, SXRTexture t2)
+    {
+        if ((t1 == null) || (t2 == null))
+        {
+            return t1 == t2;
+        }
+        String attr1 = t1.getTexCoordAttr();
+        String attr2 = t2.getTexCoordAttr();
+        String var1 = t1.getTexCoordShaderVar();
+        String var2 = t2.getTexCoordShaderVar();
+
+        return ((attr1 == null) ? (attr2 == null) : attr1.equals(attr2)) &&
+               ((var1 == null) ? (var2 == null) : var1.equals(var2));
+    }
+
     private void checkKeyIsTexture(String key)
     {
         checkStringNotNullOrEmpty("key", key);
@@ -471,6 +574,7 @@ public class SXRShaderData extends SXRHybridObject
             if (tex != null)
             {
                 tex.setTexCoord(texCoordAttr, shaderVarName);
+                layoutChanged();
             }
             else
             {
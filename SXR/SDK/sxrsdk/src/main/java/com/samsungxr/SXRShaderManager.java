@@ -96,6 +96,45 @@ public class SXRShaderManager extends SXRHybridObject
         getShaderType(shaderID.ID);
     }
 
+    /**
+     * Attach a persistent cache for generated shader variants.
+     * <p>
+     * When a variant cache is present, {@link SXRShaderTemplate} looks up
+     * the sources for each new variant in the cache before generating them.
+     * Newly generated variants are added to the cache and written to disk
+     * when {@link #saveVariantCache()} is called. The cache is saved
+     * automatically when the application is paused.
+     * @param cache variant cache to use, null to disable caching
+     * @see SXRShaderVariantCache
+     */
+    public void setVariantCache(SXRShaderVariantCache cache)
+    {
+        mVariantCache = cache;
+    }
+
+    /**
+     * Get the persistent shader variant cache.
+     * @return variant cache or null if caching is disabled
+     */
+    public SXRShaderVariantCache getVariantCache()
+    {
+        return mVariantCache;
+    }
+
+    /**
+     * Write any new shader variants to the persistent cache.
+     * Does nothing if there is no variant cache.
+     */
+    public void saveVariantCache()
+    {
+        SXRShaderVariantCache cache = mVariantCache;
+
+        if (cache != null)
+        {
+            cache.save();
+        }
+    }
+
     /**
      * Make a string with the shader layout for a uniform block
      * with a given descriptor. The format of the descriptor is
@@ -121,6 +160,7 @@ public class SXRShaderManager extends SXRHybridObject
      * shaders are global.
      */
     protected Map<Class<? extends SXRShader>, SXRShaderId> mShaderTemplates = new HashMap<Class<? extends SXRShader>, SXRShaderId>();
+    protected volatile SXRShaderVariantCache mVariantCache = null;
 }
 
 class NativeShaderManager {
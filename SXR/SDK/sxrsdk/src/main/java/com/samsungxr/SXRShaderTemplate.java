@@ -21,6 +21,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -139,6 +143,8 @@ public class SXRShaderTemplate extends SXRShader
     protected void setSegment(String segmentName, String shaderSource)
     {
         super.setSegment(segmentName, shaderSource);
+        mSourceHash = 0;
+        ++mVariantGeneration;
         if (shaderSource == null)
         {
             return;
@@ -431,6 +437,22 @@ public class SXRShaderTemplate extends SXRShader
         SXRMesh mesh = rdata.getMesh();
         SXRShaderData material = rdata.getMaterial();
         SXRLight[] lightlist = (scene != null) ? scene.getLightList() : null;
+        SXRShaderManager shaderManager = context.getShaderManager();
+        String meshDesc = mesh.getVertexBuffer().getDescriptor();
+        VariantKey key = getVariantKey(rdata, material, meshDesc, lightlist, isMultiview);
+
+        if (key != null)
+        {
+            for (BoundVariant bound : material.getBoundVariants())
+            {
+                if (bound.matches(this, shaderManager, key))
+                {
+                    rdata.setShader(bound.NativeShader, isMultiview);
+                    return bound.NativeShader;
+                }
+            }
+            key = key.copy();
+        }
         HashMap<String, Integer> variantDefines = getRenderDefines(rdata, scene);
 
         if(isMultiview)
@@ -438,50 +460,132 @@ public class SXRShaderTemplate extends SXRShader
         else
             variantDefines.put("MULTIVIEW", 0);
 
-        String meshDesc = mesh.getVertexBuffer().getDescriptor();
         String signature = generateVariantDefines(variantDefines, meshDesc, material);
         signature += generateLightSignature(lightlist);
-        SXRShaderManager shaderManager = context.getShaderManager();
         int nativeShader = shaderManager.getShader(signature);
 
         synchronized (shaderManager)
         {
             if (nativeShader == 0)
             {
-                Map<String, LightClass> lightClasses = scanLights(lightlist);
-
-                String vertexShaderSource = generateShaderVariant("Vertex", variantDefines,
-                                                                  scene, lightClasses, material);
-                String fragmentShaderSource = generateShaderVariant("Fragment", variantDefines,
-                                                                    scene, lightClasses, material);
-                StringBuilder uniformDescriptor = new StringBuilder();
-                StringBuilder textureDescriptor = new StringBuilder();
-                StringBuilder vertexDescriptor = new StringBuilder();
-                updateDescriptors(material, meshDesc, uniformDescriptor, textureDescriptor, vertexDescriptor);
-                nativeShader = shaderManager.addShader(signature, uniformDescriptor.toString(),
-                                                       textureDescriptor.toString(),
-                                                       vertexDescriptor.toString(),
-                                                       vertexShaderSource, fragmentShaderSource);
-                bindCalcMatrixMethod(shaderManager, nativeShader);
-                if (mWriteShadersToDisk)
-                {
-                    writeShader(context, "V-" + signature + ".glsl", vertexShaderSource);
-                    writeShader(context, "F-" + signature + ".glsl", fragmentShaderSource);
-                }
-                Log.i(TAG, "SHADER: generated shader #%d %s", nativeShader, signature);
+                nativeShader = addShaderVariant(context, shaderManager, signature, variantDefines,
+                                                scene, lightlist, material, meshDesc);
             }
             else
             {
                 Log.i(TAG, "SHADER: found shader #%d %s", nativeShader, signature);
             }
-            if (nativeShader > 0)
+        }
+        if (nativeShader > 0)
+        {
+            if (key != null)
             {
-                rdata.setShader(nativeShader, isMultiview);
+                material.addBoundVariant(new BoundVariant(this, shaderManager, key, nativeShader));
             }
-            return nativeShader;
+            rdata.setShader(nativeShader, isMultiview);
         }
+        return nativeShader;
     }
 
+    /**
+     * Compute the variant key for a renderable without allocating memory.
+     * <p>
+     * The variant key identifies everything that selects a shader variant:
+     * the material layout, the vertex descriptor, the number of lights
+     * of each class and the render state used by {@link #getRenderDefines}.
+     * It is used to find shaders which have already been bound to the
+     * material without building the signature string or locking the
+     * shader manager.
+     * <p>
+     * The key returned is a per-thread object which is overwritten
+     * by the next call, it must be copied before it is stored.
+     *
+     * @return variant key or null if this renderable cannot be described by a key
+     */
+    private VariantKey getVariantKey(IRenderable rdata, SXRShaderData material, String meshDesc,
+                                     SXRLight[] lightlist, boolean isMultiview)
+    {
+        if (!usesVariantKeys())
+        {
+            return null;
+        }
+        long lightKey = 0;
+        if (lightlist != null)
+        {
+            for (SXRLight light : lightlist)
+            {
+                int shift = 8 * getLightClassIndex(light.getClass());
+
+                if ((shift >= 64) || (((lightKey >>> shift) & 0xFF) == 0xFF))
+                {
+                    return null;
+                }
+                lightKey += 1L << shift;
+            }
+        }
+        VariantKey key = sVariantKey.get();
+        key.MaterialKey = material.getLayoutKey();
+        key.LightKey = lightKey;
+        key.VertexKey = getVertexDescriptorIndex(meshDesc);
+        key.RenderKey = (getRenderKey(rdata, lightlist) << 1) | (isMultiview ? 1 : 0);
+        key.Epoch = SXRTexture.getTexCoordEpoch();
+        key.Generation = mVariantGeneration;
+        return key;
+    }
+
+    /**
+     * Determine whether variant keys describe the render state
+     * used to select the shader variants of this template.
+     * <p>
+     * Shaders opt in by overriding this function to return true.
+     * A shader which overrides {@link #getRenderDefines(IRenderable, SXRScene)}
+     * must only do so if {@link #getRenderKey(IRenderable, SXRLight[])}
+     * covers all the state its defines depend on, otherwise the variant
+     * found by key may not match the defines. Shaders which do not opt in
+     * take the signature path on every bind.
+     *
+     * @return true to find the bound variants by key, false by default
+     */
+    protected boolean usesVariantKeys()
+    {
+        return false;
+    }
+
+    private static int getVertexDescriptorIndex(String meshDesc)
+    {
+        if (meshDesc == null)
+        {
+            return 0;
+        }
+        Integer index = sVertexDescriptors.get(meshDesc);
+
+        if (index == null)
+        {
+            Integer newIndex = sVertexDescriptorCount.incrementAndGet();
+            index = sVertexDescriptors.putIfAbsent(meshDesc, newIndex);
+            if (index == null)
+            {
+                index = newIndex;
+            }
+        }
+        return index;
+    }
+
+    private static int getLightClassIndex(Class<? extends SXRLight> lightClass)
+    {
+        Integer index = sLightClasses.get(lightClass);
+
+        if (index == null)
+        {
+            Integer newIndex = sLightClassCount.getAndIncrement();
+            index = sLightClasses.putIfAbsent(lightClass, newIndex);
+            if (index == null)
+            {
+                index = newIndex;
+            }
+        }
+        return index;
+    }
 
     /**
      * Select the specific vertex and fragment shader to use with this material.
@@ -505,25 +609,8 @@ public class SXRShaderTemplate extends SXRShader
         {
             if (nativeShader == 0)
             {
-                String vertexShaderSource =
-                        generateShaderVariant("Vertex", variantDefines, null, null, material);
-                String fragmentShaderSource =
-                        generateShaderVariant("Fragment", variantDefines, null, null, material);
-                StringBuilder uniformDescriptor = new StringBuilder();
-                StringBuilder textureDescriptor = new StringBuilder();
-                StringBuilder vertexDescriptor = new StringBuilder();
-
-                updateDescriptors(material, meshDesc, uniformDescriptor, textureDescriptor, vertexDescriptor);
-                nativeShader = shaderManager.addShader(signature, uniformDescriptor.toString(),
-                                                       textureDescriptor.toString(), vertexDescriptor.toString(),
-                                                       vertexShaderSource, fragmentShaderSource);
-                bindCalcMatrixMethod(shaderManager, nativeShader);
-                if (mWriteShadersToDisk)
-                {
-                    writeShader(context, "V-" + signature + ".glsl", vertexShaderSource);
-                    writeShader(context, "F-" + signature + ".glsl", fragmentShaderSource);
-                }
-                Log.i(TAG, "SHADER: generated shader #%d %s", nativeShader, signature);
+                nativeShader = addShaderVariant(context, shaderManager, signature, variantDefines,
+                                                null, null, material, meshDesc);
             }
             else
             {
@@ -533,6 +620,185 @@ public class SXRShaderTemplate extends SXRShader
         }
     }
 
+    /**
+     * Add a new shader variant to the shader manager.
+     * <p>
+     * If the shader manager has a {@link SXRShaderVariantCache}, the sources
+     * and descriptors for the variant are taken from the cache if possible.
+     * Otherwise they are generated from the template and added to the cache.
+     *
+     * @param context       SXRContext
+     * @param shaderManager shader manager to add the variant to
+     * @param signature     shader signature
+     * @param variantDefines names defined for this variant
+     * @param scene         scene being rendered, null to ignore lights
+     * @param lightlist     lights in the scene, may be null
+     * @param material      material used with this shader
+     * @param meshDesc      string with vertex descriptor
+     * @return native shader ID
+     */
+    private int addShaderVariant(SXRContext context, SXRShaderManager shaderManager, String signature,
+                                 HashMap<String, Integer> variantDefines, SXRScene scene, SXRLight[] lightlist,
+                                 SXRShaderData material, String meshDesc)
+    {
+        SXRShaderVariantCache cache = shaderManager.getVariantCache();
+        SXRShaderVariantCache.Variant variant = null;
+        String cacheKey = null;
+        boolean generated = false;
+
+        if (cache != null)
+        {
+            cacheKey = makeCacheKey(signature, variantDefines, meshDesc, material, lightlist);
+            variant = cache.get(cacheKey);
+        }
+        if (variant == null)
+        {
+            Map<String, LightClass> lightClasses = scanLights(lightlist);
+            String vertexShaderSource = generateShaderVariant("Vertex", variantDefines,
+                                                              scene, lightClasses, material);
+            String fragmentShaderSource = generateShaderVariant("Fragment", variantDefines,
+                                                                scene, lightClasses, material);
+            StringBuilder uniformDescriptor = new StringBuilder();
+            StringBuilder textureDescriptor = new StringBuilder();
+            StringBuilder vertexDescriptor = new StringBuilder();
+
+            updateDescriptors(material, meshDesc, uniformDescriptor, textureDescriptor, vertexDescriptor);
+            variant = new SXRShaderVariantCache.Variant(uniformDescriptor.toString(),
+                                                        textureDescriptor.toString(),
+                                                        vertexDescriptor.toString(),
+                                                        vertexShaderSource, fragmentShaderSource);
+            if (cache != null)
+            {
+                cache.put(cacheKey, variant);
+            }
+            if (mWriteShadersToDisk)
+            {
+                writeShader(context, "V-" + signature + ".glsl", vertexShaderSource);
+                writeShader(context, "F-" + signature + ".glsl", fragmentShaderSource);
+            }
+            generated = true;
+        }
+        int nativeShader = shaderManager.addShader(signature, variant.UniformDescriptor,
+                                                   variant.TextureDescriptor, variant.VertexDescriptor,
+                                                   variant.VertexShader, variant.FragmentShader);
+        bindCalcMatrixMethod(shaderManager, nativeShader);
+        Log.i(TAG, "SHADER: %s shader #%d %s", generated ? "generated" : "cached",
+              nativeShader, signature);
+        return nativeShader;
+    }
+
+    /**
+     * Make the key used to find a shader variant in the {@link SXRShaderVariantCache}.
+     * <p>
+     * The shader signature alone does not identify the generated source
+     * because it does not include the render defines, the material layout,
+     * the texture coordinate assignments or the GLSL version.
+     * These are all added to the key along with a hash of the template
+     * source and a hash of the shader source and descriptors of each
+     * light class, so that changing the template or a light
+     * invalidates the cached variants.
+     *
+     * @param signature     shader signature
+     * @param definedNames  names defined for this variant
+     * @param meshDesc      string with vertex descriptor, may be null
+     * @param material      material used with this shader
+     * @param lightlist     lights in the scene, may be null
+     * @return string key for the variant
+     */
+    protected String makeCacheKey(String signature, HashMap<String, Integer> definedNames,
+                                    String meshDesc, SXRShaderData material, SXRLight[] lightlist)
+    {
+        StringBuilder key = new StringBuilder(signature);
+
+        key.append('|');
+        for (Map.Entry<String, Integer> entry : new TreeMap<String, Integer>(definedNames).entrySet())
+        {
+            if (entry.getValue() != 0)
+            {
+                key.append(entry.getKey());
+                key.append(' ');
+            }
+        }
+        key.append('|');
+        key.append(mGLSLVersion.toString());
+        key.append(isVulkanInstance() ? "|VK" : "|GL");
+        key.append(mUseTransformBuffer ? "|UBO|" : "|");
+        key.append(meshDesc);
+        key.append('|');
+        key.append(material.getUniformDescriptor());
+        key.append('|');
+        for (String name : new TreeSet<String>(material.getTextureNames()))
+        {
+            key.append(name);
+            key.append(':');
+            key.append(material.getTexCoordAttr(name));
+            key.append(':');
+            key.append(material.getTexCoordShaderVar(name));
+            key.append(' ');
+        }
+        key.append('|');
+        key.append(Long.toHexString(getSourceHash()));
+        for (Map.Entry<String, Long> entry : getLightSourceHashes(lightlist).entrySet())
+        {
+            key.append(' ');
+            key.append(entry.getKey());
+            key.append(':');
+            key.append(Long.toHexString(entry.getValue()));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Get a hash of the shader sources and descriptors of each light class.
+     * Only the first light of each class is used to generate the shader,
+     * so only its sources are hashed.
+     * @param lightlist lights in the scene, may be null
+     * @return hash of each light class, sorted by light class
+     */
+    private static Map<String, Long> getLightSourceHashes(SXRLight[] lightlist)
+    {
+        Map<String, Long> hashes = new TreeMap<String, Long>();
+
+        if (lightlist == null)
+        {
+            return hashes;
+        }
+        for (SXRLight light : lightlist)
+        {
+            String lightType = light.getLightClass();
+
+            if ((light.getFragmentShaderSource() == null) || hashes.containsKey(lightType))
+            {
+                continue;
+            }
+            hashes.put(lightType, SXRShaderVariantCache.hash(light.getClass().getName(),
+                                                             light.getFragmentShaderSource(),
+                                                             light.getVertexShaderSource(),
+                                                             light.getUniformDescriptor(),
+                                                             light.getVertexDescriptor()));
+        }
+        return hashes;
+    }
+
+    /**
+     * Get a hash of the shader segments and descriptors of this template.
+     * @return 64 bit hash of the template source
+     */
+    private long getSourceHash()
+    {
+        if (mSourceHash == 0)
+        {
+            long hash = SXRShaderVariantCache.hash(getClass().getName(), mUniformDescriptor,
+                                                   mTextureDescriptor, mVertexDescriptor);
+            for (Map.Entry<String, String> entry : new TreeMap<String, String>(mShaderSegments).entrySet())
+            {
+                hash = 31 * hash + SXRShaderVariantCache.hash(entry.getKey(), entry.getValue());
+            }
+            mSourceHash = (hash != 0) ? hash : 1;
+        }
+        return mSourceHash;
+    }
+
     /**
      * Generate shader-specific defines from the rendering information.
      * You can override this function in your shader class to change which
@@ -573,6 +839,50 @@ public class SXRShaderTemplate extends SXRShader
         return defines;
     }
 
+    /**
+     * Generate a key for the render state used by {@link #getRenderDefines}.
+     * <p>
+     * Two renderables with the same render key must get the same
+     * render defines. The key is used to find shader variants which
+     * have already been bound without calling getRenderDefines.
+     * It is only used by shaders which opt in with {@link #usesVariantKeys()}.
+     * If you override getRenderDefines to depend on other rendering
+     * state you must also override this function to include that state
+     * in the key.
+     * <p>
+     * The base implementation includes whether lighting is enabled,
+     * whether any light casts shadows and whether the light map
+     * is enabled for the render data.
+     *
+     * @param renderable object being rendered by this shader
+     * @param lights     lights in the scene being rendered, may be null
+     * @return integer with bits describing the render state
+     * @see #getRenderDefines(IRenderable, SXRScene)
+     */
+    public int getRenderKey(IRenderable renderable, SXRLight[] lights)
+    {
+        int key = 0;
+
+        if ((renderable instanceof SXRRenderData) && ((SXRRenderData) renderable).isLightMapEnabled())
+        {
+            key |= 1;
+        }
+        if ((lights == null) || (lights.length == 0) || !renderable.isLightEnabled())
+        {
+            return key;
+        }
+        key |= 2;
+        for (SXRLight light : lights)
+        {
+            if (light.getCastShadow())
+            {
+                key |= 4;
+                break;
+            }
+        }
+        return key;
+    }
+
 
     /**
      * Generates the shader code to compute fragment lighting for each light source.
@@ -818,5 +1128,80 @@ public class SXRShaderTemplate extends SXRShader
         return desc;
     }
 
+    /*
+     * Exact key for the inputs which select a shader variant.
+     * See getVariantKey.
+     */
+    private static final class VariantKey
+    {
+        long MaterialKey;
+        long LightKey;
+        int VertexKey;
+        int RenderKey;
+        int Epoch;
+        int Generation;
+
+        VariantKey copy()
+        {
+            VariantKey key = new VariantKey();
+            key.MaterialKey = MaterialKey;
+            key.LightKey = LightKey;
+            key.VertexKey = VertexKey;
+            key.RenderKey = RenderKey;
+            key.Epoch = Epoch;
+            key.Generation = Generation;
+            return key;
+        }
+
+        boolean matches(VariantKey k)
+        {
+            return (MaterialKey == k.MaterialKey) && (LightKey == k.LightKey) &&
+                   (VertexKey == k.VertexKey) && (RenderKey == k.RenderKey) &&
+                   (Epoch == k.Epoch) && (Generation == k.Generation);
+        }
+    }
+
+    /**
+     * Shader variant a material has been bound with.
+     * These are kept by the {@link SXRShaderData} so they go away
+     * with the material, see {@link SXRShaderData#addBoundVariant}.
+     */
+    static final class BoundVariant
+    {
+        final SXRShaderTemplate Template;
+        final SXRShaderManager ShaderManager;
+        final VariantKey Key;
+        final int NativeShader;
+
+        BoundVariant(SXRShaderTemplate template, SXRShaderManager shaderManager,
+                     VariantKey key, int nativeShader)
+        {
+            Template = template;
+            ShaderManager = shaderManager;
+            Key = key;
+            NativeShader = nativeShader;
+        }
+
+        boolean matches(SXRShaderTemplate template, SXRShaderManager shaderManager, VariantKey key)
+        {
+            return (Template == template) && (ShaderManager == shaderManager) && Key.matches(key);
+        }
+    }
+
+    private static final ThreadLocal<VariantKey> sVariantKey = new ThreadLocal<VariantKey>()
+    {
+        @Override
+        protected VariantKey initialValue()
+        {
+            return new VariantKey();
+        }
+    };
+    private static final ConcurrentHashMap<String, Integer> sVertexDescriptors = new ConcurrentHashMap<String, Integer>();
+    private static final ConcurrentHashMap<Class<? extends SXRLight>, Integer> sLightClasses = new ConcurrentHashMap<Class<? extends SXRLight>, Integer>();
+    private static final AtomicInteger sVertexDescriptorCount = new AtomicInteger();
+    private static final AtomicInteger sLightClassCount = new AtomicInteger();
+
     protected Set<String> mShaderDefines;
+    private long mSourceHash = 0;
+    private volatile int mVariantGeneration = 0;
 }
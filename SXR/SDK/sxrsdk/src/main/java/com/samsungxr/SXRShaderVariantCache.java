@@ -0,0 +1,422 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsungxr;
+
+import com.samsungxr.utility.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent cache of generated shader variants.
+ * <p>
+ * {@link SXRShaderTemplate} generates the vertex and fragment shader
+ * source for each combination of material, mesh and lights it is used with.
+ * When a variant cache is attached to the {@link SXRShaderManager},
+ * the generated sources and descriptors are kept in a single indexed file
+ * so that the next time the application starts the template can skip
+ * source generation entirely.
+ * <p>
+ * The file starts with a small header followed by an index which maps
+ * each variant key to the offset and length of its data. Only the index
+ * is read when the cache is first used, the variant data is read on demand.
+ * New variants are kept in memory until {@link #save()} is called,
+ * which rewrites the file with all the variants.
+ * <p>
+ * The key for a variant is built by the shader template and contains
+ * everything that affects the generated source: the variant defines,
+ * the vertex descriptor, the light signature, the GLSL version and a hash
+ * of the template source segments.
+ *
+ * @see SXRShaderManager#setVariantCache(SXRShaderVariantCache)
+ */
+public class SXRShaderVariantCache
+{
+    private static final String TAG = "SXRShaderVariantCache";
+    private static final int MAGIC = 0x53585256;    // 'SXRV'
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Descriptors and sources for a single shader variant.
+     */
+    public static class Variant
+    {
+        public final String UniformDescriptor;
+        public final String TextureDescriptor;
+        public final String VertexDescriptor;
+        public final String VertexShader;
+        public final String FragmentShader;
+
+        public Variant(String uniformDescriptor, String textureDescriptor, String vertexDescriptor,
+                       String vertexShader, String fragmentShader)
+        {
+            UniformDescriptor = uniformDescriptor;
+            TextureDescriptor = textureDescriptor;
+            VertexDescriptor = vertexDescriptor;
+            VertexShader = vertexShader;
+            FragmentShader = fragmentShader;
+        }
+    }
+
+    private final File mFile;
+    private Map<String, long[]> mIndex = null;
+    private final Map<String, Variant> mPending = new LinkedHashMap<String, Variant>();
+    private RandomAccessFile mReader = null;
+    private long mDataStart = 0;
+    private int mHits = 0;
+    private int mMisses = 0;
+
+    /**
+     * Construct a variant cache backed by the given file.
+     * The file is not read until the first lookup.
+     * @param file file to load variants from and save them to.
+     */
+    public SXRShaderVariantCache(File file)
+    {
+        mFile = file;
+    }
+
+    /**
+     * Get the file this cache is stored in.
+     * @return cache file
+     */
+    public File getFile() { return mFile; }
+
+    /**
+     * Find the shader variant with the given key.
+     * @param key variant key generated by the shader template
+     * @return variant data or null if it has not been cached
+     */
+    public synchronized Variant get(String key)
+    {
+        Variant variant = mPending.get(key);
+
+        if (variant == null)
+        {
+            loadIndex();
+            long[] entry = mIndex.get(key);
+            if (entry != null)
+            {
+                variant = readVariant(key, entry);
+            }
+        }
+        if (variant != null)
+        {
+            ++mHits;
+        }
+        else
+        {
+            ++mMisses;
+        }
+        return variant;
+    }
+
+    /**
+     * Add a shader variant to the cache.
+     * The variant is not written to disk until {@link #save()} is called.
+     * @param key     variant key generated by the shader template
+     * @param variant descriptors and sources for the variant
+     */
+    public synchronized void put(String key, Variant variant)
+    {
+        mPending.put(key, variant);
+    }
+
+    /**
+     * Get the number of lookups which found a cached variant.
+     * @return number of cache hits
+     */
+    public synchronized int getHitCount() { return mHits; }
+
+    /**
+     * Get the number of lookups which did not find a cached variant.
+     * @return number of cache misses
+     */
+    public synchronized int getMissCount() { return mMisses; }
+
+    /**
+     * Get the number of variants in the cache,
+     * including those which have not been saved yet.
+     * @return number of cached variants
+     */
+    public synchronized int size()
+    {
+        loadIndex();
+        int n = mIndex.size();
+        for (String key : mPending.keySet())
+        {
+            if (!mIndex.containsKey(key))
+            {
+                ++n;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Write all of the variants added since the last save to the cache file.
+     * The file is first written to a temporary file which then replaces
+     * the existing one so a failed save does not corrupt the cache.
+     * @return true if the cache was written, false if there was nothing to do or it failed.
+     */
+    public synchronized boolean save()
+    {
+        if (mPending.isEmpty())
+        {
+            return false;
+        }
+        loadIndex();
+        Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+        try
+        {
+            for (Map.Entry<String, long[]> e : mIndex.entrySet())
+            {
+                if (!mPending.containsKey(e.getKey()))
+                {
+                    entries.put(e.getKey(), readBytes(e.getValue()));
+                }
+            }
+            for (Map.Entry<String, Variant> e : mPending.entrySet())
+            {
+                entries.put(e.getKey(), encode(e.getValue()));
+            }
+            closeReader();
+
+            File tmpFile = new File(mFile.getPath() + ".tmp");
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            long offset = 0;
+
+            try
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, byte[]> e : entries.entrySet())
+                {
+                    writeString(out, e.getKey());
+                    out.writeLong(offset);
+                    out.writeInt(e.getValue().length);
+                    offset += e.getValue().length;
+                }
+                for (byte[] data : entries.values())
+                {
+                    out.write(data);
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+            if (!tmpFile.renameTo(mFile))
+            {
+                mFile.delete();
+                if (!tmpFile.renameTo(mFile))
+                {
+                    throw new IOException("cannot rename " + tmpFile.getPath());
+                }
+            }
+            Log.d(TAG, "saved %d shader variants to %s", entries.size(), mFile.getPath());
+        }
+        catch (IOException ex)
+        {
+            Log.e(TAG, "cannot save shader cache %s: %s", mFile.getPath(), ex.getMessage());
+            return false;
+        }
+        mIndex = null;
+        mPending.clear();
+        return true;
+    }
+
+    /**
+     * Delete all cached variants, both in memory and on disk.
+     */
+    public synchronized void clear()
+    {
+        closeReader();
+        mPending.clear();
+        mIndex = new HashMap<String, long[]>();
+        mFile.delete();
+    }
+
+    /**
+     * Compute a 64 bit FNV-1a hash over a set of strings.
+     * Used to fingerprint shader sources so that changes in
+     * the templates invalidate the cached variants.
+     * @param strings strings to hash, null entries are allowed
+     * @return hash value
+     */
+    public static long hash(String... strings)
+    {
+        long h = 0xcbf29ce484222325L;
+
+        for (String s : strings)
+        {
+            if (s == null)
+            {
+                h = (h ^ 0xff) * 0x100000001b3L;
+                continue;
+            }
+            for (int i = 0; i < s.length(); ++i)
+            {
+                h = (h ^ s.charAt(i)) * 0x100000001b3L;
+            }
+            h = (h ^ 0xfe) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private void loadIndex()
+    {
+        if (mIndex != null)
+        {
+            return;
+        }
+        mIndex = new HashMap<String, long[]>();
+        if (!mFile.exists())
+        {
+            return;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if ((in.readInt() != MAGIC) || (in.readInt() != VERSION))
+            {
+                throw new IOException("bad header");
+            }
+            int n = in.readInt();
+            long headerSize = 12;
+
+            for (int i = 0; i < n; ++i)
+            {
+                byte[] key = readBytes(in);
+                long offset = in.readLong();
+                int length = in.readInt();
+
+                mIndex.put(new String(key, UTF8), new long[] { offset, length });
+                headerSize += 4 + key.length + 8 + 4;
+            }
+            mDataStart = headerSize;
+            Log.d(TAG, "loaded index of %d shader variants from %s", n, mFile.getPath());
+        }
+        catch (IOException ex)
+        {
+            Log.w(TAG, "ignoring shader cache %s: %s", mFile.getPath(), ex.getMessage());
+            mIndex.clear();
+            mFile.delete();
+        }
+        finally
+        {
+            if (in != null)
+            {
+                try { in.close(); } catch (IOException ex) { }
+            }
+        }
+    }
+
+    private Variant readVariant(String key, long[] entry)
+    {
+        try
+        {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(readBytes(entry)));
+            return new Variant(readString(in), readString(in), readString(in),
+                               readString(in), readString(in));
+        }
+        catch (IOException ex)
+        {
+            Log.w(TAG, "cannot read shader variant %s: %s", key, ex.getMessage());
+            mIndex.remove(key);
+            return null;
+        }
+    }
+
+    private byte[] readBytes(long[] entry) throws IOException
+    {
+        if (mReader == null)
+        {
+            mReader = new RandomAccessFile(mFile, "r");
+        }
+        byte[] data = new byte[(int) entry[1]];
+        mReader.seek(mDataStart + entry[0]);
+        mReader.readFully(data);
+        return data;
+    }
+
+    private void closeReader()
+    {
+        if (mReader != null)
+        {
+            try { mReader.close(); } catch (IOException ex) { }
+            mReader = null;
+        }
+    }
+
+    private static byte[] encode(Variant variant) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        writeString(out, variant.UniformDescriptor);
+        writeString(out, variant.TextureDescriptor);
+        writeString(out, variant.VertexDescriptor);
+        writeString(out, variant.VertexShader);
+        writeString(out, variant.FragmentShader);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /*
+     * Strings are stored as a length followed by UTF-8 bytes
+     * instead of using writeUTF because shader sources
+     * can be longer than 64K.
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException
+    {
+        byte[] data = s.getBytes(UTF8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        return new String(readBytes(in), UTF8);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0)
+        {
+            throw new IOException("bad string length " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+}
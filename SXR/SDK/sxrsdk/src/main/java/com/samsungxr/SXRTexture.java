@@ -17,6 +17,7 @@ package com.samsungxr;
 
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -67,6 +68,7 @@ public class SXRTexture extends SXRHybridObject implements SXRAndroidResource.Te
     private final ReentrantLock mLock;
     public String mTexCoordAttr;
     public String mShaderVar;
+    private static final AtomicInteger sTexCoordEpoch = new AtomicInteger();
 
     /**
      * Constructs an empty texture.
@@ -279,6 +281,20 @@ public class SXRTexture extends SXRHybridObject implements SXRAndroidResource.Te
     {
         mTexCoordAttr = texCoordAttr;
         mShaderVar = shaderVarName;
+        sTexCoordEpoch.incrementAndGet();
+    }
+
+    /**
+     * Get a counter which changes whenever the texture coordinates
+     * of any texture are changed by {@link #setTexCoord(String, String)}.
+     * A texture may be shared by several materials so this is used
+     * by {@link SXRShaderTemplate} to invalidate the shader variants
+     * which depend on texture coordinates.
+     * @return texture coordinate epoch
+     */
+    static int getTexCoordEpoch()
+    {
+        return sTexCoordEpoch.get();
     }
 
     /**
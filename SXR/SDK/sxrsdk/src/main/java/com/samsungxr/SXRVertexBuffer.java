@@ -350,6 +350,31 @@ public class SXRVertexBuffer extends SXRHybridObject implements PrettyPrint
         }
     }
 
+    /**
+     * Updates a vertex attribute for a range of vertices.
+     * <p>
+     * The input array holds the values of the attribute for all of the
+     * vertices, like the array passed to {@link #setFloatArray(String, float[])},
+     * but only the values for the given range of vertices are copied.
+     * Only that range is copied to the GPU when the mesh is next rendered,
+     * which is much cheaper than updating the whole attribute when a
+     * few vertices of a large mesh change every frame.
+     * The attribute must already have been set for all vertices.
+     * @param attributeName name of the attribute to update
+     * @param data float array containing the values for all vertices
+     * @param firstVertex index of the first vertex to update
+     * @param numVertices number of vertices to update
+     * @throws IllegalArgumentException if attribute name not in descriptor,
+     *         it has not been set or the range is outside of the vertex buffer
+     */
+    public void setFloatRange(String attributeName, float[] data, int firstVertex, int numVertices)
+    {
+        if (!NativeVertexBuffer.setFloatRange(getNative(), attributeName, data, firstVertex, numVertices))
+        {
+            throw new IllegalArgumentException("Attribute name " + attributeName + " cannot be updated");
+        }
+    }
+
     /**
      * Updates a vertex attribute from a float buffer.
      * All of the entries of the input float buffer are copied into
@@ -511,6 +536,15 @@ public class SXRVertexBuffer extends SXRHybridObject implements PrettyPrint
         return NativeVertexBuffer.getVertexCount(getNative());
     }
 
+    /**
+     * Get the number of bytes of vertex data in this vertex buffer.
+     * @return vertex size in bytes times the number of vertices.
+     */
+    public int getDataSize()
+    {
+        return NativeVertexBuffer.getDataSize(getNative());
+    }
+
     /**
      * Get the vertex descriptor with the names and types of vertex attributes.
      * The types may be "int", "float" or "mat"
@@ -593,6 +627,8 @@ class NativeVertexBuffer {
 
     static native int getVertexCount(long vbuf);
 
+    static native int getDataSize(long vbuf);
+
     static native boolean isSet(long vbuf, String name);
 
     static native boolean getIntVec(long vbuf, String name, IntBuffer data, int stride, int offset);
@@ -611,8 +647,18 @@ class NativeVertexBuffer {
 
     static native boolean setFloatArray(long vbuf, String name, float[] data, int stride, int offset);
 
+    static native boolean setFloatRange(long vbuf, String name, float[] data, int firstVertex, int numVertices);
+
     static native int  getAttributeSize(long vbuf, String name);
 
+    static native int getVertexSize(long vbuf);
+
+    static native boolean getAttributeInfo(long vbuf, String name, int[] info);
+
+    static native boolean setVertexData(long vbuf, ByteBuffer data, int firstVertex, int numVertices, int attributeMask);
+
+    static native boolean getVertexData(long vbuf, ByteBuffer data);
+
     static native int getBoundingVolume(long vbuf, float[] bv);
 
     static native void dump(long vbuf, String attrName);
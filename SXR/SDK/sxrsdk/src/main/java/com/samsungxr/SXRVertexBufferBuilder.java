@@ -0,0 +1,515 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fills all the attributes of a {@link SXRVertexBuffer} at once.
+ * <p>
+ * Setting the vertex attributes one at a time with
+ * {@link SXRVertexBuffer#setFloatArray(String, float[])} crosses into
+ * native code, looks up the attribute by name and copies a whole array
+ * for every attribute. The builder instead keeps a direct buffer laid
+ * out exactly like the vertices of the vertex buffer, each vertex with
+ * its attributes interleaved in descriptor order. The attributes are
+ * written into it from Java and {@link #commit()} copies the vertices
+ * into the vertex buffer with a single native call.
+ * <p>
+ * The builder can also be kept to update a dynamic mesh:
+ * only the vertices written since the last commit are copied
+ * and then uploaded to the GPU.
+ * <pre>
+ *     SXRMesh mesh = new SXRMesh(context, "float3 a_position float2 a_texcoord float3 a_normal");
+ *     SXRVertexBufferBuilder builder = new SXRVertexBufferBuilder(mesh.getVertexBuffer(), vertexCount);
+ *     builder.setFloatArray("a_position", positions);
+ *     builder.setFloatArray("a_normal", normals);
+ *     builder.setFloatArray("a_texcoord", texCoords);
+ *     builder.commit();
+ * </pre>
+ * The builder is not thread safe.
+ * @see SXRVertexBuffer
+ */
+public class SXRVertexBufferBuilder
+{
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("([a-zA-Z0-9]+)[ \t]+!?([a-zA-Z0-9_]+)[^ ]*");
+    private static final ConcurrentHashMap<String, Layout> sLayouts = new ConcurrentHashMap<String, Layout>();
+
+    private final SXRVertexBuffer mVertexBuffer;
+    private final Layout mLayout;
+    private final int mVertexCount;
+    private final ByteBuffer mData;
+    private final FloatBuffer mFloats;
+    private final IntBuffer mInts;
+    private boolean mHasVertices;
+    private int mAttributeMask = 0;
+    private int mDirtyFirst = 0;
+    private int mDirtyEnd = 0;
+
+    /**
+     * Create a builder for all the vertices of a vertex buffer.
+     * If the vertex buffer already has vertices, they are copied
+     * into the builder so a part of them can be changed.
+     * @param vbuf        vertex buffer to fill
+     * @param vertexCount number of vertices
+     * @throws IllegalArgumentException if the vertex buffer already has
+     *         a different number of vertices or its descriptor has more
+     *         than 32 attributes
+     */
+    public SXRVertexBufferBuilder(SXRVertexBuffer vbuf, int vertexCount)
+    {
+        int curCount = vbuf.getVertexCount();
+
+        if (vertexCount < 0)
+        {
+            throw new IllegalArgumentException("Vertex count cannot be negative");
+        }
+        if ((curCount != 0) && (curCount != vertexCount))
+        {
+            throw new IllegalArgumentException("Vertex buffer has " + curCount
+                    + " vertices, cannot build " + vertexCount);
+        }
+        mVertexBuffer = vbuf;
+        mLayout = getLayout(vbuf);
+        mVertexCount = vertexCount;
+        mData = ByteBuffer.allocateDirect(mLayout.mVertexSize * 4 * vertexCount).order(ByteOrder.nativeOrder());
+        mFloats = mData.asFloatBuffer();
+        mInts = mData.asIntBuffer();
+        mHasVertices = curCount > 0;
+        if (mHasVertices)
+        {
+            load();
+        }
+    }
+
+    /**
+     * Create a builder to update the vertices of a vertex buffer.
+     * The current vertices are copied into the builder.
+     * @param vbuf  vertex buffer to update
+     */
+    public SXRVertexBufferBuilder(SXRVertexBuffer vbuf)
+    {
+        this(vbuf, vbuf.getVertexCount());
+    }
+
+    /**
+     * Get the vertex buffer this builder updates.
+     */
+    public SXRVertexBuffer getVertexBuffer()
+    {
+        return mVertexBuffer;
+    }
+
+    /**
+     * Get the number of vertices in the builder.
+     */
+    public int getVertexCount()
+    {
+        return mVertexCount;
+    }
+
+    /**
+     * Get the index of an attribute to set it one vertex at a time,
+     * with {@link #setFloat(int, int, float, float, float)} and friends.
+     * @param attributeName name of the attribute in the vertex descriptor
+     * @return attribute index or -1 if it is not in the descriptor
+     */
+    public int getAttributeIndex(String attributeName)
+    {
+        String[] names = mLayout.mNames;
+
+        for (int i = 0; i < names.length; ++i)
+        {
+            if (names[i].equals(attributeName))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Set the values of a float attribute for all the vertices.
+     * @param attributeName name of the attribute in the vertex descriptor
+     * @param data closely packed values, at least one per vertex
+     * @throws IllegalArgumentException if the attribute is not a float attribute
+     *         of the vertex buffer or the array is too small
+     */
+    public void setFloatArray(String attributeName, float[] data)
+    {
+        setFloatRange(attributeName, data, 0, mVertexCount);
+    }
+
+    /**
+     * Set the values of a float attribute for a range of vertices.
+     * Like {@link SXRVertexBuffer#setFloatRange(String, float[], int, int)},
+     * the array holds the values for all the vertices but only those
+     * for the range are used.
+     * @param attributeName name of the attribute in the vertex descriptor
+     * @param data        closely packed values for all the vertices
+     * @param firstVertex index of the first vertex to set
+     * @param numVertices number of vertices to set
+     * @throws IllegalArgumentException if the attribute is not a float attribute
+     *         of the vertex buffer, the range is outside of the vertices
+     *         or the array is too small
+     */
+    public void setFloatRange(String attributeName, float[] data, int firstVertex, int numVertices)
+    {
+        int attr = findAttribute(attributeName, false);
+        int size = mLayout.mSizes[attr];
+        int stride = mLayout.mVertexSize;
+
+        checkRange(firstVertex, numVertices, data.length, size);
+        int dst = firstVertex * stride + mLayout.mOffsets[attr];
+        int src = firstVertex * size;
+
+        for (int i = 0; i < numVertices; ++i)
+        {
+            for (int j = 0; j < size; ++j)
+            {
+                mFloats.put(dst + j, data[src++]);
+            }
+            dst += stride;
+        }
+        touch(attr, firstVertex, numVertices);
+    }
+
+    /**
+     * Set the values of an integer attribute for all the vertices.
+     * @param attributeName name of the attribute in the vertex descriptor
+     * @param data closely packed values, at least one per vertex
+     * @throws IllegalArgumentException if the attribute is not an integer attribute
+     *         of the vertex buffer or the array is too small
+     */
+    public void setIntArray(String attributeName, int[] data)
+    {
+        int attr = findAttribute(attributeName, true);
+        int size = mLayout.mSizes[attr];
+        int stride = mLayout.mVertexSize;
+
+        checkRange(0, mVertexCount, data.length, size);
+        int dst = mLayout.mOffsets[attr];
+        int src = 0;
+
+        for (int i = 0; i < mVertexCount; ++i)
+        {
+            for (int j = 0; j < size; ++j)
+            {
+                mInts.put(dst + j, data[src++]);
+            }
+            dst += stride;
+        }
+        touch(attr, 0, mVertexCount);
+    }
+
+    /**
+     * Set the first component of a float attribute of one vertex.
+     * @param attr   attribute index from {@link #getAttributeIndex(String)}
+     * @param vertex index of the vertex
+     * @throws IllegalArgumentException if the attribute is not a float attribute
+     */
+    public void setFloat(int attr, int vertex, float x)
+    {
+        int i = index(attr, vertex, 1, false);
+
+        mFloats.put(i, x);
+    }
+
+    /**
+     * Set the first two components of a float attribute of one vertex.
+     * @param attr   attribute index from {@link #getAttributeIndex(String)}
+     * @param vertex index of the vertex
+     * @throws IllegalArgumentException if the attribute is not a float attribute
+     */
+    public void setFloat(int attr, int vertex, float x, float y)
+    {
+        int i = index(attr, vertex, 2, false);
+
+        mFloats.put(i, x);
+        mFloats.put(i + 1, y);
+    }
+
+    /**
+     * Set the first three components of a float attribute of one vertex.
+     * @param attr   attribute index from {@link #getAttributeIndex(String)}
+     * @param vertex index of the vertex
+     * @throws IllegalArgumentException if the attribute is not a float attribute
+     */
+    public void setFloat(int attr, int vertex, float x, float y, float z)
+    {
+        int i = index(attr, vertex, 3, false);
+
+        mFloats.put(i, x);
+        mFloats.put(i + 1, y);
+        mFloats.put(i + 2, z);
+    }
+
+    /**
+     * Set the first four components of a float attribute of one vertex.
+     * @param attr   attribute index from {@link #getAttributeIndex(String)}
+     * @param vertex index of the vertex
+     * @throws IllegalArgumentException if the attribute is not a float attribute
+     */
+    public void setFloat(int attr, int vertex, float x, float y, float z, float w)
+    {
+        int i = index(attr, vertex, 4, false);
+
+        mFloats.put(i, x);
+        mFloats.put(i + 1, y);
+        mFloats.put(i + 2, z);
+        mFloats.put(i + 3, w);
+    }
+
+    /**
+     * Set all the components of an integer attribute of one vertex.
+     * @param attr   attribute index from {@link #getAttributeIndex(String)}
+     * @param vertex index of the vertex
+     * @param src    array with the values
+     * @param srcOffset index of the first value in the array
+     * @throws IllegalArgumentException if the attribute is not an integer attribute
+     */
+    public void setInts(int attr, int vertex, int[] src, int srcOffset)
+    {
+        int i = index(attr, vertex, mLayout.mSizes[attr], true);
+
+        for (int j = 0; j < mLayout.mSizes[attr]; ++j)
+        {
+            mInts.put(i + j, src[srcOffset + j]);
+        }
+    }
+
+    /**
+     * Copy the vertices written since the last commit into the vertex buffer.
+     * If the vertex buffer had no vertices, all of them are copied and
+     * it gets the vertex count of the builder.
+     * @throws IllegalArgumentException if the vertices cannot be copied
+     */
+    public void commit()
+    {
+        if (mVertexCount == 0)
+        {
+            return;
+        }
+        if (!mHasVertices)
+        {
+            commit(0, mVertexCount);
+        }
+        else if (mDirtyEnd > mDirtyFirst)
+        {
+            commit(mDirtyFirst, mDirtyEnd - mDirtyFirst);
+        }
+    }
+
+    /**
+     * Copy a range of vertices into the vertex buffer.
+     * Only this range is copied to the GPU when the mesh is next rendered.
+     * @param firstVertex index of the first vertex to copy
+     * @param numVertices number of vertices to copy
+     * @throws IllegalArgumentException if the vertices cannot be copied
+     */
+    public void commit(int firstVertex, int numVertices)
+    {
+        if (!NativeVertexBuffer.setVertexData(mVertexBuffer.getNative(), mData,
+                                              firstVertex, numVertices, mAttributeMask))
+        {
+            throw new IllegalArgumentException("Cannot set vertices " + firstVertex + " to "
+                    + (firstVertex + numVertices) + " of " + mVertexCount);
+        }
+        mHasVertices = true;
+        untouch(firstVertex, firstVertex + numVertices);
+    }
+
+    /*
+     * Index of the first component of an attribute of a vertex
+     * in the float or int view of the vertex data.
+     * Marks the vertex as changed.
+     */
+    private int index(int attr, int vertex, int components, boolean isInt)
+    {
+        if (mLayout.mIsInt[attr] != isInt)
+        {
+            throw new IllegalArgumentException("Attribute " + mLayout.mNames[attr] + " is not an "
+                    + (isInt ? "integer" : "float") + " attribute of " + mLayout.mDescriptor);
+        }
+        if ((vertex < 0) || (vertex >= mVertexCount))
+        {
+            throw new IndexOutOfBoundsException("Vertex " + vertex + " not in 0 to " + mVertexCount);
+        }
+        if (components > mLayout.mSizes[attr])
+        {
+            throw new IllegalArgumentException("Attribute " + mLayout.mNames[attr] + " has only "
+                    + mLayout.mSizes[attr] + " components");
+        }
+        touch(attr, vertex, 1);
+        return vertex * mLayout.mVertexSize + mLayout.mOffsets[attr];
+    }
+
+    private void touch(int attr, int firstVertex, int numVertices)
+    {
+        int end = firstVertex + numVertices;
+
+        if (mDirtyEnd <= mDirtyFirst)
+        {
+            mDirtyFirst = firstVertex;
+            mDirtyEnd = end;
+        }
+        else
+        {
+            mDirtyFirst = Math.min(mDirtyFirst, firstVertex);
+            mDirtyEnd = Math.max(mDirtyEnd, end);
+        }
+        mAttributeMask |= 1 << mLayout.mIndices[attr];
+    }
+
+    /*
+     * Remove the committed vertices from the changed range.
+     * The range can only shrink from its ends, so committing
+     * vertices in the middle of it leaves it as it is.
+     */
+    private void untouch(int first, int end)
+    {
+        if ((first <= mDirtyFirst) && (end >= mDirtyEnd))
+        {
+            mDirtyFirst = mDirtyEnd = 0;
+        }
+        else if ((first <= mDirtyFirst) && (end > mDirtyFirst))
+        {
+            mDirtyFirst = end;
+        }
+        else if ((end >= mDirtyEnd) && (first < mDirtyEnd))
+        {
+            mDirtyEnd = first;
+        }
+    }
+
+    private int findAttribute(String attributeName, boolean isInt)
+    {
+        int attr = getAttributeIndex(attributeName);
+
+        if ((attr < 0) || (mLayout.mIsInt[attr] != isInt))
+        {
+            throw new IllegalArgumentException("Attribute " + attributeName + " is not an "
+                    + (isInt ? "integer" : "float") + " attribute of " + mLayout.mDescriptor);
+        }
+        return attr;
+    }
+
+    private void checkRange(int firstVertex, int numVertices, int dataLength, int size)
+    {
+        if ((firstVertex < 0) || (numVertices < 0) || (firstVertex + numVertices > mVertexCount))
+        {
+            throw new IllegalArgumentException("Vertices " + firstVertex + " to "
+                    + (firstVertex + numVertices) + " not in 0 to " + mVertexCount);
+        }
+        if ((firstVertex + numVertices) * size > dataLength)
+        {
+            throw new IllegalArgumentException("Array too small for " + (firstVertex + numVertices)
+                    + " vertices, needs " + ((firstVertex + numVertices) * size) + " values");
+        }
+    }
+
+    /*
+     * Copy the current vertices so the attributes which are not
+     * written keep their values when a range is committed.
+     * Nothing is copied if no attribute has been set yet.
+     */
+    private void load()
+    {
+        long nativeVbuf = mVertexBuffer.getNative();
+
+        for (int i = 0; i < mLayout.mNames.length; ++i)
+        {
+            if (NativeVertexBuffer.isSet(nativeVbuf, mLayout.mNames[i]))
+            {
+                mAttributeMask |= 1 << mLayout.mIndices[i];
+            }
+        }
+        if ((mAttributeMask != 0) && !NativeVertexBuffer.getVertexData(nativeVbuf, mData))
+        {
+            throw new IllegalArgumentException("Cannot read the vertices of the vertex buffer");
+        }
+    }
+
+    /*
+     * The layout only depends on the descriptor, it is asked
+     * to the native vertex buffer once per descriptor.
+     */
+    private static Layout getLayout(SXRVertexBuffer vbuf)
+    {
+        String descriptor = vbuf.getDescriptor();
+        Layout layout = sLayouts.get(descriptor);
+
+        if (layout == null)
+        {
+            layout = new Layout(vbuf);
+            sLayouts.putIfAbsent(descriptor, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Position and size of the attributes in a vertex,
+     * in 4 byte words.
+     */
+    private static final class Layout
+    {
+        final String mDescriptor;
+        final int mVertexSize;
+        final String[] mNames;
+        final int[] mIndices;
+        final int[] mOffsets;
+        final int[] mSizes;
+        final boolean[] mIsInt;
+
+        Layout(SXRVertexBuffer vbuf)
+        {
+            ArrayList<String> names = new ArrayList<String>();
+            Matcher matcher = ATTRIBUTE_PATTERN.matcher(vbuf.getDescriptor());
+            long nativeVbuf = vbuf.getNative();
+            int[] info = new int[5];
+
+            while (matcher.find())
+            {
+                names.add(matcher.group(2));
+            }
+            mDescriptor = vbuf.getDescriptor();
+            mVertexSize = NativeVertexBuffer.getVertexSize(nativeVbuf) / 4;
+            mNames = names.toArray(new String[names.size()]);
+            mIndices = new int[mNames.length];
+            mOffsets = new int[mNames.length];
+            mSizes = new int[mNames.length];
+            mIsInt = new boolean[mNames.length];
+            for (int i = 0; i < mNames.length; ++i)
+            {
+                if (!NativeVertexBuffer.getAttributeInfo(nativeVbuf, mNames[i], info) || (info[0] >= 32))
+                {
+                    throw new IllegalArgumentException("Cannot build vertices with descriptor " + mDescriptor);
+                }
+                mIndices[i] = info[0];
+                mOffsets[i] = info[1] / 4;
+                mSizes[i] = info[2] / 4;
+                mIsInt[i] = info[3] != 0;
+            }
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.samsungxr.animation.SXRAnimation;
 import com.samsungxr.animation.SXROnFinish;
 import com.samsungxr.animation.SXROpacityAnimation;
 import com.samsungxr.asynchronous.SXRAsynchronousResourceLoader;
+import com.samsungxr.debug.SXRFrameProfiler;
 import com.samsungxr.io.SXRGearCursorController;
 import com.samsungxr.io.SXRInputManager;
 import com.samsungxr.script.IScriptManager;
@@ -35,13 +36,8 @@ import com.samsungxr.utility.VrAppSettings.EyeBufferParams.DepthFormat;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.locks.ReentrantLock;
 
 abstract class SXRViewManager extends SXRContext {
@@ -72,6 +68,9 @@ abstract class SXRViewManager extends SXRContext {
         if (null != mControllerReader) {
             mControllerReader.onPause();
         }
+        if (null != mRenderBundle) {
+            mRenderBundle.getShaderManager().saveVariantCache();
+        }
     }
 
     void onResume() {
@@ -87,8 +86,7 @@ abstract class SXRViewManager extends SXRContext {
         }
 
         mFrameListeners.clear();
-        mRunnables.clear();
-        mRunnablesPostRender.clear();
+        mGlTasks.clear();
         super.onDestroy();
     }
 
@@ -264,16 +262,12 @@ abstract class SXRViewManager extends SXRContext {
          * Without the sensor data, can't draw a scene properly.
          */
         if (!(mSensoredScene == null || !mMainScene.equals(mSensoredScene))) {
-            Runnable runnable;
-            while ((runnable = mRunnables.poll()) != null) {
-                try {
-                    runnable.run();
-                } catch (final Exception exc) {
-                    Log.e(TAG, "Runnable-on-GL %s threw %s", runnable, exc.toString());
-                    exc.printStackTrace();
-                }
-            }
+            final SXRFrameProfiler profiler = getFrameProfiler();
+            long start = profiler.begin(SXRFrameProfiler.Phase.GL_TASKS);
+            mGlTasks.runTasks();
+            profiler.end(SXRFrameProfiler.Phase.GL_TASKS, start);
 
+            start = profiler.begin(SXRFrameProfiler.Phase.FRAME_LISTENERS);
             final List<SXRDrawFrameListener> frameListeners = mFrameListeners;
             for (SXRDrawFrameListener listener : frameListeners) {
                 try {
@@ -283,6 +277,7 @@ abstract class SXRViewManager extends SXRContext {
                     exc.printStackTrace();
                 }
             }
+            profiler.end(SXRFrameProfiler.Phase.FRAME_LISTENERS, start);
         }
 
         return currentTime;
@@ -332,17 +327,7 @@ abstract class SXRViewManager extends SXRContext {
             // execute pending runnables now so any necessary gl calls
             // are done before onInit().  As an example the request to
             // get the GL_MAX_TEXTURE_SIZE needs to be fulfilled.
-            synchronized (mRunnables) {
-                Runnable runnable = null;
-                while ((runnable = mRunnables.poll()) != null) {
-                    try {
-                        runnable.run();
-                    } catch (final Exception exc) {
-                        Log.e(TAG, "Runnable-on-GL %s threw %s", runnable, exc.toString());
-                        exc.printStackTrace();
-                    }
-                }
-            }
+            mGlTasks.runAllTasks();
 
             runOnTheFrameworkThread(new Runnable() {
                 @Override
@@ -456,11 +441,15 @@ abstract class SXRViewManager extends SXRContext {
 
             runOnTheFrameworkThread(new Runnable() {
                 public void run() {
+                    final SXRFrameProfiler profiler = getFrameProfiler();
+                    final long start = profiler.begin(SXRFrameProfiler.Phase.ON_STEP);
                     try {
                         mMain.onStep();
                     } catch (final Exception exc) {
                         Log.e(TAG, "Exception from onStep: %s", exc.toString());
                         exc.printStackTrace();
+                    } finally {
+                        profiler.end(SXRFrameProfiler.Phase.ON_STEP, start);
                     }
                 }
             });
@@ -495,21 +484,31 @@ abstract class SXRViewManager extends SXRContext {
 
     @Override
     public void runOnGlThread(Runnable runnable) {
-        if (mGLThreadID == Thread.currentThread().getId()) {
+        runOnGlThread(runnable, SXRGlTaskQueue.Priority.NORMAL);
+    }
+
+    @Override
+    public void runOnGlThread(Runnable runnable, SXRGlTaskQueue.Priority priority) {
+        if ((priority != SXRGlTaskQueue.Priority.BACKGROUND)
+                && (mGLThreadID == Thread.currentThread().getId())) {
             runnable.run();
         } else {
-            mRunnables.add(runnable);
+            mGlTasks.post(runnable, priority);
         }
     }
 
     @Override
     public void runOnGlThreadPostRender(int delayFrames, Runnable runnable) {
-        synchronized (mRunnablesPostRender) {
-            mRunnablesPostRender.put(runnable, delayFrames);
-        }
+        mGlTasks.postRender(delayFrames, runnable);
+    }
+
+    @Override
+    public SXRGlTaskQueue getGlTaskQueue() {
+        return mGlTasks;
     }
 
     protected void beforeDrawEyes() {
+        getFrameProfiler().beginFrame();
         SXRNotifications.notifyBeforeStep();
         mFrameHandler.beforeDrawEyes();
         makeShadowMaps(mMainScene.getNative(), getMainScene(), mRenderBundle.getShaderManager().getNative(),
@@ -519,22 +518,17 @@ abstract class SXRViewManager extends SXRContext {
     protected void afterDrawEyes() {
         // Execute post-rendering tasks (after drawing eyes, but
         // before afterDrawEyes handlers)
-        synchronized (mRunnablesPostRender) {
-            for (Iterator<Map.Entry<Runnable, Integer>> it = mRunnablesPostRender.entrySet().iterator(); it
-                    .hasNext();) {
-                Map.Entry<Runnable, Integer> entry = it.next();
-                if (entry.getValue() <= 0) {
-                    entry.getKey().run();
-                    it.remove();
-                } else {
-                    entry.setValue(entry.getValue() - 1);
-                }
-            }
-        }
+        final SXRFrameProfiler profiler = getFrameProfiler();
+        long start = profiler.begin(SXRFrameProfiler.Phase.POST_RENDER);
+        mGlTasks.runPostRenderTasks();
+        profiler.end(SXRFrameProfiler.Phase.POST_RENDER, start);
 
         mFrameHandler.afterDrawEyes();
+        start = profiler.begin(SXRFrameProfiler.Phase.FINALIZE);
         finalizeUnreachableObjects();
+        profiler.end(SXRFrameProfiler.Phase.FINALIZE, start);
         SXRNotifications.notifyAfterStep();
+        profiler.endFrame();
     }
 
     void cullAndRender(SXRRenderTarget renderTarget, SXRScene scene)
@@ -830,8 +824,7 @@ abstract class SXRViewManager extends SXRContext {
     protected FrameHandler mFrameHandler = firstFrame;
 
     protected List<SXRDrawFrameListener> mFrameListeners = new CopyOnWriteArrayList<SXRDrawFrameListener>();
-    protected final Queue<Runnable> mRunnables = new LinkedBlockingQueue<Runnable>();
-    protected final Map<Runnable, Integer> mRunnablesPostRender = new HashMap<Runnable, Integer>();
+    protected final SXRGlTaskQueue mGlTasks = new SXRGlTaskQueue();
 
     protected SXRScene mMainScene;
     protected SXRScene mPendingMainScene;
@@ -119,6 +119,7 @@ public abstract class SXRAnimation {
     // Running state
     protected float mElapsedTime = 0f;
     protected int mIterations = 0;
+    private float mFrameRatio = 0f;
 
     protected boolean isFinished = false;
 
@@ -413,6 +414,26 @@ public abstract class SXRAnimation {
      */
 
     final boolean onDrawFrame(float frameTime) {
+        final boolean stillRunning = advance(frameTime);
+
+        animateFrame();
+        if (stillRunning != true) {
+            finish();
+        }
+        return stillRunning;
+    }
+
+    /**
+     * Advances the animation clock and computes the ratio to animate to
+     * this frame. Repeat callbacks are called from here, finish callbacks
+     * are called by {@link #finish()}.
+     *
+     * @param frameTime
+     *            elapsed time since the previous animation frame, in seconds
+     * @return {@code true} to keep running the animation; {@code false} to shut
+     *         it down
+     */
+    final boolean advance(float frameTime) {
         /*
         if (mCurrentTime < mStartTime)
         {
@@ -451,28 +472,77 @@ public abstract class SXRAnimation {
             final boolean countDown = mRepeatMode == SXRRepeatMode.PINGPONG
                     && (mIterations & 1) == 1;
 
-            float elapsedRatio = //
+            mFrameRatio = //
             countDown != true ? interpolate(cycleTime, mDuration)
                     : interpolate(mDuration - cycleTime, mDuration);
+        } else {
+            mFrameRatio = interpolate(mDuration, mDuration);
+        }
+        return stillRunning;
+    }
 
+    /**
+     * Calls the finish callbacks after the last frame has been animated.
+     */
+    final void finish() {
+        onFinish();
+        if (mOnFinish != null) {
+            mOnFinish.finished(this);
+        }
+        isFinished = true;
+    }
 
-            animate(mTarget, elapsedRatio);
-        } else {
-            float endRatio = mRepeatMode == SXRRepeatMode.ONCE ? 1f : 0f;
+    /**
+     * Gets the object this animation changes when it is evaluated off the
+     * GL thread.
+     * <p>
+     * When {@linkplain SXRAnimationEngine#setParallelUpdate(boolean)
+     * parallel update} is enabled, animations which return a group are
+     * {@linkplain #evaluate(float) evaluated} on worker threads and then
+     * {@linkplain #commit() committed} on the GL thread. Animations with the
+     * same group are evaluated one after another, in the order they were
+     * started. The default is {@code null}: the animation is not split and
+     * runs entirely on the GL thread.
+     *
+     * @return the object {@link #evaluate(float)} modifies, or {@code null}
+     */
+    protected Object getUpdateGroup() {
+        return null;
+    }
 
-            endRatio = interpolate(mDuration, mDuration);
+    /**
+     * Computes the state of the animation on a worker thread.
+     * <p>
+     * Only called for animations with an {@linkplain #getUpdateGroup() update
+     * group}. This must not touch the scene graph or call native code, it
+     * should leave its results where {@link #commit()} can apply them.
+     *
+     * @param ratio
+     *            The start state is 0; the stop state is 1.
+     */
+    protected void evaluate(float ratio) {
+    }
 
-            animate(mTarget, endRatio);
+    /**
+     * Applies the results of {@link #evaluate(float)} on the GL thread.
+     * <p>
+     * Only called for animations with an {@linkplain #getUpdateGroup() update
+     * group}. The default animates the target on the GL thread, as if
+     * parallel update was disabled.
+     */
+    protected void commit() {
+        animateFrame();
+    }
 
-            onFinish();
-            if (mOnFinish != null) {
-                mOnFinish.finished(this);
-            }
-            
-            isFinished = true;
-        }
+    /**
+     * Animates the target to the ratio computed by {@link #advance(float)}.
+     */
+    final void animateFrame() {
+        animate(mTarget, mFrameRatio);
+    }
 
-        return stillRunning;
+    final float getFrameRatio() {
+        return mFrameRatio;
     }
 
     private float interpolate(float cycleTime, float duration) {
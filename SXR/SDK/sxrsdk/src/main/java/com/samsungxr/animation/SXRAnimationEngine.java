@@ -15,12 +15,18 @@
 
 package com.samsungxr.animation;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import com.samsungxr.SXRContext;
 import com.samsungxr.SXRDrawFrameListener;
 import com.samsungxr.SXRNode;
+import com.samsungxr.debug.SXRFrameProfiler;
 
 /**
  * This class runs {@linkplain SXRAnimation animations}.
@@ -44,6 +50,13 @@ import com.samsungxr.SXRNode;
  * {@linkplain SXROnRepeat callback,} which allows you to terminate the
  * animation before the next loop.
  * </ul>
+ *
+ * <p>
+ * By default every animation runs on the GL thread, one after another.
+ * Scenes with many animated characters can enable
+ * {@linkplain #setParallelUpdate(boolean) parallel update}, which evaluates
+ * skeleton and node animations on a pool of worker threads and then applies
+ * the results on the GL thread.
  */
 public class SXRAnimationEngine {
 
@@ -54,6 +67,9 @@ public class SXRAnimationEngine {
 
             @Override
             public void run() {
+                if (sInstance != null) {
+                    sInstance.setParallelUpdate(false);
+                }
                 sInstance = null;
             }
         });
@@ -62,7 +78,24 @@ public class SXRAnimationEngine {
     private final List<SXRAnimation> mAnimations = new CopyOnWriteArrayList<SXRAnimation>();
     private final SXRDrawFrameListener mOnDrawFrame = new DrawFrame();
 
+    /*
+     * Parallel update state, only touched on the GL thread
+     */
+    private volatile boolean mParallel = false;
+    private ForkJoinPool mPool = null;
+    private final List<SXRAnimation> mFrameAnimations = new ArrayList<SXRAnimation>();
+    private final List<Boolean> mFrameRunning = new ArrayList<Boolean>();
+    private final List<Boolean> mFrameGrouped = new ArrayList<Boolean>();
+    private final LinkedHashMap<Object, EvaluateGroup> mGroups = new LinkedHashMap<Object, EvaluateGroup>();
+
+    private volatile long mUpdateNanos = 0;
+    private volatile long mEvaluateNanos = 0;
+    private volatile long mCommitNanos = 0;
+
+    private final SXRFrameProfiler mProfiler;
+
     protected SXRAnimationEngine(SXRContext gvrContext) {
+        mProfiler = gvrContext.getFrameProfiler();
         gvrContext.registerDrawFrameListener(mOnDrawFrame);
     }
 
@@ -142,14 +175,182 @@ public class SXRAnimationEngine {
         mAnimations.remove(animation);
     }
 
+    /**
+     * Enable or disable parallel animation update.
+     * <p>
+     * Each frame is then updated in three steps:
+     * <ol>
+     * <li>The clock of every animation is advanced on the GL thread,
+     * calling any repeat callbacks.</li>
+     * <li>Animations with an {@linkplain SXRAnimation#getUpdateGroup() update
+     * group}, such as skeleton and node animations, are evaluated on worker
+     * threads. Animations in the same group (the same skeleton or transform)
+     * are evaluated together in the order they were started.</li>
+     * <li>The results are applied on the GL thread in the order the
+     * animations were started. Other animations run normally in this step,
+     * so they see the poses computed for this frame.</li>
+     * </ol>
+     * The result is the same every frame regardless of how the groups are
+     * scheduled on the worker threads.
+     *
+     * @param enable
+     *            {@code true} to evaluate animations on worker threads,
+     *            {@code false} to run them all on the GL thread
+     */
+    public synchronized void setParallelUpdate(boolean enable) {
+        if (enable && (mPool == null)) {
+            mPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        } else if (!enable && (mPool != null)) {
+            mPool.shutdown();
+            mPool = null;
+        }
+        mParallel = enable;
+    }
+
+    public boolean isParallelUpdate() {
+        return mParallel;
+    }
+
+    /**
+     * @return time taken to update all animations on the last frame, in
+     *         nanoseconds
+     */
+    public long getUpdateTime() {
+        return mUpdateNanos;
+    }
+
+    /**
+     * @return time spent advancing the animations and evaluating them on the
+     *         GL thread and the worker threads on the last frame, before they
+     *         are applied, in nanoseconds; 0 if parallel update is disabled
+     */
+    public long getEvaluateTime() {
+        return mEvaluateNanos;
+    }
+
+    /**
+     * @return time spent applying the animations on the GL thread on the
+     *         last frame, in nanoseconds
+     */
+    public long getCommitTime() {
+        return mCommitNanos;
+    }
+
+    private void updateSerial(float frameTime) {
+        for (SXRAnimation animation : mAnimations) {
+            if (animation.onDrawFrame(frameTime) == false) {
+                mAnimations.remove(animation);
+            }
+        }
+    }
+
+    private void updateParallel(float frameTime, ForkJoinPool pool) {
+        final long start = System.nanoTime();
+
+        try {
+            for (SXRAnimation animation : mAnimations) {
+                boolean running = animation.advance(frameTime);
+                Object key = animation.getUpdateGroup();
+
+                mFrameAnimations.add(animation);
+                mFrameRunning.add(running);
+                mFrameGrouped.add(key != null);
+                if (key != null) {
+                    EvaluateGroup group = mGroups.get(key);
+
+                    if (group == null) {
+                        group = new EvaluateGroup();
+                        mGroups.put(key, group);
+                    }
+                    group.add(animation);
+                }
+            }
+            if (mGroups.size() == 1) {
+                mGroups.values().iterator().next().compute();
+            } else if (mGroups.size() > 1) {
+                pool.invoke(new EvaluateAll(new ArrayList<EvaluateGroup>(mGroups.values())));
+            }
+            final long evaluated = System.nanoTime();
+
+            for (int i = 0; i < mFrameAnimations.size(); ++i) {
+                SXRAnimation animation = mFrameAnimations.get(i);
+
+                if (mFrameGrouped.get(i)) {
+                    animation.commit();
+                } else {
+                    animation.animateFrame();
+                }
+                if (mFrameRunning.get(i) == false) {
+                    animation.finish();
+                    mAnimations.remove(animation);
+                }
+            }
+            mEvaluateNanos = evaluated - start;
+            mCommitNanos = System.nanoTime() - evaluated;
+        } finally {
+            mFrameAnimations.clear();
+            mFrameRunning.clear();
+            mFrameGrouped.clear();
+            mGroups.clear();
+        }
+    }
+
+    /**
+     * Animations which modify the same object, evaluated in order on one
+     * worker thread.
+     */
+    private static final class EvaluateGroup extends RecursiveAction {
+        private final List<SXRAnimation> mMembers = new ArrayList<SXRAnimation>(2);
+
+        void add(SXRAnimation animation) {
+            mMembers.add(animation);
+        }
+
+        @Override
+        protected void compute() {
+            for (SXRAnimation animation : mMembers) {
+                animation.evaluate(animation.getFrameRatio());
+            }
+        }
+    }
+
+    private static final class EvaluateAll extends RecursiveAction {
+        private final List<EvaluateGroup> mTasks;
+
+        EvaluateAll(List<EvaluateGroup> tasks) {
+            mTasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(mTasks);
+        }
+    }
+
     private final class DrawFrame implements SXRDrawFrameListener {
 
         @Override
         public void onDrawFrame(float frameTime) {
-            for (SXRAnimation animation : mAnimations) {
-                if (animation.onDrawFrame(frameTime) == false) {
-                    mAnimations.remove(animation);
+            final long profileStart = mProfiler.begin(SXRFrameProfiler.Phase.ANIMATION);
+            final long start = System.nanoTime();
+            ForkJoinPool pool = null;
+
+            try {
+                if (mParallel) {
+                    synchronized (SXRAnimationEngine.this) {
+                        pool = mPool;
+                    }
+                }
+                if (pool != null) {
+                    updateParallel(frameTime, pool);
+                } else {
+                    updateSerial(frameTime);
+                    mEvaluateNanos = 0;
+                    mCommitNanos = System.nanoTime() - start;
                 }
+                mUpdateNanos = System.nanoTime() - start;
+            } finally {
+                mProfiler.end(SXRFrameProfiler.Phase.ANIMATION, profileStart);
             }
         }
     }
@@ -22,14 +22,9 @@ import org.joml.Quaternionf;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 
-import java.util.BitSet;
 import java.util.Formatter;
 import java.util.Locale;
 
-import static com.samsungxr.animation.SXRPose.Bone.LOCAL_ROT;
-import static com.samsungxr.animation.SXRPose.Bone.WORLD_POS;
-import static com.samsungxr.animation.SXRPose.Bone.WORLD_ROT;
-
 /*!
  * Set of transformations on the bones of a skeleton.
  * p>
@@ -46,6 +41,11 @@ import static com.samsungxr.animation.SXRPose.Bone.WORLD_ROT;
  * <p>
  * Each skeleton has a current pose. Usually the current pose of a skeleton is used to
  * drive a skinned animation.
+ * <p>
+ * The bone matrices are stored packed in float arrays, 16 floats per bone in
+ * column major order, so they can be copied to the skeleton without conversion.
+ * Each pose has its own scratch matrices. Different poses can be updated
+ * on different threads but a single pose must not be used by two threads at once.
  *
  * @see SXRTransform
  * @see SXRSkeleton
@@ -54,12 +54,23 @@ import static com.samsungxr.animation.SXRPose.Bone.WORLD_ROT;
 public class SXRPose implements PrettyPrint
 {
     static final float EPSILON = Float.intBitsToFloat(1);
+
+    /*
+     * Flags indicating which part of a bone has changed
+     */
+    static final int LOCAL_ROT = 1;
+    static final int WORLD_ROT = 2;
+    static final int WORLD_POS = 4;
+
     protected SXRSkeleton mSkeleton;
     private boolean	      mNeedSync;
-    private Bone[]        mBones;
+    private final int     mNumBones;
+    private final float[] mLocalMatrices;   // local transformations (relative to parent)
+    private final float[] mWorldMatrices;   // world transformations (relative to root of skeleton)
+    private final int[]   mChanged;         // WORLD_ROT, LOCAL_ROT, WORLD_POS for each bone
     private final Quaternionf mTempQuat = new Quaternionf();
-    public static final Matrix4f mTempMtxA = new Matrix4f();
-    public static final Matrix4f mTempMtxB = new Matrix4f();
+    private final Matrix4f mTempMtxA = new Matrix4f();
+    private final Matrix4f mTempMtxB = new Matrix4f();
     private static boolean sDebug = false;
 
     /**
@@ -94,10 +105,14 @@ public class SXRPose implements PrettyPrint
     public SXRPose(SXRSkeleton skel)
     {
         mSkeleton = skel;
-        mBones = new Bone[skel.getNumBones()];
-        for (int i = 0; i < mBones.length; ++i)
+        mNumBones = skel.getNumBones();
+        mLocalMatrices = new float[mNumBones * 16];
+        mWorldMatrices = new float[mNumBones * 16];
+        mChanged = new int[mNumBones];
+        for (int t = 0; t < mLocalMatrices.length; t += 16)
         {
-            mBones[i] = new Bone();
+            mLocalMatrices[t] = mLocalMatrices[t + 5] = mLocalMatrices[t + 10] = mLocalMatrices[t + 15] = 1;
+            mWorldMatrices[t] = mWorldMatrices[t + 5] = mWorldMatrices[t + 10] = mWorldMatrices[t + 15] = 1;
         }
     }
 
@@ -113,11 +128,11 @@ public class SXRPose implements PrettyPrint
     public SXRPose(SXRPose src)
     {
         mSkeleton = src.getSkeleton();
-        mBones = new Bone[mSkeleton.getNumBones()];
-        for (int i = 0; i < mBones.length; ++i)
-        {
-            mBones[i] = new Bone(src.getBone(i));
-        }
+        mNumBones = src.mNumBones;
+        mLocalMatrices = src.mLocalMatrices.clone();
+        mWorldMatrices = src.mWorldMatrices.clone();
+        mChanged = src.mChanged.clone();
+        mNeedSync = src.mNeedSync;
     }
 
 
@@ -126,7 +141,7 @@ public class SXRPose implements PrettyPrint
     * If there is no skeleton associated with the pose, 0 is returned.
     */
 
-    public int          getNumBones() { return mSkeleton.getNumBones(); }
+    public int          getNumBones() { return mNumBones; }
 
 
     /**
@@ -139,7 +154,22 @@ public class SXRPose implements PrettyPrint
     public SXRSkeleton	getSkeleton() { return mSkeleton; }
 
 
-    public Bone		getBone(int boneindex) { return mBones[boneindex]; }
+    /*
+     * The change flags are used by the skeleton to decide
+     * which bones to copy when it applies a pose.
+     */
+    int         getChanged(int boneindex) { return mChanged[boneindex]; }
+
+    void        clearChanged(int boneindex) { mChanged[boneindex] = 0; }
+
+    /*
+     * Gets the stored local matrix of a bone without updating it
+     * from the world matrix first.
+     */
+    void        getStoredLocalMatrix(int boneindex, Matrix4f mtx)
+    {
+        mtx.set(mLocalMatrices, boneindex * 16);
+    }
 
 
     /**
@@ -157,16 +187,16 @@ public class SXRPose implements PrettyPrint
 
     public void     getWorldPosition(int boneindex, Vector3f pos) 
     {
-        Bone bone = mBones[boneindex];
         int boneParent = mSkeleton.getParentBoneIndex(boneindex);
+        int t = boneindex * 16;
 
-        if ((boneParent >= 0) && ((bone.Changed & LOCAL_ROT) == LOCAL_ROT))
+        if ((boneParent >= 0) && ((mChanged[boneindex] & LOCAL_ROT) == LOCAL_ROT))
         {
-            calcWorld(bone, boneParent);
+            calcWorld(boneindex, boneParent);
         }
-        pos.x = bone.WorldMatrix.m30();
-        pos.y = bone.WorldMatrix.m31();
-        pos.z = bone.WorldMatrix.m32();
+        pos.x = mWorldMatrices[t + 12];
+        pos.y = mWorldMatrices[t + 13];
+        pos.z = mWorldMatrices[t + 14];
     }
 
     /**
@@ -190,17 +220,18 @@ public class SXRPose implements PrettyPrint
      */
     public void	getWorldPositions(float[] dest)
     {
-        if (dest.length != mBones.length * 3)
+        if (dest.length != mNumBones * 3)
         {
             throw new IllegalArgumentException("Destination array is the wrong size");
         }
         sync();
-        for (int i = 0; i < mBones.length; ++i)
+        for (int i = 0; i < mNumBones; ++i)
         {
             int t = i * 3;
-            dest[t] = mBones[i].WorldMatrix.m30();
-            dest[t + 1] = mBones[i].WorldMatrix.m31();
-            dest[t + 2] = mBones[i].WorldMatrix.m32();
+            int m = i * 16;
+            dest[t] = mWorldMatrices[m + 12];
+            dest[t + 1] = mWorldMatrices[m + 13];
+            dest[t + 2] = mWorldMatrices[m + 14];
         }
     }
 
@@ -219,15 +250,70 @@ public class SXRPose implements PrettyPrint
      */
     public void	getWorldMatrices(float[] dest)
     {
-        if (dest.length != mBones.length * 16)
+        if (dest.length != mNumBones * 16)
         {
             throw new IllegalArgumentException("Destination array is the wrong size");
         }
         sync();
-        for (int i = 0; i < mBones.length; ++i)
+        System.arraycopy(mWorldMatrices, 0, dest, 0, dest.length);
+    }
+
+    /**
+     * Get the local matrices of all the bones in this pose (relative to parent bone).
+     * <p>
+     * The local matrices for each bone are copied into the
+     * destination array in the order of their bone index.
+     * The array must be as large as 16 times the number of bones in the skeleton
+     * (which can be obtained by calling {@link #getNumBones}).
+     * @param dest	destination array to get local matrices.
+     *
+     * @see #getLocalMatrix
+     * @see #getWorldMatrices
+     */
+    public void	getLocalMatrices(float[] dest)
+    {
+        if (dest.length != mNumBones * 16)
+        {
+            throw new IllegalArgumentException("Destination array is the wrong size");
+        }
+        for (int i = 0; i < mNumBones; ++i)
+        {
+            if ((mChanged[i] & (WORLD_ROT | WORLD_POS)) != 0)
+            {
+                calcLocal(i, mSkeleton.getParentBoneIndex(i));
+            }
+        }
+        System.arraycopy(mLocalMatrices, 0, dest, 0, dest.length);
+    }
+
+    /**
+     * Set the local matrices of all the bones in this pose (relative to parent bone).
+     * <p>
+     * The source array contains a column major matrix for each bone
+     * in the order of their bone index, the layout returned by
+     * {@link #getLocalMatrices(float[])}. The world matrices are
+     * updated when they are next needed.
+     * @param src	array with 16 floats for each bone.
+     *
+     * @see #setLocalMatrix
+     * @see #getLocalMatrices
+     */
+    public void	setLocalMatrices(float[] src)
+    {
+        if (src.length != mNumBones * 16)
         {
-            mBones[i].WorldMatrix.get(dest, i * 16);
+            throw new IllegalArgumentException("Source array is the wrong size");
         }
+        System.arraycopy(src, 0, mLocalMatrices, 0, src.length);
+        for (int i = 0; i < mNumBones; ++i)
+        {
+            mChanged[i] = LOCAL_ROT;
+            if (mSkeleton.getParentBoneIndex(i) < 0)
+            {
+                System.arraycopy(mLocalMatrices, i * 16, mWorldMatrices, i * 16, 16);
+            }
+        }
+        mNeedSync = true;
     }
 
     /**
@@ -251,21 +337,23 @@ public class SXRPose implements PrettyPrint
      */
     public void	setWorldPositions(float[] positions)
     {
-        if (positions.length != mBones.length * 3)
+        if (positions.length != mNumBones * 3)
         {
             throw new IllegalArgumentException("Destination array is the wrong size");
         }
         mNeedSync = true;
-        for (int i = 0; i < mBones.length; ++i)
+        for (int i = 0; i < mNumBones; ++i)
         {
-            Bone bone = mBones[i];
             int t = i * 3;
+            int m = i * 16;
 
-            bone.setWorldPosition(positions[t], positions[t + 1], positions[t + 2]);
-            bone.Changed = WORLD_POS;
+            mWorldMatrices[m + 12] = positions[t];
+            mWorldMatrices[m + 13] = positions[t + 1];
+            mWorldMatrices[m + 14] = positions[t + 2];
+            mChanged[i] = WORLD_POS;
             if (sDebug)
             {
-                Log.d("BONE", "setWorldPosition: %s %s", mSkeleton.getBoneName(i), bone.toString());
+                Log.d("BONE", "setWorldPosition: %s %s", mSkeleton.getBoneName(i), boneToString(i));
             }
         }
         sync();
@@ -294,24 +382,23 @@ public class SXRPose implements PrettyPrint
      */
     public void setWorldRotations(float[] rotations)
     {
-        if (rotations.length != mBones.length * 4)
+        if (rotations.length != mNumBones * 4)
         {
             throw new IllegalArgumentException("Source array is the wrong size");
         }
         mNeedSync = true;
-        for (int i = 0; i < mBones.length; ++i)
+        for (int i = 0; i < mNumBones; ++i)
         {
-            Bone bone = mBones[i];
             int t = i * 4;
 
-            bone.setWorldRotation(rotations[t], rotations[t + 1], rotations[t + 2], rotations[t + 3]);
-            bone.Changed |= WORLD_ROT;
+            setRotation(mWorldMatrices, i * 16, rotations[t], rotations[t + 1], rotations[t + 2], rotations[t + 3]);
+            mChanged[i] |= WORLD_ROT;
 
-            calcLocal(bone, mSkeleton.getParentBoneIndex(i));
+            calcLocal(i, mSkeleton.getParentBoneIndex(i));
 
             if (sDebug)
             {
-                Log.d("BONE", "setWorldRotation: %s %s", mSkeleton.getBoneName(i), bone.toString());
+                Log.d("BONE", "setWorldRotation: %s %s", mSkeleton.getBoneName(i), boneToString(i));
             }
         }
     }
@@ -334,7 +421,7 @@ public class SXRPose implements PrettyPrint
      */
     public void getWorldMatrix(int boneindex, Matrix4f mtx)
     {
-        mBones[boneindex].getWorldMatrix(mtx);
+        mtx.set(mWorldMatrices, boneindex * 16);
     }
 
     /**
@@ -355,22 +442,22 @@ public class SXRPose implements PrettyPrint
      */
     public void setWorldMatrix(int boneindex, Matrix4f mtx)
     {
-        Bone	  bone = mBones[boneindex];
+        int       t = boneindex * 16;
 
-        bone.WorldMatrix.set(mtx);
+        mtx.get(mWorldMatrices, t);
         if (mSkeleton.getParentBoneIndex(boneindex) >= 0)
         {
-            calcLocal(bone, mSkeleton.getParentBoneIndex(boneindex));
+            calcLocal(boneindex, mSkeleton.getParentBoneIndex(boneindex));
         }
         else
         {
-            bone.LocalMatrix.set(mtx);
+            mtx.get(mLocalMatrices, t);
         }
         mNeedSync = true;
-        bone.Changed = Bone.WORLD_POS | Bone.WORLD_ROT;
+        mChanged[boneindex] = WORLD_POS | WORLD_ROT;
         if (sDebug)
         {
-            Log.d("BONE", "setWorldMatrix: %s %s", mSkeleton.getBoneName(boneindex), bone.toString());
+            Log.d("BONE", "setWorldMatrix: %s %s", mSkeleton.getBoneName(boneindex), boneToString(boneindex));
         }
     }
 
@@ -396,17 +483,17 @@ public class SXRPose implements PrettyPrint
      */
     public void getWorldRotations(float[] rotations)
     {
-        if (rotations.length != mBones.length * 4)
+        if (rotations.length != mNumBones * 4)
         {
             throw new IllegalArgumentException("Destination array is the wrong size");
         }
         sync();
-        for (int i = 0; i < mBones.length; i++)
+        for (int i = 0; i < mNumBones; i++)
         {
-            Bone bone = mBones[i];
             int t = i * 4;
 
-            bone.WorldMatrix.getUnnormalizedRotation(mTempQuat);
+            mTempMtxA.set(mWorldMatrices, i * 16);
+            mTempMtxA.getUnnormalizedRotation(mTempQuat);
             mTempQuat.normalize();
 
             rotations[t++] = mTempQuat.x;
@@ -429,13 +516,14 @@ public class SXRPose implements PrettyPrint
      */
     public void	getWorldRotation(int boneindex, Quaternionf q)
     {
-        Bone bone = mBones[boneindex];
+        int parentId = mSkeleton.getParentBoneIndex(boneindex);
 
-        if ((bone.Changed & LOCAL_ROT) == LOCAL_ROT)
+        if ((parentId >= 0) && ((mChanged[boneindex] & LOCAL_ROT) == LOCAL_ROT))
         {
-            calcWorld(bone, mSkeleton.getParentBoneIndex(boneindex));
+            calcWorld(boneindex, parentId);
         }
-        bone.WorldMatrix.getUnnormalizedRotation(q);
+        mTempMtxA.set(mWorldMatrices, boneindex * 16);
+        mTempMtxA.getUnnormalizedRotation(q);
         q.normalize();
     }
 
@@ -457,12 +545,15 @@ public class SXRPose implements PrettyPrint
             return false;
         }
 
-        Bone	bone = mBones[boneindex];
-        bone.setWorldRotation(x, y, z, w);
-        bone.Changed |= WORLD_ROT;
+        int     t = boneindex * 16;
+
+        setRotation(mWorldMatrices, t, x, y, z, w);
+        mChanged[boneindex] |= WORLD_ROT;
         if (mSkeleton.getParentBoneIndex(boneindex) < 0)
         {
-            bone.LocalMatrix.set3x3(bone.WorldMatrix);
+            System.arraycopy(mWorldMatrices, t, mLocalMatrices, t, 3);
+            System.arraycopy(mWorldMatrices, t + 4, mLocalMatrices, t + 4, 3);
+            System.arraycopy(mWorldMatrices, t + 8, mLocalMatrices, t + 8, 3);
         }
         else
         {
@@ -488,13 +579,11 @@ public class SXRPose implements PrettyPrint
      */
     public void getLocalMatrix(int boneindex, Matrix4f mtx)
     {
-        Bone bone = mBones[boneindex];
-
-        if ((bone.Changed & (WORLD_ROT | WORLD_POS)) != 0)
+        if ((mChanged[boneindex] & (WORLD_ROT | WORLD_POS)) != 0)
         {
-            calcLocal(bone, mSkeleton.getParentBoneIndex(boneindex));
+            calcLocal(boneindex, mSkeleton.getParentBoneIndex(boneindex));
         }
-        bone.getLocalMatrix(mtx);
+        mtx.set(mLocalMatrices, boneindex * 16);
     }
 
     /**
@@ -512,14 +601,14 @@ public class SXRPose implements PrettyPrint
      */
     public void setLocalMatrix(int boneindex, Matrix4f mtx)
     {
-        Bone	  bone = mBones[boneindex];
         int		  parentid = mSkeleton.getParentBoneIndex(boneindex);
+        int       t = boneindex * 16;
 
-        bone.LocalMatrix.set(mtx);
-        bone.Changed = Bone.LOCAL_ROT;
+        mtx.get(mLocalMatrices, t);
+        mChanged[boneindex] = LOCAL_ROT;
         if (parentid < 0)
         {
-            bone.WorldMatrix.set(bone.LocalMatrix);
+            System.arraycopy(mLocalMatrices, t, mWorldMatrices, t, 16);
         }
         else
         {
@@ -531,7 +620,7 @@ public class SXRPose implements PrettyPrint
             Log.d("BONE",
                   "setLocalMatrix: %s %s",
                   mSkeleton.getBoneName(boneindex),
-                  bone.toString());
+                  boneToString(boneindex));
         }
     }
 
@@ -558,18 +647,16 @@ public class SXRPose implements PrettyPrint
     public void setLocalRotations(float[] rotations)
     {
         mNeedSync = true;
-        for (int i = 0; i < mBones.length; ++i)
+        for (int i = 0; i < mNumBones; ++i)
         {
             int t = i * 4;
             if (!mSkeleton.isLocked(i))
             {
-                Bone bone = mBones[i];
-
-                bone.setLocalRotation(rotations[t], rotations[t + 1], rotations[t + 2], rotations[t + 3]);
-                bone.Changed = LOCAL_ROT;
+                setRotation(mLocalMatrices, i * 16, rotations[t], rotations[t + 1], rotations[t + 2], rotations[t + 3]);
+                mChanged[i] = LOCAL_ROT;
                 if (sDebug)
                 {
-                    Log.d("BONE", "setLocalRotation: %s %s", mSkeleton.getBoneName(i), bone.toString());
+                    Log.d("BONE", "setLocalRotation: %s %s", mSkeleton.getBoneName(i), boneToString(i));
                 }
             }
         }
@@ -587,13 +674,12 @@ public class SXRPose implements PrettyPrint
      */
     public void getLocalRotation(int boneindex, Quaternionf q)
     {
-        Bone bone = mBones[boneindex];
-
-        if ((bone.Changed & (WORLD_POS | WORLD_ROT)) != 0)
+        if ((mChanged[boneindex] & (WORLD_POS | WORLD_ROT)) != 0)
         {
-            calcLocal(bone, mSkeleton.getParentBoneIndex(boneindex));
+            calcLocal(boneindex, mSkeleton.getParentBoneIndex(boneindex));
         }
-        bone.LocalMatrix.getUnnormalizedRotation(q);
+        mTempMtxA.set(mLocalMatrices, boneindex * 16);
+        mTempMtxA.getUnnormalizedRotation(q);
         q.normalize();
     }
 
@@ -617,21 +703,21 @@ public class SXRPose implements PrettyPrint
         if (mSkeleton.isLocked(boneindex))
             return false;
 
-        Bone bone = mBones[boneindex];
+        int t = boneindex * 16;
 
-        bone.setLocalRotation(x, y, z, w);
+        setRotation(mLocalMatrices, t, x, y, z, w);
         if (mSkeleton.getParentBoneIndex(boneindex) < 0)
         {
-            bone.WorldMatrix.set(bone.LocalMatrix);
+            System.arraycopy(mLocalMatrices, t, mWorldMatrices, t, 16);
         }
         else
         {
             mNeedSync = true;
         }
-        bone.Changed = LOCAL_ROT;
+        mChanged[boneindex] = LOCAL_ROT;
         if (sDebug)
         {
-            Log.d("BONE", "setLocalRotation: %s %s", mSkeleton.getBoneName(boneindex), bone.toString());
+            Log.d("BONE", "setLocalRotation: %s %s", mSkeleton.getBoneName(boneindex), boneToString(boneindex));
         }
         return true;
     }
@@ -653,33 +739,37 @@ public class SXRPose implements PrettyPrint
      */
     public void     getLocalPosition(int boneindex, Vector3f pos)
     {
-        pos.x = mBones[boneindex].LocalMatrix.m30();
-        pos.y = mBones[boneindex].LocalMatrix.m31();
-        pos.z = mBones[boneindex].LocalMatrix.m32();
+        int t = boneindex * 16;
+
+        pos.x = mLocalMatrices[t + 12];
+        pos.y = mLocalMatrices[t + 13];
+        pos.z = mLocalMatrices[t + 14];
     }
 
     public void getLocalScale(int boneindex, Vector3f scale)
     {
-        mBones[boneindex].getScale(scale);
+        getScale(mLocalMatrices, boneindex * 16, scale);
     }
 
     public void setLocalPosition(int boneindex, float x, float y, float z)
     {
-        Bone bone = mBones[boneindex];
-        bone.setLocalPosition(x, y, z);
+        int t = boneindex * 16;
 
+        mLocalMatrices[t + 12] = x;
+        mLocalMatrices[t + 13] = y;
+        mLocalMatrices[t + 14] = z;
         if (mSkeleton.getParentBoneIndex(boneindex) < 0)
         {
-            bone.WorldMatrix.set(bone.LocalMatrix);
+            System.arraycopy(mLocalMatrices, t, mWorldMatrices, t, 16);
         }
         else
         {
             mNeedSync = true;
         }
-        bone.Changed = LOCAL_ROT;
+        mChanged[boneindex] = LOCAL_ROT;
         if (sDebug)
         {
-            Log.d("BONE", "setLocalPosition: %s %s", mSkeleton.getBoneName(boneindex), bone.toString());
+            Log.d("BONE", "setLocalPosition: %s %s", mSkeleton.getBoneName(boneindex), boneToString(boneindex));
         }
     }
 
@@ -689,11 +779,9 @@ public class SXRPose implements PrettyPrint
      */
     public void transformPose(Matrix4f trans)
     {
-        Bone bone = mBones[0];
-
-        bone.LocalMatrix.set(trans);
-        bone.WorldMatrix.set(trans);
-        bone.Changed = WORLD_POS | WORLD_ROT;
+        trans.get(mLocalMatrices, 0);
+        trans.get(mWorldMatrices, 0);
+        mChanged[0] = WORLD_POS | WORLD_ROT;
         mNeedSync = true;
         sync();
     }
@@ -706,15 +794,15 @@ public class SXRPose implements PrettyPrint
     public boolean  equals(SXRPose src)
     {
         int		    numbones = getNumBones();
-        boolean	    same = true;
         float       tolerance = 3 * EPSILON;
 
         if (numbones != src.getNumBones())
             return false;
         sync();
-        for (int i = 0; i < numbones; ++i)
+        src.sync();
+        for (int t = 0; t < numbones * 16; ++t)
         {
-            if (!mBones[i].equals(src.getBone(i)))
+            if (java.lang.Math.abs(mWorldMatrices[t] - src.mWorldMatrices[t]) > tolerance)
             {
                 return false;
             }
@@ -732,15 +820,14 @@ public class SXRPose implements PrettyPrint
      */
     public void  copy(SXRPose src)
     {
-        int numbones = getNumBones();
-
         if (getSkeleton() != src.getSkeleton())
             throw new IllegalArgumentException("SXRPose.copy: input pose does not have same skeleton as this pose");
+        int numbones = java.lang.Math.min(mNumBones, src.mNumBones);
+
         src.sync();
-        for (int i = 0; i < numbones; ++i)
-        {
-            mBones[i].copy(src.getBone(i));
-        }
+        System.arraycopy(src.mLocalMatrices, 0, mLocalMatrices, 0, numbones * 16);
+        System.arraycopy(src.mWorldMatrices, 0, mWorldMatrices, 0, numbones * 16);
+        System.arraycopy(src.mChanged, 0, mChanged, 0, numbones);
     }
 
     /**
@@ -760,15 +847,17 @@ public class SXRPose implements PrettyPrint
         src.sync();
         for (int i = 0; i < numbones; ++i)
         {
-            Bone bone = mBones[i];
+            int t = i * 16;
 
-            bone.WorldMatrix.mul(src.mBones[i].WorldMatrix);
-            calcLocal(bone, mSkeleton.getParentBoneIndex(i));
+            mTempMtxA.set(mWorldMatrices, t);
+            mTempMtxB.set(src.mWorldMatrices, t);
+            mTempMtxA.mul(mTempMtxB).get(mWorldMatrices, t);
+            calcLocal(i, mSkeleton.getParentBoneIndex(i));
             if (sDebug)
             {
-                Log.d("BONE", "combine: %s %s", mSkeleton.getBoneName(i), bone.toString());
+                Log.d("BONE", "combine: %s %s", mSkeleton.getBoneName(i), boneToString(i));
             }
-            bone.Changed = 0;
+            mChanged[i] = 0;
         }
         sync();
     }
@@ -785,10 +874,8 @@ public class SXRPose implements PrettyPrint
         mNeedSync = true;
         for (int i = 0; i < numbones; ++i)
         {
-            Bone bone = mBones[i];
-
-            bone.clearRotation();
-            bone.Changed = 0;
+            setRotation(mLocalMatrices, i * 16, 0, 0, 0, 1);
+            mChanged[i] = 0;
         }
     }
 
@@ -802,26 +889,26 @@ public class SXRPose implements PrettyPrint
             throw new IllegalArgumentException("SXRPose.copy: input pose is incompatible with this pose");
         src.sync();
         int numbones = getNumBones();
-        Bone srcBone = src.mBones[0];
-        Bone dstBone = mBones[0];
 
         mNeedSync = true;
-        srcBone.WorldMatrix.invertAffine(dstBone.WorldMatrix);
-        srcBone.LocalMatrix.set(dstBone.WorldMatrix);
+        mTempMtxA.set(src.mWorldMatrices, 0);
+        mTempMtxA.invertAffine().get(mWorldMatrices, 0);
+        System.arraycopy(mWorldMatrices, 0, mLocalMatrices, 0, 16);
         if (sDebug)
         {
-            Log.d("BONE", "invert: %s %s", mSkeleton.getBoneName(0), dstBone.toString());
+            Log.d("BONE", "invert: %s %s", mSkeleton.getBoneName(0), boneToString(0));
 
         }
         for (int i = 1; i < numbones; ++i)
         {
-            srcBone = src.mBones[i];
-            dstBone = mBones[i];
-            srcBone.WorldMatrix.invertAffine(dstBone.WorldMatrix);
-            dstBone.Changed = WORLD_ROT | WORLD_POS;
+            int t = i * 16;
+
+            mTempMtxA.set(src.mWorldMatrices, t);
+            mTempMtxA.invertAffine().get(mWorldMatrices, t);
+            mChanged[i] = WORLD_ROT | WORLD_POS;
             if (sDebug)
             {
-                Log.d("BONE", "invert: %s %s", mSkeleton.getBoneName(i), dstBone.toString());
+                Log.d("BONE", "invert: %s %s", mSkeleton.getBoneName(i), boneToString(i));
             }
         }
         sync();
@@ -840,48 +927,48 @@ public class SXRPose implements PrettyPrint
      */
     public boolean	setPosition(float x, float y, float z)
     {
-        Bone bone = mBones[0];
-        float dx = x - bone.WorldMatrix.m30();
-        float dy = y - bone.WorldMatrix.m31();
-        float dz = z - bone.WorldMatrix.m32();
+        float dx = x - mWorldMatrices[12];
+        float dy = y - mWorldMatrices[13];
+        float dz = z - mWorldMatrices[14];
 
         sync();
-        bone.LocalMatrix.setTranslation(x, y, z);
-        for (int i = 0; i < mBones.length; ++i)
+        mLocalMatrices[12] = x;
+        mLocalMatrices[13] = y;
+        mLocalMatrices[14] = z;
+        for (int t = 0; t < mWorldMatrices.length; t += 16)
         {
-            bone = mBones[i];
-            bone.WorldMatrix.m30(bone.WorldMatrix.m30() + dx);
-            bone.WorldMatrix.m31(bone.WorldMatrix.m31() + dy);
-            bone.WorldMatrix.m32(bone.WorldMatrix.m32() + dz);
+            mWorldMatrices[t + 12] += dx;
+            mWorldMatrices[t + 13] += dy;
+            mWorldMatrices[t + 14] += dz;
         }
         if (sDebug)
         {
-            Log.d("BONE", "setWorldPosition: %s ", mSkeleton.getBoneName(0), bone.toString());
+            Log.d("BONE", "setWorldPosition: %s ", mSkeleton.getBoneName(0), boneToString(0));
         }
         return true;
     }
 
     public boolean	setScale(float sx, float sy, float sz)
     {
-        Bone bone = mBones[0];
         Vector3f v = new Vector3f();
 
-        bone.getScale(v);
+        getScale(mLocalMatrices, 0, v);
         v.x /= sx;
         v.y /= sy;
         v.z /= sz;
-        bone.WorldMatrix.scale(v.x, v.y, v.z);
-        bone.LocalMatrix.scale(1 / v.x, 1 / v.y, 1 / v.z);
-        bone.Changed = WORLD_ROT | WORLD_POS;
-        for (int i = 1; i < mBones.length; ++i)
+        mTempMtxA.set(mLocalMatrices, 0);
+        mTempMtxA.scale(1 / v.x, 1 / v.y, 1 / v.z).get(mLocalMatrices, 0);
+        for (int i = 0; i < mNumBones; ++i)
         {
-            bone = mBones[i];
-            bone.WorldMatrix.scale(v.x, v.y, v.z);
-            bone.Changed = WORLD_ROT | WORLD_POS;
+            int t = i * 16;
+
+            mTempMtxA.set(mWorldMatrices, t);
+            mTempMtxA.scale(v.x, v.y, v.z).get(mWorldMatrices, t);
+            mChanged[i] = WORLD_ROT | WORLD_POS;
         }
         if (sDebug)
         {
-            Log.d("BONE", "setWorldScale: %s ", mSkeleton.getBoneName(0), bone.toString());
+            Log.d("BONE", "setWorldScale: %s ", mSkeleton.getBoneName(0), boneToString(0));
         }
         mNeedSync = true;
         sync();
@@ -900,74 +987,142 @@ public class SXRPose implements PrettyPrint
         if (!mNeedSync)
             return false;
         mNeedSync = false;
-        for (int i = 0; i < mBones.length; ++i)
+        for (int i = 0; i < mNumBones; ++i)
         {
-            Bone 	bone = mBones[i];
             int		pid = mSkeleton.getParentBoneIndex(i);
+            int     changed = mChanged[i];
             boolean	update;
 
             if (pid < 0)							        // root bone?
                 continue;
-            update = (mBones[pid].Changed & (WORLD_ROT | LOCAL_ROT)) != 0;
+            update = (mChanged[pid] & (WORLD_ROT | LOCAL_ROT)) != 0;
             if (!mSkeleton.isLocked(i))				        // bone not locked?
             {
-                if ((bone.Changed == WORLD_ROT) ||
-                    ((bone.Changed & Bone.WORLD_POS) != 0))	// world matrix changed?
+                if ((changed == WORLD_ROT) ||
+                    ((changed & WORLD_POS) != 0))	        // world matrix changed?
                 {
-                    calcLocal(bone, pid);					// calculate local rotation and position
+                    calcLocal(i, pid);					    // calculate local rotation and position
                     if (sDebug)
                     {
-                        Log.d("BONE", "sync: %s %s", mSkeleton.getBoneName(i), bone.toString());
+                        Log.d("BONE", "sync: %s %s", mSkeleton.getBoneName(i), boneToString(i));
                     }
                     continue;
                 }
             }
             if (update ||								    // use local pos & rot?
-                (bone.Changed & (LOCAL_ROT | WORLD_ROT)) != 0)
+                (changed & (LOCAL_ROT | WORLD_ROT)) != 0)
             {
-                bone.Changed = LOCAL_ROT;
-                calcWorld(bone, pid);				        // update world rotation & position
+                mChanged[i] = LOCAL_ROT;
+                calcWorld(i, pid);				            // update world rotation & position
                 if (sDebug)
                 {
-                    Log.d("BONE", "sync: %s %s", mSkeleton.getBoneName(i), bone.toString());
+                    Log.d("BONE", "sync: %s %s", mSkeleton.getBoneName(i), boneToString(i));
                 }
             }
         }
-        for (int i = 0; i < mBones.length; ++i)
+        for (int i = 0; i < mNumBones; ++i)
         {
-            mBones[i].Changed = 0;
+            mChanged[i] = 0;
         }
         return true;
     }
 
     /**
      * Calculates the world matrix based on the local matrix.
+     * WorldMatrix = WorldMatrix(parent) * LocalMatrix
      */
-    protected void		calcWorld(Bone bone, int parentId)
+    protected void		calcWorld(int boneindex, int parentId)
     {
-        getWorldMatrix(parentId, mTempMtxB);   // WorldMatrix (parent) TempMtxB
-        mTempMtxB.mul(bone.LocalMatrix);       // WorldMatrix = WorldMatrix(parent) * LocalMatrix
-        bone.WorldMatrix.set(mTempMtxB);
+        final float[] w = mWorldMatrices;
+        final float[] l = mLocalMatrices;
+        final int p = parentId * 16;
+        final int t = boneindex * 16;
+
+        for (int c = 0; c < 16; c += 4)
+        {
+            float l0 = l[t + c];
+            float l1 = l[t + c + 1];
+            float l2 = l[t + c + 2];
+            float l3 = l[t + c + 3];
+
+            for (int r = 0; r < 4; ++r)
+            {
+                w[t + c + r] = w[p + r] * l0 + w[p + 4 + r] * l1 + w[p + 8 + r] * l2 + w[p + 12 + r] * l3;
+            }
+        }
      }
 
     /**
      * Calculates the local translation and rotation for a bone.
      * Assumes WorldRot and WorldPos have been calculated for the bone.
      */
-    protected void		calcLocal(Bone bone, int parentId)
+    protected void		calcLocal(int boneindex, int parentId)
     {
+        int t = boneindex * 16;
+
         if (parentId < 0)
         {
-            bone.LocalMatrix.set(bone.WorldMatrix);
+            System.arraycopy(mWorldMatrices, t, mLocalMatrices, t, 16);
             return;
         }
 	/*
 	 * WorldMatrix = WorldMatrix(parent) * LocalMatrix
 	 * LocalMatrix = INVERSE[ WorldMatrix(parent) ] * WorldMatrix
 	 */
-        getWorldMatrix(parentId, mTempMtxA);	// WorldMatrix(par)
-        mTempMtxA.invert();					    // INVERSE[ WorldMatrix(parent) ]
-        mTempMtxA.mul(bone.WorldMatrix, bone.LocalMatrix);  // LocalMatrix = INVERSE[ WorldMatrix(parent) ] * WorldMatrix
+        mTempMtxA.set(mWorldMatrices, parentId * 16);   // WorldMatrix(par)
+        mTempMtxA.invert();					            // INVERSE[ WorldMatrix(parent) ]
+        mTempMtxB.set(mWorldMatrices, t);
+        mTempMtxA.mul(mTempMtxB).get(mLocalMatrices, t); // LocalMatrix = INVERSE[ WorldMatrix(parent) ] * WorldMatrix
+    }
+
+    /*
+     * Replace the rotation of a packed matrix, keeping its translation and scale.
+     */
+    private void        setRotation(float[] m, int t, float x, float y, float z, float w)
+    {
+        float posx = m[t + 12];
+        float posy = m[t + 13];
+        float posz = m[t + 14];
+        float scalex = (float) Math.sqrt(m[t] * m[t] + m[t + 1] * m[t + 1] + m[t + 2] * m[t + 2]);
+        float scaley = (float) Math.sqrt(m[t + 4] * m[t + 4] + m[t + 5] * m[t + 5] + m[t + 6] * m[t + 6]);
+        float scalez = (float) Math.sqrt(m[t + 8] * m[t + 8] + m[t + 9] * m[t + 9] + m[t + 10] * m[t + 10]);
+
+        mTempMtxA.translationRotateScale(posx, posy, posz, x, y, z, w, scalex, scaley, scalez);
+        mTempMtxA.get(m, t);
+    }
+
+    private static void getScale(float[] m, int t, Vector3f scale)
+    {
+        scale.x = (float) Math.sqrt(m[t] * m[t] + m[t + 1] * m[t + 1] + m[t + 2] * m[t + 2]);
+        scale.y = (float) Math.sqrt(m[t + 4] * m[t + 4] + m[t + 5] * m[t + 5] + m[t + 6] * m[t + 6]);
+        scale.z = (float) Math.sqrt(m[t + 8] * m[t + 8] + m[t + 9] * m[t + 9] + m[t + 10] * m[t + 10]);
+    }
+
+    /*
+     * Describe the world and local transforms of a bone for debugging.
+     */
+    String              boneToString(int boneindex)
+    {
+        Vector3f scale = new Vector3f();
+        Quaternionf q = new Quaternionf();
+        Matrix4f mtx = new Matrix4f();
+        StringBuilder sb = new StringBuilder();
+        Formatter format = new Formatter(sb, Locale.US);
+        int t = boneindex * 16;
+
+        getScale(mLocalMatrices, t, scale);
+        format.format(" wpos (%.2f %.2f %.2f)",
+                mWorldMatrices[t + 12], mWorldMatrices[t + 13], mWorldMatrices[t + 14]);
+        q.setFromUnnormalized(mtx.set(mWorldMatrices, t));
+        q.normalize();
+        format.format(" wrot (%.2f %.2f %.2f %.2f)", q.x, q.y, q.z, q.w);
+        format.format(" lpos (%.2f %.2f %.2f)",
+                mLocalMatrices[t + 12], mLocalMatrices[t + 13], mLocalMatrices[t + 14]);
+        q.setFromUnnormalized(mtx.set(mLocalMatrices, t));
+        q.normalize();
+        format.format(" lrot (%.2f %.2f %.2f %.2f)", q.x, q.y, q.z, q.w);
+        format.format(" lscale (%.2f %.2f %.2f)", scale.x, scale.y, scale.z);
+        return sb.toString();
     }
 
     @Override
@@ -981,10 +1136,9 @@ public class SXRPose implements PrettyPrint
         for (int i = 0; i < numBones; ++i)
         {
             String boneName = skel.getBoneName(i);
-            Bone bone = mBones[i];
             sb.append(Log.getSpaces(indent) + 2);
             sb.append(boneName);
-            sb.append(bone.toString());
+            sb.append(boneToString(i));
         }
     }
 
@@ -997,144 +1151,6 @@ public class SXRPose implements PrettyPrint
     }
 
 
-/**
- * Internal structure used to maintain information about each bone.
- */
-static class Bone
-{
-    public int Changed;             // WORLD_ROT, LOCAL_ROT, WORLD_POS
-    public Matrix4f LocalMatrix;    // local transformations (relative to parent)
-    public Matrix4f WorldMatrix;    // world transformations (relative to root of skeleton)
-
-    public static final int LOCAL_ROT = 1;
-    public static final int WORLD_ROT = 2;
-    public static final int WORLD_POS = 4;
-    private static final Quaternionf mTempQuat = new Quaternionf();
-
-    public Bone()
-    {
-        LocalMatrix = new Matrix4f();
-        WorldMatrix = new Matrix4f();
-    }
-
-    public Bone(Bone src)
-    {
-        LocalMatrix = new Matrix4f();
-        WorldMatrix = new Matrix4f();
-        copy(src);
-    }
-
-    public void copy(Bone src)
-    {
-        LocalMatrix.set(src.LocalMatrix);
-        WorldMatrix.set(src.WorldMatrix);
-        Changed = src.Changed;
-    }
-
-    public void clearRotation()
-    {
-        setLocalRotation(0, 0, 0, 1);
-    }
-
-    public void getWorldMatrix(Matrix4f mtx)
-    {
-        mtx.set(WorldMatrix);
-    }
-
-    public void getLocalMatrix(Matrix4f mtx)
-    {
-        mtx.set(LocalMatrix);
-    }
-
-    public void setWorldPosition(float x, float y, float z)
-    {
-        WorldMatrix.setTranslation(x, y, z);
-    }
-
-    public void setLocalPosition(float x, float y, float z)
-    {
-        LocalMatrix.setTranslation(x, y, z);
-    }
-
-    public void getScale(Vector3f scale)
-    {
-        scale.x = (float) Math.sqrt( LocalMatrix.m00() *  LocalMatrix.m00() +
-                LocalMatrix.m01() *  LocalMatrix.m01() +
-                LocalMatrix.m02() *  LocalMatrix.m02());
-        scale.y = (float) Math.sqrt( LocalMatrix.m10() *  LocalMatrix.m10() +
-                LocalMatrix.m11() *  LocalMatrix.m11() +
-                LocalMatrix.m12() *  LocalMatrix.m12());
-        scale.z = (float) Math.sqrt( LocalMatrix.m20() *  LocalMatrix.m20() +
-                LocalMatrix.m21() *  LocalMatrix.m21() +
-                LocalMatrix.m22() *  LocalMatrix.m22());
-    }
-
-    public void setLocalRotation(float x, float y, float z, float w)
-    {
-        float posx = LocalMatrix.m30();
-        float posy = LocalMatrix.m31();
-        float posz = LocalMatrix.m32();
-        float scalex = (float) Math.sqrt( LocalMatrix.m00() *  LocalMatrix.m00() +
-                                            LocalMatrix.m01() *  LocalMatrix.m01() +
-                                            LocalMatrix.m02() *  LocalMatrix.m02());
-        float scaley = (float) Math.sqrt( LocalMatrix.m10() *  LocalMatrix.m10() +
-                                        LocalMatrix.m11() *  LocalMatrix.m11() +
-                                        LocalMatrix.m12() *  LocalMatrix.m12());
-        float scalez = (float) Math.sqrt( LocalMatrix.m20() *  LocalMatrix.m20() +
-                LocalMatrix.m21() *  LocalMatrix.m21() +
-                LocalMatrix.m22() *  LocalMatrix.m22());
-
-        LocalMatrix.translationRotateScale(posx, posy, posz, x, y, z, w, scalex, scaley, scalez);
-    }
-
-    public void setWorldRotation(float x, float y, float z, float w)
-    {
-        float posx = WorldMatrix.m30();
-        float posy = WorldMatrix.m31();
-        float posz = WorldMatrix.m32();
-        float scalex = (float) Math.sqrt( WorldMatrix.m00() *  WorldMatrix.m00() +
-                WorldMatrix.m01() *  WorldMatrix.m01() +
-                WorldMatrix.m02() *  WorldMatrix.m02());
-        float scaley = (float) Math.sqrt( WorldMatrix.m10() *  WorldMatrix.m10() +
-                WorldMatrix.m11() *  WorldMatrix.m11() +
-                WorldMatrix.m12() *  WorldMatrix.m12());
-        float scalez = (float) Math.sqrt( WorldMatrix.m20() *  WorldMatrix.m20() +
-                WorldMatrix.m21() *  WorldMatrix.m21() +
-                WorldMatrix.m22() *  WorldMatrix.m22());
-
-        WorldMatrix.translationRotateScale(posx, posy, posz, x, y, z, w, scalex, scaley, scalez);
-    }
-
-    public void setWorldRotation(Quaternionf q)
-    {
-        setWorldRotation(q.z, q.y, q.z, q.w);
-    }
-
-    @Override
-    public String toString()
-    {
-        Vector3f scale = new Vector3f();
-        StringBuilder sb = new StringBuilder();
-        Formatter format = new Formatter(sb, Locale.US);
-
-        LocalMatrix.getScale(scale);
-        format.format(" wpos (%.2f %.2f %.2f)",
-                WorldMatrix.m30(), WorldMatrix.m31(), WorldMatrix.m32());
-        mTempQuat.setFromUnnormalized(WorldMatrix);
-        mTempQuat.normalize();
-        format.format(" wrot (%.2f %.2f %.2f %.2f)",
-                mTempQuat.x, mTempQuat.y, mTempQuat.z, mTempQuat.w);
-        format.format(" lpos (%.2f %.2f %.2f)",
-                LocalMatrix.m30(), LocalMatrix.m31(), LocalMatrix.m32());
-        mTempQuat.setFromUnnormalized(LocalMatrix);
-        mTempQuat.normalize();
-        format.format(" lrot (%.2f %.2f %.2f %.2f)",
-                mTempQuat.x, mTempQuat.y, mTempQuat.z, mTempQuat.w);
-        format.format(" lscale (%.2f %.2f %.2f)", scale.x, scale.y, scale.z);
-        return sb.toString();
-    }
-}
-
 };
 
 
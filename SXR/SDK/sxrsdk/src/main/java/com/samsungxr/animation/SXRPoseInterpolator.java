@@ -22,7 +22,6 @@ import com.samsungxr.animation.keyframe.SXRQuatAnimation;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
-import static com.samsungxr.animation.SXRPose.Bone;
 import com.samsungxr.utility.Log;
 
 public class SXRPoseInterpolator extends SXRAnimation
@@ -30,7 +29,6 @@ public class SXRPoseInterpolator extends SXRAnimation
     private SXRPose initialPose;
     private SXRPose finalPose;
     private SXRSkeleton pSkeleton;
-    private Bone[] mBones;
 
     private Vector3f poseOnePos;
     private Vector3f poseTwoPos;
@@ -106,7 +104,6 @@ public class SXRPoseInterpolator extends SXRAnimation
         endTimeIndex =  4;
         offset = 0;
         poseDataSize = 20;
-        mBones = new Bone[pSkeleton.getNumBones()];
         poseData = new float[poseDataSize*pSkeleton.getNumBones()];
         pDuration = duration;
 
@@ -119,6 +119,7 @@ public class SXRSkeleton extends SXRComponent implements PrettyPrint
     final private Quaternionf mTempQuatA = new Quaternionf();
     final private Quaternionf mTempQuatB = new Quaternionf();
     final private Matrix4f mTempMtx = new Matrix4f();
+    final private Matrix4f mTempMtxB = new Matrix4f();
     private static int[] sTempBoneParents;
     private SXRNode sTempRoot;
 
@@ -492,15 +493,14 @@ public class SXRSkeleton extends SXRComponent implements PrettyPrint
         {
             for (int i = 0; i < numbones; ++i)
             {
-                SXRPose.Bone srcBone = newpose.getBone(i);
-
-                if ((srcBone.Changed != 0) && !isLocked(i))
+                if ((newpose.getChanged(i) != 0) && !isLocked(i))
                 {
                     mBindPose.getLocalMatrix(i, mTempMtx);
-                    mTempMtx.mul(srcBone.LocalMatrix);
+                    newpose.getStoredLocalMatrix(i, mTempMtxB);
+                    mTempMtx.mul(mTempMtxB);
                     mTempMtx.getUnnormalizedRotation(mTempQuatA);
                     mPose.setLocalRotation(i, mTempQuatA.x, mTempQuatA.y, mTempQuatA.z, mTempQuatA.w);
-                    srcBone.Changed = 0;
+                    newpose.clearChanged(i);
                 }
             }
         }
@@ -511,13 +511,11 @@ public class SXRSkeleton extends SXRComponent implements PrettyPrint
         {
             for (int i = 0; i < numbones; ++i)
             {
-                SXRPose.Bone srcBone = newpose.getBone(i);
-
-                if ((srcBone.Changed != 0) && !isLocked(i))
+                if ((newpose.getChanged(i) != 0) && !isLocked(i))
                 {
                     newpose.getLocalRotation(i, mTempQuatA);
                     mPose.setLocalRotation(i, mTempQuatA.x, mTempQuatA.y, mTempQuatA.z, mTempQuatA.w);
-                    srcBone.Changed = 0;
+                    newpose.clearChanged(i);
                 }
             }
         }
@@ -535,8 +533,7 @@ public class SXRSkeleton extends SXRComponent implements PrettyPrint
                 {
                     if (!isLocked(i))
                     {
-                        SXRPose.Bone srcBone = newpose.getBone(i);
-                        srcBone.getLocalMatrix(mTempMtx);
+                        newpose.getStoredLocalMatrix(i, mTempMtx);
                         mPose.setLocalMatrix(i, mTempMtx);
                     }
                 }
@@ -569,12 +566,11 @@ public class SXRSkeleton extends SXRComponent implements PrettyPrint
         newpose.sync();
         for (int i = 0; i < numbones; ++i)
         {
-            SXRPose.Bone srcBone = newpose.getBone(i);
-
             if ((mBoneOptions[i] & BONE_LOCK_ROTATION) == 0)
             {
+                newpose.getStoredLocalMatrix(i, mTempMtxB);
                 rootMtx.mul(mTempMtx, mTempMtx);
-                mTempMtx.mul(srcBone.LocalMatrix, mTempMtx);
+                mTempMtx.mul(mTempMtxB, mTempMtx);
                 mPose.setWorldMatrix(i, mTempMtx);
             }
         }
@@ -967,8 +963,20 @@ public class SXRSkeleton extends SXRComponent implements PrettyPrint
      */
     public void updateSkinPose()
     {
-        SXRPose skinPose = computeSkinPose();
+        updateSkinPose(computeSkinPose());
+    }
 
+    /**
+     * Update the GPU skinning matrices from a skin pose
+     * already computed by {@link #computeSkinPose()}.
+     * <p>
+     * This lets the skin pose be computed on another thread,
+     * only the copy to the native skeleton is done here.
+     * @param skinPose  skin pose returned by {@link #computeSkinPose()}
+     * @see #updateSkinPose()
+     */
+    public void updateSkinPose(SXRPose skinPose)
+    {
         skinPose.getWorldMatrices(mPoseMatrices);
         NativeSkeleton.setSkinPose(getNative(), mPoseMatrices);
     }
@@ -989,15 +997,7 @@ public class SXRSkeleton extends SXRComponent implements PrettyPrint
      */
     public void updateBonePose()
     {
-        SXRPose pose = getPose();
-        int t = 0;
-
-        for (int i = 0; i < mParentBones.length; ++i)
-        {
-            pose.getLocalMatrix(i, mTempMtx);
-            mTempMtx.get(mPoseMatrices, t);
-            t += 16;
-        }
+        getPose().getLocalMatrices(mPoseMatrices);
         NativeSkeleton.setPose(getNative(), mPoseMatrices);
     }
 
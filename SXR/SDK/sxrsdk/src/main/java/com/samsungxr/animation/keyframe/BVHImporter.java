@@ -25,24 +25,53 @@ import com.samsungxr.utility.Log;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Stack;
+import java.util.Arrays;
 
 
+/**
+ * Imports skeletons, poses and animations from BVH motion capture files.
+ * <p>
+ * The file is tokenized in place from a {@link java.nio.ByteBuffer}
+ * (memory mapped for files) and the motion values are written straight
+ * into the key arrays used by {@link SXRAnimationChannel}, so large clips
+ * import without creating a string per value.
+ */
 public class BVHImporter
 {
+    /**
+     * Receives partially loaded animations from
+     * {@link #importAnimation(SXRAndroidResource, SXRSkeleton, MotionListener)}.
+     */
+    public interface MotionListener
+    {
+        /**
+         * Called when another batch of frames has been read.
+         * The animation always has the duration of the whole file.
+         * Bones hold the last loaded key until the rest of the frames arrive.
+         * @param anim          animation with all of the frames read so far
+         * @param framesLoaded  number of frames read so far
+         * @param numFrames     total number of frames in the file
+         */
+        void onMotionLoaded(SXRSkeletonAnimation anim, int framesLoaded, int numFrames);
+    }
+
+    /*
+     * The first incremental update is sent after this many frames,
+     * subsequent ones each time the number of frames loaded doubles
+     * so the channel key arrays are copied O(frames) times in total.
+     */
+    private static final int FIRST_INCREMENT = 32;
+
     private String mFileName;
     private final SXRContext mContext;
     private final ArrayList<String> mBoneNames = new ArrayList();
     private final ArrayList<Vector3f> mBonePositions = new ArrayList();
     private final ArrayList<Integer> mBoneParents = new ArrayList();
     private final ArrayList<Integer> mBoneChannels = new ArrayList();
-    private BufferedReader mReader;
+    private BVHTokenizer mTokenizer;
     private boolean channelOrder=false;
     private int xPosOffset;
     private int yPosOffset;
@@ -50,6 +79,9 @@ public class BVHImporter
     private int xRotOffset;
     private int yRotOffset;
     private int zRotOffset;
+    private int mNumFrames = 0;
+    private float mSecondsPerFrame = 0;
+    private final float[] mFrameValues = new float[6];
 
     public BVHImporter(SXRContext ctx)
     {
@@ -58,35 +90,46 @@ public class BVHImporter
 
     public SXRSkeletonAnimation importAnimation(SXRAndroidResource res, SXRSkeleton skel) throws IOException
     {
-        InputStream stream = res.getStream();
+        return importAnimation(res, skel, null);
+    }
 
+    /**
+     * Import an animation, reporting progress as the frames are read.
+     * <p>
+     * If a listener is given it is called from the calling thread each
+     * time a batch of frames has been read, with an animation which can
+     * be played right away. Call this from a background thread to start
+     * playing a long clip before it has finished loading.
+     * @param res       BVH file to read
+     * @param skel      skeleton to animate
+     * @param listener  gets the partially loaded animation, may be null
+     * @return animation with all of the frames in the file
+     */
+    public SXRSkeletonAnimation importAnimation(SXRAndroidResource res, SXRSkeleton skel,
+                                                MotionListener listener) throws IOException
+    {
         mFileName = res.getResourceFilename();
-        if (stream == null)
-        {
-            throw new IOException("Cannot open " + mFileName);
-        }
-        InputStreamReader inputreader = new InputStreamReader(stream);
-        mReader = new BufferedReader(inputreader);
+        open(res);
         readSkeleton();
-        return readMotion(skel);
+        return readMotion(skel, listener);
     }
 
     public SXRPose importPose(SXRAndroidResource res)  throws IOException
     {
-        InputStream stream = res.getStream();
-
-        if (stream == null)
-        {
-            throw new IOException("Cannot open " + res.getResourceFilename());
-        }
-        InputStreamReader inputreader = new InputStreamReader(stream);
-        mReader = new BufferedReader(inputreader);
+        open(res);
         readSkeleton();
         SXRSkeleton skel = createSkeleton();
         return readPose(skel);
     }
 
     public SXRSkeleton importSkeleton(SXRAndroidResource res) throws IOException
+    {
+        open(res);
+        readSkeleton();
+        return createSkeleton();
+    }
+
+    private void open(SXRAndroidResource res) throws IOException
     {
         InputStream stream = res.getStream();
 
@@ -94,27 +137,18 @@ public class BVHImporter
         {
             throw new IOException("Cannot open " + res.getResourceFilename());
         }
-        InputStreamReader inputreader = new InputStreamReader(stream);
-        mReader = new BufferedReader(inputreader);
-        readSkeleton();
-        return createSkeleton();
+        mTokenizer = BVHTokenizer.fromStream(stream);
     }
 
     private int readSkeleton() throws IOException
     {
-        String line;
+        String token;
 
-        while ((line = mReader.readLine()) != null)
+        while ((token = mTokenizer.nextToken()) != null)
         {
-            line.trim();
-            String[] words;
-
-            if (line == "")
-                continue;
-            words = line.split("[ \t]");
-            if (words[0].equals("ROOT"))
+            if (token.equals("ROOT"))
             {
-                parseJoint(words[1], -1);
+                parseJoint(mTokenizer.nextToken(), -1);
                 return mBoneParents.size();
             }
         }
@@ -123,81 +157,75 @@ public class BVHImporter
 
     private void parseJoint(String bonename, final int parentIndex) throws IOException
     {
-        String      line;
+        String      opcode;
         final int   boneIndex = mBoneParents.size();
 
         mBoneParents.add(boneIndex, parentIndex);
         mBoneNames.add(boneIndex, bonename);
         mBoneChannels.add(boneIndex, 0);
-        while ((line = mReader.readLine().trim()) != null)
+        while ((opcode = mTokenizer.nextToken()) != null)
         {
-            String[]    words = line.split("[ \t]");
-            String      opcode;
-
-            if (line == "")
-                continue;
-            if (words.length < 1)           // has an argument?
-                continue;
-            opcode = words[0];
             if (opcode.equals("End"))       // end site
             {
+                mTokenizer.nextToken();     // Site
                 bonename = "end_" + mBoneNames.get(boneIndex);
                 parseJoint(bonename, boneIndex);
             }
             else if ((opcode.equals("ROOT")) ||   // found root bone?
                     (opcode.equals("JOINT")))      // found any bone?
             {
-                parseJoint(words[1], boneIndex);
+                parseJoint(mTokenizer.nextToken(), boneIndex);
             }
             else if (opcode.equals("OFFSET"))       // bone position
             {
-                float xpos = Float.parseFloat(words[1]);
-                float ypos = Float.parseFloat(words[2]);
-                float zpos = Float.parseFloat(words[3]);
+                float xpos = mTokenizer.nextFloat();
+                float ypos = mTokenizer.nextFloat();
+                float zpos = mTokenizer.nextFloat();
 
                 mBonePositions.add(boneIndex, new Vector3f(xpos, ypos, zpos));
             }
             else if (opcode.equals("CHANNELS"))
             {
-                if(!channelOrder)
+                int numChannels = mTokenizer.nextInt();
+
+                for (int j = 0; j < numChannels; j++)
                 {
-                       for(int j=2; j<5; j++)
-                       {
-                           if(words[j].equals("Xposition"))  //positions order
-                           {
-                               xPosOffset = j-2;
-                           }
-                           else if (words[j].equals("Yposition"))
-                           {
-                               yPosOffset = j-2;
-                           }
-                           else if (words[j].equals("Zposition"))
-                           {
-                               zPosOffset = j-2;
-                           }
-
-                       }
-
-                        for(int j=5; j<words.length; j++)
-                        {
-                            if(words[j].equals("Xrotation"))  //rotations order
-                            {
-                                xRotOffset = j-5;
-                            }
-                            else if (words[j].equals("Yrotation"))
-                            {
-                                yRotOffset = j-5;
-                            }
-                            else if (words[j].equals("Zrotation"))
-                            {
-                                zRotOffset = j-5;
-                            }
+                    String channel = mTokenizer.nextToken();
 
+                    if (channelOrder)
+                    {
+                        continue;
+                    }
+                    if (j < 3)                          // positions order
+                    {
+                        if (channel.equals("Xposition"))
+                        {
+                            xPosOffset = j;
                         }
-
-                    channelOrder = true;
+                        else if (channel.equals("Yposition"))
+                        {
+                            yPosOffset = j;
+                        }
+                        else if (channel.equals("Zposition"))
+                        {
+                            zPosOffset = j;
+                        }
+                    }
+                    else if (channel.equals("Xrotation"))  // rotations order
+                    {
+                        xRotOffset = j - 3;
+                    }
+                    else if (channel.equals("Yrotation"))
+                    {
+                        yRotOffset = j - 3;
+                    }
+                    else if (channel.equals("Zrotation"))
+                    {
+                        zRotOffset = j - 3;
+                    }
                 }
-               mBoneChannels.add(boneIndex, Integer.parseInt(words[1]));
+                channelOrder = true;
+                mBoneChannels.set(boneIndex, numChannels);
             }
             else if (opcode.equals("MOTION") || opcode.equals("}"))
             {
@@ -228,295 +256,281 @@ public class BVHImporter
         return skel;
     }
 
-    private SXRPose readPose(SXRSkeleton skel) throws IOException
+    /*
+     * Read the MOTION header up to the first frame.
+     */
+    private void readMotionHeader() throws IOException
     {
-        float       x, y, z;
-        String      line;
-        String      bvhbonename = "";
-        Quaternionf q = new Quaternionf();
-        SXRPose     pose = new SXRPose(skel);
+        String token;
 
-        /*
-         * Parse and accumulate all the motion keyframes.
-         * Keyframes for the root bone position are in rootPosKeys;
-         * Keyframes for each bone's rotations are in rootKeysPerBone;
-         */
-        while ((line = mReader.readLine().trim()) != null)
+        mNumFrames = 0;
+        mSecondsPerFrame = 0;
+        while ((token = mTokenizer.nextToken()) != null)
         {
-            String[]    words;
-
-            line = line.trim();
-            words = line.split("[\t ]");
-            if (line == "")
+            if (token.startsWith("Frames"))
             {
-                continue;
+                mNumFrames = mTokenizer.nextInt();
             }
-            if (words[0].startsWith("Frame"))
+            else if (token.equals("Frame"))
             {
-                continue;
-            }
-            int boneIndex = 0;
-            int bvhboneIndex = 0;
-            int i = 0;
-            while (i + 5 < words.length)
-            {
-                String boneNameSkel = skel.getBoneName(boneIndex);
-                bvhbonename = mBoneNames.get(bvhboneIndex);
-                if (bvhbonename.equals(boneNameSkel))
+                if (mTokenizer.nextToken().startsWith("Time"))
                 {
-                    if (bvhbonename == null)
-                    {
-                        throw new IOException("Cannot find bone " + bvhbonename + " in skeleton");
-                    }
-                    x = Float.parseFloat(words[i+xPosOffset]);    // positions
-                    y = Float.parseFloat(words[i+yPosOffset]);
-                    z = Float.parseFloat(words[i+zPosOffset]);
-                    pose.setLocalPosition(boneIndex, x, y, z);
-
-                    x = Float.parseFloat(words[i+xRotOffset]);
-                    y = Float.parseFloat(words[i+yRotOffset]);
-                    z = Float.parseFloat(words[i+zRotOffset]);
-
-                    //rotation order
-
-                    for(int order = 0; order < 3; order++)
-                    {
-                        if(xRotOffset == order)
-                        {
-                            if(order == 0)
-                            {
-                                q.rotationX(x * (float) Math.PI / 180);
-                            }
-                            else
-                            {
-                                q.rotateX(x * (float) Math.PI / 180);
-                            }
-
-                        }
-                        else if(yRotOffset == order)
-                        {
-                            if(order == 0)
-                            {
-                                q.rotationY(y * (float) Math.PI / 180);
-                            }
-                            else
-                            {
-                                q.rotateY(y * (float) Math.PI / 180);
-                            }
-
-                        }
-                        else if(zRotOffset == order)
-                        {
-                            if(order == 0)
-                            {
-                                q.rotationZ(z * (float) Math.PI / 180);
-                            }
-                            else
-                            {
-                                q.rotateZ(z * (float) Math.PI / 180);
-                            }
+                    mSecondsPerFrame = mTokenizer.nextFloat();
+                    return;
+                }
+            }
+        }
+    }
 
-                        }
+    /*
+     * Read the channel values for one bone in the current frame
+     * into mFrameValues: position X, Y, Z then rotation X, Y, Z.
+     * Rotations are in the order they appear in the file.
+     */
+    private void readBoneValues(int numChannels) throws IOException
+    {
+        float[] v = mFrameValues;
 
-                    }
-                    q.normalize();
+        if (numChannels > 3)
+        {
+            v[0] = mTokenizer.nextFloat();
+            v[1] = mTokenizer.nextFloat();
+            v[2] = mTokenizer.nextFloat();
+            for (int i = 6; i < numChannels; ++i)
+            {
+                mTokenizer.nextFloat();         // ignore extra channels
+            }
+        }
+        v[3] = mTokenizer.nextFloat();
+        v[4] = mTokenizer.nextFloat();
+        v[5] = mTokenizer.nextFloat();
+    }
 
-                    pose.setLocalRotation(boneIndex, q.x, q.y, q.z, q.w);
-                    boneIndex++;
-                    bvhboneIndex++;
+    /*
+     * Compute the bone rotation from the values read by readBoneValues,
+     * applying the rotations in the order given by the CHANNELS header.
+     */
+    private void makeRotation(Quaternionf q)
+    {
+        float x = mFrameValues[3 + xRotOffset];
+        float y = mFrameValues[3 + yRotOffset];
+        float z = mFrameValues[3 + zRotOffset];
 
+        for (int order = 0; order < 3; order++)
+        {
+            if (xRotOffset == order)
+            {
+                if (order == 0)
+                {
+                    q.rotationX(x * (float) Math.PI / 180);
+                }
+                else
+                {
+                    q.rotateX(x * (float) Math.PI / 180);
+                }
+            }
+            else if (yRotOffset == order)
+            {
+                if (order == 0)
+                {
+                    q.rotationY(y * (float) Math.PI / 180);
                 }
                 else
                 {
-                    boneIndex++;
+                    q.rotateY(y * (float) Math.PI / 180);
+                }
+            }
+            else if (zRotOffset == order)
+            {
+                if (order == 0)
+                {
+                    q.rotationZ(z * (float) Math.PI / 180);
+                }
+                else
+                {
+                    q.rotateZ(z * (float) Math.PI / 180);
                 }
             }
         }
-        return pose;
+        q.normalize();
     }
 
-    public SXRSkeletonAnimation readMotion(SXRSkeleton skel) throws IOException
+    private SXRPose readPose(SXRSkeleton skel) throws IOException
     {
-        int         numbones = skel.getNumBones();
-        float       x, y, z;
-        String      line;
-        String      bonename = "";
-        float       secondsPerFrame = 0;
-        float       curTime = 0;
-        float[]     rotKeys;
-        float[]     posKeys;
-        ArrayList<float[]> rotKeysPerBone = new ArrayList<>(numbones);
-        ArrayList<float[]> posKeysPerBone = new ArrayList<>(numbones);
         Quaternionf q = new Quaternionf();
-        Quaternionf b = new Quaternionf();
-        SXRPose bindpose = skel.getBindPose();
-        int frameIndex = 0;
-        int numFrames = 0;
+        SXRPose     pose = new SXRPose(skel);
+        int         numbones = mBoneNames.size();
 
         /*
-         * Parse and accumulate all the motion keyframes.
-         * Keyframes for the root bone position are in rootPosKeys;
-         * Keyframes for each bone's rotations are in rootKeysPerBone;
+         * Read all the motion keyframes, the pose
+         * is taken from the last one.
          */
-        while ((line = mReader.readLine()) != null)
+        readMotionHeader();
+        while (mTokenizer.hasNext())
         {
-            String[] words;
-
-            line = line.trim();
-            if (line == "")
-            {
-                continue;
-            }
-            words = line.split("[\t ]");
-            if (words[0].equals("MOTION"))
+            for (int boneIndex = 0; boneIndex < numbones; ++boneIndex)
             {
-                continue;
-            }
-            if (words[0].startsWith("Frames"))
-            {
-                for (int i = 0; i < numbones; i++)
+                int numChannels = mBoneChannels.get(boneIndex);
+
+                if (numChannels == 0)
                 {
-                    numFrames = Integer.parseInt(words[1]);
-                    float[] r = new float[5 * numFrames];
-                    float[] p = new float[4 * numFrames];
-                    rotKeysPerBone.add(r);
-                    posKeysPerBone.add(p);
+                    continue;
                 }
-                continue;
+                readBoneValues(numChannels);
+                if (numChannels > 3)
+                {
+                    pose.setLocalPosition(boneIndex,
+                                          mFrameValues[xPosOffset],
+                                          mFrameValues[yPosOffset],
+                                          mFrameValues[zPosOffset]);
+                }
+                makeRotation(q);
+                pose.setLocalRotation(boneIndex, q.x, q.y, q.z, q.w);
             }
-            if (words[0].equals("Frame") && words[1].startsWith("Time"))
+        }
+        return pose;
+    }
+
+    public SXRSkeletonAnimation readMotion(SXRSkeleton skel) throws IOException
+    {
+        return readMotion(skel, null);
+    }
+
+    private SXRSkeletonAnimation readMotion(SXRSkeleton skel, MotionListener listener) throws IOException
+    {
+        int         numbones = mBoneNames.size();
+        float       curTime = 0;
+        float[][]   rotKeysPerBone = new float[numbones][];
+        float[][]   posKeysPerBone = new float[numbones][];
+        Quaternionf q = new Quaternionf();
+        Quaternionf b = new Quaternionf();
+        SXRPose     bindpose = skel.getBindPose();
+        int         frameIndex = 0;
+        int         nextUpdate = FIRST_INCREMENT;
+        SXRSkeletonAnimation skelanim = null;
+
+        readMotionHeader();
+        for (int boneIndex = 0; boneIndex < numbones; ++boneIndex)
+        {
+            if (mBoneChannels.get(boneIndex) > 0)
             {
-                secondsPerFrame = Float.parseFloat(words[2]);
-                continue;
+                rotKeysPerBone[boneIndex] = new float[5 * mNumFrames];
+                posKeysPerBone[boneIndex] = new float[4 * mNumFrames];
             }
-            /*
-             * Parsing motion for each frame.
-             * Each line in the file contains the root joint position and rotations for all joints.
-             */
-            int boneIndex = 0;
-            int i = 0;
-            int f;
-            while (i + 3 <= words.length)
+        }
+        if (listener != null)
+        {
+            skelanim = new SXRSkeletonAnimation(mFileName, skel, mNumFrames * mSecondsPerFrame);
+        }
+        /*
+         * Parse the motion for each frame directly into the key arrays.
+         * Each frame contains the root joint position and rotations for all joints.
+         * Keyframes for bone positions are in posKeysPerBone,
+         * keyframes for each bone's rotations are in rotKeysPerBone.
+         */
+        while ((frameIndex < mNumFrames) && mTokenizer.hasNext())
+        {
+            for (int boneIndex = 0; boneIndex < numbones; ++boneIndex)
             {
-                bonename = mBoneNames.get(boneIndex);
-                if (bonename == null)
-                {
-                    throw new IOException("Cannot find bone " + bonename + " in skeleton");
-                }
-                if (mBoneChannels.get(boneIndex) == 0)
+                int numChannels = mBoneChannels.get(boneIndex);
+                int f;
+
+                if (numChannels == 0)
                 {
-                    ++boneIndex;
                     continue;
                 }
-                if (mBoneChannels.get(boneIndex) > 3)
+                readBoneValues(numChannels);
+                if (numChannels > 3)
                 {
+                    float[] posKeys = posKeysPerBone[boneIndex];
 
                     f = frameIndex * 4;
-                    posKeys = posKeysPerBone.get(boneIndex);
-                    x = Float.parseFloat(words[i + xPosOffset]);     // X, Y, Z position
-                    y = Float.parseFloat(words[i + yPosOffset]);
-                    z = Float.parseFloat(words[i + zPosOffset]);
-
                     posKeys[f] = curTime;
-                    posKeys[f + 1] = x;                 // bone position
-                    posKeys[f + 2] = y;
-                    posKeys[f + 3] = z;
-                    i += 3;
+                    posKeys[f + 1] = mFrameValues[xPosOffset];     // bone position
+                    posKeys[f + 2] = mFrameValues[yPosOffset];
+                    posKeys[f + 3] = mFrameValues[zPosOffset];
                 }
-
-                rotKeys = rotKeysPerBone.get(boneIndex);
-
-                x = Float.parseFloat(words[i + xRotOffset]);
-                y = Float.parseFloat(words[i + yRotOffset]);
-                z = Float.parseFloat(words[i + zRotOffset]);
-                i += 3;
-
-                //rotation order
-
-                for(int order = 0; order < 3; order++)
-                {
-                    if(xRotOffset == order)
-                    {
-                        if(order == 0)
-                        {
-                            q.rotationX(x * (float) Math.PI / 180);
-                        }
-                        else
-                        {
-                            q.rotateX(x * (float) Math.PI / 180);
-                        }
-
-                    }
-                    else if(yRotOffset == order)
-                    {
-                        if(order == 0)
-                        {
-                            q.rotationY(y * (float) Math.PI / 180);
-                        }
-                        else
-                        {
-                            q.rotateY(y * (float) Math.PI / 180);
-                        }
-
-                    }
-                    else if(zRotOffset == order)
-                    {
-                        if(order == 0)
-                        {
-                            q.rotationZ(z * (float) Math.PI / 180);
-                        }
-                        else
-                        {
-                            q.rotateZ(z * (float) Math.PI / 180);
-                        }
-
-                    }
-
-                }
-
-                q.normalize();
+                makeRotation(q);
                 bindpose.getLocalRotation(boneIndex, b);
                 q.mul(b);
+
+                float[] rotKeys = rotKeysPerBone[boneIndex];
+
                 f = 5 * frameIndex;
                 rotKeys[f++] = curTime;
                 rotKeys[f++] = q.x;
                 rotKeys[f++] = q.y;
                 rotKeys[f++] = q.z;
                 rotKeys[f] = q.w;
-                boneIndex++;
-                //Log.d("BVH", "%s %f %f %f %f", bonename, q.x, q.y, q.z, q.w);
             }
-            curTime += secondsPerFrame;
-            if (++frameIndex >= numFrames)
+            curTime += mSecondsPerFrame;
+            ++frameIndex;
+            if ((listener != null) && (frameIndex == nextUpdate) && (frameIndex < mNumFrames))
             {
-                break;
+                addChannels(skelanim, skel, posKeysPerBone, rotKeysPerBone, frameIndex);
+                listener.onMotionLoaded(skelanim, frameIndex, mNumFrames);
+                nextUpdate *= 2;
             }
         }
+        if (frameIndex < mNumFrames)
+        {
+            Log.w("BVH", "%s has only %d of %d frames", mFileName, frameIndex, mNumFrames);
+        }
         /*
          * Create a skeleton animation with separate channels for each bone
          */
-        SXRAnimationChannel channel;
-        SXRSkeletonAnimation skelanim = new SXRSkeletonAnimation(mFileName, skel, curTime);
+        if (skelanim == null)
+        {
+            skelanim = new SXRSkeletonAnimation(mFileName, skel, curTime);
+        }
+        addChannels(skelanim, skel, posKeysPerBone, rotKeysPerBone, frameIndex);
+        if (listener != null)
+        {
+            listener.onMotionLoaded(skelanim, frameIndex, mNumFrames);
+        }
+        return skelanim;
+    }
+
+    /*
+     * Add a channel for each animated bone using the first numFrames keys.
+     * If all frames are requested the key arrays are used directly,
+     * otherwise the loaded keys are copied so the channel only sees
+     * complete keys.
+     */
+    private void addChannels(SXRSkeletonAnimation skelanim, SXRSkeleton skel,
+                             float[][] posKeysPerBone, float[][] rotKeysPerBone, int numFrames)
+    {
+        boolean partial = numFrames < mNumFrames;
         Vector3f pos = new Vector3f();
+
         for (int boneIndex = 0; boneIndex < mBoneNames.size(); ++boneIndex)
         {
-            if (mBoneChannels.get(boneIndex) == 0)
+            int numChannels = mBoneChannels.get(boneIndex);
+
+            if (numChannels == 0)
             {
                 continue;
             }
-            bonename = mBoneNames.get(boneIndex);
-            rotKeys = rotKeysPerBone.get(boneIndex);
-            posKeys = posKeysPerBone.get(boneIndex);
-            if (mBoneChannels.get(boneIndex) == 3)
+            String bonename = mBoneNames.get(boneIndex);
+            float[] rotKeys = rotKeysPerBone[boneIndex];
+            float[] posKeys = posKeysPerBone[boneIndex];
+
+            if (numChannels == 3)
             {
                 skel.getBindPose().getLocalPosition(boneIndex, pos);
                 posKeys = new float[] { 0, pos.x, pos.y, pos.z };
             }
-            channel = new SXRAnimationChannel(bonename, posKeys, rotKeys, null,
+            else if (partial)
+            {
+                posKeys = Arrays.copyOf(posKeys, 4 * numFrames);
+            }
+            if (partial)
+            {
+                rotKeys = Arrays.copyOf(rotKeys, 5 * numFrames);
+            }
+            SXRAnimationChannel channel = new SXRAnimationChannel(bonename, posKeys, rotKeys, null,
                     SXRAnimationBehavior.DEFAULT, SXRAnimationBehavior.DEFAULT);
             skelanim.addChannel(bonename, channel);
         }
-        return skelanim;
     }
 }
-
@@ -0,0 +1,253 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsungxr.animation.keyframe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Whitespace separated tokenizer for BVH files.
+ * <p>
+ * The whole file is held in a {@link ByteBuffer}, memory mapped when the
+ * input is a file. Header keywords are returned as strings but numbers
+ * are parsed directly from the buffer so the motion section, which is
+ * almost all of a BVH file, is read without creating any objects.
+ */
+class BVHTokenizer
+{
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private final ByteBuffer mBuffer;
+    private final int mLimit;
+    private int mPos;
+
+    BVHTokenizer(ByteBuffer buffer)
+    {
+        mBuffer = buffer;
+        mPos = buffer.position();
+        mLimit = buffer.limit();
+    }
+
+    /**
+     * Make a tokenizer for the contents of a stream.
+     * File streams are memory mapped, other streams are read into memory.
+     * The stream is closed when this function returns.
+     */
+    static BVHTokenizer fromStream(InputStream stream) throws IOException
+    {
+        try
+        {
+            if (stream instanceof FileInputStream)
+            {
+                FileChannel channel = ((FileInputStream) stream).getChannel();
+                long pos = channel.position();
+                return new BVHTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, pos, channel.size() - pos));
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(stream.available(), 8192));
+            byte[] chunk = new byte[65536];
+            int n;
+
+            while ((n = stream.read(chunk)) > 0)
+            {
+                bytes.write(chunk, 0, n);
+            }
+            return new BVHTokenizer(ByteBuffer.wrap(bytes.toByteArray()));
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Skip whitespace.
+     * @return true if there is another token, false at end of input
+     */
+    boolean hasNext()
+    {
+        skipWhitespace();
+        return mPos < mLimit;
+    }
+
+    /**
+     * Get the next token as a string.
+     * Only used for the header, which is small.
+     * @return next token or null at end of input
+     */
+    String nextToken()
+    {
+        skipWhitespace();
+        if (mPos >= mLimit)
+        {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+
+        while ((mPos < mLimit) && !isWhitespace(mBuffer.get(mPos)))
+        {
+            sb.append((char) (mBuffer.get(mPos++) & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    int nextInt() throws IOException
+    {
+        return (int) nextFloat();
+    }
+
+    /**
+     * Parse the next token as a floating point number.
+     * Plain decimal numbers with an optional exponent are converted
+     * in place, anything else falls back to {@link Float#parseFloat(String)}.
+     * @return value of the next token
+     * @throws IOException at end of input or if the token is not a number
+     */
+    float nextFloat() throws IOException
+    {
+        skipWhitespace();
+        if (mPos >= mLimit)
+        {
+            throw new IOException("BVH: unexpected end of file");
+        }
+        final int start = mPos;
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        int numDigits = 0;
+        byte c = mBuffer.get(mPos);
+
+        if ((c == '-') || (c == '+'))
+        {
+            negative = (c == '-');
+            ++mPos;
+        }
+        while ((mPos < mLimit) && isDigit(c = mBuffer.get(mPos)))
+        {
+            if (digits < MAX_MANTISSA_DIGITS)
+            {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0)
+                {
+                    ++digits;
+                }
+            }
+            else
+            {
+                ++scale;
+            }
+            ++numDigits;
+            ++mPos;
+        }
+        if ((mPos < mLimit) && (mBuffer.get(mPos) == '.'))
+        {
+            ++mPos;
+            while ((mPos < mLimit) && isDigit(c = mBuffer.get(mPos)))
+            {
+                if (digits < MAX_MANTISSA_DIGITS)
+                {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0)
+                    {
+                        ++digits;
+                    }
+                    --scale;
+                }
+                ++numDigits;
+                ++mPos;
+            }
+        }
+        if ((mPos < mLimit) && (((c = mBuffer.get(mPos)) == 'e') || (c == 'E')))
+        {
+            int exp = 0;
+            boolean negExp = false;
+
+            ++mPos;
+            if ((mPos < mLimit) && (((c = mBuffer.get(mPos)) == '-') || (c == '+')))
+            {
+                negExp = (c == '-');
+                ++mPos;
+            }
+            while ((mPos < mLimit) && isDigit(c = mBuffer.get(mPos)))
+            {
+                exp = Math.min(exp * 10 + (c - '0'), 1000);
+                ++mPos;
+            }
+            scale += negExp ? -exp : exp;
+        }
+        if ((numDigits == 0) || ((mPos < mLimit) && !isWhitespace(mBuffer.get(mPos))))
+        {
+            return slowParse(start);
+        }
+        double value;
+        if (scale == 0)
+        {
+            value = mantissa;
+        }
+        else if ((scale < 0) && (scale >= -22))
+        {
+            value = mantissa / POWERS_OF_TEN[-scale];
+        }
+        else if ((scale > 0) && (scale <= 22))
+        {
+            value = mantissa * POWERS_OF_TEN[scale];
+        }
+        else
+        {
+            return slowParse(start);
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    private float slowParse(int start) throws IOException
+    {
+        mPos = start;
+        String token = nextToken();
+        try
+        {
+            return Float.parseFloat(token);
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IOException("BVH: expected a number but found " + token);
+        }
+    }
+
+    private void skipWhitespace()
+    {
+        while ((mPos < mLimit) && isWhitespace(mBuffer.get(mPos)))
+        {
+            ++mPos;
+        }
+    }
+
+    private static boolean isWhitespace(byte c)
+    {
+        return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\r');
+    }
+
+    private static boolean isDigit(byte c)
+    {
+        return (c >= '0') && (c <= '9');
+    }
+}
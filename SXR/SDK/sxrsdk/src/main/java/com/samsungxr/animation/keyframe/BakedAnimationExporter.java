@@ -0,0 +1,230 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsungxr.animation.keyframe;
+
+import com.samsungxr.animation.SXRSkeleton;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Writes a skeleton and its animations in the binary format
+ * read by {@link BakedAnimationImporter}.
+ * <p>
+ * Use this once, for example at build time, to convert avatars
+ * imported from BVH or with the asset loader. Loading the baked
+ * file does not parse any text and the animation keys are used
+ * directly from the file.
+ * <p>
+ * Compressed channels are written with their remaining keys as floats.
+ * @see BakedAnimationImporter
+ */
+public class BakedAnimationExporter
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Write a skeleton and animations to a file.
+     * @param file  file to write
+     * @param skel  skeleton to write, may be null to only write animations
+     * @param clips animations to write, may be null to only write the skeleton
+     */
+    public void export(File file, SXRSkeleton skel, List<SXRSkeletonAnimation> clips) throws IOException
+    {
+        FileOutputStream stream = new FileOutputStream(file);
+
+        try
+        {
+            export(stream, skel, clips);
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Write a skeleton and animations to a stream.
+     * The stream is not closed.
+     * @param stream where to write
+     * @param skel   skeleton to write, may be null to only write animations
+     * @param clips  animations to write, may be null to only write the skeleton
+     */
+    public void export(OutputStream stream, SXRSkeleton skel, List<SXRSkeletonAnimation> clips) throws IOException
+    {
+        int numBones = (skel != null) ? skel.getNumBones() : 0;
+        int numClips = (clips != null) ? clips.size() : 0;
+        int size = BakedAnimationImporter.HEADER_SIZE;
+
+        if (skel != null)
+        {
+            size += sizeOf(skel);
+        }
+        for (int i = 0; i < numClips; ++i)
+        {
+            size += sizeOf(clips.get(i));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(BakedAnimationImporter.MAGIC);
+        buffer.putInt(BakedAnimationImporter.VERSION);
+        buffer.putInt(numBones);
+        buffer.putInt(numClips);
+        if (skel != null)
+        {
+            writeSkeleton(buffer, skel);
+        }
+        for (int i = 0; i < numClips; ++i)
+        {
+            writeClip(buffer, clips.get(i));
+        }
+        stream.write(buffer.array(), 0, buffer.position());
+    }
+
+    private void writeSkeleton(ByteBuffer buffer, SXRSkeleton skel)
+    {
+        int numBones = skel.getNumBones();
+        float[] matrices = new float[numBones * 16];
+
+        for (int i = 0; i < numBones; ++i)
+        {
+            buffer.putInt(skel.getParentBoneIndex(i));
+        }
+        skel.getBindPose().getLocalMatrices(matrices);
+        putFloats(buffer, matrices);
+        for (int i = 0; i < numBones; ++i)
+        {
+            putString(buffer, skel.getBoneName(i));
+        }
+    }
+
+    private void writeClip(ByteBuffer buffer, SXRSkeletonAnimation clip)
+    {
+        SXRSkeleton skel = clip.getSkeleton();
+        SXRAnimationChannel[] channels = getChannels(clip);
+
+        putString(buffer, clip.mName);
+        buffer.putFloat(clip.getDuration());
+        buffer.putInt(countChannels(channels));
+        for (int i = 0; i < channels.length; ++i)
+        {
+            SXRAnimationChannel channel = channels[i];
+
+            if (channel == null)
+            {
+                continue;
+            }
+            putString(buffer, skel.getBoneName(i));
+            buffer.putInt(channel.getPreState().ordinal());
+            buffer.putInt(channel.getPostState().ordinal());
+            buffer.putInt(channel.getNumPosKeys());
+            buffer.putInt(channel.getNumRotKeys());
+            buffer.putInt(channel.getNumScaleKeys());
+            putFloats(buffer, channel.getPosAnimation().getKeys());
+            putFloats(buffer, channel.getRotAnimation().getKeys());
+            putFloats(buffer, channel.getScaleAnimation().getKeys());
+        }
+    }
+
+    private static int sizeOf(SXRSkeleton skel)
+    {
+        int numBones = skel.getNumBones();
+        int size = numBones * (4 + 16 * 4);
+
+        for (int i = 0; i < numBones; ++i)
+        {
+            size += sizeOf(skel.getBoneName(i));
+        }
+        return size;
+    }
+
+    private static int sizeOf(SXRSkeletonAnimation clip)
+    {
+        SXRSkeleton skel = clip.getSkeleton();
+        SXRAnimationChannel[] channels = getChannels(clip);
+        int size = sizeOf(clip.mName) + 8;
+
+        for (int i = 0; i < channels.length; ++i)
+        {
+            SXRAnimationChannel channel = channels[i];
+
+            if (channel != null)
+            {
+                size += sizeOf(skel.getBoneName(i)) + 5 * 4;
+                size += (channel.getNumPosKeys() * 4 +
+                         channel.getNumRotKeys() * 5 +
+                         channel.getNumScaleKeys() * 4) * 4;
+            }
+        }
+        return size;
+    }
+
+    private static int sizeOf(String s)
+    {
+        return 4 + BakedAnimationImporter.align(getBytes(s).length);
+    }
+
+    private static SXRAnimationChannel[] getChannels(SXRSkeletonAnimation clip)
+    {
+        return (clip.mBoneChannels != null) ? clip.mBoneChannels : new SXRAnimationChannel[0];
+    }
+
+    private static int countChannels(SXRAnimationChannel[] channels)
+    {
+        int n = 0;
+
+        for (SXRAnimationChannel channel : channels)
+        {
+            if (channel != null)
+            {
+                ++n;
+            }
+        }
+        return n;
+    }
+
+    private static void putFloats(ByteBuffer buffer, float[] values)
+    {
+        buffer.asFloatBuffer().put(values);
+        buffer.position(buffer.position() + values.length * 4);
+    }
+
+    /*
+     * Strings are a byte count followed by UTF-8 bytes,
+     * padded with zeros so the next field is 4 byte aligned.
+     */
+    private static void putString(ByteBuffer buffer, String s)
+    {
+        byte[] bytes = getBytes(s);
+
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        for (int i = bytes.length; i < BakedAnimationImporter.align(bytes.length); ++i)
+        {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static byte[] getBytes(String s)
+    {
+        return (s != null) ? s.getBytes(UTF8) : new byte[0];
+    }
+}
@@ -0,0 +1,307 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.samsungxr.animation.keyframe;
+
+import com.samsungxr.SXRAndroidResource;
+import com.samsungxr.SXRContext;
+import com.samsungxr.animation.SXRPose;
+import com.samsungxr.animation.SXRSkeleton;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads skeletons and animations written by {@link BakedAnimationExporter}.
+ * <p>
+ * Files are memory mapped. Apart from the bone and clip names nothing
+ * is decoded: the animation channels read their keys through
+ * {@link FloatBuffer} views of the mapped file, so loading a clip
+ * does not allocate or copy any key data. A channel copies its keys
+ * into an array only if they are changed after loading.
+ * <p>
+ * All numbers are little endian and every field is 4 byte aligned:
+ * <pre>
+ * header       int magic "SXRA", int version,
+ *              int number of bones, int number of clips
+ * skeleton     int[bones] parent bone indices (-1 for a root),
+ *              float[bones * 16] bind pose local matrices, column major,
+ *              string[bones] bone names
+ * clip         string name, float duration, int number of channels
+ *   channel    string bone name, int pre behavior, int post behavior,
+ *              int position keys, int rotation keys, int scale keys,
+ *              float[] position keys (time, x, y, z),
+ *              float[] rotation keys (time, x, y, z, w),
+ *              float[] scale keys (time, x, y, z)
+ * string       int byte count, UTF-8 bytes padded with zeros
+ * </pre>
+ * The skeleton section is absent when there are no bones.
+ */
+public class BakedAnimationImporter
+{
+    static final int MAGIC = 0x41525853;    // "SXRA"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final SXRAnimationBehavior[] BEHAVIORS = SXRAnimationBehavior.values();
+
+    private final SXRContext mContext;
+    private String mFileName;
+    private ByteBuffer mBuffer;
+    private int mNumBones;
+    private int mNumClips;
+
+    public BakedAnimationImporter(SXRContext ctx)
+    {
+        mContext = ctx;
+    }
+
+    /**
+     * Import the skeleton from a baked file.
+     * @param res   file written by {@link BakedAnimationExporter}
+     * @return skeleton with the bind pose from the file
+     * @throws IOException if the file cannot be read or has no skeleton
+     */
+    public SXRSkeleton importSkeleton(SXRAndroidResource res) throws IOException
+    {
+        open(res);
+        return readSkeleton();
+    }
+
+    /**
+     * Import the first animation from a baked file.
+     * @param res   file written by {@link BakedAnimationExporter}
+     * @param skel  skeleton to animate, if null the skeleton in the file is used
+     * @return animation or null if the file has no animations
+     */
+    public SXRSkeletonAnimation importAnimation(SXRAndroidResource res, SXRSkeleton skel) throws IOException
+    {
+        List<SXRSkeletonAnimation> clips = importAnimations(res, skel);
+
+        return clips.isEmpty() ? null : clips.get(0);
+    }
+
+    /**
+     * Import all of the animations from a baked file.
+     * <p>
+     * Channels are matched to the bones of the skeleton by name,
+     * channels for bones the skeleton does not have are ignored.
+     * @param res   file written by {@link BakedAnimationExporter}
+     * @param skel  skeleton to animate, if null the skeleton in the file is used
+     * @return animations in the order they were exported
+     */
+    public List<SXRSkeletonAnimation> importAnimations(SXRAndroidResource res, SXRSkeleton skel) throws IOException
+    {
+        open(res);
+        if (skel == null)
+        {
+            skel = readSkeleton();
+        }
+        else
+        {
+            skipSkeleton();
+        }
+        List<SXRSkeletonAnimation> clips = new ArrayList<SXRSkeletonAnimation>(mNumClips);
+
+        try
+        {
+            for (int i = 0; i < mNumClips; ++i)
+            {
+                clips.add(readClip(skel));
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            throw new IOException(mFileName + ": bad or truncated animation data", ex);
+        }
+        return clips;
+    }
+
+    private void open(SXRAndroidResource res) throws IOException
+    {
+        mFileName = res.getResourceFilename();
+        mBuffer = map(res.getStream());
+        mBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        if ((mBuffer.remaining() < HEADER_SIZE) ||
+            (mBuffer.getInt() != MAGIC))
+        {
+            throw new IOException(mFileName + ": not a baked animation file");
+        }
+        int version = mBuffer.getInt();
+        if (version != VERSION)
+        {
+            throw new IOException(mFileName + ": unsupported baked animation version " + version);
+        }
+        mNumBones = mBuffer.getInt();
+        mNumClips = mBuffer.getInt();
+        if ((mNumBones < 0) || (mNumClips < 0))
+        {
+            throw new IOException(mFileName + ": bad header");
+        }
+    }
+
+    private SXRSkeleton readSkeleton() throws IOException
+    {
+        if (mNumBones == 0)
+        {
+            throw new IOException(mFileName + ": file does not contain a skeleton");
+        }
+        int[] parents = new int[mNumBones];
+        float[] matrices = new float[mNumBones * 16];
+        String[] names = new String[mNumBones];
+
+        try
+        {
+            mBuffer.asIntBuffer().get(parents);
+            skip(mNumBones * 4);
+            mBuffer.asFloatBuffer().get(matrices);
+            skip(matrices.length * 4);
+            for (int i = 0; i < mNumBones; ++i)
+            {
+                names[i] = getString();
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            throw new IOException(mFileName + ": unexpected end of file", ex);
+        }
+        SXRSkeleton skel = new SXRSkeleton(mContext, parents);
+        SXRPose bindPose = new SXRPose(skel);
+
+        skel.setBoneNames(names);
+        bindPose.setLocalMatrices(matrices);
+        skel.setBindPose(bindPose);
+        return skel;
+    }
+
+    private void skipSkeleton() throws IOException
+    {
+        try
+        {
+            skip(mNumBones * (4 + 16 * 4));
+            for (int i = 0; i < mNumBones; ++i)
+            {
+                skip(align(mBuffer.getInt()));
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            throw new IOException(mFileName + ": unexpected end of file", ex);
+        }
+    }
+
+    private SXRSkeletonAnimation readClip(SXRSkeleton skel)
+    {
+        String name = getString();
+        float duration = mBuffer.getFloat();
+        int numChannels = mBuffer.getInt();
+        SXRSkeletonAnimation clip = new SXRSkeletonAnimation(name, skel, duration);
+
+        for (int i = 0; i < numChannels; ++i)
+        {
+            String boneName = getString();
+            SXRAnimationBehavior preState = BEHAVIORS[mBuffer.getInt()];
+            SXRAnimationBehavior postState = BEHAVIORS[mBuffer.getInt()];
+            int numPosKeys = mBuffer.getInt();
+            int numRotKeys = mBuffer.getInt();
+            int numScaleKeys = mBuffer.getInt();
+            SXRFloatAnimation posKeys = new SXRFloatAnimation(getFloats(numPosKeys * 4), 4);
+            SXRQuatAnimation rotKeys = new SXRQuatAnimation(getFloats(numRotKeys * 5));
+            SXRFloatAnimation scaleKeys = new SXRFloatAnimation(getFloats(numScaleKeys * 4), 4);
+
+            clip.addChannel(boneName, new SXRAnimationChannel(boneName, posKeys, rotKeys, scaleKeys,
+                                                              preState, postState));
+        }
+        return clip;
+    }
+
+    /*
+     * Make a float view of the next n floats and skip over them.
+     * slice() resets the byte order so it is set again before
+     * the view is made.
+     */
+    private FloatBuffer getFloats(int n)
+    {
+        if ((n < 0) || (n * 4 > mBuffer.remaining()))
+        {
+            throw new BufferUnderflowException();
+        }
+        ByteBuffer bytes = mBuffer.slice();
+
+        bytes.limit(n * 4);
+        skip(n * 4);
+        return bytes.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    private String getString()
+    {
+        int length = mBuffer.getInt();
+        byte[] bytes = new byte[length];
+
+        mBuffer.get(bytes);
+        skip(align(length) - length);
+        return new String(bytes, UTF8);
+    }
+
+    private void skip(int n)
+    {
+        mBuffer.position(mBuffer.position() + n);
+    }
+
+    static int align(int n)
+    {
+        return (n + 3) & ~3;
+    }
+
+    /*
+     * File streams are memory mapped, other streams
+     * are read into memory. The stream is closed.
+     */
+    private static ByteBuffer map(InputStream stream) throws IOException
+    {
+        try
+        {
+            if (stream instanceof FileInputStream)
+            {
+                FileChannel channel = ((FileInputStream) stream).getChannel();
+                long pos = channel.position();
+                return channel.map(FileChannel.MapMode.READ_ONLY, pos, channel.size() - pos);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(stream.available(), 8192));
+            byte[] chunk = new byte[65536];
+            int n;
+
+            while ((n = stream.read(chunk)) > 0)
+            {
+                bytes.write(chunk, 0, n);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
+import java.util.Locale;
+
 /**
  * Describes the animation of a single node.<p>
  *
@@ -77,6 +79,29 @@ public final class SXRAnimationChannel implements PrettyPrint {
         mPostState = postBehavior;
     }
 
+    /**
+     * Constructor which uses existing key animations, for example
+     * ones which read their keys from a mapped file.
+     *
+     * @param nodeName name of corresponding scene graph node
+     * @param posKeys position keys: time, x, y, z
+     * @param rotKeys rotation keys: time, x, y, z, w
+     * @param scaleKeys scale keys: time, x, y, z
+     * @param preBehavior behavior before animation start
+     * @param postBehavior behavior after animation end
+     */
+    public SXRAnimationChannel(String nodeName, SXRFloatAnimation posKeys, SXRQuatAnimation rotKeys,
+                               SXRFloatAnimation scaleKeys, SXRAnimationBehavior preBehavior,
+                               SXRAnimationBehavior postBehavior)
+    {
+        m_nodeName = nodeName;
+        mPosInterpolator = posKeys;
+        mRotInterpolator = rotKeys;
+        mSclInterpolator = scaleKeys;
+        mPreState = preBehavior;
+        mPostState = postBehavior;
+    }
+
     /**
      * Returns the name of the scene graph node affected by this animation.<p>
      *
@@ -297,6 +322,99 @@ public final class SXRAnimationChannel implements PrettyPrint {
 
     }
 
+    /**
+     * Size and error of compressed animation channels.
+     * @see #compress(float, float, float)
+     */
+    public static final class CompressionStats
+    {
+        /** number of bytes used by the keys before compression */
+        public int originalBytes;
+        /** number of bytes used by the keys after compression */
+        public int compressedBytes;
+        /** largest position error in the units of the animation */
+        public float maxPositionError;
+        /** largest rotation error in radians */
+        public float maxRotationError;
+        /** largest scale error */
+        public float maxScaleError;
+
+        /**
+         * @return original size divided by compressed size
+         */
+        public float getRatio()
+        {
+            return (compressedBytes > 0) ? (float) originalBytes / compressedBytes : 1.0f;
+        }
+
+        /**
+         * Accumulate the statistics of another channel.
+         */
+        public void add(CompressionStats stats)
+        {
+            originalBytes += stats.originalBytes;
+            compressedBytes += stats.compressedBytes;
+            maxPositionError = Math.max(maxPositionError, stats.maxPositionError);
+            maxRotationError = Math.max(maxRotationError, stats.maxRotationError);
+            maxScaleError = Math.max(maxScaleError, stats.maxScaleError);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(Locale.US, "%d -> %d bytes (%.1fx) max error pos %g rot %g scale %g",
+                                 originalBytes, compressedBytes, getRatio(),
+                                 maxPositionError, maxRotationError, maxScaleError);
+        }
+    }
+
+    /**
+     * Compress the keys of this channel.
+     * <p>
+     * Keys which can be interpolated from their neighbors within the
+     * tolerance are removed. Positions and scales are stored as 16 bit
+     * fixed point numbers and rotations with the smallest three encoding
+     * when the quantization error is small enough for the tolerance.
+     * The keys are decoded while the channel is animated.
+     * @param posTolerance      largest position error allowed
+     * @param rotTolerance      largest rotation error allowed, in radians
+     * @param scaleTolerance    largest scale error allowed
+     * @return compression ratio and the largest error measured at the
+     *         original key times
+     * @see SXRFloatAnimation#compress(float)
+     */
+    public CompressionStats compress(float posTolerance, float rotTolerance, float scaleTolerance)
+    {
+        CompressionStats stats = new CompressionStats();
+
+        stats.originalBytes = mPosInterpolator.getDataSize() +
+                              mRotInterpolator.getDataSize() +
+                              mSclInterpolator.getDataSize();
+        stats.maxPositionError = mPosInterpolator.compress(posTolerance);
+        stats.maxRotationError = mRotInterpolator.compress(rotTolerance);
+        stats.maxScaleError = mSclInterpolator.compress(scaleTolerance);
+        stats.compressedBytes = mPosInterpolator.getDataSize() +
+                                mRotInterpolator.getDataSize() +
+                                mSclInterpolator.getDataSize();
+        return stats;
+    }
+
+    /**
+     * @return number of bytes used by the keys of this channel
+     */
+    public int getDataSize()
+    {
+        return mPosInterpolator.getDataSize() +
+               mRotInterpolator.getDataSize() +
+               mSclInterpolator.getDataSize();
+    }
+
+    SXRFloatAnimation getPosAnimation() { return mPosInterpolator; }
+
+    SXRQuatAnimation getRotAnimation() { return mRotInterpolator; }
+
+    SXRFloatAnimation getScaleAnimation() { return mSclInterpolator; }
+
     @Override
     public void prettyPrint(StringBuffer sb, int indent) {
         sb.append(Log.getSpaces(indent));
@@ -19,8 +19,15 @@ import com.samsungxr.utility.Log;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
+import java.nio.FloatBuffer;
+
 /**
  * Describes the animation of a set of floating point values.
+ * <p>
+ * Keys are stored as floats, each key is the time followed by the values.
+ * {@link #compress(float)} can reduce the number of keys and store
+ * the values as 16 bit fixed point numbers to save memory.
+ * Compressed keys are decoded as the animation is sampled.
  */
 public class SXRFloatAnimation implements PrettyPrint
 {
@@ -72,6 +79,14 @@ public class SXRFloatAnimation implements PrettyPrint
 
         float[] getKeyData() { return mKeyData; }
 
+        /**
+         * @return number of bytes used to store the keys
+         */
+        public int getDataSize()
+        {
+            return mKeyData.length * 4;
+        }
+
         void setKeyData(float[] keyData)
         {
             mKeyData = keyData;
@@ -241,9 +256,318 @@ public class SXRFloatAnimation implements PrettyPrint
         }
     };
 
+    /**
+     * Interpolator for quantized keys.
+     * <p>
+     * Key times are kept as floats. Each value is stored as a 16 bit
+     * unsigned fixed point number between the smallest and largest
+     * value of its component, so the error is at most half a step.
+     */
+    public static class QuantizedInterpolator extends LinearInterpolator
+    {
+        protected final int mValuesPerKey;
+        protected float[] mTimes;
+        protected short[] mValues;
+        protected final float[] mMin;
+        protected final float[] mStep;
+
+        /**
+         * Quantize float key data.
+         * @param keyData   float keys: time followed by the values
+         * @param keySize   number of floats per key, including the time
+         */
+        public QuantizedInterpolator(float[] keyData, int keySize)
+        {
+            super(keyData, keySize);
+            int numKeys = keyData.length / keySize;
+
+            mValuesPerKey = keySize - 1;
+            mMin = new float[mValuesPerKey];
+            mStep = new float[mValuesPerKey];
+            getRange(keyData, keySize, mMin, mStep);
+            mTimes = new float[numKeys];
+            mValues = new short[numKeys * mValuesPerKey];
+            mKeyData = mTimes;
+            for (int i = 0; i < numKeys; ++i)
+            {
+                int ofs = i * keySize;
+
+                mTimes[i] = keyData[ofs];
+                for (int j = 0; j < mValuesPerKey; ++j)
+                {
+                    mValues[i * mValuesPerKey + j] = encode(keyData[ofs + 1 + j], j);
+                }
+            }
+        }
+
+        /**
+         * Compute the smallest value and the quantization step
+         * for each component of the key values.
+         */
+        static void getRange(float[] keyData, int keySize, float[] min, float[] step)
+        {
+            int n = keySize - 1;
+
+            for (int j = 0; j < n; ++j)
+            {
+                float lo = Float.MAX_VALUE;
+                float hi = -Float.MAX_VALUE;
+
+                for (int ofs = 1 + j; ofs < keyData.length; ofs += keySize)
+                {
+                    lo = Math.min(lo, keyData[ofs]);
+                    hi = Math.max(hi, keyData[ofs]);
+                }
+                if (lo > hi)
+                {
+                    lo = hi = 0;
+                }
+                min[j] = lo;
+                step[j] = (hi - lo) / 65535.0f;
+            }
+        }
+
+        protected short encode(float v, int component)
+        {
+            float step = mStep[component];
+
+            if (step <= 0)
+            {
+                return 0;
+            }
+            int q = Math.round((v - mMin[component]) / step);
+            return (short) Math.max(0, Math.min(65535, q));
+        }
+
+        protected float decode(int index, int component)
+        {
+            return mMin[component] + (mValues[index] & 0xFFFF) * mStep[component];
+        }
+
+        @Override
+        public int getDataSize()
+        {
+            return mTimes.length * 4 + mValues.length * 2 + mValuesPerKey * 8;
+        }
+
+        @Override
+        public int getKeyOffset(int keyIndex)
+        {
+            if ((keyIndex < 0) || (keyIndex >= mTimes.length))
+            {
+                return -1;
+            }
+            return keyIndex;
+        }
+
+        @Override
+        public int getNumKeys()
+        {
+            return mTimes.length;
+        }
+
+        @Override
+        public float getTime(int keyIndex)
+        {
+            if ((keyIndex < 0) || (keyIndex >= mTimes.length))
+            {
+                return -1.0f;
+            }
+            return mTimes[keyIndex];
+        }
+
+        @Override
+        public void setTime(int keyIndex, float time)
+        {
+            if ((keyIndex >= 0) && (keyIndex < mTimes.length))
+            {
+                mTimes[keyIndex] = time;
+            }
+        }
+
+        /**
+         * Values outside of the original range are clamped.
+         */
+        @Override
+        public boolean setValues(int keyIndex, float[] values)
+        {
+            if (getKeyOffset(keyIndex) < 0)
+            {
+                return false;
+            }
+            for (int j = 0; j < mValuesPerKey; ++j)
+            {
+                mValues[keyIndex * mValuesPerKey + j] = encode(values[j], j);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean interpolateValues(int keyIndex, float[] values, float factor)
+        {
+            if ((getKeyOffset(keyIndex) < 0) || (getKeyOffset(keyIndex + 1) < 0))
+            {
+                return false;
+            }
+            int first = keyIndex * mValuesPerKey;
+            int last = first + mValuesPerKey;
+
+            for (int j = 0; j < mValuesPerKey; ++j)
+            {
+                values[j] = factor * decode(last + j, j) + (1.0f - factor) * decode(first + j, j);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean getValues(int keyIndex, float[] values)
+        {
+            if (getKeyOffset(keyIndex) < 0)
+            {
+                return false;
+            }
+            int first = keyIndex * mValuesPerKey;
+
+            for (int j = 0; j < mValuesPerKey; ++j)
+            {
+                values[j] = decode(first + j, j);
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Linear interpolator which reads float keys from a {@link FloatBuffer}
+     * instead of an array.
+     * <p>
+     * The keys are not copied, so a buffer mapped from a file
+     * is sampled in place. Only absolute gets are used, the
+     * position of the buffer is never changed.
+     * @see BakedAnimationImporter
+     */
+    public static class BufferInterpolator extends LinearInterpolator
+    {
+        protected final FloatBuffer mKeyBuffer;
+        protected final int mNumKeys;
+
+        /**
+         * @param keyData   float keys starting at index 0 of the buffer:
+         *                  time followed by the values
+         * @param keySize   number of floats per key, including the time
+         */
+        public BufferInterpolator(FloatBuffer keyData, int keySize)
+        {
+            super(null, keySize);
+            mKeyBuffer = keyData;
+            mNumKeys = keyData.limit() / keySize;
+        }
+
+        /**
+         * @return true if the keys cannot be changed
+         */
+        public boolean isReadOnly()
+        {
+            return mKeyBuffer.isReadOnly();
+        }
+
+        @Override
+        public int getDataSize()
+        {
+            return mNumKeys * mFloatsPerKey * 4;
+        }
+
+        @Override
+        public int getKeyOffset(int keyIndex)
+        {
+            if ((keyIndex < 0) || (keyIndex >= mNumKeys))
+            {
+                return -1;
+            }
+            return keyIndex * mFloatsPerKey;
+        }
+
+        @Override
+        public int getNumKeys()
+        {
+            return mNumKeys;
+        }
+
+        @Override
+        public float getTime(int keyIndex)
+        {
+            int ofs = getKeyOffset(keyIndex);
+
+            if (ofs >= 0)
+            {
+                return mKeyBuffer.get(ofs);
+            }
+            return -1.0f;
+        }
+
+        @Override
+        public void setTime(int keyIndex, float time)
+        {
+            int ofs = getKeyOffset(keyIndex);
+            if (ofs >= 0)
+            {
+                mKeyBuffer.put(ofs, time);
+            }
+        }
+
+        @Override
+        public boolean setValues(int keyIndex, float[] values)
+        {
+            int ofs = getKeyOffset(keyIndex);
+            if (ofs < 0)
+            {
+                return false;
+            }
+            for (int j = 1; j < mFloatsPerKey; ++j)
+            {
+                mKeyBuffer.put(ofs + j, values[j - 1]);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean interpolateValues(int keyIndex, float[] values, float factor)
+        {
+            int firstOfs = getKeyOffset(keyIndex);
+            int lastOfs = getKeyOffset(keyIndex + 1);
+
+            if ((firstOfs < 0) || (lastOfs < 0))
+            {
+                return false;
+            }
+            ++firstOfs;
+            ++lastOfs;
+            for (int i = 0; i < mFloatsPerKey - 1; ++i)
+            {
+                values[i] = factor * mKeyBuffer.get(lastOfs + i) + (1.0f - factor) * mKeyBuffer.get(firstOfs + i);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean getValues(int keyIndex, float[] values)
+        {
+            int ofs = getKeyOffset(keyIndex);
+            if (ofs < 0)
+            {
+                return false;
+            }
+            for (int j = 1; j < mFloatsPerKey; ++j)
+            {
+                values[j - 1] = mKeyBuffer.get(ofs + j);
+            }
+            return true;
+        }
+    };
+
     final protected int mFloatsPerKey;
-    protected float[] mKeys;
+    protected float[] mKeys;            // float keys, null if the keys are quantized or in a buffer
     protected LinearInterpolator mFloatInterpolator;
+    private float[] mTempValues;
 
     /**
      * Constructor.
@@ -283,6 +607,27 @@ public class SXRFloatAnimation implements PrettyPrint
         mFloatInterpolator = new LinearInterpolator(mKeys, keySize);
     }
 
+    /**
+     * Constructor for keys which are kept in a buffer.
+     * <p>
+     * The buffer is used directly, usually a view of a file mapped
+     * by {@link BakedAnimationImporter}. If the buffer is read only,
+     * the keys are copied into an array the first time they are changed.
+     *
+     * @param keyData animation key data starting at index 0
+     * @param keySize number of floats per key
+     */
+    public SXRFloatAnimation(FloatBuffer keyData, int keySize)
+    {
+        if (keySize <= 2)
+        {
+            throw new IllegalArgumentException("The number of floats per key must be > 1, the key includes time");
+        }
+        mFloatsPerKey = keySize;
+        mKeys = null;
+        mFloatInterpolator = new BufferInterpolator(keyData, keySize);
+    }
+
     /**
      * Returns the number of keys.
      *
@@ -290,14 +635,16 @@ public class SXRFloatAnimation implements PrettyPrint
      */
     public int getNumKeys()
     {
-        return mKeys.length / mFloatsPerKey;
+        return mFloatInterpolator.getNumKeys();
     }
 
     public float getDuration()
     {
-        if (mKeys.length > mFloatsPerKey)
+        int numKeys = getNumKeys();
+
+        if (numKeys > 1)
         {
-            return mKeys[mKeys.length - mFloatsPerKey] - mKeys[0];
+            return mFloatInterpolator.getTime(numKeys - 1) - mFloatInterpolator.getTime(0);
         }
         return 0;
     }
@@ -310,7 +657,7 @@ public class SXRFloatAnimation implements PrettyPrint
      */
     public float getTime(int keyIndex)
     {
-        return mKeys[keyIndex * mFloatsPerKey];
+        return mFloatInterpolator.getTime(keyIndex);
     }
 
     /**
@@ -320,8 +667,7 @@ public class SXRFloatAnimation implements PrettyPrint
      */
     public void getKey(int keyIndex, float[] values)
     {
-        int index = keyIndex * mFloatsPerKey;
-        System.arraycopy(mKeys, index + 1, values, 0, values.length);
+        mFloatInterpolator.getValues(keyIndex, values);
     }
 
     /**
@@ -339,8 +685,21 @@ public class SXRFloatAnimation implements PrettyPrint
         {
             throw new IllegalArgumentException("This key needs " + valSize.toString() + " float per value");
         }
-        mKeys[index] = time;
-        System.arraycopy(values, 0, mKeys, index + 1, values.length);
+        if ((mFloatInterpolator instanceof BufferInterpolator) &&
+            ((BufferInterpolator) mFloatInterpolator).isReadOnly())
+        {
+            decompress();
+        }
+        if (mKeys != null)
+        {
+            mKeys[index] = time;
+            System.arraycopy(values, 0, mKeys, index + 1, values.length);
+        }
+        else
+        {
+            mFloatInterpolator.setTime(keyIndex, time);
+            mFloatInterpolator.setValues(keyIndex, values);
+        }
     }
 
     /**
@@ -364,6 +723,7 @@ public class SXRFloatAnimation implements PrettyPrint
      */
     public void resizeKeys(int numKeys)
     {
+        decompress();
         int n = numKeys * mFloatsPerKey;
         if (mKeys.length == n)
         {
@@ -377,11 +737,255 @@ public class SXRFloatAnimation implements PrettyPrint
         mFloatInterpolator.setKeyData(mKeys);
     }
 
+    /**
+     * @return true if the keys are quantized by {@link #compress(float)}
+     */
+    public boolean isCompressed()
+    {
+        return (mKeys == null) && !(mFloatInterpolator instanceof BufferInterpolator);
+    }
+
+    /**
+     * @return number of bytes used to store the keys
+     */
+    public int getDataSize()
+    {
+        return mFloatInterpolator.getDataSize();
+    }
+
+    /**
+     * Compress the animation keys.
+     * <p>
+     * Keys which can be interpolated from their neighbors within
+     * the tolerance are removed. If the quantization error is small
+     * enough compared to the tolerance, the remaining keys are quantized.
+     * The keys can still be changed afterwards but they are quantized
+     * to the original range of values.
+     * @param tolerance maximum error allowed in the animated values
+     * @return largest error between the original keys and the
+     *         compressed animation sampled at the original key times
+     */
+    public float compress(float tolerance)
+    {
+        float[] original = getKeys();
+
+        if (original.length < mFloatsPerKey)
+        {
+            return 0;
+        }
+        float quantError = getQuantizationError(original);
+        boolean quantize = quantError <= tolerance / 2;
+        float[] reduced = reduceKeys(original, quantize ? tolerance - quantError : tolerance);
+
+        if (quantize)
+        {
+            mKeys = null;
+            mFloatInterpolator = makeQuantizedInterpolator(reduced);
+        }
+        else
+        {
+            mKeys = reduced;
+            mFloatInterpolator = makeInterpolator(reduced);
+        }
+        return getMaxError(original);
+    }
+
+    /**
+     * Restore float keys after {@link #compress(float)}, or copy
+     * keys kept in a buffer into an array.
+     * Keys removed by the compression are not restored.
+     */
+    public void decompress()
+    {
+        if (mKeys == null)
+        {
+            mKeys = getKeys();
+            mFloatInterpolator = makeInterpolator(mKeys);
+        }
+    }
+
+    /**
+     * Get a copy of the keys as floats, each key is
+     * the time followed by the values.
+     */
+    public float[] getKeys()
+    {
+        if (mKeys != null)
+        {
+            return mKeys.clone();
+        }
+        int numKeys = getNumKeys();
+        float[] keys = new float[numKeys * mFloatsPerKey];
+        float[] values = getTempValues();
+
+        for (int i = 0; i < numKeys; ++i)
+        {
+            int ofs = i * mFloatsPerKey;
+
+            keys[ofs] = mFloatInterpolator.getTime(i);
+            mFloatInterpolator.getValues(i, values);
+            System.arraycopy(values, 0, keys, ofs + 1, mFloatsPerKey - 1);
+        }
+        return keys;
+    }
+
+    protected LinearInterpolator makeInterpolator(float[] keys)
+    {
+        return new LinearInterpolator(keys, mFloatsPerKey);
+    }
+
+    protected LinearInterpolator makeQuantizedInterpolator(float[] keys)
+    {
+        return new QuantizedInterpolator(keys, mFloatsPerKey);
+    }
+
+    /**
+     * Get the largest error quantization would introduce for these keys.
+     */
+    protected float getQuantizationError(float[] keys)
+    {
+        int n = mFloatsPerKey - 1;
+        float[] min = new float[n];
+        float[] step = new float[n];
+        float error = 0;
+
+        QuantizedInterpolator.getRange(keys, mFloatsPerKey, min, step);
+        for (int j = 0; j < n; ++j)
+        {
+            error = Math.max(error, step[j] / 2);
+        }
+        return error;
+    }
+
+    /**
+     * Interpolate between two keys the same way the interpolator does.
+     * @param keys  float keys
+     * @param first offset of the values of the first key
+     * @param last  offset of the values of the second key
+     * @param factor interpolation factor between 0 and 1
+     * @param dest  where to store the interpolated values
+     */
+    protected void interpolateKeys(float[] keys, int first, int last, float factor, float[] dest)
+    {
+        for (int j = 0; j < mFloatsPerKey - 1; ++j)
+        {
+            dest[j] = factor * keys[last + j] + (1.0f - factor) * keys[first + j];
+        }
+    }
+
+    /**
+     * Compute the error between the values of a key and other values.
+     * @param keys      float keys
+     * @param ofs       offset of the key values
+     * @param values    values to compare with
+     * @return largest difference of any component
+     */
+    protected float getError(float[] keys, int ofs, float[] values)
+    {
+        float error = 0;
+
+        for (int j = 0; j < mFloatsPerKey - 1; ++j)
+        {
+            error = Math.max(error, Math.abs(keys[ofs + j] - values[j]));
+        }
+        return error;
+    }
+
+    /*
+     * Remove keys which can be interpolated within the tolerance.
+     * Each run of keys is extended for as long as linear interpolation
+     * between its first and last key reproduces all of the keys in between.
+     */
+    private float[] reduceKeys(float[] keys, float tolerance)
+    {
+        int numKeys = keys.length / mFloatsPerKey;
+
+        if (numKeys <= 2)
+        {
+            return keys;
+        }
+        int[] kept = new int[numKeys];
+        int numKept = 0;
+        int start = 0;
+
+        kept[numKept++] = 0;
+        while (start < numKeys - 1)
+        {
+            int end = start + 1;
+
+            while ((end + 1 < numKeys) && fitsSegment(keys, start, end + 1, tolerance))
+            {
+                ++end;
+            }
+            kept[numKept++] = end;
+            start = end;
+        }
+        if (numKept == numKeys)
+        {
+            return keys;
+        }
+        float[] reduced = new float[numKept * mFloatsPerKey];
+
+        for (int i = 0; i < numKept; ++i)
+        {
+            System.arraycopy(keys, kept[i] * mFloatsPerKey, reduced, i * mFloatsPerKey, mFloatsPerKey);
+        }
+        return reduced;
+    }
+
+    private boolean fitsSegment(float[] keys, int first, int last, float tolerance)
+    {
+        float[] values = getTempValues();
+        int firstOfs = first * mFloatsPerKey;
+        int lastOfs = last * mFloatsPerKey;
+        float t0 = keys[firstOfs];
+        float t1 = keys[lastOfs];
+
+        if (t1 <= t0)
+        {
+            return false;
+        }
+        for (int i = first + 1; i < last; ++i)
+        {
+            int ofs = i * mFloatsPerKey;
+            float factor = (keys[ofs] - t0) / (t1 - t0);
+
+            interpolateKeys(keys, firstOfs + 1, lastOfs + 1, factor, values);
+            if (getError(keys, ofs + 1, values) > tolerance)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private float getMaxError(float[] original)
+    {
+        float[] values = getTempValues();
+        float error = 0;
+
+        for (int ofs = 0; ofs < original.length; ofs += mFloatsPerKey)
+        {
+            mFloatInterpolator.interpolate(original[ofs], values);
+            error = Math.max(error, getError(original, ofs + 1, values));
+        }
+        return error;
+    }
+
+    private float[] getTempValues()
+    {
+        if (mTempValues == null)
+        {
+            mTempValues = new float[mFloatsPerKey - 1];
+        }
+        return mTempValues;
+    }
+
     @Override
     public void prettyPrint(StringBuffer sb, int indent) {
         sb.append(Log.getSpaces(indent));
         sb.append(SXRFloatAnimation.class.getSimpleName());
-        sb.append(" [ Keys=" + mKeys.length + "]");
+        sb.append(" [ Keys=" + getNumKeys() * mFloatsPerKey + "]");
         sb.append(System.lineSeparator());
     }
 
@@ -78,6 +78,28 @@ public class SXRNodeAnimation extends SXRTransformAnimation implements PrettyPri
         }
     }
 
+    @Override
+    protected Object getUpdateGroup()
+    {
+        return (mChannel != null) ? mTransform : null;
+    }
+
+    /**
+     * Sample the channel into the animation matrix,
+     * the transform is updated by {@link #commit()}.
+     */
+    @Override
+    protected void evaluate(float ratio)
+    {
+        mChannel.animate(getDuration() * ratio, mTempMtx);
+    }
+
+    @Override
+    protected void commit()
+    {
+        mTransform.setModelMatrix(mTempMtx);
+    }
+
     @Override
     protected void animate(SXRHybridObject target, float ratio)
     {
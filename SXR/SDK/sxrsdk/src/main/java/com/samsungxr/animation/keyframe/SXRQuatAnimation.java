@@ -4,12 +4,26 @@ import com.samsungxr.PrettyPrint;
 import com.samsungxr.utility.Log;
 import org.joml.Quaternionf;
 
+import java.nio.FloatBuffer;
+
 /**
  * Describes the animation of a set of floating point values.
+ * <p>
+ * When compressed, the rotations are stored with the smallest three
+ * encoding: the largest component is dropped and the other three are
+ * stored as 15 bit fixed point numbers, six bytes per key.
+ * The tolerance passed to {@link #compress(float)} and the error it
+ * returns are angles between the original and compressed rotations,
+ * in radians.
  */
 public final class SXRQuatAnimation extends SXRFloatAnimation
 {
     private static final String TAG = SXRQuatAnimation.class.getSimpleName();
+    private static final float SMALLEST_THREE_RANGE = (float) (1.0 / Math.sqrt(2.0));
+    private static final float SMALLEST_THREE_STEP = 2 * SMALLEST_THREE_RANGE / 32767.0f;
+    private final float[] mTempRot = new float[4];
+    private final Quaternionf mTempQuatA = new Quaternionf();
+    private final Quaternionf mTempQuatB = new Quaternionf();
 
     public static class SphericalInterpolator extends LinearInterpolator
     {
@@ -51,6 +65,214 @@ public final class SXRQuatAnimation extends SXRFloatAnimation
         }
     };
 
+    /**
+     * Spherical interpolator for rotations stored with the
+     * smallest three encoding. Key times are kept as floats.
+     */
+    public static class QuantizedSphericalInterpolator extends LinearInterpolator
+    {
+        private Quaternionf mTempQuatA = new Quaternionf();
+        private Quaternionf mTempQuatB = new Quaternionf();
+        private final float[] mTemp = new float[4];
+        protected float[] mTimes;
+        protected short[] mValues;
+
+        public QuantizedSphericalInterpolator(float[] keyData, int keySize)
+        {
+            super(keyData, keySize);
+            int numKeys = keyData.length / keySize;
+
+            mTimes = new float[numKeys];
+            mValues = new short[numKeys * 3];
+            mKeyData = mTimes;
+            for (int i = 0; i < numKeys; ++i)
+            {
+                int ofs = i * keySize;
+
+                mTimes[i] = keyData[ofs];
+                System.arraycopy(keyData, ofs + 1, mTemp, 0, 4);
+                encode(mTemp, mValues, i * 3);
+            }
+        }
+
+        /*
+         * The index of the largest component is stored in the
+         * top bits of the first two shorts, the other three
+         * components in the low 15 bits of each short.
+         */
+        static void encode(float[] q, short[] dest, int ofs)
+        {
+            int largest = 0;
+            float sign;
+            float len = (float) Math.sqrt(q[0] * q[0] + q[1] * q[1] + q[2] * q[2] + q[3] * q[3]);
+
+            for (int i = 1; i < 4; ++i)
+            {
+                if (Math.abs(q[i]) > Math.abs(q[largest]))
+                {
+                    largest = i;
+                }
+            }
+            sign = ((q[largest] < 0) ? -1 : 1) / ((len > 0) ? len : 1);
+            for (int i = 0, j = 0; i < 4; ++i)
+            {
+                if (i != largest)
+                {
+                    float v = (q[i] * sign + SMALLEST_THREE_RANGE) / SMALLEST_THREE_STEP;
+                    dest[ofs + j++] = (short) Math.max(0, Math.min(32767, Math.round(v)));
+                }
+            }
+            dest[ofs] |= (short) ((largest >> 1) << 15);
+            dest[ofs + 1] |= (short) ((largest & 1) << 15);
+        }
+
+        static void decode(short[] src, int ofs, Quaternionf q)
+        {
+            int s0 = src[ofs] & 0xFFFF;
+            int s1 = src[ofs + 1] & 0xFFFF;
+            int s2 = src[ofs + 2] & 0xFFFF;
+            int largest = ((s0 >> 15) << 1) | (s1 >> 15);
+            float a = (s0 & 0x7FFF) * SMALLEST_THREE_STEP - SMALLEST_THREE_RANGE;
+            float b = (s1 & 0x7FFF) * SMALLEST_THREE_STEP - SMALLEST_THREE_RANGE;
+            float c = s2 * SMALLEST_THREE_STEP - SMALLEST_THREE_RANGE;
+            float d = (float) Math.sqrt(Math.max(0, 1 - a * a - b * b - c * c));
+
+            switch (largest)
+            {
+                case 0: q.set(d, a, b, c); break;
+                case 1: q.set(a, d, b, c); break;
+                case 2: q.set(a, b, d, c); break;
+                default: q.set(a, b, c, d); break;
+            }
+        }
+
+        @Override
+        public int getDataSize()
+        {
+            return mTimes.length * 4 + mValues.length * 2;
+        }
+
+        @Override
+        public int getKeyOffset(int keyIndex)
+        {
+            if ((keyIndex < 0) || (keyIndex >= mTimes.length))
+            {
+                return -1;
+            }
+            return keyIndex;
+        }
+
+        @Override
+        public int getNumKeys()
+        {
+            return mTimes.length;
+        }
+
+        @Override
+        public float getTime(int keyIndex)
+        {
+            if ((keyIndex < 0) || (keyIndex >= mTimes.length))
+            {
+                return -1.0f;
+            }
+            return mTimes[keyIndex];
+        }
+
+        @Override
+        public void setTime(int keyIndex, float time)
+        {
+            if ((keyIndex >= 0) && (keyIndex < mTimes.length))
+            {
+                mTimes[keyIndex] = time;
+            }
+        }
+
+        @Override
+        public boolean setValues(int keyIndex, float[] values)
+        {
+            if (getKeyOffset(keyIndex) < 0)
+            {
+                return false;
+            }
+            encode(values, mValues, keyIndex * 3);
+            return true;
+        }
+
+        @Override
+        public boolean interpolateValues(int keyIndex, float[] values, float factor)
+        {
+            if ((getKeyOffset(keyIndex) < 0) || (getKeyOffset(keyIndex + 1) < 0))
+            {
+                return false;
+            }
+            decode(mValues, keyIndex * 3, mTempQuatA);
+            decode(mValues, keyIndex * 3 + 3, mTempQuatB);
+            mTempQuatA.slerp(mTempQuatB, factor, mTempQuatA);
+            values[0] = mTempQuatA.x;
+            values[1] = mTempQuatA.y;
+            values[2] = mTempQuatA.z;
+            values[3] = mTempQuatA.w;
+            return true;
+        }
+
+        @Override
+        public boolean getValues(int keyIndex, float[] values)
+        {
+            if (getKeyOffset(keyIndex) < 0)
+            {
+                return false;
+            }
+            decode(mValues, keyIndex * 3, mTempQuatA);
+            values[0] = mTempQuatA.x;
+            values[1] = mTempQuatA.y;
+            values[2] = mTempQuatA.z;
+            values[3] = mTempQuatA.w;
+            return true;
+        }
+    };
+
+    /**
+     * Spherical interpolator for rotation keys kept in a buffer.
+     */
+    public static class SphericalBufferInterpolator extends BufferInterpolator
+    {
+        private Quaternionf mTempQuatA = new Quaternionf();
+        private Quaternionf mTempQuatB = new Quaternionf();
+
+        public SphericalBufferInterpolator(FloatBuffer keyData, int keySize)
+        {
+            super(keyData, keySize);
+        }
+
+        @Override
+        public boolean interpolateValues(int keyIndex, float[] values, float factor)
+        {
+            int firstOfs = getKeyOffset(keyIndex);
+            int lastOfs = getKeyOffset(keyIndex + 1);
+
+            if ((firstOfs < 0) || (lastOfs < 0))
+            {
+                return false;
+            }
+            ++firstOfs;
+            ++lastOfs;
+            mTempQuatA.x = mKeyBuffer.get(firstOfs + 0);
+            mTempQuatA.y = mKeyBuffer.get(firstOfs + 1);
+            mTempQuatA.z = mKeyBuffer.get(firstOfs + 2);
+            mTempQuatA.w = mKeyBuffer.get(firstOfs + 3);
+            mTempQuatB.x = mKeyBuffer.get(lastOfs + 0);
+            mTempQuatB.y = mKeyBuffer.get(lastOfs + 1);
+            mTempQuatB.z = mKeyBuffer.get(lastOfs + 2);
+            mTempQuatB.w = mKeyBuffer.get(lastOfs + 3);
+            mTempQuatA.slerp(mTempQuatB, factor, mTempQuatA);
+            values[0] = mTempQuatA.x;
+            values[1] = mTempQuatA.y;
+            values[2] = mTempQuatA.z;
+            values[3] = mTempQuatA.w;
+            return true;
+        }
+    };
+
     /**
      * Constructor.
      *
@@ -73,6 +295,19 @@ public final class SXRQuatAnimation extends SXRFloatAnimation
         mFloatInterpolator =  new SphericalInterpolator(mKeys, 5);
     }
 
+    /**
+     * Constructor for rotation keys kept in a buffer.
+     *
+     * @param keyData animation key data starting at index 0,
+     *                each key is the time followed by x,y,z,w
+     * @see SXRFloatAnimation#SXRFloatAnimation(FloatBuffer, int)
+     */
+    public SXRQuatAnimation(FloatBuffer keyData)
+    {
+        super(keyData, 5);
+        mFloatInterpolator =  new SphericalBufferInterpolator(keyData, 5);
+    }
+
     /**
      * Returns the scaling factor as vector.<p>
      *
@@ -82,24 +317,89 @@ public final class SXRQuatAnimation extends SXRFloatAnimation
      */
     public void getKey(int keyIndex, Quaternionf q)
     {
-        int index = keyIndex * mFloatsPerKey;
-        q.x = mKeys[index + 1];
-        q.y = mKeys[index + 2];
-        q.z = mKeys[index + 3];
-        q.w = mKeys[index + 4];
+        mFloatInterpolator.getValues(keyIndex, mTempRot);
+        q.x = mTempRot[0];
+        q.y = mTempRot[1];
+        q.z = mTempRot[2];
+        q.w = mTempRot[3];
     }
 
     public void setKey(int keyIndex, float time, final Quaternionf q)
     {
-        int index = keyIndex * mFloatsPerKey;
+        mTempRot[0] = q.x;
+        mTempRot[1] = q.y;
+        mTempRot[2] = q.z;
+        mTempRot[3] = q.w;
+        setKey(keyIndex, time, mTempRot);
+    }
 
-        mKeys[index] = time;
-        mKeys[index + 1] = q.x;
-        mKeys[index + 2] = q.y;
-        mKeys[index + 3] = q.z;
-        mKeys[index + 4] = q.w;
+    @Override
+    protected LinearInterpolator makeInterpolator(float[] keys)
+    {
+        return new SphericalInterpolator(keys, mFloatsPerKey);
     }
 
+    @Override
+    protected LinearInterpolator makeQuantizedInterpolator(float[] keys)
+    {
+        return new QuantizedSphericalInterpolator(keys, mFloatsPerKey);
+    }
 
-}
+    /*
+     * Each of the three stored components is off by at most half a step
+     * and the reconstructed component by less than twice that.
+     * The rotation angle is about twice the quaternion error.
+     */
+    @Override
+    protected float getQuantizationError(float[] keys)
+    {
+        return 2 * (float) Math.sqrt(3.0) * SMALLEST_THREE_STEP;
+    }
+
+    @Override
+    protected void interpolateKeys(float[] keys, int first, int last, float factor, float[] dest)
+    {
+        Quaternionf a = mTempQuatA.set(keys[first], keys[first + 1], keys[first + 2], keys[first + 3]);
+        Quaternionf b = mTempQuatB.set(keys[last], keys[last + 1], keys[last + 2], keys[last + 3]);
+
+        a.slerp(b, factor, a);
+        dest[0] = a.x;
+        dest[1] = a.y;
+        dest[2] = a.z;
+        dest[3] = a.w;
+    }
+
+    /**
+     * @return angle between the key rotation and the given rotation in radians
+     */
+    @Override
+    protected float getError(float[] keys, int ofs, float[] values)
+    {
+        double lenA = Math.sqrt(keys[ofs] * keys[ofs] + keys[ofs + 1] * keys[ofs + 1] +
+                                keys[ofs + 2] * keys[ofs + 2] + keys[ofs + 3] * keys[ofs + 3]);
+        double lenB = Math.sqrt(values[0] * values[0] + values[1] * values[1] +
+                                values[2] * values[2] + values[3] * values[3]);
+        double diff = 0;
+        double sum = 0;
 
+        if ((lenA == 0) || (lenB == 0))
+        {
+            return 0;
+        }
+        /*
+         * For unit quaternions |a - b| = 2 sin(angle / 4),
+         * which is accurate for small angles unlike acos(a . b)
+         */
+        for (int i = 0; i < 4; ++i)
+        {
+            double a = keys[ofs + i] / lenA;
+            double b = values[i] / lenB;
+
+            diff += (a - b) * (a - b);
+            sum += (a + b) * (a + b);
+        }
+        double chord = Math.sqrt(Math.min(diff, sum));
+        return (float) (4.0 * Math.asin(Math.min(1.0, chord / 2.0)));
+    }
+
+}
@@ -52,6 +52,7 @@ import java.util.List;
 public class SXRSkeletonAnimation extends SXRAnimation implements PrettyPrint {
     protected String mName;
     private SXRSkeleton mSkeleton = null;
+    private SXRPose mSkinPose = null;
 
     /**
      * List of animation channels for each of the
@@ -224,6 +225,40 @@ public class SXRSkeletonAnimation extends SXRAnimation implements PrettyPrint {
         skel.updateBonePose();
         skel.updateSkinPose();
     }
+
+    /**
+     * The skeleton is the update group, so animations of
+     * the same skeleton are evaluated one after another.
+     */
+    @Override
+    protected Object getUpdateGroup()
+    {
+        return mSkeleton;
+    }
+
+    /**
+     * Sample the bone channels and compute the skinning pose
+     * without updating the bone nodes or the native skeleton.
+     */
+    @Override
+    protected void evaluate(float ratio)
+    {
+        SXRSkeleton skel = getSkeleton();
+
+        computePose(getDuration() * ratio, skel.getPose());
+        mSkinPose = skel.computeSkinPose();
+    }
+
+    @Override
+    protected void commit()
+    {
+        SXRSkeleton skel = getSkeleton();
+
+        skel.poseToBones();
+        skel.updateBonePose();
+        skel.updateSkinPose(mSkinPose);
+    }
+
     public SXRPose computePose(float timeInSec, SXRPose pose)
     {
         Matrix4f temp = new Matrix4f();
@@ -250,6 +285,34 @@ public class SXRSkeletonAnimation extends SXRAnimation implements PrettyPrint {
 
      return pose;
     }
+    /**
+     * Compress the keys of all the bone channels.
+     * <p>
+     * The compression ratio and error of each channel are logged.
+     * @param posTolerance      largest position error allowed
+     * @param rotTolerance      largest rotation error allowed, in radians
+     * @param scaleTolerance    largest scale error allowed
+     * @return combined statistics for all channels
+     * @see SXRAnimationChannel#compress(float, float, float)
+     */
+    public SXRAnimationChannel.CompressionStats compress(float posTolerance, float rotTolerance, float scaleTolerance)
+    {
+        SXRAnimationChannel.CompressionStats total = new SXRAnimationChannel.CompressionStats();
+
+        for (SXRAnimationChannel channel : mBoneChannels)
+        {
+            if (channel != null)
+            {
+                SXRAnimationChannel.CompressionStats stats = channel.compress(posTolerance, rotTolerance, scaleTolerance);
+
+                Log.d("ANIMATION", "%s %s: %s", mName, channel.getNodeName(), stats.toString());
+                total.add(stats);
+            }
+        }
+        Log.d("ANIMATION", "%s compressed %s", mName, total.toString());
+        return total;
+    }
+
     @Override
     public void prettyPrint(StringBuffer sb, int indent) {
         sb.append(Log.getSpaces(indent));
@@ -45,6 +45,7 @@ public class AsyncManager {
      *
      * @param scheduler
      *         The scheduler object.
+     * @see FrameBudgetScheduler
      */
     public void setScheduler(Scheduler scheduler) {
         mScheduler = scheduler;
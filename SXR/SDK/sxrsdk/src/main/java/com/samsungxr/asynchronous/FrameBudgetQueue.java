@@ -0,0 +1,243 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr.asynchronous;
+
+import java.util.PriorityQueue;
+
+import com.samsungxr.utility.Threads.Cancelable;
+
+/**
+ * Queue of GL thread work which is drained under a per-frame budget.
+ *
+ * This holds the scheduling decisions of {@link FrameBudgetScheduler} and
+ * has no dependencies on the GL thread or the Android framework, so it can
+ * be driven by a fake {@link Clock}.
+ *
+ * <p>
+ * Tasks are ordered by priority (higher first), then visible before
+ * invisible, then in the order they were added. Each call to
+ * {@link #drain()} runs tasks until either the time budget or the byte
+ * budget for the frame is used up. At least one task is run per frame, so a
+ * single task larger than the budget cannot stall the queue.
+ */
+class FrameBudgetQueue {
+
+    /** Time source, replaceable so the scheduling logic can be tested */
+    interface Clock {
+        long nanoTime();
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private static final class Entry implements Comparable<Entry> {
+        final Cancelable task;
+        final int priority;
+        final boolean visible;
+        final long bytes;
+        final long sequence;
+
+        Entry(Cancelable task, int priority, boolean visible, long bytes,
+                long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.visible = visible;
+            this.bytes = bytes;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry another) {
+            if (priority != another.priority) {
+                return priority > another.priority ? -1 : 1;
+            }
+            if (visible != another.visible) {
+                return visible ? -1 : 1;
+            }
+            return sequence < another.sequence ? -1
+                    : (sequence == another.sequence ? 0 : 1);
+        }
+    }
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+    private final Clock clock;
+
+    private long timeBudgetNanos;
+    private long byteBudget;
+    private long frameIntervalNanos;
+
+    private long sequence = 0;
+    private long lastDrainStart = -1;
+    private boolean lastFrameBusy = false;
+
+    private int maxDepth = 0;
+    private long delivered = 0;
+    private long canceled = 0;
+    private long frames = 0;
+    private long droppedFrames = 0;
+    private long overBudgetFrames = 0;
+
+    /**
+     * @param clock
+     *            Time source
+     * @param timeBudgetNanos
+     *            Maximum time to spend running tasks each frame
+     * @param byteBudget
+     *            Maximum number of bytes to hand to the GL each frame
+     * @param frameIntervalNanos
+     *            Expected time between frames, used to detect dropped frames
+     */
+    FrameBudgetQueue(Clock clock, long timeBudgetNanos, long byteBudget,
+            long frameIntervalNanos) {
+        this.clock = clock;
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.byteBudget = byteBudget;
+        this.frameIntervalNanos = frameIntervalNanos;
+    }
+
+    /**
+     * Add a task. Can be called from any thread.
+     *
+     * @param task
+     *            Work to run on the draining thread; skipped if it is no
+     *            longer {@linkplain Cancelable#stillWanted() wanted}
+     * @param priority
+     *            Larger numbers run first
+     * @param visible
+     *            Whether the result will be visible as soon as it is ready
+     * @param bytes
+     *            Approximate amount of data the task uploads
+     */
+    synchronized void add(Cancelable task, int priority, boolean visible,
+            long bytes) {
+        queue.add(new Entry(task, priority, visible, bytes, sequence++));
+        if (queue.size() > maxDepth) {
+            maxDepth = queue.size();
+        }
+    }
+
+    /**
+     * Run queued tasks until the budget for this frame is used up. Called
+     * once per frame, from a single thread.
+     *
+     * @return Number of tasks run
+     */
+    int drain() {
+        final long start = clock.nanoTime();
+        int count = 0;
+        long bytes = 0;
+
+        synchronized (this) {
+            ++frames;
+            if (lastFrameBusy && (lastDrainStart >= 0)
+                    && (start - lastDrainStart > frameIntervalNanos * 3 / 2)) {
+                ++droppedFrames;
+            }
+            lastDrainStart = start;
+        }
+
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                entry = queue.peek();
+                if (entry == null) {
+                    break;
+                }
+                if ((count > 0)
+                        && ((bytes + entry.bytes > byteBudget)
+                        || (clock.nanoTime() - start >= timeBudgetNanos))) {
+                    break;
+                }
+                queue.poll();
+            }
+            if (entry.task.stillWanted() != true) {
+                synchronized (this) {
+                    ++canceled;
+                }
+                continue;
+            }
+            entry.task.run();
+            bytes += entry.bytes;
+            ++count;
+        }
+
+        synchronized (this) {
+            delivered += count;
+            lastFrameBusy = count > 0;
+            if (clock.nanoTime() - start > timeBudgetNanos) {
+                ++overBudgetFrames;
+            }
+        }
+        return count;
+    }
+
+    synchronized void setTimeBudget(long nanos) {
+        timeBudgetNanos = nanos;
+    }
+
+    synchronized long getTimeBudget() {
+        return timeBudgetNanos;
+    }
+
+    synchronized void setByteBudget(long bytes) {
+        byteBudget = bytes;
+    }
+
+    synchronized long getByteBudget() {
+        return byteBudget;
+    }
+
+    synchronized void setFrameInterval(long nanos) {
+        frameIntervalNanos = nanos;
+    }
+
+    synchronized int size() {
+        return queue.size();
+    }
+
+    synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    synchronized long getDeliveredCount() {
+        return delivered;
+    }
+
+    synchronized long getCanceledCount() {
+        return canceled;
+    }
+
+    synchronized long getFrameCount() {
+        return frames;
+    }
+
+    synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    synchronized long getOverBudgetFrames() {
+        return overBudgetFrames;
+    }
+
+    synchronized void resetStatistics() {
+        maxDepth = queue.size();
+        delivered = canceled = frames = droppedFrames = overBudgetFrames = 0;
+    }
+}
@@ -0,0 +1,294 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr.asynchronous;
+
+import com.samsungxr.SXRAndroidResource;
+import com.samsungxr.SXRAndroidResource.CancelableCallback;
+import com.samsungxr.SXRContext;
+import com.samsungxr.SXRDrawFrameListener;
+import com.samsungxr.SXRHybridObject;
+import com.samsungxr.SXRImage;
+import com.samsungxr.SXRIndexBuffer;
+import com.samsungxr.SXRMesh;
+import com.samsungxr.SXRVertexBuffer;
+import com.samsungxr.utility.Log;
+import com.samsungxr.utility.Threads.Cancelable;
+
+/**
+ * Resource loading scheduler which spreads the delivery of loaded resources
+ * over several frames.
+ *
+ * <p>
+ * Decoding is still done by another scheduler, normally the
+ * {@link Throttler}, on background threads. Instead of handing each loaded
+ * texture or mesh to the application as soon as it is decoded, this
+ * scheduler queues it and delivers it on the GL thread, at most a
+ * configurable number of milliseconds and bytes per frame. Each new texture
+ * or mesh is uploaded to the GPU when it is first rendered, so a burst of
+ * loads after a scene switch is spread out instead of stalling several
+ * frames in a row.
+ *
+ * <p>
+ * Resources are delivered in request priority order. Within a priority,
+ * resources the {@link VisibilityPolicy} says are visible go first.
+ *
+ * <pre>
+ * AsyncManager.get().setScheduler(new FrameBudgetScheduler());
+ * </pre>
+ */
+public class FrameBudgetScheduler implements Scheduler, SXRDrawFrameListener {
+    private static final String TAG = Log.tag(FrameBudgetScheduler.class);
+
+    /** Default time spent delivering resources each frame: 4 ms */
+    public static final float DEFAULT_TIME_BUDGET_MS = 4.0f;
+
+    /** Default number of bytes delivered each frame: 8MB */
+    public static final long DEFAULT_BYTE_BUDGET = 8 * 1024 * 1024;
+
+    private static final long NANOS_PER_MS = 1000000L;
+    private static final long DEFAULT_FRAME_INTERVAL = 1000000000L / 60;
+
+    /**
+     * Decides whether a resource is needed by what the user is looking at
+     * now. Visible resources are delivered before invisible ones of the same
+     * priority.
+     */
+    public interface VisibilityPolicy {
+        boolean isVisible(SXRAndroidResource resource);
+    }
+
+    private static final VisibilityPolicy ALL_VISIBLE = new VisibilityPolicy() {
+        @Override
+        public boolean isVisible(SXRAndroidResource resource) {
+            return true;
+        }
+    };
+
+    private final Scheduler decoder;
+    private final FrameBudgetQueue queue;
+    private volatile VisibilityPolicy visibility = ALL_VISIBLE;
+    private SXRContext context = null;
+
+    /** Decode with the {@link Throttler}, deliver with the default budgets */
+    public FrameBudgetScheduler() {
+        this(Throttler.get());
+    }
+
+    /**
+     * @param decoder
+     *            Scheduler which runs the background loads
+     */
+    public FrameBudgetScheduler(Scheduler decoder) {
+        this(decoder, FrameBudgetQueue.SYSTEM_CLOCK);
+    }
+
+    FrameBudgetScheduler(Scheduler decoder, FrameBudgetQueue.Clock clock) {
+        this.decoder = decoder;
+        this.queue = new FrameBudgetQueue(clock,
+                (long) (DEFAULT_TIME_BUDGET_MS * NANOS_PER_MS),
+                DEFAULT_BYTE_BUDGET, DEFAULT_FRAME_INTERVAL);
+    }
+
+    /*
+     * Scheduler
+     */
+
+    @Override
+    public <OUTPUT extends SXRHybridObject, INTER> void registerCallback(
+            SXRContext gvrContext, Class<OUTPUT> outClass,
+            CancelableCallback<OUTPUT> callback, SXRAndroidResource request,
+            int priority) {
+        attach(gvrContext);
+        decoder.<OUTPUT, INTER> registerCallback(gvrContext, outClass,
+                new DeferredCallback<OUTPUT>(callback, priority), request,
+                priority);
+    }
+
+    /*
+     * SXRDrawFrameListener
+     */
+
+    @Override
+    public void onDrawFrame(float frameTime) {
+        queue.drain();
+    }
+
+    /*
+     * Budgets
+     */
+
+    /**
+     * Set the time spent delivering loaded resources on each frame. At least
+     * one resource is delivered per frame, even if it takes longer.
+     *
+     * @param milliseconds
+     *            Time budget per frame
+     */
+    public void setTimeBudget(float milliseconds) {
+        queue.setTimeBudget((long) (milliseconds * NANOS_PER_MS));
+    }
+
+    public float getTimeBudget() {
+        return (float) queue.getTimeBudget() / NANOS_PER_MS;
+    }
+
+    /**
+     * Set the maximum amount of pixel and vertex data delivered per frame.
+     *
+     * @param bytes
+     *            Byte budget per frame
+     */
+    public void setByteBudget(long bytes) {
+        queue.setByteBudget(bytes);
+    }
+
+    public long getByteBudget() {
+        return queue.getByteBudget();
+    }
+
+    /**
+     * Set the expected frame rate. A frame which starts more than half a
+     * frame late after a frame which delivered resources is counted as
+     * {@linkplain #getDroppedFrames() dropped}.
+     *
+     * @param framesPerSecond
+     *            Display refresh rate
+     */
+    public void setFrameRate(float framesPerSecond) {
+        queue.setFrameInterval((long) (1000000000L / framesPerSecond));
+    }
+
+    public void setVisibilityPolicy(VisibilityPolicy policy) {
+        visibility = (policy != null) ? policy : ALL_VISIBLE;
+    }
+
+    /*
+     * Metrics
+     */
+
+    /** @return Number of loaded resources waiting to be delivered */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /** @return Largest queue depth since the statistics were reset */
+    public int getMaxQueueDepth() {
+        return queue.getMaxDepth();
+    }
+
+    /** @return Number of resources delivered to the application */
+    public long getDeliveredCount() {
+        return queue.getDeliveredCount();
+    }
+
+    /** @return Number of loaded resources nobody wanted by delivery time */
+    public long getCanceledCount() {
+        return queue.getCanceledCount();
+    }
+
+    /** @return Number of frames which started late after delivering resources */
+    public long getDroppedFrames() {
+        return queue.getDroppedFrames();
+    }
+
+    /** @return Number of frames where a single delivery exceeded the time budget */
+    public long getOverBudgetFrames() {
+        return queue.getOverBudgetFrames();
+    }
+
+    public void resetStatistics() {
+        queue.resetStatistics();
+    }
+
+    private synchronized void attach(SXRContext gvrContext) {
+        if (context == gvrContext) {
+            return;
+        }
+        if (context != null) {
+            context.unregisterDrawFrameListener(this);
+        }
+        context = gvrContext;
+        context.registerDrawFrameListener(this);
+    }
+
+    private static long sizeOf(SXRHybridObject resource) {
+        if (resource instanceof SXRImage) {
+            return ((SXRImage) resource).getDataSize();
+        }
+        if (resource instanceof SXRMesh) {
+            SXRVertexBuffer vbuf = ((SXRMesh) resource).getVertexBuffer();
+            SXRIndexBuffer ibuf = ((SXRMesh) resource).getIndexBuffer();
+            long size = 0;
+
+            if (vbuf != null) {
+                size += vbuf.getDataSize();
+            }
+            if (ibuf != null) {
+                size += ibuf.getDataSize();
+            }
+            return size;
+        }
+        return 0;
+    }
+
+    /**
+     * Receives the decoded resource on the background thread and queues its
+     * delivery to the application's callback. Failures are passed straight
+     * through since they have nothing to upload.
+     */
+    private class DeferredCallback<OUTPUT extends SXRHybridObject> implements
+            CancelableCallback<OUTPUT> {
+        private final CancelableCallback<OUTPUT> callback;
+        private final int priority;
+
+        DeferredCallback(CancelableCallback<OUTPUT> callback, int priority) {
+            this.callback = callback;
+            this.priority = priority;
+        }
+
+        @Override
+        public void loaded(final OUTPUT resource,
+                final SXRAndroidResource androidResource) {
+            queue.add(new Cancelable() {
+                @Override
+                public void run() {
+                    try {
+                        callback.loaded(resource, androidResource);
+                    } catch (Exception e) {
+                        Log.e(TAG, "loaded(%s) callback failed: %s",
+                                androidResource, e);
+                    }
+                }
+
+                @Override
+                public boolean stillWanted() {
+                    return callback.stillWanted(androidResource);
+                }
+            }, priority, visibility.isVisible(androidResource),
+                    sizeOf(resource));
+        }
+
+        @Override
+        public void failed(Throwable t, SXRAndroidResource androidResource) {
+            callback.failed(t, androidResource);
+        }
+
+        @Override
+        public boolean stillWanted(SXRAndroidResource androidResource) {
+            return callback.stillWanted(androidResource);
+        }
+    }
+}
@@ -0,0 +1,498 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr.debug;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.text.DecimalFormat;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Always-on profiler of the CPU time spent in each phase of a frame.
+ * <p>
+ * The framework times its phases: the GL thread tasks, the frame
+ * listeners, the animation engine, picking, physics, script events and so on.
+ * Each thread writes the start and duration of its phases into its own
+ * ring buffer without locking, and the time of each phase is summed
+ * over the frame. When the frame ends, the sums go into a histogram per
+ * phase, which gives the median and the 95th and 99th percentiles of
+ * the time spent per frame in each phase.
+ * <p>
+ * The percentiles can be printed with a {@link SXRStatsLine} through
+ * {@link #getStatColumn(Phase)}. The last phases of each thread can be
+ * written in the Chrome trace format with {@link #writeTrace(Writer)}, to
+ * be opened in chrome://tracing, from the {@link DebugServer} with the
+ * {@code trace} command.
+ * <p>
+ * A phase costs two calls to {@link System#nanoTime()} and a few
+ * array writes, well under a microsecond, so the profiler can stay on.
+ * @see com.samsungxr.SXRContext#getFrameProfiler()
+ */
+public final class SXRFrameProfiler {
+    /**
+     * The phases of a frame.
+     */
+    public enum Phase {
+        /** The whole frame, from before the eyes are drawn to after */
+        FRAME,
+        /** Tasks posted with {@code SXRContext.runOnGlThread} */
+        GL_TASKS,
+        /** All the frame listeners, including animation and picking */
+        FRAME_LISTENERS,
+        /** Animation engine update */
+        ANIMATION,
+        /** Picking of all the pickers */
+        PICKING,
+        /** Physics simulation step */
+        PHYSICS,
+        /** Collision and physics step events */
+        PHYSICS_CALLBACKS,
+        /** Events sent through the event manager, to objects, listeners and scripts */
+        SCRIPT_EVENTS,
+        /** {@code SXRMain.onStep()} on the framework thread */
+        ON_STEP,
+        /** Tasks posted with {@code SXRContext.runOnGlThreadPostRender} */
+        POST_RENDER,
+        /** Deletion of the native objects of garbage collected objects */
+        FINALIZE
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final int RING_SIZE = 2048;
+
+    private volatile boolean mEnabled = true;
+    private final AtomicLongArray mFrameNanos = new AtomicLongArray(PHASES.length);
+    private final AtomicIntegerArray mFrameCounts = new AtomicIntegerArray(PHASES.length);
+    private final Histogram[] mHistograms = new Histogram[PHASES.length];
+    private final CopyOnWriteArrayList<ThreadBuffer> mThreads = new CopyOnWriteArrayList<ThreadBuffer>();
+    private final ThreadLocal<ThreadBuffer> mThreadBuffer = new ThreadLocal<ThreadBuffer>() {
+        @Override
+        protected ThreadBuffer initialValue() {
+            ThreadBuffer buffer = new ThreadBuffer(Thread.currentThread());
+
+            // forget the threads which are gone
+            for (ThreadBuffer other : mThreads) {
+                Thread thread = other.mThread.get();
+                if ((thread == null) || !thread.isAlive()) {
+                    mThreads.remove(other);
+                }
+            }
+            mThreads.add(buffer);
+            return buffer;
+        }
+    };
+    private long mFrameStart;
+
+    public SXRFrameProfiler() {
+        for (int i = 0; i < PHASES.length; ++i) {
+            mHistograms[i] = new Histogram();
+        }
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Enable or disable the profiler. It is enabled by default.
+     * When disabled, {@link #begin(Phase)} and {@link #end(Phase, long)}
+     * return right away.
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * Start timing a phase on the current thread.
+     * A phase can be nested in another one, and in itself, in
+     * which case only the outermost one counts in the frame time.
+     * <pre>
+     *     long start = profiler.begin(Phase.PICKING);
+     *     try {
+     *         ...
+     *     } finally {
+     *         profiler.end(Phase.PICKING, start);
+     *     }
+     * </pre>
+     * @return start time to pass to {@link #end(Phase, long)}, 0 if disabled
+     */
+    public long begin(Phase phase) {
+        if (!mEnabled) {
+            return 0;
+        }
+        ++mThreadBuffer.get().mDepth[phase.ordinal()];
+        return System.nanoTime();
+    }
+
+    /**
+     * Stop timing a phase on the current thread.
+     * @param start value returned by {@link #begin(Phase)}
+     */
+    public void end(Phase phase, long start) {
+        if (start == 0) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        ThreadBuffer buffer = mThreadBuffer.get();
+        int p = phase.ordinal();
+
+        buffer.add(p, start, duration);
+        if (--buffer.mDepth[p] <= 0) {
+            buffer.mDepth[p] = 0;
+            mFrameNanos.addAndGet(p, duration);
+            mFrameCounts.incrementAndGet(p);
+        }
+    }
+
+    /**
+     * Start a frame. Called by the framework on the GL thread.
+     */
+    public void beginFrame() {
+        mFrameStart = begin(Phase.FRAME);
+    }
+
+    /**
+     * End a frame and add the time of each phase during the frame to
+     * its histogram. Phases which did not run are not counted.
+     * Called by the framework on the GL thread.
+     */
+    public void endFrame() {
+        if (mFrameStart == 0) {
+            return;
+        }
+        end(Phase.FRAME, mFrameStart);
+        mFrameStart = 0;
+        for (int p = 0; p < PHASES.length; ++p) {
+            if (mFrameCounts.getAndSet(p, 0) > 0) {
+                mHistograms[p].record(mFrameNanos.getAndSet(p, 0));
+            }
+        }
+    }
+
+    /**
+     * Get the histogram of the time spent in a phase per frame.
+     * It is written by the GL thread, reading it from another
+     * thread gives approximate values.
+     */
+    public Histogram getHistogram(Phase phase) {
+        return mHistograms[phase.ordinal()];
+    }
+
+    public void resetStatistics() {
+        for (Histogram histogram : mHistograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Get a column showing the median, 95th and 99th percentiles of
+     * the time spent in a phase per frame, in milliseconds,
+     * since the start of the line.
+     */
+    public SXRStatsLine.SXRColumnBase<Long> getStatColumn(Phase phase) {
+        return new PhaseColumn(mHistograms[phase.ordinal()], phase.name());
+    }
+
+    /**
+     * @return one line per phase which ran with its number of frames
+     *         and percentiles, in milliseconds
+     */
+    public String getSummary() {
+        DecimalFormat format = new DecimalFormat("0.###");
+        StringBuilder sb = new StringBuilder();
+
+        for (int p = 0; p < PHASES.length; ++p) {
+            Histogram h = mHistograms[p];
+            long n = h.getCount();
+
+            if (n == 0) {
+                continue;
+            }
+            sb.append(PHASES[p].name())
+              .append(": n=").append(n)
+              .append(" p50=").append(format.format(h.getPercentile(50) / 1e6))
+              .append(" p95=").append(format.format(h.getPercentile(95) / 1e6))
+              .append(" p99=").append(format.format(h.getPercentile(99) / 1e6))
+              .append(" max=").append(format.format(h.getMax() / 1e6))
+              .append(" ms")
+              .append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write the last phases of every thread in the Chrome trace event format.
+     * Each phase is a complete event with its start and duration in microseconds.
+     */
+    public void writeTrace(Writer out) throws IOException {
+        long[] starts = new long[RING_SIZE];
+        long[] durations = new long[RING_SIZE];
+        int[] phases = new int[RING_SIZE];
+        boolean first = true;
+
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        for (ThreadBuffer buffer : mThreads) {
+            long tid = buffer.mThreadId;
+            int n = buffer.copy(starts, durations, phases);
+
+            first = writeSeparator(out, first);
+            out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":0,\"tid\":" + tid
+                      + ",\"args\":{\"name\":\"" + escape(buffer.mThreadName) + "\"}}");
+            for (int i = 0; i < n; ++i) {
+                first = writeSeparator(out, first);
+                out.write("{\"name\":\"" + PHASES[phases[i]].name()
+                          + "\",\"ph\":\"X\",\"pid\":0,\"tid\":" + tid
+                          + ",\"ts\":" + micros(starts[i])
+                          + ",\"dur\":" + micros(durations[i]) + "}");
+            }
+        }
+        out.write("]}");
+        out.flush();
+    }
+
+    private static boolean writeSeparator(Writer out, boolean first) throws IOException {
+        if (!first) {
+            out.write(",\n");
+        }
+        return false;
+    }
+
+    /*
+     * Nanoseconds as microseconds with three decimals, without the
+     * exponent Double.toString uses for large timestamps.
+     */
+    private static String micros(long nanos) {
+        long frac = nanos % 1000;
+
+        return (nanos / 1000) + (frac < 10 ? ".00" : frac < 100 ? ".0" : ".") + frac;
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Ring buffer of the last phases of one thread.
+     * Only its thread writes it, the count is published after
+     * each phase so readers can tell which entries were overwritten
+     * while they copied them.
+     */
+    private static final class ThreadBuffer {
+        final WeakReference<Thread> mThread;
+        final long mThreadId;
+        final String mThreadName;
+        final int[] mDepth = new int[PHASES.length];
+        final long[] mStarts = new long[RING_SIZE];
+        final long[] mDurations = new long[RING_SIZE];
+        final int[] mPhases = new int[RING_SIZE];
+        volatile long mCount = 0;
+
+        ThreadBuffer(Thread thread) {
+            mThread = new WeakReference<Thread>(thread);
+            mThreadId = thread.getId();
+            mThreadName = thread.getName();
+        }
+
+        void add(int phase, long start, long duration) {
+            long count = mCount;
+            int i = (int) (count & (RING_SIZE - 1));
+
+            mStarts[i] = start;
+            mDurations[i] = duration;
+            mPhases[i] = phase;
+            mCount = count + 1;
+        }
+
+        /*
+         * Copy the entries in the order they were written and
+         * drop the ones which may have been overwritten during the copy.
+         */
+        int copy(long[] starts, long[] durations, int[] phases) {
+            long end = mCount;
+            long begin = Math.max(0, end - RING_SIZE);
+            int n = 0;
+
+            for (long c = begin; c < end; ++c) {
+                int i = (int) (c & (RING_SIZE - 1));
+
+                starts[n] = mStarts[i];
+                durations[n] = mDurations[i];
+                phases[n] = mPhases[i];
+                ++n;
+            }
+            long overwritten = mCount - RING_SIZE - begin;
+
+            if (overwritten <= 0) {
+                return n;
+            }
+            if (overwritten >= n) {
+                return 0;
+            }
+            int skip = (int) overwritten;
+            System.arraycopy(starts, skip, starts, 0, n - skip);
+            System.arraycopy(durations, skip, durations, 0, n - skip);
+            System.arraycopy(phases, skip, phases, 0, n - skip);
+            return n - skip;
+        }
+    }
+
+    /**
+     * Histogram of durations with buckets of 1 microsecond up to 16
+     * microseconds, then 8 buckets per power of 2, which keeps the
+     * percentiles within about 12% up to the longest durations.
+     */
+    public static final class Histogram {
+        private static final int LINEAR = 16;
+        private static final int SUB_BUCKETS = 8;
+        private static final int BUCKETS = LINEAR + (64 - 4) * SUB_BUCKETS;
+
+        private final long[] mBuckets = new long[BUCKETS];
+        private volatile long mCount;
+        private volatile long mMax;
+
+        void record(long nanos) {
+            ++mBuckets[bucket(nanos / 1000)];
+            if (nanos > mMax) {
+                mMax = nanos;
+            }
+            mCount = mCount + 1;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; ++i) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mMax = 0;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        /**
+         * @return longest duration recorded, in nanoseconds
+         */
+        public long getMax() {
+            return mMax;
+        }
+
+        /**
+         * @param percent percentile between 0 and 100
+         * @return duration under which this percentage of the frames are,
+         *         in nanoseconds, 0 if nothing was recorded
+         */
+        public long getPercentile(double percent) {
+            return percentile(mBuckets, null, percent);
+        }
+
+        /*
+         * Percentile of the counts in the buckets minus the counts
+         * in a previous copy of the buckets, if there is one.
+         */
+        static long percentile(long[] buckets, long[] base, double percent) {
+            long total = count(buckets, base);
+
+            if (total <= 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * Math.min(Math.max(percent, 0), 100) / 100);
+            long seen = 0;
+
+            rank = Math.max(rank, 1);
+            for (int i = 0; i < BUCKETS; ++i) {
+                seen += buckets[i] - ((base != null) ? base[i] : 0);
+                if (seen >= rank) {
+                    return upperBound(i) * 1000;
+                }
+            }
+            return upperBound(BUCKETS - 1) * 1000;
+        }
+
+        static long count(long[] buckets, long[] base) {
+            long total = 0;
+
+            for (int i = 0; i < BUCKETS; ++i) {
+                total += buckets[i] - ((base != null) ? base[i] : 0);
+            }
+            return total;
+        }
+
+        static int bucket(long micros) {
+            if (micros < LINEAR) {
+                return (int) Math.max(micros, 0);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+
+            return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+        }
+
+        /*
+         * Duration in microseconds above the durations in a bucket.
+         */
+        static long upperBound(int bucket) {
+            if (bucket < LINEAR) {
+                return bucket + 1;
+            }
+            int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+            long sub = (bucket - LINEAR) % SUB_BUCKETS;
+
+            return (SUB_BUCKETS + sub + 1) << (exponent - 3);
+        }
+    }
+
+    /**
+     * Statistics column with the percentiles of a phase since the line started.
+     */
+    private static final class PhaseColumn extends SXRStatsLine.SXRColumnBase<Long> {
+        private final Histogram mHistogram;
+        private final long[] mBase = new long[Histogram.BUCKETS];
+        private final DecimalFormat mFormat = new DecimalFormat("0.##");
+
+        PhaseColumn(Histogram histogram, String name) {
+            super(name);
+            mHistogram = histogram;
+        }
+
+        @Override
+        protected void onStartLine() {
+            System.arraycopy(mHistogram.mBuckets, 0, mBase, 0, mBase.length);
+        }
+
+        /**
+         * The values come from the profiler, added values are ignored.
+         */
+        @Override
+        public void addValue(Long value) {
+        }
+
+        @Override
+        public Object getStat() {
+            long[] buckets = mHistogram.mBuckets;
+
+            if (Histogram.count(buckets, mBase) <= 0) {
+                return "n/a";
+            }
+            return mFormat.format(Histogram.percentile(buckets, mBase, 50) / 1e6) + "/"
+                   + mFormat.format(Histogram.percentile(buckets, mBase, 95) / 1e6) + "/"
+                   + mFormat.format(Histogram.percentile(buckets, mBase, 99) / 1e6) + " ms";
+        }
+    }
+}
@@ -15,6 +15,10 @@
 
 package com.samsungxr.debug;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 import javax.script.ScriptEngine;
@@ -23,6 +27,7 @@ import com.samsungxr.SXRContext;
 import com.samsungxr.SXRVersion;
 import com.samsungxr.debug.cli.Command;
 import com.samsungxr.debug.cli.HelpCommandHandler;
+import com.samsungxr.debug.cli.Param;
 import com.samsungxr.debug.cli.Shell;
 import com.samsungxr.debug.cli.ShellDependent;
 import com.samsungxr.script.IScriptManager;
@@ -64,6 +69,30 @@ public class ShellCommandHandler implements ShellDependent {
         return null;
     }
 
+    @Command(description="Prints the percentiles of the time spent in each phase of the frames")
+    public String profile() {
+        return mSXRContext.getFrameProfiler().getSummary();
+    }
+
+    @Command(description="Clears the frame profiler statistics")
+    public void profileReset() {
+        mSXRContext.getFrameProfiler().resetStatistics();
+    }
+
+    @Command(description="Saves the last phases of the frames in the Chrome trace format")
+    public String trace(
+            @Param(name="file-name", description="Path to the file to save the trace to.")
+            String fileName) throws IOException {
+        File file = new File(fileName);
+        Writer w = new FileWriter(file);
+        try {
+            mSXRContext.getFrameProfiler().writeTrace(w);
+        } finally {
+            w.close();
+        }
+        return String.format("Trace saved to %s", file.getAbsolutePath());
+    }
+
     @Command
     public String version() {
         return SXRVersion.CURRENT;
@@ -23,6 +23,7 @@ import com.samsungxr.SXRRenderData;
 import com.samsungxr.SXRContext;
 import com.samsungxr.SXRMesh;
 import com.samsungxr.SXRTexture;
+import com.samsungxr.SXRVertexBufferBuilder;
 import com.samsungxr.utility.Log;
 
 public class SXRSphereNode extends SXRNode {
@@ -371,17 +372,30 @@ public class SXRSphereNode extends SXRNode {
         for (int i = 0; i < vertices.length; i++) {
             vertices[i] *= radius;
         }
-        SXRMesh mesh = new SXRMesh(gvrContext, "float3 a_position float2 a_texcoord float3 a_normal");
-        mesh.setVertices(vertices);
-        mesh.setNormals(normals);
-        mesh.setTexCoords(texCoords);
-        mesh.setIndices(indices);
+        SXRMesh mesh = createMesh(gvrContext);
 
         SXRRenderData renderData = new SXRRenderData(gvrContext, material);
         attachComponent(renderData);
         renderData.setMesh(mesh);
     }
 
+    /*
+     * Make a mesh from the current vertices, normals, texture coordinates
+     * and indices. All the vertex attributes are copied at once.
+     */
+    private SXRMesh createMesh(SXRContext gvrContext) {
+        SXRMesh mesh = new SXRMesh(gvrContext, "float3 a_position float2 a_texcoord float3 a_normal");
+        SXRVertexBufferBuilder builder = new SXRVertexBufferBuilder(mesh.getVertexBuffer(),
+                vertices.length / 3);
+
+        builder.setFloatArray("a_position", vertices);
+        builder.setFloatArray("a_normal", normals);
+        builder.setFloatArray("a_texcoord", texCoords);
+        builder.commit();
+        mesh.setIndices(indices);
+        return mesh;
+    }
+
     private void generateSphere(int stackNumber, int sliceNumber,
                                 boolean facingOut) {
         int capVertexNumber = 3 * sliceNumber;
@@ -820,11 +834,7 @@ public class SXRSphereNode extends SXRNode {
 
             sliceCounter++;
             if (sliceCounter == slicePerSegment) {
-                SXRMesh mesh = new SXRMesh(gvrContext, "float3 a_position float2 a_texcoord float3 a_normal");
-                mesh.setVertices(vertices);
-                mesh.setNormals(normals);
-                mesh.setTexCoords(texCoords);
-                mesh.setIndices(indices);
+                SXRMesh mesh = createMesh(gvrContext);
                 SXRNode childObject = new SXRNode(gvrContext, mesh, material);
                 addChildObject(childObject);
 
@@ -1011,11 +1021,7 @@ public class SXRSphereNode extends SXRNode {
                     }
                 }
 
-                SXRMesh mesh = new SXRMesh(gvrContext, "float3 a_position float2 a_texcoord float3 a_normal");
-                mesh.setVertices(vertices);
-                mesh.setNormals(normals);
-                mesh.setTexCoords(texCoords);
-                mesh.setIndices(indices);
+                SXRMesh mesh = createMesh(gvrContext);
                 SXRNode childObject = new SXRNode(gvrContext,
                         mesh);
                 childObject.getRenderData().setMaterial(material);
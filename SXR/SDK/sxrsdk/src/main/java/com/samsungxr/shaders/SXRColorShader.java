@@ -40,6 +40,12 @@ public class SXRColorShader extends SXRShaderTemplate
         setSegment("VertexTemplate", TextFile.readTextFile(context, R.raw.color_shader_vert));
     }
 
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
+
     protected void setMaterialDefaults(SXRShaderData material)
     {
         material.setVec3("u_color", 1, 1, 1);
@@ -81,6 +81,13 @@ public class SXRCubemapReflectionShader extends SXRShaderTemplate
         setSegment("FragmentTemplate", TextFile.readTextFile(context, R.raw.cubemap_reflection_frag));
         setSegment("VertexTemplate", TextFile.readTextFile(context, R.raw.cubemap_reflection_vert));
     }
+
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
+
     protected void setMaterialDefaults(SXRShaderData material)
     {
         material.setFloat("u_opacity", 1.0f);
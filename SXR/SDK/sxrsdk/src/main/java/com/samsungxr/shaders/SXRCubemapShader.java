@@ -79,6 +79,12 @@ public class SXRCubemapShader extends SXRShaderTemplate
         setSegment("VertexTemplate", TextFile.readTextFile(context, R.raw.cubemap_vert));
     }
 
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
+
     protected void setMaterialDefaults(SXRShaderData material)
     {
         material.setVec3("u_color", 1.0f, 1.0f, 1.0f);
@@ -45,4 +45,10 @@ public class SXRDepthShader extends SXRShaderTemplate
         setSegment("VertexTemplate", vtxTemplate);
         setSegment("VertexSkinShader", skinShader);
     }       
+
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
 }
\ No newline at end of file
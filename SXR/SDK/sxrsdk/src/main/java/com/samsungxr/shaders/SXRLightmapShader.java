@@ -73,4 +73,10 @@ public class SXRLightmapShader extends SXRShaderTemplate
         setSegment("FragmentTemplate", fragmentShader);
         setSegment("VertexTemplate", vertexShader);
     }
+
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
 }
\ No newline at end of file
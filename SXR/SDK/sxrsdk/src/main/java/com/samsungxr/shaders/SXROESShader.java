@@ -45,6 +45,12 @@ public class SXROESShader extends SXRShaderTemplate
         setSegment("VertexTemplate", TextFile.readTextFile(context, R.raw.pos_tex_ubo));
     }
 
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
+
     protected void setMaterialDefaults(SXRShaderData material)
     {
         material.setVec3("u_color", 1, 1, 1);
@@ -88,6 +88,13 @@ public class SXRPBRShader extends SXRShaderTemplate
         return defines;
     }
 
+    // a_normal only depends on LIGHTSOURCES which is in the base key
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
+
     protected void setMaterialDefaults(SXRShaderData material)
     {
         material.setVec4("diffuse_color", 0.8f, 0.8f, 0.8f, 1.0f);
@@ -95,6 +95,13 @@ public class SXRPhongLayeredShader extends SXRShaderTemplate
         return defines;
     }
 
+    // same render state as SXRPhongShader, covered by the base key
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
+
     protected void setMaterialDefaults(SXRShaderData material)
     {
         material.setVec4("ambient_color", 0.2f, 0.2f, 0.2f, 1.0f);
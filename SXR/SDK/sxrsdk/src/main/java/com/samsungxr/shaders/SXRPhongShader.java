@@ -90,6 +90,13 @@ import com.samsungxr.R;
            return defines;
        }
 
+       // lightMapTexture and a_normal follow state already in the base key
+       @Override
+       protected boolean usesVariantKeys()
+       {
+           return true;
+       }
+
        protected void setMaterialDefaults(SXRShaderData material)
        {
            material.setVec4("ambient_color", 0.2f, 0.2f, 0.2f, 1.0f);
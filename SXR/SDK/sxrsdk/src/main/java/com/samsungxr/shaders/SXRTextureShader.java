@@ -81,6 +81,13 @@ public class SXRTextureShader extends SXRShaderTemplate
         return defines;
     }
 
+    // light map and lighting flags are already in the base key
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
+
 
     protected void setMaterialDefaults(SXRShaderData material)
     {
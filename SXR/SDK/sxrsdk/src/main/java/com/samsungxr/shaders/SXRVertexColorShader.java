@@ -21,4 +21,10 @@ public class SXRVertexColorShader extends SXRShaderTemplate
         setSegment("FragmentTemplate", fragTemplate);
         setSegment("VertexTemplate", vtxTemplate);
     }
+
+    @Override
+    protected boolean usesVariantKeys()
+    {
+        return true;
+    }
 }
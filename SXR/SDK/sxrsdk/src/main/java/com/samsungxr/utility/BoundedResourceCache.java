@@ -0,0 +1,292 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr.utility;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Least-recently-used cache with a byte budget.
+ * <p>
+ * Keeps strong references to the most recently used resources until
+ * their combined size exceeds the budget. The size of each resource
+ * is estimated by a {@link SizeEstimator} when it is added. Resources
+ * can be pinned so they are never evicted, for example while they are
+ * used by the current scene. Pinned resources still count against
+ * the budget.
+ * <p>
+ * This is the strong tier of {@link ResourceCacheBase} but it can also be
+ * used on its own.
+ */
+public class BoundedResourceCache<K, T> {
+    private static final String TAG = Log.tag(BoundedResourceCache.class);
+
+    /** Estimates the memory used by a cached resource */
+    public interface SizeEstimator<T> {
+        /**
+         * @param resource resource being added to the cache
+         * @return approximate size of the resource in bytes
+         */
+        long sizeOf(T resource);
+    }
+
+    /** Called when a resource is evicted from the cache */
+    public interface EvictionListener<K, T> {
+        /**
+         * Called after the resource has been removed from the cache.
+         * This is not called while the cache is locked.
+         *
+         * @param key      key of the evicted resource
+         * @param resource evicted resource
+         */
+        void onEvicted(K key, T resource);
+    }
+
+    private static final class Entry<T> {
+        final T resource;
+        final long size;
+
+        Entry(T resource, long size) {
+            this.resource = resource;
+            this.size = size;
+        }
+    }
+
+    private final LinkedHashMap<K, Entry<T>> cache = new LinkedHashMap<K, Entry<T>>(16, 0.75f, true);
+    private final Set<K> pinned = new HashSet<K>();
+    private final List<EvictionListener<K, T>> listeners = new CopyOnWriteArrayList<EvictionListener<K, T>>();
+    private final SizeEstimator<? super T> sizer;
+    private long maxBytes;
+    private long sizeBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param maxBytes byte budget, 0 to only keep pinned resources
+     * @param sizer    estimates the size of each resource
+     */
+    public BoundedResourceCache(long maxBytes, SizeEstimator<? super T> sizer) {
+        Assert.checkNotNull("sizer", sizer);
+        this.maxBytes = maxBytes;
+        this.sizer = sizer;
+    }
+
+    /** Get the cached resource, or {@code null} */
+    public T get(K key) {
+        synchronized (this) {
+            Entry<T> entry = cache.get(key);
+            if (entry == null) {
+                ++misses;
+                return null;
+            }
+            ++hits;
+            return entry.resource;
+        }
+    }
+
+    /**
+     * Add a resource as the most recently used one, evicting the
+     * least recently used unpinned resources if the cache is over budget.
+     */
+    public void put(K key, T resource) {
+        List<Object> evicted;
+
+        synchronized (this) {
+            if ((maxBytes <= 0) && !pinned.contains(key)) {
+                return;
+            }
+            long size = sizer.sizeOf(resource);
+            Entry<T> old = cache.put(key, new Entry<T>(resource, size));
+            if (old != null) {
+                sizeBytes -= old.size;
+            }
+            sizeBytes += size;
+            evicted = trim();
+        }
+        notifyEvicted(evicted);
+    }
+
+    /** Remove a resource from the cache, without calling the eviction listeners */
+    public synchronized T remove(K key) {
+        Entry<T> entry = cache.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        sizeBytes -= entry.size;
+        return entry.resource;
+    }
+
+    /** Remove all resources which are not pinned */
+    public void clear() {
+        List<Object> evicted = new ArrayList<Object>();
+
+        synchronized (this) {
+            Iterator<Map.Entry<K, Entry<T>>> iter = cache.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<K, Entry<T>> e = iter.next();
+                if (!pinned.contains(e.getKey())) {
+                    iter.remove();
+                    sizeBytes -= e.getValue().size;
+                    evicted.add(e.getKey());
+                    evicted.add(e.getValue().resource);
+                }
+            }
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Pin a resource so it is not evicted. The key does not have to be
+     * in the cache yet, the resource is pinned when it is added.
+     */
+    public synchronized void pin(K key) {
+        pinned.add(key);
+    }
+
+    /** Allow a pinned resource to be evicted again */
+    public void unpin(K key) {
+        List<Object> evicted;
+
+        synchronized (this) {
+            pinned.remove(key);
+            evicted = trim();
+        }
+        notifyEvicted(evicted);
+    }
+
+    /** Unpin all resources, usually when the scene changes */
+    public void unpinAll() {
+        List<Object> evicted;
+
+        synchronized (this) {
+            pinned.clear();
+            evicted = trim();
+        }
+        notifyEvicted(evicted);
+    }
+
+    public synchronized boolean isPinned(K key) {
+        return pinned.contains(key);
+    }
+
+    /** Change the byte budget, evicting resources if necessary */
+    public void setMaxBytes(long maxBytes) {
+        List<Object> evicted;
+
+        synchronized (this) {
+            this.maxBytes = maxBytes;
+            evicted = trim();
+        }
+        notifyEvicted(evicted);
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** @return estimated size of all cached resources, in bytes */
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /** @return number of cached resources */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public void addEvictionListener(EvictionListener<K, T> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeEvictionListener(EvictionListener<K, T> listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized void resetStatistics() {
+        hits = misses = evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d items, %d/%d bytes, %d pinned, %d hits, %d misses, %d evictions",
+                cache.size(), sizeBytes, maxBytes, pinned.size(), hits, misses, evictions);
+    }
+
+    /*
+     * Evict least recently used unpinned entries until the cache is within budget.
+     * Must be called with the cache locked. Returns key, resource pairs for the
+     * eviction listeners, which are called after the lock is released.
+     */
+    private List<Object> trim() {
+        List<Object> evicted = null;
+
+        if (sizeBytes <= maxBytes) {
+            return null;
+        }
+        Iterator<Map.Entry<K, Entry<T>>> iter = cache.entrySet().iterator();
+        while ((sizeBytes > maxBytes) && iter.hasNext()) {
+            Map.Entry<K, Entry<T>> e = iter.next();
+            if (pinned.contains(e.getKey())) {
+                continue;
+            }
+            iter.remove();
+            sizeBytes -= e.getValue().size;
+            ++evictions;
+            if (evicted == null) {
+                evicted = new ArrayList<Object>();
+            }
+            evicted.add(e.getKey());
+            evicted.add(e.getValue().resource);
+        }
+        if (evicted != null) {
+            Log.d(TAG, "evicted %d resources, %d bytes cached", evicted.size() / 2, sizeBytes);
+        }
+        return evicted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyEvicted(List<Object> evicted) {
+        if ((evicted == null) || listeners.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < evicted.size(); i += 2) {
+            K key = (K) evicted.get(i);
+            T resource = (T) evicted.get(i + 1);
+            for (EvictionListener<K, T> listener : listeners) {
+                listener.onEvicted(key, resource);
+            }
+        }
+    }
+}
@@ -0,0 +1,1053 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.samsungxr.utility;
+
+import java.util.Arrays;
+
+/**
+ * Bounding volume hierarchy of axially aligned boxes.
+ * <p>
+ * Each leaf holds a box and an integer chosen by the caller, usually
+ * an index into the caller's own tables. Ray casts and box queries
+ * only visit the subtrees whose boxes they touch, so they return the
+ * few leaves worth testing exactly without looking at all of them.
+ * <p>
+ * Leaves are inserted next to the leaf which grows the tree the least
+ * and can be moved at any time. How a moved leaf is handled depends on
+ * the {@link UpdatePolicy}. Leaf boxes are enlarged by a margin so
+ * small moves do not change the tree at all. Whatever the policy, the
+ * tree is rebuilt from scratch once its quality, measured as the total
+ * surface area of the inner nodes, is worse than the rebuild threshold
+ * times the quality of the last rebuild.
+ * <p>
+ * Leaves with infinite boxes, which would make every ancestor infinite,
+ * are kept outside of the hierarchy and returned by every query.
+ * <p>
+ * The tree does not depend on the rest of the SDK and is not thread safe.
+ */
+public class BoundingVolumeTree
+{
+    /**
+     * How the tree is updated when a leaf moves.
+     * @see #setUpdatePolicy(UpdatePolicy)
+     */
+    public enum UpdatePolicy
+    {
+        /**
+         * The boxes of the leaf and its ancestors are enlarged or
+         * shrunk in place. This is the cheapest update but the tree
+         * degrades if the leaves move far from their neighbours.
+         */
+        REFIT,
+        /**
+         * The leaf is removed and inserted again next to its new
+         * neighbours.
+         */
+        REINSERT,
+        /**
+         * The whole tree is rebuilt before the next query.
+         * Best for scenes where things rarely move.
+         */
+        REBUILD
+    }
+
+    private static final int NULL = -1;
+    private static final int UNBOUNDED = -2;
+
+    private UpdatePolicy mPolicy = UpdatePolicy.REFIT;
+    private float mMargin = 0;
+    private float mRebuildThreshold = 2.0f;
+
+    // nodes, the leaves have no children
+    private float[] mMin = new float[0];
+    private float[] mMax = new float[0];
+    private int[] mParent = new int[0];
+    private int[] mLeft = new int[0];
+    private int[] mRight = new int[0];
+    private int[] mData = new int[0];
+    private int mCapacity = 0;
+    private int mFreeList = NULL;
+    private int mRoot = NULL;
+    private int mLeafCount = 0;
+    private int[] mUnbounded = new int[4];
+    private int mUnboundedCount = 0;
+
+    private double mCost = 0;
+    private double mBuildCost = 0;
+    private boolean mRebuildPending = false;
+
+    // query results and scratch space
+    private int[] mStack = new int[64];
+    private int[] mResults = new int[16];
+    private float[] mResultDistances = new float[16];
+    private int mResultCount = 0;
+    private int[] mLeaves = new int[0];
+    private float[] mCenters = new float[0];
+
+    // statistics
+    private int mNodesVisited = 0;
+    private long mTotalNodesVisited = 0;
+    private long mQueryCount = 0;
+    private int mRebuildCount = 0;
+    private int mReinsertCount = 0;
+    private int mRefitCount = 0;
+
+    public BoundingVolumeTree()
+    {
+    }
+
+    /**
+     * Set how the tree is updated when a leaf moves.
+     * The default policy is {@link UpdatePolicy#REFIT}.
+     * @param policy update policy
+     */
+    public void setUpdatePolicy(UpdatePolicy policy)
+    {
+        mPolicy = policy;
+    }
+
+    public UpdatePolicy getUpdatePolicy()
+    {
+        return mPolicy;
+    }
+
+    /**
+     * Set how much the leaf boxes are enlarged on each side.
+     * A leaf moving less than the margin does not change the tree.
+     * It only applies to the leaves inserted or moved after the call.
+     * @param margin margin added to the leaf boxes, 0 by default
+     */
+    public void setMargin(float margin)
+    {
+        mMargin = Math.max(0, margin);
+    }
+
+    public float getMargin()
+    {
+        return mMargin;
+    }
+
+    /**
+     * Set when the tree is rebuilt because it has degraded.
+     * The tree is rebuilt when the total area of the inner nodes
+     * is larger than the threshold times the area after the last rebuild.
+     * @param threshold rebuild threshold, 2 by default, 0 never rebuilds
+     */
+    public void setRebuildThreshold(float threshold)
+    {
+        mRebuildThreshold = threshold;
+    }
+
+    public float getRebuildThreshold()
+    {
+        return mRebuildThreshold;
+    }
+
+    /**
+     * @return number of leaves in the tree
+     */
+    public int getLeafCount()
+    {
+        return mLeafCount;
+    }
+
+    /**
+     * Add a leaf to the tree.
+     * @param data  caller data returned by the queries, any value but Integer.MIN_VALUE
+     * @param minX  box minimum X
+     * @param minY  box minimum Y
+     * @param minZ  box minimum Z
+     * @param maxX  box maximum X
+     * @param maxY  box maximum Y
+     * @param maxZ  box maximum Z
+     * @return leaf identifier used to move or remove the leaf
+     */
+    public int insert(int data, float minX, float minY, float minZ,
+                      float maxX, float maxY, float maxZ)
+    {
+        int leaf = allocateNode();
+
+        mData[leaf] = data;
+        setFatBox(leaf, minX, minY, minZ, maxX, maxY, maxZ);
+        ++mLeafCount;
+        if (isUnbounded(leaf))
+        {
+            addUnbounded(leaf);
+        }
+        else if (mPolicy == UpdatePolicy.REBUILD)
+        {
+            linkToRoot(leaf);
+            mRebuildPending = true;
+        }
+        else
+        {
+            insertLeaf(leaf);
+        }
+        return leaf;
+    }
+
+    /**
+     * Remove a leaf from the tree.
+     * @param leaf leaf identifier returned by {@link #insert}
+     */
+    public void remove(int leaf)
+    {
+        if (mRight[leaf] == UNBOUNDED)
+        {
+            removeUnbounded(leaf);
+        }
+        else
+        {
+            removeLeaf(leaf);
+        }
+        freeNode(leaf);
+        --mLeafCount;
+    }
+
+    /**
+     * Move a leaf to a new box.
+     * @param leaf leaf identifier returned by {@link #insert}
+     * @return true if the tree changed, false if the new box
+     *         is still inside the enlarged leaf box
+     */
+    public boolean update(int leaf, float minX, float minY, float minZ,
+                          float maxX, float maxY, float maxZ)
+    {
+        int i = leaf * 3;
+
+        if ((minX >= mMin[i]) && (minY >= mMin[i + 1]) && (minZ >= mMin[i + 2]) &&
+            (maxX <= mMax[i]) && (maxY <= mMax[i + 1]) && (maxZ <= mMax[i + 2]))
+        {
+            return false;
+        }
+        boolean wasUnbounded = (mRight[leaf] == UNBOUNDED);
+
+        if (wasUnbounded || isUnbounded(minX, minY, minZ, maxX, maxY, maxZ))
+        {
+            if (wasUnbounded)
+            {
+                removeUnbounded(leaf);
+            }
+            else
+            {
+                removeLeaf(leaf);
+            }
+            setFatBox(leaf, minX, minY, minZ, maxX, maxY, maxZ);
+            if (isUnbounded(leaf))
+            {
+                addUnbounded(leaf);
+            }
+            else
+            {
+                insertLeaf(leaf);
+            }
+            ++mReinsertCount;
+            return true;
+        }
+        switch (mPolicy)
+        {
+            case REINSERT:
+                removeLeaf(leaf);
+                setFatBox(leaf, minX, minY, minZ, maxX, maxY, maxZ);
+                insertLeaf(leaf);
+                ++mReinsertCount;
+                break;
+
+            case REBUILD:
+                setFatBox(leaf, minX, minY, minZ, maxX, maxY, maxZ);
+                mRebuildPending = true;
+                break;
+
+            default:
+                setFatBox(leaf, minX, minY, minZ, maxX, maxY, maxZ);
+                refit(mParent[leaf]);
+                ++mRefitCount;
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * @return caller data of the leaf
+     */
+    public int getData(int leaf)
+    {
+        return mData[leaf];
+    }
+
+    /**
+     * Change the caller data of a leaf.
+     * @param data  caller data returned by the queries, any value but Integer.MIN_VALUE
+     */
+    public void setData(int leaf, int data)
+    {
+        mData[leaf] = data;
+    }
+
+    /**
+     * Remove all leaves.
+     */
+    public void clear()
+    {
+        mFreeList = NULL;
+        for (int i = mCapacity - 1; i >= 0; --i)
+        {
+            mParent[i] = mFreeList;
+            mLeft[i] = NULL;
+            mData[i] = FREE;
+            mFreeList = i;
+        }
+        mRoot = NULL;
+        mLeafCount = 0;
+        mUnboundedCount = 0;
+        mCost = mBuildCost = 0;
+        mRebuildPending = false;
+        mResultCount = 0;
+    }
+
+    /**
+     * Rebuild the tree from its leaves, top down, splitting
+     * the leaves at the median of the longest axis.
+     */
+    public void rebuild()
+    {
+        mRebuildPending = false;
+        if (mLeafCount == mUnboundedCount)
+        {
+            mRoot = NULL;
+            mCost = mBuildCost = 0;
+            return;
+        }
+        if (mLeaves.length < mLeafCount)
+        {
+            mLeaves = new int[mLeafCount];
+            mCenters = new float[mLeafCount * 3];
+        }
+        int n = 0;
+
+        // collect the leaves and free the inner nodes
+        for (int i = 0; i < mCapacity; ++i)
+        {
+            if (isAllocated(i))
+            {
+                if (mRight[i] == UNBOUNDED)
+                {
+                    continue;
+                }
+                if (mLeft[i] == NULL)
+                {
+                    mLeaves[n] = i;
+                    ++n;
+                }
+                else
+                {
+                    freeNode(i);
+                }
+            }
+        }
+        mCost = 0;
+        mRoot = build(0, n);
+        mParent[mRoot] = NULL;
+        mBuildCost = mCost;
+        ++mRebuildCount;
+    }
+
+    /**
+     * Find the leaves whose boxes are hit by a ray.
+     * The results are read with {@link #getResult(int)} and
+     * {@link #getResultDistance(int)}, they are not sorted.
+     * @param ox ray origin X
+     * @param oy ray origin Y
+     * @param oz ray origin Z
+     * @param dx ray direction X
+     * @param dy ray direction Y
+     * @param dz ray direction Z
+     * @param maxDistance ignore boxes further than this along the ray,
+     *                    in multiples of the direction length.
+     * @return number of leaves hit
+     */
+    public int raycast(float ox, float oy, float oz,
+                       float dx, float dy, float dz, float maxDistance)
+    {
+        beginQuery();
+        if (mRoot == NULL)
+        {
+            return mResultCount;
+        }
+        float ix = 1.0f / dx;
+        float iy = 1.0f / dy;
+        float iz = 1.0f / dz;
+        int top = 0;
+
+        mStack[top++] = mRoot;
+        while (top > 0)
+        {
+            int node = mStack[--top];
+            int i = node * 3;
+            float tmin = 0;
+            float tmax = maxDistance;
+
+            ++mNodesVisited;
+            tmin = slabMin(mMin[i], mMax[i], ox, dx, ix, tmin);
+            tmax = slabMax(mMin[i], mMax[i], ox, dx, ix, tmax);
+            tmin = slabMin(mMin[i + 1], mMax[i + 1], oy, dy, iy, tmin);
+            tmax = slabMax(mMin[i + 1], mMax[i + 1], oy, dy, iy, tmax);
+            tmin = slabMin(mMin[i + 2], mMax[i + 2], oz, dz, iz, tmin);
+            tmax = slabMax(mMin[i + 2], mMax[i + 2], oz, dz, iz, tmax);
+            if (!(tmin <= tmax))
+            {
+                continue;
+            }
+            if (mLeft[node] == NULL)
+            {
+                addResult(mData[node], tmin);
+            }
+            else
+            {
+                top = push(top, mLeft[node], mRight[node]);
+            }
+        }
+        mTotalNodesVisited += mNodesVisited;
+        return mResultCount;
+    }
+
+    /**
+     * Find the leaves whose boxes overlap a box.
+     * The results are read with {@link #getResult(int)}.
+     * @return number of leaves found
+     */
+    public int overlap(float minX, float minY, float minZ,
+                       float maxX, float maxY, float maxZ)
+    {
+        beginQuery();
+        if (mRoot == NULL)
+        {
+            return mResultCount;
+        }
+        int top = 0;
+
+        mStack[top++] = mRoot;
+        while (top > 0)
+        {
+            int node = mStack[--top];
+            int i = node * 3;
+
+            ++mNodesVisited;
+            if ((mMin[i] > maxX) || (mMax[i] < minX) ||
+                (mMin[i + 1] > maxY) || (mMax[i + 1] < minY) ||
+                (mMin[i + 2] > maxZ) || (mMax[i + 2] < minZ))
+            {
+                continue;
+            }
+            if (mLeft[node] == NULL)
+            {
+                addResult(mData[node], 0);
+            }
+            else
+            {
+                top = push(top, mLeft[node], mRight[node]);
+            }
+        }
+        mTotalNodesVisited += mNodesVisited;
+        return mResultCount;
+    }
+
+    /**
+     * @param i index of the result, less than the number
+     *          returned by the last query
+     * @return caller data of the leaf
+     */
+    public int getResult(int i)
+    {
+        return mResults[i];
+    }
+
+    /**
+     * @param i index of the result, less than the number
+     *          returned by the last ray cast
+     * @return distance along the ray where it enters the leaf box
+     */
+    public float getResultDistance(int i)
+    {
+        return mResultDistances[i];
+    }
+
+    /**
+     * @return number of nodes visited by the last query
+     */
+    public int getNodesVisited()
+    {
+        return mNodesVisited;
+    }
+
+    /**
+     * @return number of nodes visited by all queries since the statistics were reset
+     */
+    public long getTotalNodesVisited()
+    {
+        return mTotalNodesVisited;
+    }
+
+    /**
+     * @return number of queries since the statistics were reset
+     */
+    public long getQueryCount()
+    {
+        return mQueryCount;
+    }
+
+    /**
+     * @return number of times the tree was rebuilt since the statistics were reset
+     */
+    public int getRebuildCount()
+    {
+        return mRebuildCount;
+    }
+
+    /**
+     * @return number of leaves refitted since the statistics were reset
+     */
+    public int getRefitCount()
+    {
+        return mRefitCount;
+    }
+
+    /**
+     * @return number of leaves reinserted since the statistics were reset
+     */
+    public int getReinsertCount()
+    {
+        return mReinsertCount;
+    }
+
+    public void resetStatistics()
+    {
+        mNodesVisited = 0;
+        mTotalNodesVisited = 0;
+        mQueryCount = 0;
+        mRebuildCount = 0;
+        mRefitCount = 0;
+        mReinsertCount = 0;
+    }
+
+    /**
+     * Rebuild the tree if a rebuild is pending or
+     * it has degraded past the rebuild threshold.
+     */
+    private void beginQuery()
+    {
+        // a tree which was never rebuilt is compared to its first query
+        if (mBuildCost == 0)
+        {
+            mBuildCost = mCost;
+        }
+        if (mRebuildPending ||
+            ((mRebuildThreshold > 0) && (mBuildCost > 0) &&
+             (mCost > mBuildCost * mRebuildThreshold)))
+        {
+            rebuild();
+        }
+        mResultCount = 0;
+        mNodesVisited = 0;
+        ++mQueryCount;
+        for (int i = 0; i < mUnboundedCount; ++i)
+        {
+            addResult(mData[mUnbounded[i]], 0);
+        }
+    }
+
+    private int push(int top, int left, int right)
+    {
+        if (top + 2 > mStack.length)
+        {
+            mStack = Arrays.copyOf(mStack, mStack.length * 2);
+        }
+        mStack[top++] = left;
+        mStack[top++] = right;
+        return top;
+    }
+
+    private void addResult(int data, float distance)
+    {
+        if (mResultCount >= mResults.length)
+        {
+            mResults = Arrays.copyOf(mResults, mResults.length * 2);
+            mResultDistances = Arrays.copyOf(mResultDistances, mResults.length);
+        }
+        mResults[mResultCount] = data;
+        mResultDistances[mResultCount] = distance;
+        ++mResultCount;
+    }
+
+    /*
+     * Clip the ray against one slab of the box. A ray parallel
+     * to the slab is either always or never inside it.
+     */
+    private static float slabMin(float min, float max, float o, float d, float inv, float t)
+    {
+        if (d == 0)
+        {
+            return ((o < min) || (o > max)) ? Float.POSITIVE_INFINITY : t;
+        }
+        float t1 = (min - o) * inv;
+        float t2 = (max - o) * inv;
+        return Math.max(t, Math.min(t1, t2));
+    }
+
+    private static float slabMax(float min, float max, float o, float d, float inv, float t)
+    {
+        if (d == 0)
+        {
+            return ((o < min) || (o > max)) ? Float.NEGATIVE_INFINITY : t;
+        }
+        float t1 = (min - o) * inv;
+        float t2 = (max - o) * inv;
+        return Math.min(t, Math.max(t1, t2));
+    }
+
+    private boolean isUnbounded(int node)
+    {
+        int i = node * 3;
+
+        return isUnbounded(mMin[i], mMin[i + 1], mMin[i + 2], mMax[i], mMax[i + 1], mMax[i + 2]);
+    }
+
+    private static boolean isUnbounded(float minX, float minY, float minZ,
+                                       float maxX, float maxY, float maxZ)
+    {
+        return !((maxX - minX) + (maxY - minY) + (maxZ - minZ) < Float.POSITIVE_INFINITY);
+    }
+
+    private void addUnbounded(int leaf)
+    {
+        if (mUnboundedCount >= mUnbounded.length)
+        {
+            mUnbounded = Arrays.copyOf(mUnbounded, mUnbounded.length * 2);
+        }
+        mUnbounded[mUnboundedCount++] = leaf;
+        mRight[leaf] = UNBOUNDED;
+        mParent[leaf] = NULL;
+    }
+
+    private void removeUnbounded(int leaf)
+    {
+        for (int i = 0; i < mUnboundedCount; ++i)
+        {
+            if (mUnbounded[i] == leaf)
+            {
+                mUnbounded[i] = mUnbounded[--mUnboundedCount];
+                break;
+            }
+        }
+        mRight[leaf] = NULL;
+    }
+
+    private void setFatBox(int node, float minX, float minY, float minZ,
+                           float maxX, float maxY, float maxZ)
+    {
+        int i = node * 3;
+
+        mMin[i] = minX - mMargin;
+        mMin[i + 1] = minY - mMargin;
+        mMin[i + 2] = minZ - mMargin;
+        mMax[i] = maxX + mMargin;
+        mMax[i + 1] = maxY + mMargin;
+        mMax[i + 2] = maxZ + mMargin;
+    }
+
+    /*
+     * Surface area (halved) of a box, infinite boxes count as 0
+     * so they do not make the tree look degraded.
+     */
+    private double area(int node)
+    {
+        int i = node * 3;
+        double x = mMax[i] - mMin[i];
+        double y = mMax[i + 1] - mMin[i + 1];
+        double z = mMax[i + 2] - mMin[i + 2];
+        double a = x * y + y * z + z * x;
+
+        return (Double.isNaN(a) || Double.isInfinite(a) || (a < 0)) ? 0 : a;
+    }
+
+    private static double area(float minX, float minY, float minZ,
+                               float maxX, float maxY, float maxZ)
+    {
+        double x = maxX - minX;
+        double y = maxY - minY;
+        double z = maxZ - minZ;
+        double a = x * y + y * z + z * x;
+
+        return (Double.isNaN(a) || Double.isInfinite(a) || (a < 0)) ? 0 : a;
+    }
+
+    /*
+     * Area of the union of the boxes of two nodes.
+     */
+    private double unionArea(int a, int b)
+    {
+        int i = a * 3;
+        int j = b * 3;
+
+        return area(Math.min(mMin[i], mMin[j]), Math.min(mMin[i + 1], mMin[j + 1]),
+                    Math.min(mMin[i + 2], mMin[j + 2]), Math.max(mMax[i], mMax[j]),
+                    Math.max(mMax[i + 1], mMax[j + 1]), Math.max(mMax[i + 2], mMax[j + 2]));
+    }
+
+    /*
+     * Make the box of an inner node the union of its children
+     * and keep the total inner node area up to date.
+     * @return true if the box changed
+     */
+    private boolean fitToChildren(int node)
+    {
+        int i = node * 3;
+        int l = mLeft[node] * 3;
+        int r = mRight[node] * 3;
+        boolean changed = false;
+        double oldArea = area(node);
+
+        for (int k = 0; k < 3; ++k)
+        {
+            float min = Math.min(mMin[l + k], mMin[r + k]);
+            float max = Math.max(mMax[l + k], mMax[r + k]);
+
+            if ((min != mMin[i + k]) || (max != mMax[i + k]))
+            {
+                mMin[i + k] = min;
+                mMax[i + k] = max;
+                changed = true;
+            }
+        }
+        if (changed)
+        {
+            mCost += area(node) - oldArea;
+        }
+        return changed;
+    }
+
+    private void refit(int node)
+    {
+        while ((node != NULL) && fitToChildren(node))
+        {
+            node = mParent[node];
+        }
+    }
+
+    /*
+     * Walk down from the root to the sibling which costs the
+     * least to pair with the leaf: the area of the new parent
+     * plus the growth of the ancestors.
+     */
+    private void insertLeaf(int leaf)
+    {
+        if (mRoot == NULL)
+        {
+            mRoot = leaf;
+            mParent[leaf] = NULL;
+            return;
+        }
+        int node = mRoot;
+
+        while (mLeft[node] != NULL)
+        {
+            double area = area(node);
+            double combined = unionArea(node, leaf);
+            double cost = 2 * combined;
+            double inherited = 2 * (combined - area);
+            double costLeft = childCost(mLeft[node], leaf, inherited);
+            double costRight = childCost(mRight[node], leaf, inherited);
+
+            if ((cost < costLeft) && (cost < costRight))
+            {
+                break;
+            }
+            node = (costLeft < costRight) ? mLeft[node] : mRight[node];
+        }
+        int oldParent = mParent[node];
+        int newParent = allocateNode();
+
+        mParent[newParent] = oldParent;
+        mLeft[newParent] = node;
+        mRight[newParent] = leaf;
+        mParent[node] = newParent;
+        mParent[leaf] = newParent;
+        if (oldParent == NULL)
+        {
+            mRoot = newParent;
+        }
+        else if (mLeft[oldParent] == node)
+        {
+            mLeft[oldParent] = newParent;
+        }
+        else
+        {
+            mRight[oldParent] = newParent;
+        }
+        copyBox(newParent, node);
+        fitToChildren(newParent);
+        mCost += area(newParent);
+        refit(oldParent);
+    }
+
+    private double childCost(int child, int leaf, double inherited)
+    {
+        double cost = unionArea(child, leaf) + inherited;
+
+        if (mLeft[child] != NULL)
+        {
+            cost -= area(child);
+        }
+        return cost;
+    }
+
+    /*
+     * Used by the REBUILD policy to keep new leaves
+     * reachable until the next rebuild.
+     */
+    private void linkToRoot(int leaf)
+    {
+        if (mRoot == NULL)
+        {
+            mRoot = leaf;
+            mParent[leaf] = NULL;
+            return;
+        }
+        int parent = allocateNode();
+
+        mLeft[parent] = mRoot;
+        mRight[parent] = leaf;
+        mParent[parent] = NULL;
+        mParent[mRoot] = parent;
+        mParent[leaf] = parent;
+        copyBox(parent, mRoot);
+        fitToChildren(parent);
+        mCost += area(parent);
+        mRoot = parent;
+    }
+
+    private void removeLeaf(int leaf)
+    {
+        if (leaf == mRoot)
+        {
+            mRoot = NULL;
+            return;
+        }
+        int parent = mParent[leaf];
+        int grandParent = mParent[parent];
+        int sibling = (mLeft[parent] == leaf) ? mRight[parent] : mLeft[parent];
+
+        mCost -= area(parent);
+        if (grandParent == NULL)
+        {
+            mRoot = sibling;
+            mParent[sibling] = NULL;
+        }
+        else
+        {
+            if (mLeft[grandParent] == parent)
+            {
+                mLeft[grandParent] = sibling;
+            }
+            else
+            {
+                mRight[grandParent] = sibling;
+            }
+            mParent[sibling] = grandParent;
+            refit(grandParent);
+        }
+        freeNode(parent);
+    }
+
+    /*
+     * Build the subtree for the leaves in mLeaves[first, last)
+     */
+    private int build(int first, int last)
+    {
+        if (last - first == 1)
+        {
+            return mLeaves[first];
+        }
+        // find the longest axis of the box centers
+        float[] min = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE };
+        float[] max = { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+
+        for (int i = first; i < last; ++i)
+        {
+            int b = mLeaves[i] * 3;
+
+            for (int k = 0; k < 3; ++k)
+            {
+                float c = center(b + k);
+
+                mCenters[i * 3 + k] = c;
+                min[k] = Math.min(min[k], c);
+                max[k] = Math.max(max[k], c);
+            }
+        }
+        int axis = 0;
+
+        if (max[1] - min[1] > max[axis] - min[axis])
+        {
+            axis = 1;
+        }
+        if (max[2] - min[2] > max[axis] - min[axis])
+        {
+            axis = 2;
+        }
+        int mid = (first + last) >>> 1;
+
+        select(first, last - 1, mid, axis);
+
+        int node = allocateNode();
+        int left = build(first, mid);
+        int right = build(mid, last);
+
+        mLeft[node] = left;
+        mRight[node] = right;
+        mParent[left] = node;
+        mParent[right] = node;
+        copyBox(node, left);
+        fitToChildren(node);
+        mCost += area(node);
+        return node;
+    }
+
+    /*
+     * Center of a box along one axis. Infinite boxes are
+     * centered at 0 so they can still be sorted.
+     */
+    private float center(int i)
+    {
+        float c = (mMin[i] + mMax[i]) * 0.5f;
+
+        return (Float.isNaN(c) || Float.isInfinite(c)) ? 0 : c;
+    }
+
+    /*
+     * Partially sort mLeaves[lo, hi] so the leaf at k has the
+     * median center along the axis (quickselect).
+     */
+    private void select(int lo, int hi, int k, int axis)
+    {
+        while (hi > lo)
+        {
+            float pivot = mCenters[((lo + hi) >>> 1) * 3 + axis];
+            int i = lo;
+            int j = hi;
+
+            while (i <= j)
+            {
+                while (mCenters[i * 3 + axis] < pivot)
+                {
+                    ++i;
+                }
+                while (mCenters[j * 3 + axis] > pivot)
+                {
+                    --j;
+                }
+                if (i <= j)
+                {
+                    swap(i, j);
+                    ++i;
+                    --j;
+                }
+            }
+            if (k <= j)
+            {
+                hi = j;
+            }
+            else if (k >= i)
+            {
+                lo = i;
+            }
+            else
+            {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j)
+    {
+        int leaf = mLeaves[i];
+
+        mLeaves[i] = mLeaves[j];
+        mLeaves[j] = leaf;
+        for (int k = 0; k < 3; ++k)
+        {
+            float c = mCenters[i * 3 + k];
+
+            mCenters[i * 3 + k] = mCenters[j * 3 + k];
+            mCenters[j * 3 + k] = c;
+        }
+    }
+
+    private void copyBox(int dst, int src)
+    {
+        System.arraycopy(mMin, src * 3, mMin, dst * 3, 3);
+        System.arraycopy(mMax, src * 3, mMax, dst * 3, 3);
+    }
+
+    private boolean isAllocated(int node)
+    {
+        return mData[node] != FREE;
+    }
+
+    private int allocateNode()
+    {
+        if (mFreeList == NULL)
+        {
+            grow(Math.max(16, mCapacity * 2));
+        }
+        int node = mFreeList;
+
+        mFreeList = mParent[node];
+        mParent[node] = NULL;
+        mLeft[node] = NULL;
+        mRight[node] = NULL;
+        mData[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node)
+    {
+        mParent[node] = mFreeList;
+        mLeft[node] = NULL;
+        mData[node] = FREE;
+        mFreeList = node;
+    }
+
+    private void grow(int capacity)
+    {
+        mMin = Arrays.copyOf(mMin, capacity * 3);
+        mMax = Arrays.copyOf(mMax, capacity * 3);
+        mParent = Arrays.copyOf(mParent, capacity);
+        mLeft = Arrays.copyOf(mLeft, capacity);
+        mRight = Arrays.copyOf(mRight, capacity);
+        mData = Arrays.copyOf(mData, capacity);
+        for (int i = capacity - 1; i >= mCapacity; --i)
+        {
+            mParent[i] = mFreeList;
+            mLeft[i] = NULL;
+            mData[i] = FREE;
+            mFreeList = i;
+        }
+        mCapacity = capacity;
+    }
+
+    private static final int FREE = Integer.MIN_VALUE;
+}
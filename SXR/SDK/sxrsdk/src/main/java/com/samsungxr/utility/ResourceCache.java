@@ -36,9 +36,21 @@ import com.samsungxr.SXRImage;
  * 
  * @since 2.0.2
  */
-public class ResourceCache<T extends SXRHybridObject> extends ResourceCacheBase {
+public class ResourceCache<T extends SXRHybridObject> extends ResourceCacheBase<T> {
     private static final String TAG = Log.tag(ResourceCache.class);
 
+    /** Construct a cache which only keeps weak references */
+    public ResourceCache() {
+    }
+
+    /**
+     * Construct a cache which also keeps the most recently used
+     * resources in memory, up to {@code maxBytes}.
+     */
+    public ResourceCache(long maxBytes, BoundedResourceCache.SizeEstimator<? super T> sizer) {
+        super(maxBytes, sizer);
+    }
+
     /** Save a weak reference to the resource */
     public void put(SXRAndroidResource androidResource, T resource) {
         Log.d(TAG, "put resource %s to cache", androidResource);
@@ -48,7 +60,7 @@ public class ResourceCache<T extends SXRHybridObject> extends ResourceCacheBase
 
     /** Get the cached resource, or {@code null} */
     public T get(SXRAndroidResource androidResource) {
-        return (T) super.get(androidResource);
+        return super.get(androidResource);
     }
 
     /**
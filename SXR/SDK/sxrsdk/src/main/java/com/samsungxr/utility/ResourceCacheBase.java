@@ -20,12 +20,20 @@ import com.samsungxr.SXRAndroidResource;
 import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Basic cache-by-resource-description.
  *
  * Keeps system from reloading resources, so long as a previous copy is still in
  * memory.
+ * <p>
+ * Weak references alone let the garbage collector drop a resource as soon
+ * as the scene stops using it, so switching back and forth between scenes
+ * reloads the same assets. When a byte budget is set with
+ * {@link #setMaxBytes(long)} the most recently used resources are also held
+ * strongly until the budget is exceeded. Resources used by the current scene
+ * can be pinned so they are never evicted from the strong tier.
  *
  * @since 2.0.2
  */
@@ -34,31 +42,136 @@ public class ResourceCacheBase<T> {
 
     private final Map<SXRAndroidResource, WeakReference<T>> cache //
             = new ConcurrentHashMap<SXRAndroidResource, WeakReference<T>>();
+    private final BoundedResourceCache<SXRAndroidResource, T> strongCache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Construct a cache which only keeps weak references */
+    public ResourceCacheBase() {
+        this(0, new BoundedResourceCache.SizeEstimator<Object>() {
+            public long sizeOf(Object resource) {
+                return 1;
+            }
+        });
+    }
+
+    /**
+     * Construct a cache which also keeps strong references to the
+     * most recently used resources.
+     *
+     * @param maxBytes byte budget for the strong tier, 0 to disable it
+     * @param sizer    estimates the size of each resource
+     */
+    public ResourceCacheBase(long maxBytes, BoundedResourceCache.SizeEstimator<? super T> sizer) {
+        strongCache = new BoundedResourceCache<SXRAndroidResource, T>(maxBytes, sizer);
+    }
 
     /** Save a weak reference to the resource */
     public void put(SXRAndroidResource androidResource, T resource) {
         Log.d(TAG, "put resource %s to cache", androidResource);
 
         cache.put(androidResource, new WeakReference<T>(resource));
+        strongCache.put(androidResource, resource);
     }
 
     /** Get the cached resource, or {@code null} */
     public T get(SXRAndroidResource androidResource) {
+        T cached = strongCache.get(androidResource);
+        if (cached != null) {
+            hits.incrementAndGet();
+            androidResource.closeStream();
+            return cached;
+        }
         WeakReference<T> reference = cache.get(androidResource);
         if (reference == null) {
             // Not in map
             // Log.d(TAG, "get(%s) returning %s", androidResource, null);
+            misses.incrementAndGet();
             return null;
         }
-        T cached = reference.get();
+        cached = reference.get();
         if (cached == null) {
             // In map, but not in memory
             cache.remove(androidResource);
+            misses.incrementAndGet();
         } else {
+            // Still in memory, make it the most recently used again
+            strongCache.put(androidResource, cached);
+            hits.incrementAndGet();
             // No one will ever read this stream
             androidResource.closeStream();
         }
         // Log.d(TAG, "get(%s) returning %s", androidResource, cached);
         return cached;
     }
+
+    /**
+     * Set the byte budget for the strong tier.
+     * Resources are evicted immediately if the cache is over the new budget.
+     *
+     * @param maxBytes maximum bytes held strongly, 0 to only keep pinned resources
+     */
+    public void setMaxBytes(long maxBytes) {
+        strongCache.setMaxBytes(maxBytes);
+    }
+
+    public long getMaxBytes() {
+        return strongCache.getMaxBytes();
+    }
+
+    /** @return estimated size of the resources held strongly, in bytes */
+    public long getSizeBytes() {
+        return strongCache.getSizeBytes();
+    }
+
+    /**
+     * Keep the resource in memory until it is unpinned,
+     * regardless of the byte budget.
+     */
+    public void pin(SXRAndroidResource androidResource) {
+        strongCache.pin(androidResource);
+        WeakReference<T> reference = cache.get(androidResource);
+        T resource = (reference != null) ? reference.get() : null;
+        if (resource != null) {
+            strongCache.put(androidResource, resource);
+        }
+    }
+
+    public void unpin(SXRAndroidResource androidResource) {
+        strongCache.unpin(androidResource);
+    }
+
+    /** Unpin all resources, usually when the scene changes */
+    public void unpinAll() {
+        strongCache.unpinAll();
+    }
+
+    public void addEvictionListener(BoundedResourceCache.EvictionListener<SXRAndroidResource, T> listener) {
+        strongCache.addEvictionListener(listener);
+    }
+
+    public void removeEvictionListener(BoundedResourceCache.EvictionListener<SXRAndroidResource, T> listener) {
+        strongCache.removeEvictionListener(listener);
+    }
+
+    /** @return number of lookups which found the resource in either tier */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** @return number of lookups which had to load the resource */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** @return number of resources evicted from the strong tier */
+    public long getEvictionCount() {
+        return strongCache.getEvictionCount();
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        strongCache.resetStatistics();
+    }
 }
@@ -19,6 +19,7 @@
 
 #include "picker.h"
 
+#include <algorithm>
 #include <limits>
 #include "glm/glm.hpp"
 #include "glm/gtc/matrix_inverse.hpp"
@@ -29,6 +30,8 @@
 #include "objects/components/perspective_camera.h"
 #include "objects/components/render_data.h"
 #include "objects/components/mesh_collider.h"
+#include "objects/components/sphere_collider.h"
+#include "objects/components/box_collider.h"
 
 namespace sxr {
 
@@ -102,6 +105,209 @@ void Picker::pickClosest(Scene* scene,
     scene->unlockColliders();
 }
 
+/*
+ * Computes the world space bounds of all the enabled colliders in the scene
+ * so they can be sorted into a bounding volume hierarchy on the Java side.
+ * Each collider gets its pointer, its index in the scene collider list
+ * and six floats (min x, y, z, max x, y, z) in the output arrays.
+ * Colliders whose extent is not known (groups, custom shapes)
+ * get infinite bounds so they are always tested.
+ * Returns the number of enabled colliders, if it is larger than
+ * the capacity only the first ones are written.
+ */
+int Picker::getColliderBounds(Scene* scene,
+                              Collider** colliders, int* indices, float* bounds,
+                              int capacity)
+{
+    const std::vector<Component*>& all = scene->lockColliders();
+    const float inf = std::numeric_limits<float>::infinity();
+    int n = 0;
+
+    for (int i = 0; i < all.size(); ++i)
+    {
+        Collider* collider = static_cast<Collider*>(all[i]);
+        Node* owner = collider->owner_object();
+
+        if (!collider->enabled() || (owner == NULL) || !owner->enabled())
+        {
+            continue;
+        }
+        if (n < capacity)
+        {
+            BoundingVolume bv;
+            float* b = bounds + n * 6;
+
+            colliders[n] = collider;
+            indices[n] = i;
+            if (getWorldBounds(collider, owner, bv))
+            {
+                b[0] = bv.min_corner().x;
+                b[1] = bv.min_corner().y;
+                b[2] = bv.min_corner().z;
+                b[3] = bv.max_corner().x;
+                b[4] = bv.max_corner().y;
+                b[5] = bv.max_corner().z;
+            }
+            else
+            {
+                b[0] = b[1] = b[2] = -inf;
+                b[3] = b[4] = b[5] = inf;
+            }
+        }
+        ++n;
+    }
+    scene->unlockColliders();
+    return n;
+}
+
+/*
+ * Computes the bounds of the collider shape in world coordinates,
+ * using the same mesh fallbacks as the isHit functions.
+ * Returns false if the shape has no known extent.
+ */
+bool Picker::getWorldBounds(Collider* collider, Node* owner, BoundingVolume& bounds)
+{
+    RenderData* rd = owner->render_data();
+    Mesh* mesh = ((rd != NULL) ? rd->mesh() : NULL);
+    BoundingVolume local;
+
+    switch (collider->shape_type())
+    {
+        case COLLIDER_SHAPE_SPHERE:
+        {
+            float radius = static_cast<SphereCollider*>(collider)->get_radius();
+            glm::vec3 center(0, 0, 0);
+
+            if (mesh != NULL)
+            {
+                center = mesh->getBoundingVolume().center();
+                if (radius <= 0)
+                {
+                    radius = mesh->getBoundingVolume().radius();
+                }
+            }
+            if (radius <= 0)
+            {
+                radius = 1;
+            }
+            local.expand(center, radius);
+            break;
+        }
+
+        case COLLIDER_SHAPE_BOX:
+        {
+            glm::vec3 halfExtents = static_cast<BoxCollider*>(collider)->get_half_extents();
+
+            local.expand(halfExtents);
+            local.expand(-halfExtents);
+            break;
+        }
+
+        case COLLIDER_SHAPE_MESH:
+        {
+            Mesh* colliderMesh = static_cast<MeshCollider*>(collider)->mesh();
+
+            if (colliderMesh != NULL)
+            {
+                mesh = colliderMesh;
+            }
+            if (mesh == NULL)
+            {
+                return false;
+            }
+            local.expand(mesh->getBoundingVolume());
+            break;
+        }
+
+        default:
+            return false;
+    }
+    bounds.transform(local, owner->transform()->getModelMatrix());
+    return true;
+}
+
+/*
+ * Finds a collider selected by the Java side in the locked scene collider list.
+ * The index it had when its bounds were read is checked first,
+ * colliders removed since then are not returned.
+ */
+Collider* Picker::findCandidate(const std::vector<Component*>& colliders,
+                                Collider* candidate, int index)
+{
+    if ((index >= 0) && (index < colliders.size()) && (colliders[index] == candidate))
+    {
+        return candidate;
+    }
+    auto it = std::find(colliders.begin(), colliders.end(), candidate);
+    return (it != colliders.end()) ? candidate : NULL;
+}
+
+/*
+ * Intersects the input ray with the candidate colliders
+ * and returns the list of collisions.
+ * The ray is in world coordinates.
+ */
+void Picker::pickCandidates(Scene* scene, std::vector<ColliderData>& picklist,
+                            Collider** candidates, const int* indices, int count,
+                            const glm::vec3& ray_start, const glm::vec3& ray_dir)
+{
+    const std::vector<Component*>& colliders = scene->lockColliders();
+
+    for (int i = 0; i < count; ++i)
+    {
+        Collider* collider = findCandidate(colliders, candidates[i], indices[i]);
+        Node* owner = (collider != NULL) ? collider->owner_object() : NULL;
+
+        if ((owner != NULL) && collider->enabled() && owner->enabled())
+        {
+            ColliderData data = collider->isHit(owner, ray_start, ray_dir);
+            if ((collider->pick_distance() > 0) && (collider->pick_distance() < data.Distance))
+            {
+                data.IsHit = false;
+            }
+            if (data.IsHit)
+            {
+                picklist.push_back(data);
+            }
+        }
+    }
+    std::sort(picklist.begin(), picklist.end(), compareColliderData);
+    scene->unlockColliders();
+}
+
+/*
+ * Intersects the input ray with the candidate colliders
+ * and returns the one closest to the ray origin.
+ * The ray is in world coordinates.
+ */
+void Picker::pickClosestCandidate(Scene* scene, ColliderData& closest,
+                                  Collider** candidates, const int* indices, int count,
+                                  const glm::vec3& ray_start, const glm::vec3& ray_dir)
+{
+    const std::vector<Component*>& colliders = scene->lockColliders();
+
+    closest.Distance = std::numeric_limits<float>::infinity();
+    for (int i = 0; i < count; ++i)
+    {
+        Collider* collider = findCandidate(colliders, candidates[i], indices[i]);
+        Node* owner = (collider != NULL) ? collider->owner_object() : NULL;
+
+        if ((owner != NULL) && collider->enabled() && owner->enabled())
+        {
+            ColliderData data = collider->isHit(owner, ray_start, ray_dir);
+            if ((collider->pick_distance() > 0) && (collider->pick_distance() < data.Distance))
+            {
+                data.IsHit = false;
+            }
+            if (data.IsHit && (data.Distance < closest.Distance))
+            {
+                closest = data;
+            }
+        }
+    }
+    scene->unlockColliders();
+}
+
 /*
  * Intersects all the colliders in the scene with the set of
  * input scene objects (collidables) and returns the list of collisions.
@@ -116,39 +322,69 @@ void Picker::pickBounds(Scene* scene,
 
     for (auto it = colliders.begin(); it != colliders.end(); ++it)
     {
-        int cursorID = 0;
-        for (auto it2 = collidables.begin(); it2 != collidables.end(); ++it2)
+        pickBounds(static_cast<Collider*>(*it), picklist, collidables);
+    }
+    scene->unlockColliders();
+}
+
+/*
+ * Intersects the candidate colliders with the set of
+ * input scene objects (collidables) and returns the list of collisions,
+ * like pickBounds does for all the colliders.
+ */
+void Picker::pickCandidateBounds(Scene* scene,
+                                 std::vector<ColliderData>& picklist,
+                                 const std::vector<Node*>& collidables,
+                                 Collider** candidates, const int* indices, int count)
+{
+    const std::vector<Component*>& colliders = scene->lockColliders();
+
+    for (int i = 0; i < count; ++i)
+    {
+        Collider* collider = findCandidate(colliders, candidates[i], indices[i]);
+
+        if (collider != NULL)
         {
-            Node* collidable = *it2;
-            if ((collidable == NULL) || !collidable->enabled())
-            {
-                ++cursorID;
-                continue;
-            }
-            BoundingVolume& bv = collidable->getBoundingVolume();
-            glm::vec3 center(bv.center());
-            float bsphere[4] = { center.x, center.y, center.z, bv.radius()};
-            Collider* collider = reinterpret_cast<Collider*>(*it);
-            Node* owner = collider->owner_object();
-
-            if (collider->enabled() &&
-                (owner != NULL) &&
-                owner->enabled() &&
-                (bsphere[3] > 0) &&
-                (bsphere[3] != std::numeric_limits<float>::infinity()))
+            pickBounds(collider, picklist, collidables);
+        }
+    }
+    scene->unlockColliders();
+}
+
+void Picker::pickBounds(Collider* collider,
+                        std::vector<ColliderData>& picklist,
+                        const std::vector<Node*>& collidables)
+{
+    int cursorID = 0;
+    for (auto it2 = collidables.begin(); it2 != collidables.end(); ++it2)
+    {
+        Node* collidable = *it2;
+        if ((collidable == NULL) || !collidable->enabled())
+        {
+            ++cursorID;
+            continue;
+        }
+        BoundingVolume& bv = collidable->getBoundingVolume();
+        glm::vec3 center(bv.center());
+        float bsphere[4] = { center.x, center.y, center.z, bv.radius()};
+        Node* owner = collider->owner_object();
+
+        if (collider->enabled() &&
+            (owner != NULL) &&
+            owner->enabled() &&
+            (bsphere[3] > 0) &&
+            (bsphere[3] != std::numeric_limits<float>::infinity()))
+        {
+            ColliderData data = collider->isHit(owner, bsphere);
+            if (data.IsHit)
             {
-                ColliderData data = collider->isHit(owner, bsphere);
-                if (data.IsHit)
-                {
-                    data.CollidableIndex = cursorID;      // cursor ID is index of collidable
-                    data.ObjectHit = owner;
-                    picklist.push_back(data);
-                }
+                data.CollidableIndex = cursorID;      // cursor ID is index of collidable
+                data.ObjectHit = owner;
+                picklist.push_back(data);
             }
-            ++cursorID;
         }
+        ++cursorID;
     }
-    scene->unlockColliders();
 }
 
 /**
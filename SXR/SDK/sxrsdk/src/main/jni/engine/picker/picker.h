@@ -52,10 +52,27 @@ public:
             Transform* t,
             float ox, float oy, float oz,
             float dx, float dy, float dz);
+    static int getColliderBounds(
+            Scene* scene,
+            Collider** colliders, int* indices, float* bounds,
+            int capacity);
+    static void pickCandidates(
+            Scene* scene, std::vector<ColliderData>& pickList,
+            Collider** candidates, const int* indices, int count,
+            const glm::vec3& ray_start, const glm::vec3& ray_dir);
+    static void pickClosestCandidate(
+            Scene* scene, ColliderData& closest,
+            Collider** candidates, const int* indices, int count,
+            const glm::vec3& ray_start, const glm::vec3& ray_dir);
     static void pickBounds(
             Scene* scene,
             std::vector<ColliderData>& picklist,
             const std::vector<Node*>& collidables);
+    static void pickCandidateBounds(
+            Scene* scene,
+            std::vector<ColliderData>& picklist,
+            const std::vector<Node*>& collidables,
+            Collider** candidates, const int* indices, int count);
     static void pickNode(
             Node* node,
             float ox, float oy, float oz,
@@ -64,6 +81,14 @@ public:
     static glm::vec3 pickNodeAgainstBoundingBox(
             Node* node, float ox, float oy, float oz,
             float dx, float dy, float dz);
+
+private:
+    static void pickBounds(Collider* collider,
+                           std::vector<ColliderData>& picklist,
+                           const std::vector<Node*>& collidables);
+    static bool getWorldBounds(Collider* collider, Node* owner, BoundingVolume& bounds);
+    static Collider* findCandidate(const std::vector<Component*>& colliders,
+                                   Collider* candidate, int index);
 };
 
 }
@@ -57,6 +57,22 @@ extern "C" {
     JNIEXPORT jobjectArray JNICALL
     Java_com_samsungxr_NativePicker_pickVisible(JNIEnv * env,
             jobject obj, jlong jscene);
+    JNIEXPORT jint JNICALL
+    Java_com_samsungxr_NativePicker_getColliderBounds(JNIEnv * env,
+            jobject obj, jlong jscene, jlongArray jcolliders,
+            jintArray jindices, jfloatArray jbounds);
+    JNIEXPORT jobjectArray JNICALL
+    Java_com_samsungxr_NativePicker_pickColliders(JNIEnv * env,
+            jobject obj, jlong jscene, jlongArray jcolliders, jintArray jindices, jint count,
+            jfloat ox, jfloat oy, jfloat oz, jfloat dx, jfloat dy, jfloat dz);
+    JNIEXPORT jobject JNICALL
+    Java_com_samsungxr_NativePicker_pickClosestCollider(JNIEnv * env,
+            jobject obj, jlong jscene, jlongArray jcolliders, jintArray jindices, jint count,
+            jfloat ox, jfloat oy, jfloat oz, jfloat dx, jfloat dy, jfloat dz);
+    JNIEXPORT jobjectArray JNICALL
+    Java_com_samsungxr_NativePicker_pickBoundsColliders(JNIEnv * env,
+            jobject obj, jlong jscene, jobject jcollidables,
+            jlongArray jcolliders, jintArray jindices, jint count);
 }
 
 JNIEXPORT jlongArray JNICALL
@@ -193,28 +209,22 @@ Java_com_samsungxr_NativePicker_pickClosest(JNIEnv * env,
     return hitObject;
 }
 
-JNIEXPORT jobjectArray JNICALL
-Java_com_samsungxr_NativePicker_pickBounds(JNIEnv * env, jobject obj,
-                                         jlong jscene,
-                                         jobject jcollidables)
+static int getCollidables(JNIEnv* env, jobject jcollidables, std::vector<Node*>& collidables)
 {
     jclass listClass = env->FindClass("java/util/List");
     jmethodID sizeMethod = env->GetMethodID(listClass, "size", "()I");
     int n = env->CallIntMethod(jcollidables, sizeMethod, jcollidables);
-    int i = 0;
 
     if (n == 0)
     {
-        return NULL;
+        env->DeleteLocalRef(listClass);
+        return 0;
     }
     jclass hybridClass = env->FindClass("com/samsungxr/SXRHybridObject");
     jmethodID getMethod = env->GetMethodID(listClass, "get", "(I)Ljava/lang/Object;");
     jmethodID nativeMethod = env->GetMethodID(hybridClass, "getNative", "()J");
-    Scene *scene = reinterpret_cast<Scene *>(jscene);
-    std::vector<ColliderData> colliders;
-    std::vector<Node *> collidables;
 
-    for (i = 0; i < n; ++i)
+    for (int i = 0; i < n; ++i)
     {
         jobject sceneObj = env->CallObjectMethod(jcollidables, getMethod, i);
         if (sceneObj != NULL)
@@ -231,8 +241,11 @@ Java_com_samsungxr_NativePicker_pickBounds(JNIEnv * env, jobject obj,
     }
     env->DeleteLocalRef(listClass);
     env->DeleteLocalRef(hybridClass);
-    Picker::pickBounds(scene, colliders, collidables);
+    return n;
+}
 
+static jobjectArray makeBoundsHits(JNIEnv* env, const std::vector<ColliderData>& colliders)
+{
     if (colliders.size() == 0)
     {
         return NULL;
@@ -242,7 +255,7 @@ Java_com_samsungxr_NativePicker_pickBounds(JNIEnv * env, jobject obj,
     jmethodID makeHit = env->GetStaticMethodID(pickerClass, "makeObjectHit", "(JIFFFF)Lcom/samsungxr/SXRPicker$SXRPickedObject;");
     jobjectArray pickList = env->NewObjectArray(colliders.size(), hitClass, NULL);
 
-    i = 0;
+    int i = 0;
     for (auto it = colliders.begin(); it != colliders.end(); ++it)
     {
         const ColliderData& data = *it;
@@ -270,6 +283,23 @@ Java_com_samsungxr_NativePicker_pickBounds(JNIEnv * env, jobject obj,
     return pickList;
 }
 
+JNIEXPORT jobjectArray JNICALL
+Java_com_samsungxr_NativePicker_pickBounds(JNIEnv * env, jobject obj,
+                                         jlong jscene,
+                                         jobject jcollidables)
+{
+    Scene *scene = reinterpret_cast<Scene *>(jscene);
+    std::vector<ColliderData> colliders;
+    std::vector<Node *> collidables;
+
+    if (getCollidables(env, jcollidables, collidables) == 0)
+    {
+        return NULL;
+    }
+    Picker::pickBounds(scene, colliders, collidables);
+    return makeBoundsHits(env, colliders);
+}
+
 JNIEXPORT jobject JNICALL
 Java_com_samsungxr_NativePicker_pickNode(JNIEnv * env,
                                               jobject obj, jlong jnode,
@@ -380,4 +410,149 @@ Java_com_samsungxr_NativePicker_pickVisible(JNIEnv * env,
     return pickList;
 }
 
+JNIEXPORT jint JNICALL
+Java_com_samsungxr_NativePicker_getColliderBounds(JNIEnv * env,
+        jobject obj, jlong jscene, jlongArray jcolliders,
+        jintArray jindices, jfloatArray jbounds)
+{
+    Scene* scene = reinterpret_cast<Scene*>(jscene);
+    int capacity = env->GetArrayLength(jcolliders);
+    std::vector<Collider*> colliders(capacity);
+    jint* indices = env->GetIntArrayElements(jindices, 0);
+    jfloat* bounds = env->GetFloatArrayElements(jbounds, 0);
+    int n = Picker::getColliderBounds(scene, colliders.data(), indices, bounds, capacity);
+    int written = (n < capacity) ? n : capacity;
+    jlong* ptrs = env->GetLongArrayElements(jcolliders, 0);
+
+    for (int i = 0; i < written; ++i)
+    {
+        ptrs[i] = reinterpret_cast<jlong>(colliders[i]);
+    }
+    env->ReleaseLongArrayElements(jcolliders, ptrs, 0);
+    env->ReleaseFloatArrayElements(jbounds, bounds, 0);
+    env->ReleaseIntArrayElements(jindices, indices, 0);
+    return n;
+}
+
+static jobject makeHitObject(JNIEnv* env, jclass pickerClass,
+                             jmethodID makeHit, jmethodID makeHitMesh,
+                             const ColliderData& data)
+{
+    jlong pointerCollider = reinterpret_cast<jlong>(data.ColliderHit);
+    MeshCollider* meshCollider = (MeshCollider *) data.ColliderHit;
+
+    if (meshCollider &&
+        (meshCollider->shape_type() == COLLIDER_SHAPE_MESH) &&
+        meshCollider->pickCoordinatesEnabled())
+    {
+        return env->CallStaticObjectMethod(pickerClass, makeHitMesh, pointerCollider,
+                                           data.Distance,
+                                           data.HitPosition.x, data.HitPosition.y, data.HitPosition.z,
+                                           data.FaceIndex,
+                                           data.BarycentricCoordinates.x, data.BarycentricCoordinates.y, data.BarycentricCoordinates.z,
+                                           data.TextureCoordinates.x, data.TextureCoordinates.y,
+                                           data.NormalCoordinates.x, data.NormalCoordinates.y, data.NormalCoordinates.z);
+    }
+    return env->CallStaticObjectMethod(pickerClass, makeHit, pointerCollider,
+                                       data.Distance,
+                                       data.HitPosition.x, data.HitPosition.y, data.HitPosition.z);
+}
+
+static void getCandidates(JNIEnv* env, jlongArray jcolliders, int count,
+                          std::vector<Collider*>& candidates)
+{
+    jlong* ptrs = env->GetLongArrayElements(jcolliders, 0);
+
+    candidates.resize(count);
+    for (int i = 0; i < count; ++i)
+    {
+        candidates[i] = reinterpret_cast<Collider*>(ptrs[i]);
+    }
+    env->ReleaseLongArrayElements(jcolliders, ptrs, JNI_ABORT);
+}
+
+JNIEXPORT jobjectArray JNICALL
+Java_com_samsungxr_NativePicker_pickColliders(JNIEnv * env,
+        jobject obj, jlong jscene, jlongArray jcolliders, jintArray jindices, jint count,
+        jfloat ox, jfloat oy, jfloat oz, jfloat dx, jfloat dy, jfloat dz)
+{
+    jclass pickerClass = env->FindClass("com/samsungxr/SXRPicker");
+    jclass hitClass = env->FindClass("com/samsungxr/SXRPicker$SXRPickedObject");
+    jmethodID makeHitMesh = env->GetStaticMethodID(pickerClass, "makeHitMesh", "(JFFFFIFFFFFFFF)Lcom/samsungxr/SXRPicker$SXRPickedObject;");
+    jmethodID makeHit = env->GetStaticMethodID(pickerClass, "makeHit", "(JFFFF)Lcom/samsungxr/SXRPicker$SXRPickedObject;");
+    Scene* scene = reinterpret_cast<Scene*>(jscene);
+    std::vector<Collider*> candidates;
+    std::vector<ColliderData> colliders;
+
+    getCandidates(env, jcolliders, count, candidates);
+    jint* indices = env->GetIntArrayElements(jindices, 0);
+    Picker::pickCandidates(scene, colliders, candidates.data(), indices, count,
+                           glm::vec3(ox, oy, oz), glm::vec3(dx, dy, dz));
+    env->ReleaseIntArrayElements(jindices, indices, JNI_ABORT);
+
+    int i = 0;
+    jobjectArray pickList = env->NewObjectArray(colliders.size(), hitClass, NULL);
+
+    for (auto it = colliders.begin(); it != colliders.end(); ++it)
+    {
+        jobject hitObject = makeHitObject(env, pickerClass, makeHit, makeHitMesh, *it);
+        if (hitObject != 0)
+        {
+            env->SetObjectArrayElement(pickList, i++, hitObject);
+            env->DeleteLocalRef(hitObject);
+        }
+    }
+    env->DeleteLocalRef(pickerClass);
+    env->DeleteLocalRef(hitClass);
+    return pickList;
+}
+
+JNIEXPORT jobject JNICALL
+Java_com_samsungxr_NativePicker_pickClosestCollider(JNIEnv * env,
+        jobject obj, jlong jscene, jlongArray jcolliders, jintArray jindices, jint count,
+        jfloat ox, jfloat oy, jfloat oz, jfloat dx, jfloat dy, jfloat dz)
+{
+    Scene* scene = reinterpret_cast<Scene*>(jscene);
+    std::vector<Collider*> candidates;
+    ColliderData data;
+
+    getCandidates(env, jcolliders, count, candidates);
+    jint* indices = env->GetIntArrayElements(jindices, 0);
+    Picker::pickClosestCandidate(scene, data, candidates.data(), indices, count,
+                                 glm::vec3(ox, oy, oz), glm::vec3(dx, dy, dz));
+    env->ReleaseIntArrayElements(jindices, indices, JNI_ABORT);
+    if (!data.IsHit)
+    {
+        return 0L;
+    }
+    jclass pickerClass = env->FindClass("com/samsungxr/SXRPicker");
+    jmethodID makeHitMesh = env->GetStaticMethodID(pickerClass, "makeHitMesh", "(JFFFFIFFFFFFFF)Lcom/samsungxr/SXRPicker$SXRPickedObject;");
+    jmethodID makeHit = env->GetStaticMethodID(pickerClass, "makeHit", "(JFFFF)Lcom/samsungxr/SXRPicker$SXRPickedObject;");
+    jobject hitObject = makeHitObject(env, pickerClass, makeHit, makeHitMesh, data);
+
+    env->DeleteLocalRef(pickerClass);
+    return hitObject;
+}
+
+JNIEXPORT jobjectArray JNICALL
+Java_com_samsungxr_NativePicker_pickBoundsColliders(JNIEnv * env, jobject obj,
+        jlong jscene, jobject jcollidables,
+        jlongArray jcolliders, jintArray jindices, jint count)
+{
+    Scene *scene = reinterpret_cast<Scene *>(jscene);
+    std::vector<ColliderData> colliders;
+    std::vector<Node *> collidables;
+    std::vector<Collider*> candidates;
+
+    if ((count == 0) || (getCollidables(env, jcollidables, collidables) == 0))
+    {
+        return NULL;
+    }
+    getCandidates(env, jcolliders, count, candidates);
+    jint* indices = env->GetIntArrayElements(jindices, 0);
+    Picker::pickCandidateBounds(scene, colliders, collidables, candidates.data(), indices, count);
+    env->ReleaseIntArrayElements(jindices, indices, JNI_ABORT);
+    return makeBoundsHits(env, colliders);
+}
+
 }
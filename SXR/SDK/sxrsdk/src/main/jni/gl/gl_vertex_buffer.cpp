@@ -120,6 +120,21 @@ namespace sxr {
             LOGV("VertexBuffer::updateGPU created vertex buffer %d with %d vertices", mVBufferID, getVertexCount());
             mIsDirty = false;
         }
+        else if (mIsDirty && (mDirtyEnd > mDirtyFirst) &&
+                 ((mDirtyFirst > 0) || (mDirtyEnd < getVertexCount())))
+        {
+            int vertexSize = getTotalSize();
+
+            // only part of the vertices changed, keep the buffer and copy that range
+            GL(glBindBuffer(GL_ARRAY_BUFFER, mVBufferID));
+            GL(glBufferSubData(GL_ARRAY_BUFFER, mDirtyFirst * vertexSize,
+                               (mDirtyEnd - mDirtyFirst) * vertexSize,
+                               mVertexData + mDirtyFirst * vertexSize));
+            GL(glBindBuffer(GL_ARRAY_BUFFER, 0));
+            mIsDirty = false;
+            LOGV("VertexBuffer::updateGPU updated vertices %d to %d of vertex buffer %d",
+                 mDirtyFirst, mDirtyEnd, mVBufferID);
+        }
         else if (mIsDirty)
         {
             GL(glBindBuffer(GL_ARRAY_BUFFER, mVBufferID));
@@ -129,6 +144,7 @@ namespace sxr {
             mIsDirty = false;
             LOGV("VertexBuffer::updateGPU updated vertex buffer %d", mVBufferID);
         }
+        mDirtyFirst = mDirtyEnd = 0;
         return true;
     }
 
@@ -90,6 +90,23 @@ void RenderData::set_mesh(Mesh* mesh)
     }
 }
 
+/**
+ * Called when the vertex positions of the mesh have changed,
+ * so the bounding volumes used for culling are recomputed.
+ */
+void RenderData::dirtyBoundingVolume()
+{
+    if (mesh_)
+    {
+        mesh_->dirtyBoundingVolume();
+    }
+    Node* owner = owner_object();
+    if (owner)
+    {
+        owner->dirtyHierarchicalBoundingVolume();
+    }
+}
+
 int RenderData::cull_face(int pass) const {
     if (pass >= 0 && pass < render_pass_list_.size()) {
         return render_pass_list_[pass]->cull_face();
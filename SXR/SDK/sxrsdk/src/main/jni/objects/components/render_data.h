@@ -135,6 +135,7 @@ public:
 
     virtual bool updateGPU(Renderer*,Shader*);
     void set_mesh(Mesh* mesh);
+    void dirtyBoundingVolume();
 
     void add_pass(RenderPass* render_pass);
     void remove_pass(int pass);
@@ -34,6 +34,10 @@ extern "C" {
     Java_com_samsungxr_NativeRenderData_setMesh(JNIEnv * env,
                                               jobject obj, jlong jrender_data, jlong jmesh);
 
+    JNIEXPORT void JNICALL
+    Java_com_samsungxr_NativeRenderData_dirtyBoundingVolume(JNIEnv * env,
+                                                          jobject obj, jlong jrender_data);
+
     JNIEXPORT void JNICALL
     Java_com_samsungxr_NativeRenderData_addPass(JNIEnv* env,
                                               jobject obj, jlong jrender_data, jlong jrender_pass);
@@ -211,6 +215,13 @@ Java_com_samsungxr_NativeRenderData_setMesh(JNIEnv * env,
     render_data->set_mesh(mesh);
 }
 
+JNIEXPORT void JNICALL
+Java_com_samsungxr_NativeRenderData_dirtyBoundingVolume(JNIEnv * env,
+                                                      jobject obj, jlong jrender_data) {
+    RenderData* render_data = reinterpret_cast<RenderData*>(jrender_data);
+    render_data->dirtyBoundingVolume();
+}
+
 JNIEXPORT void JNICALL
 Java_com_samsungxr_NativeRenderData_addPass(JNIEnv* env,
                                           jobject obj, jlong jrender_data, jlong jrender_pass) {
@@ -86,6 +86,12 @@ public:
 
     const BoundingVolume& getBoundingVolume();
 
+    /*
+     * Recompute the bounding volume from the vertices
+     * the next time it is needed.
+     */
+    void dirtyBoundingVolume() { have_bounding_volume_ = false; }
+
     bool isDirty() const { return mVertices->isDirty(); }
 
 private:
@@ -7,6 +7,8 @@
 #include "vertex_buffer.h"
 #include "util/sxr_log.h"
 #include <sstream>
+#include <algorithm>
+#include <cstring>
 
 namespace sxr {
 
@@ -155,6 +157,143 @@ namespace sxr {
     }
 
 
+    /**
+     * Update a float vertex attribute for a range of vertices.
+     * @param attributeName name of attribute to update
+     * @param src           closely packed source values for the range
+     * @param firstVertex   index of first vertex to update
+     * @param numVertices   number of vertices to update
+     * @return true if attribute was updated, false on error
+     */
+    bool    VertexBuffer::setFloatRange(const char* attributeName, const float* src, int firstVertex, int numVertices)
+    {
+        std::lock_guard<std::mutex> lock(mLock);
+        DataEntry*      attr = find(attributeName);
+        float*          dest;
+        int             dstStride;
+        int             attrStride;
+
+        if (attr == NULL)
+        {
+            LOGE("VertexBuffer: ERROR attribute %s not found in vertex buffer", attributeName);
+            return false;
+        }
+        if ((src == NULL) || (firstVertex < 0) || (numVertices < 0) ||
+            (firstVertex + numVertices > mVertexCount))
+        {
+            LOGE("VertexBuffer: cannot set attribute %s for vertices %d to %d of %d",
+                 attributeName, firstVertex, firstVertex + numVertices, mVertexCount);
+            return false;
+        }
+        attrStride = attr->Size / sizeof(float);
+        dstStride = getTotalSize() / sizeof(float);
+        dest = reinterpret_cast<float*>(mVertexData) + attr->Offset / sizeof(float) + firstVertex * dstStride;
+        for (int i = 0; i < numVertices; ++i)
+        {
+            for (int j = 0; j < attrStride; ++j)
+            {
+                dest[j] = src[j];
+            }
+            dest += dstStride;
+            src += attrStride;
+        }
+        markDirty(firstVertex, numVertices);
+        attr->IsSet = true;
+        return true;
+    }
+
+    /**
+     * Update all the vertex attributes of a range of vertices from interleaved data.
+     * @param src           source vertex data with the same layout as this buffer
+     * @param srcSize       number of bytes in the source data
+     * @param firstVertex   index of first vertex to update
+     * @param numVertices   number of vertices to update
+     * @param attributeMask indicates which attributes are set by the source data
+     * @return true if the vertices were updated, false on error
+     */
+    bool    VertexBuffer::setVertexData(const void* src, int srcSize, int firstVertex, int numVertices, unsigned int attributeMask)
+    {
+        std::lock_guard<std::mutex> lock(mLock);
+        int vertexSize = getTotalSize();
+
+        if ((mVertexCount == 0) && (firstVertex == 0) && (numVertices > 0))
+        {
+            setVertexCount(numVertices);
+        }
+        if ((src == NULL) || (firstVertex < 0) || (numVertices < 0) ||
+            (firstVertex + numVertices > mVertexCount) ||
+            ((firstVertex + numVertices) * vertexSize > srcSize))
+        {
+            LOGE("VertexBuffer: cannot set vertices %d to %d of %d",
+                 firstVertex, firstVertex + numVertices, mVertexCount);
+            return false;
+        }
+        memcpy(mVertexData + firstVertex * vertexSize,
+               static_cast<const char*>(src) + firstVertex * vertexSize,
+               numVertices * vertexSize);
+        forEachEntry([attributeMask](DataEntry& e)
+        {
+            if ((e.Index < 32) && (attributeMask & (1U << e.Index)))
+            {
+                e.IsSet = true;
+            }
+        });
+        if (numVertices == mVertexCount)
+        {
+            markDirty();
+        }
+        else
+        {
+            markDirty(firstVertex, numVertices);
+        }
+        return true;
+    }
+
+    bool    VertexBuffer::getVertexData(void* dest, int destSize) const
+    {
+        std::lock_guard<std::mutex> lock(mLock);
+        int dataSize = getTotalSize() * mVertexCount;
+
+        if ((dest == NULL) || (destSize < dataSize))
+        {
+            LOGE("VertexBuffer: cannot copy %d bytes of vertex data into %d bytes", dataSize, destSize);
+            return false;
+        }
+        if (dataSize > 0)
+        {
+            memcpy(dest, mVertexData, dataSize);
+        }
+        return true;
+    }
+
+    void VertexBuffer::markDirty()
+    {
+        DataDescriptor::markDirty();
+        mDirtyFirst = 0;
+        mDirtyEnd = mVertexCount;
+    }
+
+    /*
+     * Extend the range of vertices which have to be
+     * copied to the GPU before the next render.
+     */
+    void VertexBuffer::markDirty(int firstVertex, int numVertices)
+    {
+        int end = firstVertex + numVertices;
+
+        if (!mIsDirty)
+        {
+            mDirtyFirst = firstVertex;
+            mDirtyEnd = end;
+        }
+        else
+        {
+            mDirtyFirst = std::min(mDirtyFirst, firstVertex);
+            mDirtyEnd = std::max(mDirtyEnd, end);
+        }
+        mIsDirty = true;
+    }
+
     bool    VertexBuffer::getFloatVec(const char* attributeName, float* dest, int destSize, int destStride) const
     {
         std::lock_guard<std::mutex> lock(mLock);
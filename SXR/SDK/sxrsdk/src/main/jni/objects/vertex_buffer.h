@@ -93,6 +93,50 @@ namespace sxr {
          */
         bool    getFloatVec(const char* attributeName, float* dest, int destSize, int destStride) const;
 
+        /**
+         * Set the values of a float vertex attribute for a range of vertices.
+         * Other vertices keep their values and only the changed range
+         * is copied to the GPU when the renderer supports it.
+         * The vertex count must already be established.
+         *
+         * @param name        name of entry to set.
+         * @param src         closely packed values for the vertices in the range.
+         * @param firstVertex index of first vertex to update.
+         * @param numVertices number of vertices to update.
+         * @returns true if successfully set, false on error.
+         * @see setFloatVec
+         */
+        bool    setFloatRange(const char* attributeName, const float* src, int firstVertex, int numVertices);
+
+        /**
+         * Set the values of all the vertex attributes for a range of vertices
+         * from interleaved data laid out exactly like this vertex buffer:
+         * one vertex after the other, each with its attributes in descriptor order.
+         * The source holds the data for all the vertices, only the range
+         * is copied. If the vertex count is not established yet,
+         * it becomes the number of vertices in the range, which must start at 0.
+         *
+         * @param src           interleaved vertex data for all vertices.
+         * @param srcSize       number of bytes in the source data.
+         * @param firstVertex   index of first vertex to update.
+         * @param numVertices   number of vertices to update.
+         * @param attributeMask bit N set if the attribute with index N
+         *                      has data in the source.
+         * @returns true if successfully set, false on error.
+         * @see getVertexData
+         */
+        bool    setVertexData(const void* src, int srcSize, int firstVertex, int numVertices, unsigned int attributeMask);
+
+        /**
+         * Copy the interleaved data of all the vertices.
+         * @param dest      destination for the vertex data.
+         * @param destSize  number of bytes in the destination,
+         *                  at least {@link getDataSize()}.
+         * @returns true if the data was copied, false if the destination is too small.
+         * @see setVertexData
+         */
+        bool    getVertexData(void* dest, int destSize) const;
+
         /**
          * Set all the values for an integer vertex attribute.
          * If the named entry is not an int vector in the descriptor
@@ -136,9 +180,11 @@ namespace sxr {
         virtual void    bindToShader(Shader* shader, IndexBuffer* ibuf) = 0;
         void            dump() const;
         void            dump(const char* attrName) const;
+        virtual void    markDirty();
 
     protected:
         bool            setVertexCount(int vertexCount);
+        void            markDirty(int firstVertex, int numVertices);
         const void*     getData(const char* attributeName, int& size) const;
         const void*     getData(int index, int& size) const;
 
@@ -146,6 +192,8 @@ namespace sxr {
         int             mVertexCount;       // current number of vertices
         char*           mVertexData;        // vertex data buffer
         int             mBoneFlags = 0;     // indicates which vertex attributes are bones
+        int             mDirtyFirst = 0;    // first vertex changed since last render
+        int             mDirtyEnd = 0;      // one past the last vertex changed since last render
     };
 
 } // end sxrf
@@ -64,6 +64,25 @@ namespace sxr {
     Java_com_samsungxr_NativeVertexBuffer_setFloatVec(JNIEnv* env, jobject obj,
                                                     jlong jvbuf, jstring attribName,
                                                     jobject jfloatbuf, jint stride, jint ofs);
+    JNIEXPORT bool JNICALL
+    Java_com_samsungxr_NativeVertexBuffer_setFloatRange(JNIEnv* env, jobject obj,
+                                                      jlong jvbuf, jstring attribName,
+                                                      jfloatArray data, jint firstVertex, jint numVertices);
+
+    JNIEXPORT bool JNICALL
+    Java_com_samsungxr_NativeVertexBuffer_setVertexData(JNIEnv* env, jobject obj,
+                                                      jlong jvbuf, jobject jbytebuf,
+                                                      jint firstVertex, jint numVertices, jint attributeMask);
+    JNIEXPORT bool JNICALL
+    Java_com_samsungxr_NativeVertexBuffer_getVertexData(JNIEnv* env, jobject obj,
+                                                      jlong jvbuf, jobject jbytebuf);
+    JNIEXPORT int JNICALL
+    Java_com_samsungxr_NativeVertexBuffer_getVertexSize(JNIEnv* env, jobject obj,
+                                                      jlong jvbuf);
+    JNIEXPORT bool JNICALL
+    Java_com_samsungxr_NativeVertexBuffer_getAttributeInfo(JNIEnv* env, jobject obj,
+                                                         jlong jvbuf, jstring attribName,
+                                                         jintArray jinfo);
 
     JNIEXPORT bool JNICALL
     Java_com_samsungxr_NativeVertexBuffer_isSet(JNIEnv* env, jobject obj,
@@ -72,6 +91,10 @@ namespace sxr {
     Java_com_samsungxr_NativeVertexBuffer_getVertexCount(JNIEnv* env, jobject obj,
                                                       jlong jvbuf);
 
+    JNIEXPORT int JNICALL
+    Java_com_samsungxr_NativeVertexBuffer_getDataSize(JNIEnv* env, jobject obj,
+                                                   jlong jvbuf);
+
     JNIEXPORT int JNICALL
     Java_com_samsungxr_NativeVertexBuffer_getAttributeSize(JNIEnv* env, jobject obj,
                                                         jlong jvbuf, jstring attribName);
@@ -202,6 +225,28 @@ Java_com_samsungxr_NativeVertexBuffer_setFloatArray(JNIEnv * env, jobject obj,
     return rc;
 }
 
+JNIEXPORT bool JNICALL
+Java_com_samsungxr_NativeVertexBuffer_setFloatRange(JNIEnv* env, jobject obj,
+                                                  jlong jvbuf, jstring attribName,
+                                                  jfloatArray jdata, jint firstVertex, jint numVertices)
+{
+    VertexBuffer* vbuf = reinterpret_cast<VertexBuffer*>(jvbuf);
+    const char* char_key = env->GetStringUTFChars(attribName, 0);
+    int attribSize = vbuf->getByteSize(char_key) / sizeof(float);
+    int ofs = firstVertex * attribSize;
+    bool rc = false;
+
+    if ((attribSize > 0) && (ofs >= 0) &&
+        (ofs + numVertices * attribSize <= env->GetArrayLength(jdata)))
+    {
+        jfloat* attribData = env->GetFloatArrayElements(jdata, 0);
+        rc = vbuf->setFloatRange(char_key, attribData + ofs, firstVertex, numVertices);
+        env->ReleaseFloatArrayElements(jdata, attribData, JNI_ABORT);
+    }
+    env->ReleaseStringUTFChars(attribName, char_key);
+    return rc;
+}
+
 JNIEXPORT bool JNICALL
 Java_com_samsungxr_NativeVertexBuffer_setFloatVec(JNIEnv* env, jobject obj,
                                                 jlong jvbuf, jstring attribName,
@@ -214,7 +259,66 @@ Java_com_samsungxr_NativeVertexBuffer_setFloatVec(JNIEnv* env, jobject obj,
     if (bufptr)
     {
         int capacity = env->GetDirectBufferCapacity(jfloatbuf) - ofs;
-        rc = vbuf->setFloatVec(char_key, bufptr + ofs, capacity, stride);
+        rc = vbuf->setFloatVec(char_key, bufptr, capacity, stride);
+    }
+    env->ReleaseStringUTFChars(attribName, char_key);
+    return rc;
+}
+
+JNIEXPORT bool JNICALL
+Java_com_samsungxr_NativeVertexBuffer_setVertexData(JNIEnv* env, jobject obj,
+                                                  jlong jvbuf, jobject jbytebuf,
+                                                  jint firstVertex, jint numVertices, jint attributeMask)
+{
+    VertexBuffer* vbuf = reinterpret_cast<VertexBuffer*>(jvbuf);
+    const void* bufptr = env->GetDirectBufferAddress(jbytebuf);
+
+    if (bufptr == NULL)
+    {
+        return false;
+    }
+    int capacity = static_cast<int>(env->GetDirectBufferCapacity(jbytebuf));
+    return vbuf->setVertexData(bufptr, capacity, firstVertex, numVertices,
+                               static_cast<unsigned int>(attributeMask));
+}
+
+JNIEXPORT bool JNICALL
+Java_com_samsungxr_NativeVertexBuffer_getVertexData(JNIEnv* env, jobject obj,
+                                                  jlong jvbuf, jobject jbytebuf)
+{
+    VertexBuffer* vbuf = reinterpret_cast<VertexBuffer*>(jvbuf);
+    void* bufptr = env->GetDirectBufferAddress(jbytebuf);
+
+    if (bufptr == NULL)
+    {
+        return false;
+    }
+    int capacity = static_cast<int>(env->GetDirectBufferCapacity(jbytebuf));
+    return vbuf->getVertexData(bufptr, capacity);
+}
+
+JNIEXPORT int JNICALL
+Java_com_samsungxr_NativeVertexBuffer_getVertexSize(JNIEnv* env, jobject obj, jlong jvbuf)
+{
+    VertexBuffer* vbuf = reinterpret_cast<VertexBuffer*>(jvbuf);
+    return vbuf->getTotalSize();
+}
+
+JNIEXPORT bool JNICALL
+Java_com_samsungxr_NativeVertexBuffer_getAttributeInfo(JNIEnv* env, jobject obj,
+                                                     jlong jvbuf, jstring attribName,
+                                                     jintArray jinfo)
+{
+    VertexBuffer* vbuf = reinterpret_cast<VertexBuffer*>(jvbuf);
+    const char* char_key = env->GetStringUTFChars(attribName, 0);
+    const VertexBuffer::DataEntry* entry = vbuf->find(char_key);
+    bool rc = false;
+
+    if ((entry != NULL) && (env->GetArrayLength(jinfo) >= 5))
+    {
+        jint info[5] = { entry->Index, entry->Offset, entry->Size, entry->IsInt, entry->IsSet };
+        env->SetIntArrayRegion(jinfo, 0, 5, info);
+        rc = true;
     }
     env->ReleaseStringUTFChars(attribName, char_key);
     return rc;
@@ -254,6 +358,13 @@ Java_com_samsungxr_NativeVertexBuffer_getVertexCount(JNIEnv* env, jobject obj, j
     return vbuf->getVertexCount();
 }
 
+JNIEXPORT int JNICALL
+Java_com_samsungxr_NativeVertexBuffer_getDataSize(JNIEnv* env, jobject obj, jlong jvbuf)
+{
+    VertexBuffer* vbuf = reinterpret_cast<VertexBuffer*>(jvbuf);
+    return vbuf->getDataSize();
+}
+
 JNIEXPORT int JNICALL
 Java_com_samsungxr_NativeVertexBuffer_getAttributeSize(JNIEnv* env, jobject obj,
                                                      jlong jvbuf, jstring attribName)